@@ -2,13 +2,24 @@ package com.gigazelensky.antispoof;
 
 import com.gigazelensky.antispoof.commands.AntiSpoofCommand;
 import com.gigazelensky.antispoof.data.PlayerData;
+import com.gigazelensky.antispoof.data.Violation;
 import com.gigazelensky.antispoof.hooks.AntiSpoofPlaceholders;
 import com.gigazelensky.antispoof.listeners.PermissionChangeListener;
 import com.gigazelensky.antispoof.listeners.PlayerEventListener;
 import com.gigazelensky.antispoof.managers.AlertManager;
+import com.gigazelensky.antispoof.managers.AnalyticsManager;
+import com.gigazelensky.antispoof.managers.BotWaveManager;
 import com.gigazelensky.antispoof.managers.ConfigManager;
 import com.gigazelensky.antispoof.managers.DetectionManager;
+import com.gigazelensky.antispoof.managers.ExportManager;
+import com.gigazelensky.antispoof.managers.FingerprintManager;
+import com.gigazelensky.antispoof.managers.HistoryManager;
+import com.gigazelensky.antispoof.managers.PunishmentDispatcher;
+import com.gigazelensky.antispoof.managers.ReevaluationManager;
+import com.gigazelensky.antispoof.managers.TraceManager;
+import com.gigazelensky.antispoof.utils.DetectionLog;
 import com.gigazelensky.antispoof.utils.DiscordWebhookHandler;
+import com.gigazelensky.antispoof.utils.RuleMatcher;
 import com.gigazelensky.antispoof.utils.VersionChecker;
 import com.github.retrooper.packetevents.PacketEvents;
 import io.github.retrooper.packetevents.factory.spigot.SpigotPacketEventsBuilder;
@@ -17,20 +28,28 @@ import org.bukkit.entity.Player;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.geysermc.floodgate.api.FloodgateApi;
 
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.regex.Pattern;
 
 public class AntiSpoofPlugin extends JavaPlugin {
     
     private ConfigManager configManager;
+    private TraceManager traceManager;
+    private DetectionLog detectionLog;
     private DiscordWebhookHandler discordWebhookHandler;
     private AlertManager alertManager;
     private DetectionManager detectionManager;
+    private FingerprintManager fingerprintManager;
+    private HistoryManager historyManager;
+    private AnalyticsManager analyticsManager;
+    private ExportManager exportManager;
+    private BotWaveManager botWaveManager;
+    private ReevaluationManager reevaluationManager;
+    private PunishmentDispatcher punishmentDispatcher;
     private PlayerEventListener playerEventListener;
     
     private final ConcurrentHashMap<UUID, PlayerData> playerDataMap = new ConcurrentHashMap<>();
@@ -45,8 +64,17 @@ public class AntiSpoofPlugin extends JavaPlugin {
         
         // Initialize managers
         this.configManager = new ConfigManager(this);
+        this.traceManager = new TraceManager(this);
+        this.detectionLog = new DetectionLog(this);
         this.alertManager = new AlertManager(this);
+        this.punishmentDispatcher = new PunishmentDispatcher(this);
         this.detectionManager = new DetectionManager(this);
+        this.fingerprintManager = new FingerprintManager(this);
+        this.historyManager = new HistoryManager(this);
+        this.analyticsManager = new AnalyticsManager(this);
+        this.exportManager = new ExportManager(this);
+        this.botWaveManager = new BotWaveManager(this);
+        this.reevaluationManager = new ReevaluationManager(this);
         this.discordWebhookHandler = new DiscordWebhookHandler(this);
         
         // Initialize version checker
@@ -112,11 +140,12 @@ public class AntiSpoofPlugin extends JavaPlugin {
             for (Player player : Bukkit.getOnlinePlayers()) {
                 alertManager.registerPlayer(player);
             }
-            if (configManager.isDebugMode()) {
-                getLogger().info("[Debug] Initialized alert recipients list");
-            }
+            detectionLog.debug("Initialized alert recipients list", null);
         }, 40L); // 2 seconds after server fully starts
         
+        // Report brand and channel rules that ran out of their regex time budget
+        Bukkit.getScheduler().runTaskTimerAsynchronously(this, configManager::reportRegexTimeouts, 1200L, 1200L);
+        
         getLogger().info("AntiSpoof v" + getDescription().getVersion() + " enabled!");
     }
     
@@ -140,9 +169,8 @@ public class AntiSpoofPlugin extends JavaPlugin {
                     // Store brand by UUID to avoid name conflicts
                     playerBrands.put(playerUuid, brand);
                     
-                    if (configManager.isDebugMode()) {
-                        getLogger().info("[Debug] Received brand for " + player.getName() + ": " + brand);
-                    }
+                    detectionLog.debug(player, "Received brand", brand);
+                    analyticsManager.recordBrand(playerUuid, brand);
                     
                     // Trigger a check for this player if brand is now known
                     detectionManager.checkPlayerAsync(player, false);
@@ -166,6 +194,42 @@ public class AntiSpoofPlugin extends JavaPlugin {
         return detectionManager;
     }
     
+    public PunishmentDispatcher getPunishmentDispatcher() {
+        return punishmentDispatcher;
+    }
+    
+    public DetectionLog getDetectionLog() {
+        return detectionLog;
+    }
+    
+    public TraceManager getTraceManager() {
+        return traceManager;
+    }
+    
+    public FingerprintManager getFingerprintManager() {
+        return fingerprintManager;
+    }
+    
+    public HistoryManager getHistoryManager() {
+        return historyManager;
+    }
+    
+    public AnalyticsManager getAnalyticsManager() {
+        return analyticsManager;
+    }
+    
+    public ExportManager getExportManager() {
+        return exportManager;
+    }
+    
+    public BotWaveManager getBotWaveManager() {
+        return botWaveManager;
+    }
+    
+    public ReevaluationManager getReevaluationManager() {
+        return reevaluationManager;
+    }
+    
     public ConcurrentHashMap<UUID, PlayerData> getPlayerDataMap() {
         return playerDataMap;
     }
@@ -210,9 +274,7 @@ public class AntiSpoofPlugin extends JavaPlugin {
     public boolean sendBrandAlert(Player player, String brand, String brandKey) {
         // Skip if this player has already had a brand alert
         if (hasPlayerBeenBrandAlerted(player)) {
-            if (configManager.isDebugMode()) {
-                getLogger().info("[Debug] Suppressing duplicate brand alert for " + player.getName());
-            }
+            detectionLog.debug(player, "Suppressing duplicate brand alert", null);
             return false;
         }
         
@@ -243,13 +305,13 @@ public class AntiSpoofPlugin extends JavaPlugin {
             .replace("%brand%", brand);
         
         // Send the alert - to console and to players with permission
-        getLogger().info(consoleMessage);
+        detectionLog.alert(player, "CLIENT_BRAND", consoleMessage);
         alertManager.sendAlertToRecipients(alertMessage);
         
         // Send to Discord if enabled for this brand
         if (configManager.isDiscordWebhookEnabled() && brandConfig.shouldDiscordAlert()) {
-            List<String> brandInfo = new ArrayList<>();
-            brandInfo.add("Client brand: " + brand);
+            List<Violation> brandInfo = Collections.singletonList(
+                new Violation("CLIENT_BRAND", "Client brand", brand));
             
             discordWebhookHandler.sendAlert(
                 player,
@@ -270,10 +332,7 @@ public class AntiSpoofPlugin extends JavaPlugin {
         if (floodgateApi != null) {
             try {
                 if (floodgateApi.isFloodgatePlayer(player.getUniqueId())) {
-                    if (configManager.isDebugMode()) {
-                        getLogger().info("[Debug] Player " + player.getName() + 
-                                       " identified as Bedrock player via Floodgate API");
-                    }
+                    detectionLog.debug(player, "Identified Bedrock player via Floodgate API", null);
                     return true;
                 }
             } catch (Exception e) {
@@ -288,10 +347,7 @@ public class AntiSpoofPlugin extends JavaPlugin {
         if (configManager.isBedrockPrefixCheckEnabled()) {
             String prefix = configManager.getBedrockPrefix();
             if (player.getName().startsWith(prefix)) {
-                if (configManager.isDebugMode()) {
-                    getLogger().info("[Debug] Player " + player.getName() + 
-                                   " identified as Bedrock player via prefix check");
-                }
+                detectionLog.debug(player, "Identified Bedrock player via prefix check", null);
                 return true;
             }
         }
@@ -391,13 +447,13 @@ public class AntiSpoofPlugin extends JavaPlugin {
                 
                 // For each required channel pattern, check if any player channel matches it
                 for (int i = 0; i < brandConfig.getRequiredChannels().size(); i++) {
-                    Pattern pattern = brandConfig.getRequiredChannels().get(i);
+                    RuleMatcher pattern = brandConfig.getRequiredChannels().get(i);
                     boolean patternMatched = false;
                     
                     // Check each player channel against this pattern
                     for (String channel : filteredChannels) {
                         try {
-                            if (pattern.matcher(channel).matches()) {
+                            if (pattern.matches(channel)) {
                                 patternMatched = true;
                                 break;
                             }
@@ -470,6 +526,9 @@ public class AntiSpoofPlugin extends JavaPlugin {
         getDetectionManager().handlePlayerQuit(uuid);
         getAlertManager().handlePlayerQuit(uuid);
         getDiscordWebhookHandler().handlePlayerQuit(uuid);
+        getTraceManager().handlePlayerQuit(uuid);
+        getFingerprintManager().handlePlayerQuit(uuid);
+        getBotWaveManager().handlePlayerQuit(uuid);
         playerBrands.remove(uuid);
         playerDataMap.remove(uuid);
         brandAlertedPlayers.remove(uuid);
@@ -481,12 +540,37 @@ public class AntiSpoofPlugin extends JavaPlugin {
 
     @Override
     public void onDisable() {
+        // Run any punishments that are still queued
+        if (punishmentDispatcher != null) {
+            punishmentDispatcher.shutdown();
+        }
+        if (discordWebhookHandler != null) {
+            discordWebhookHandler.shutdown();
+        }
+        if (fingerprintManager != null) {
+            fingerprintManager.shutdown();
+        }
+        if (historyManager != null) {
+            historyManager.shutdown();
+        }
+        if (analyticsManager != null) {
+            analyticsManager.dump();
+        }
+        if (reevaluationManager != null) {
+            reevaluationManager.shutdown();
+        }
+        if (configManager != null) {
+            configManager.shutdown();
+        }
         if (PacketEvents.getAPI() != null) {
             PacketEvents.getAPI().terminate();
         }
         playerBrands.clear();
         playerDataMap.clear();
         brandAlertedPlayers.clear();
+        if (detectionLog != null) {
+            detectionLog.shutdown();
+        }
         getLogger().info("AntiSpoof disabled!");
     }
 }
\ No newline at end of file
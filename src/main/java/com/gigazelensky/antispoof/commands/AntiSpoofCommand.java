@@ -1,8 +1,15 @@
 package com.gigazelensky.antispoof.commands;
 
 import com.gigazelensky.antispoof.AntiSpoofPlugin;
+import com.gigazelensky.antispoof.data.AlertType;
+import com.gigazelensky.antispoof.data.ClientFingerprint;
 import com.gigazelensky.antispoof.data.PlayerData;
+import com.gigazelensky.antispoof.data.PlayerTrace;
 import com.gigazelensky.antispoof.managers.ConfigManager;
+import com.gigazelensky.antispoof.managers.FingerprintManager;
+import com.gigazelensky.antispoof.managers.TraceManager;
+import com.gigazelensky.antispoof.utils.HistoryStore;
+import com.gigazelensky.antispoof.utils.RuleMatcher;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.command.Command;
@@ -12,16 +19,27 @@ import org.bukkit.command.TabCompleter;
 import org.bukkit.entity.Player;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Date;
+import java.util.EnumSet;
 import java.util.Set;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 public class AntiSpoofCommand implements CommandExecutor, TabCompleter {
     private final AntiSpoofPlugin plugin;
     private final List<String> subcommands = Arrays.asList(
-        "channels", "brand", "help", "reload", "check", "blockedchannels", "blockedbrands", "runcheck"
+        "channels", "brand", "help", "reload", "check", "blockedchannels", "blockedbrands", "runcheck", "trace", "fingerprint", 
+        "history", "stats", "export"
     );
+    
+    // Number of trace lines shown in chat by /antispoof trace <player> dump
+    private static final int TRACE_DUMP_LINES = 40;
+    
+    // Alert types that never end up in the violation history
+    private static final Set<AlertType> NON_VIOLATION_TYPES = EnumSet.of(
+        AlertType.JOIN_BRAND, AlertType.MODIFIED_CHANNEL, AlertType.MULTIPLE_VIOLATIONS, AlertType.OTHER);
 
     public AntiSpoofCommand(AntiSpoofPlugin plugin) {
         this.plugin = plugin;
@@ -53,8 +71,13 @@ public class AntiSpoofCommand implements CommandExecutor, TabCompleter {
                 return true;
             }
             
-            plugin.getConfigManager().reload();
-            sender.sendMessage(ChatColor.GREEN + "AntiSpoof configuration reloaded!");
+            // A dry run only reports how the new config would change the online players' verdicts
+            boolean dryRun = args.length >= 2 && args[1].equalsIgnoreCase("dry-run");
+            
+            // The config is read and compiled off the main thread, then swapped in on it
+            sender.sendMessage(ChatColor.GRAY + (dryRun ? "Checking" : "Reloading") + " AntiSpoof configuration...");
+            plugin.getConfigManager().buildRules().whenComplete((rules, error) -> 
+                Bukkit.getScheduler().runTask(plugin, () -> finishReload(sender, rules, error, dryRun)));
             return true;
         }
         
@@ -86,6 +109,36 @@ public class AntiSpoofCommand implements CommandExecutor, TabCompleter {
             return true;
         }
         
+        // Handle trace command
+        if (subCommand.equals("trace")) {
+            handleTraceCommand(sender, label, args);
+            return true;
+        }
+        
+        // Handle fingerprint command
+        if (subCommand.equals("fingerprint")) {
+            handleFingerprintCommand(sender, label, args);
+            return true;
+        }
+        
+        // Handle history command
+        if (subCommand.equals("history")) {
+            handleHistoryCommand(sender, label, args);
+            return true;
+        }
+        
+        // Handle stats command
+        if (subCommand.equals("stats")) {
+            handleStatsCommand(sender, label, args);
+            return true;
+        }
+        
+        // Handle export command
+        if (subCommand.equals("export")) {
+            handleExportCommand(sender, label, args);
+            return true;
+        }
+        
         // Handle check command
         if (subCommand.equals("check")) {
             if (!sender.hasPermission("antispoof.admin")) {
@@ -157,33 +210,14 @@ public class AntiSpoofCommand implements CommandExecutor, TabCompleter {
             return;
         }
 
-        if (args.length < 2) {
-            // Run check for all online players
-            sender.sendMessage(ChatColor.AQUA + "Running check for all online players...");
-            int count = 0;
-            for (Player player : Bukkit.getOnlinePlayers()) {
-                plugin.getDetectionManager().checkPlayerAsync(player, false, true);
-                count++;
-            }
-            sender.sendMessage(ChatColor.GREEN + "Check triggered for " + count + " players.");
-            sender.sendMessage(ChatColor.YELLOW + "Note: This only re-analyzes existing data, players might need to rejoin for fresh data.");
+        // Run check for all online players, also if * is specified
+        if (args.length < 2 || args[1].equals("*")) {
+            recheckAllPlayers(sender);
             return;
         }
 
         // Check specific player
         String playerName = args[1];
-        if (playerName.equals("*")) {
-            // Also run for all players if * is specified
-            sender.sendMessage(ChatColor.AQUA + "Running check for all online players...");
-            int count = 0;
-            for (Player player : Bukkit.getOnlinePlayers()) {
-                plugin.getDetectionManager().checkPlayerAsync(player, false, true);
-                count++;
-            }
-            sender.sendMessage(ChatColor.GREEN + "Check triggered for " + count + " players.");
-            sender.sendMessage(ChatColor.YELLOW + "Note: This only re-analyzes existing data, players might need to rejoin for fresh data.");
-            return;
-        }
 
         Player target = Bukkit.getPlayer(playerName);
         if (target == null) {
@@ -197,6 +231,304 @@ public class AntiSpoofCommand implements CommandExecutor, TabCompleter {
         sender.sendMessage(ChatColor.YELLOW + "Note: This only re-analyzes existing data, players might need to rejoin for fresh data.");
     }
     
+    /**
+     * Checks every online player in one re-evaluation job instead of one task per player
+     */
+    private void recheckAllPlayers(CommandSender sender) {
+        sender.sendMessage(ChatColor.AQUA + "Running check for all online players...");
+        
+        plugin.getReevaluationManager().recheck(plugin.getConfigManager().getRules()).whenComplete((result, error) -> 
+            Bukkit.getScheduler().runTask(plugin, () -> {
+                if (error != null) {
+                    plugin.getLogger().warning("Failed to check online players: " + error.getMessage());
+                    sender.sendMessage(ChatColor.RED + "Failed to check online players, see the console for details.");
+                    return;
+                }
+                
+                plugin.getReevaluationManager().apply(result);
+                plugin.getReevaluationManager().sendReport(sender, result, false);
+                sender.sendMessage(ChatColor.YELLOW + "Note: This only re-analyzes existing data, players might need to rejoin for fresh data.");
+            }));
+    }
+    
+    private void handleTraceCommand(CommandSender sender, String label, String[] args) {
+        if (!sender.hasPermission("antispoof.admin")) {
+            sender.sendMessage(ChatColor.RED + "You don't have permission to use this command.");
+            return;
+        }
+        
+        if (args.length < 2) {
+            sender.sendMessage(ChatColor.RED + "Usage: /" + label + " trace <player> [on|off|dump|export]");
+            return;
+        }
+        
+        Player target = Bukkit.getPlayer(args[1]);
+        if (target == null) {
+            sender.sendMessage(ChatColor.RED + "Player not found!");
+            return;
+        }
+        
+        TraceManager traceManager = plugin.getTraceManager();
+        PlayerTrace trace = traceManager.getTrace(target.getUniqueId());
+        
+        // Without an action the trace is toggled
+        String action = args.length >= 3 ? args[2].toLowerCase() : (trace == null ? "on" : "off");
+        
+        switch (action) {
+            case "on":
+                if (traceManager.startTrace(target.getUniqueId(), target.getName())) {
+                    sender.sendMessage(ChatColor.GREEN + "Started tracing " + target.getName() + 
+                                     ". The trace ends when they leave.");
+                } else {
+                    sender.sendMessage(ChatColor.YELLOW + target.getName() + " is already being traced.");
+                }
+                break;
+            case "off":
+                if (traceManager.stopTrace(target.getUniqueId()) != null) {
+                    sender.sendMessage(ChatColor.GREEN + "Stopped tracing " + target.getName() + ".");
+                } else {
+                    sender.sendMessage(ChatColor.YELLOW + target.getName() + " is not being traced.");
+                }
+                break;
+            case "dump":
+                if (trace == null) {
+                    sender.sendMessage(ChatColor.YELLOW + target.getName() + " is not being traced.");
+                    break;
+                }
+                
+                List<String> lines = trace.format();
+                sender.sendMessage(ChatColor.AQUA + "Trace for " + target.getName() + " (" + 
+                                 trace.getRecordedCount() + " events):");
+                if (lines.isEmpty()) {
+                    sender.sendMessage(ChatColor.GRAY + "No events recorded yet.");
+                    break;
+                }
+                
+                int from = Math.max(0, lines.size() - TRACE_DUMP_LINES);
+                if (from > 0) {
+                    sender.sendMessage(ChatColor.GRAY + "Showing the last " + TRACE_DUMP_LINES + 
+                                     " events, use export for the full trace.");
+                }
+                for (String line : lines.subList(from, lines.size())) {
+                    sender.sendMessage(ChatColor.GRAY + "- " + ChatColor.WHITE + line);
+                }
+                break;
+            case "export":
+                if (trace == null) {
+                    sender.sendMessage(ChatColor.YELLOW + target.getName() + " is not being traced.");
+                    break;
+                }
+                
+                sender.sendMessage(ChatColor.AQUA + "Exporting trace for " + target.getName() + "...");
+                traceManager.exportTrace(sender, trace);
+                break;
+            default:
+                sender.sendMessage(ChatColor.RED + "Usage: /" + label + " trace <player> [on|off|dump|export]");
+        }
+    }
+    
+    private void handleExportCommand(CommandSender sender, String label, String[] args) {
+        if (!sender.hasPermission("antispoof.admin")) {
+            sender.sendMessage(ChatColor.RED + "You don't have permission to use this command.");
+            return;
+        }
+        
+        boolean json = false;
+        boolean history = false;
+        for (int i = 1; i < args.length; i++) {
+            String option = args[i].toLowerCase();
+            if (option.equals("jsonl")) {
+                json = true;
+            } else if (option.equals("history")) {
+                history = true;
+            } else if (!option.equals("csv")) {
+                sender.sendMessage(ChatColor.RED + "Usage: /" + label + " export [csv|jsonl] [history]");
+                return;
+            }
+        }
+        
+        if (!plugin.getExportManager().startExport(sender, json, history)) {
+            sender.sendMessage(ChatColor.RED + "An export is already running.");
+            return;
+        }
+        sender.sendMessage(ChatColor.GREEN + "Exporting online sessions" + (history ? " and violation history" : "") + 
+                         " as " + (json ? "JSON Lines" : "CSV") + "...");
+    }
+    
+    private void finishReload(CommandSender sender, ConfigManager.RuleSet rules, Throwable error, boolean dryRun) {
+        if (error != null) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            plugin.getLogger().warning("Failed to reload config.yml: " + cause.getMessage());
+            sender.sendMessage(ChatColor.RED + "Failed to reload config.yml, the current configuration is still in use: " + 
+                cause.getMessage());
+            return;
+        }
+        
+        ConfigManager.RuleSet previous = plugin.getConfigManager().getRules();
+        if (!dryRun) {
+            plugin.getConfigManager().applyRules(rules);
+            plugin.getDiscordWebhookHandler().reloadDeliverySettings();
+            sender.sendMessage(ChatColor.GREEN + "AntiSpoof configuration reloaded!");
+        }
+        
+        if (rules.getInvalidPatterns() > 0) {
+            sender.sendMessage(ChatColor.YELLOW + "" + rules.getInvalidPatterns() + 
+                " invalid pattern(s) only match their exact text, see the console for details.");
+        }
+        
+        // Players already online are re-evaluated together instead of waiting for their next check
+        plugin.getReevaluationManager().reevaluate(previous, rules).whenComplete((result, reevaluationError) -> 
+            Bukkit.getScheduler().runTask(plugin, () -> {
+                if (reevaluationError != null) {
+                    plugin.getLogger().warning("Failed to re-evaluate online players: " + reevaluationError.getMessage());
+                    sender.sendMessage(ChatColor.RED + "Failed to re-evaluate online players, see the console for details.");
+                    return;
+                }
+                
+                if (!dryRun) {
+                    plugin.getReevaluationManager().apply(result);
+                }
+                plugin.getReevaluationManager().sendReport(sender, result, dryRun);
+            }));
+    }
+    
+    private void handleStatsCommand(CommandSender sender, String label, String[] args) {
+        if (!sender.hasPermission("antispoof.admin")) {
+            sender.sendMessage(ChatColor.RED + "You don't have permission to use this command.");
+            return;
+        }
+        
+        String dimension = args.length >= 2 ? args[1].toLowerCase() : null;
+        if (dimension != null && !dimension.equals("brands") && !dimension.equals("channels")) {
+            sender.sendMessage(ChatColor.RED + "Usage: /" + label + " stats [brands|channels] [name]");
+            return;
+        }
+        
+        // Brands may contain spaces
+        String key = args.length >= 3 ? String.join(" ", Arrays.copyOfRange(args, 2, args.length)) : null;
+        plugin.getAnalyticsManager().sendStats(sender, dimension, key);
+    }
+    
+    private void handleHistoryCommand(CommandSender sender, String label, String[] args) {
+        if (!sender.hasPermission("antispoof.admin")) {
+            sender.sendMessage(ChatColor.RED + "You don't have permission to use this command.");
+            return;
+        }
+        
+        HistoryStore.Index index = args.length >= 3 ? parseHistoryIndex(args[1]) : null;
+        if (index == null) {
+            sender.sendMessage(ChatColor.RED + "Usage: /" + label + " history <player|brand|type> <value> [page]");
+            return;
+        }
+        
+        int page = 1;
+        if (args.length >= 4) {
+            try {
+                page = Integer.parseInt(args[3]);
+            } catch (NumberFormatException e) {
+                page = 0;
+            }
+            if (page < 1) {
+                sender.sendMessage(ChatColor.RED + "Invalid page: " + args[3]);
+                return;
+            }
+        }
+        
+        plugin.getHistoryManager().query(sender, index, args[2], page);
+    }
+    
+    private HistoryStore.Index parseHistoryIndex(String value) {
+        for (HistoryStore.Index index : HistoryStore.Index.values()) {
+            if (index.name().equalsIgnoreCase(value)) {
+                return index;
+            }
+        }
+        return null;
+    }
+    
+    private void handleFingerprintCommand(CommandSender sender, String label, String[] args) {
+        if (!sender.hasPermission("antispoof.admin")) {
+            sender.sendMessage(ChatColor.RED + "You don't have permission to use this command.");
+            return;
+        }
+        
+        if (!plugin.getFingerprintManager().isEnabled()) {
+            sender.sendMessage(ChatColor.RED + "Client fingerprints are disabled in the config.");
+            return;
+        }
+        
+        if (args.length < 2) {
+            sender.sendMessage(ChatColor.RED + "Usage: /" + label + " fingerprint <player>");
+            return;
+        }
+        
+        Player target = Bukkit.getPlayer(args[1]);
+        if (target == null) {
+            sender.sendMessage(ChatColor.RED + "Player not found!");
+            return;
+        }
+        
+        FingerprintManager.Session session = plugin.getFingerprintManager().getSession(target.getUniqueId());
+        if (session == null) {
+            sender.sendMessage(ChatColor.YELLOW + "No fingerprint is tracked for " + target.getName() + ".");
+            return;
+        }
+        if (!session.isLoaded()) {
+            sender.sendMessage(ChatColor.YELLOW + "The last fingerprint of " + target.getName() + 
+                             " is still loading, try again in a moment.");
+            return;
+        }
+        
+        ClientFingerprint previous = session.getPrevious();
+        ClientFingerprint current = session.getCurrent();
+        
+        sender.sendMessage(ChatColor.AQUA + "=== Fingerprint for " + target.getName() + " ===");
+        showFingerprint(sender, "Last session", previous);
+        showFingerprint(sender, "This session", current);
+        
+        if (previous == null || current == null) {
+            return;
+        }
+        
+        List<String> changes = new ArrayList<>();
+        if (!previous.getBrand().equals(current.getBrand())) {
+            changes.add("brand " + previous.getBrand() + " -> " + current.getBrand());
+        }
+        if (previous.getChannelHash() != current.getChannelHash() || 
+            previous.getChannelCount() != current.getChannelCount()) {
+            changes.add("channels (" + previous.getChannelCount() + " -> " + current.getChannelCount() + ")");
+        }
+        if (previous.getVerdict() != current.getVerdict()) {
+            changes.add("verdict " + previous.getVerdict() + " -> " + current.getVerdict());
+        }
+        
+        if (changes.isEmpty()) {
+            sender.sendMessage(ChatColor.GREEN + "Client unchanged since the last session.");
+        } else {
+            sender.sendMessage(ChatColor.YELLOW + "Changed since the last session: " + 
+                             ChatColor.WHITE + String.join(", ", changes));
+        }
+        if (previous.getRulesHash() != plugin.getConfigManager().getRulesHash()) {
+            sender.sendMessage(ChatColor.GRAY + "Detection settings have changed since the last session.");
+        }
+    }
+    
+    private void showFingerprint(CommandSender sender, String title, ClientFingerprint fingerprint) {
+        if (fingerprint == null) {
+            sender.sendMessage(ChatColor.GRAY + title + ": " + ChatColor.WHITE + "none");
+            return;
+        }
+        
+        ChatColor verdictColor = fingerprint.getVerdict() == ClientFingerprint.Verdict.CLEAN ? 
+            ChatColor.GREEN : ChatColor.RED;
+        sender.sendMessage(ChatColor.GRAY + title + ": " + verdictColor + fingerprint.getVerdict() + 
+            ChatColor.GRAY + ", brand " + ChatColor.WHITE + fingerprint.getBrand() + 
+            ChatColor.GRAY + ", " + ChatColor.WHITE + fingerprint.getChannelCount() + ChatColor.GRAY + " channels " + 
+            ChatColor.DARK_GRAY + "#" + Long.toHexString(fingerprint.getChannelHash()));
+        sender.sendMessage(ChatColor.GRAY + "  First seen " + ChatColor.WHITE + new Date(fingerprint.getFirstSeen()) + 
+            ChatColor.GRAY + ", last seen " + ChatColor.WHITE + new Date(fingerprint.getLastSeen()));
+    }
+    
     private void showBlockedBrands(CommandSender sender) {
         boolean enabled = plugin.getConfigManager().isBlockedBrandsEnabled();
         boolean whitelistMode = plugin.getConfigManager().isBrandWhitelistEnabled();
@@ -315,7 +647,7 @@ public class AntiSpoofCommand implements CommandExecutor, TabCompleter {
                                 boolean found = false;
                                 for (String playerChannel : filtered) {
                                     try {
-                                        if (playerChannel.matches(whitelistedChannel)) {
+                                        if (plugin.getConfigManager().matchesChannelEntry(whitelistedChannel, playerChannel)) {
                                             found = true;
                                             break;
                                         }
@@ -358,17 +690,17 @@ public class AntiSpoofCommand implements CommandExecutor, TabCompleter {
                 if (!brandConfig.getRequiredChannels().isEmpty()) {
                     // Look for missing required channels
                     List<String> missingRequiredChannels = new ArrayList<>();
-                    for (String requiredChannel : brandConfig.getRequiredChannelStrings()) {
+                    for (RuleMatcher requiredChannel : brandConfig.getRequiredChannels()) {
                         boolean found = false;
                         for (String playerChannel : data.getChannels()) {
                             try {
-                                if (playerChannel.matches(requiredChannel)) {
+                                if (requiredChannel.matches(playerChannel)) {
                                     found = true;
                                     break;
                                 }
                             } catch (Exception e) {
                                 // If regex fails, try simple contains check
-                                String simplePattern = requiredChannel
+                                String simplePattern = requiredChannel.pattern()
                                     .replace("(?i)", "")
                                     .replace(".*", "")
                                     .replace("^", "")
@@ -380,7 +712,7 @@ public class AntiSpoofCommand implements CommandExecutor, TabCompleter {
                             }
                         }
                         if (!found) {
-                            missingRequiredChannels.add(requiredChannel);
+                            missingRequiredChannels.add(requiredChannel.pattern());
                         }
                     }
                     
@@ -402,6 +734,8 @@ public class AntiSpoofCommand implements CommandExecutor, TabCompleter {
             
             // Show client brand first
             sender.sendMessage(ChatColor.GRAY + "Client brand: " + ChatColor.WHITE + brand);
+            sender.sendMessage(ChatColor.GRAY + "Client version: " + ChatColor.WHITE + 
+                (data != null ? data.getClientVersionDisplay() : "Unknown"));
             
             // Show all violations
             sender.sendMessage(ChatColor.RED + "Violations detected (" + flagReasons.size() + "):");
@@ -452,7 +786,7 @@ public class AntiSpoofCommand implements CommandExecutor, TabCompleter {
                             boolean found = false;
                             for (String playerChannel : data.getChannels()) {
                                 try {
-                                    if (playerChannel.matches(whitelistedChannel)) {
+                                    if (plugin.getConfigManager().matchesChannelEntry(whitelistedChannel, playerChannel)) {
                                         found = true;
                                         break;
                                     }
@@ -503,6 +837,8 @@ public class AntiSpoofCommand implements CommandExecutor, TabCompleter {
             
             // Show client brand
             sender.sendMessage(ChatColor.GRAY + "Client brand: " + ChatColor.WHITE + brand);
+            sender.sendMessage(ChatColor.GRAY + "Client version: " + ChatColor.WHITE + 
+                (data != null ? data.getClientVersionDisplay() : "Unknown"));
             
             // Check if the brand is blocked/not whitelisted and display with appropriate color
             if (plugin.getConfigManager().isBlockedBrandsEnabled()) {
@@ -544,9 +880,14 @@ public class AntiSpoofCommand implements CommandExecutor, TabCompleter {
         sender.sendMessage(ChatColor.GRAY + "/antispoof brand <player> " + ChatColor.WHITE + "- Show player's client brand");
         sender.sendMessage(ChatColor.GRAY + "/antispoof check [player|*] " + ChatColor.WHITE + "- Check if player is spoofing");
         sender.sendMessage(ChatColor.GRAY + "/antispoof runcheck [player|*] " + ChatColor.WHITE + "- Re-run checks on player(s)");
+        sender.sendMessage(ChatColor.GRAY + "/antispoof trace <player> [on|off|dump|export] " + ChatColor.WHITE + "- Trace one player's checks");
+        sender.sendMessage(ChatColor.GRAY + "/antispoof fingerprint <player> " + ChatColor.WHITE + "- Compare client with the last session");
+        sender.sendMessage(ChatColor.GRAY + "/antispoof history <player|brand|type> <value> [page] " + ChatColor.WHITE + "- Search the violation history");
+        sender.sendMessage(ChatColor.GRAY + "/antispoof stats [brands|channels] [name] " + ChatColor.WHITE + "- Show brand and channel usage");
+        sender.sendMessage(ChatColor.GRAY + "/antispoof export [csv|jsonl] [history] " + ChatColor.WHITE + "- Export sessions to a gzip file");
         sender.sendMessage(ChatColor.GRAY + "/antispoof blockedchannels " + ChatColor.WHITE + "- Show blocked channel config");
         sender.sendMessage(ChatColor.GRAY + "/antispoof blockedbrands " + ChatColor.WHITE + "- Show blocked brand config");
-        sender.sendMessage(ChatColor.GRAY + "/antispoof reload " + ChatColor.WHITE + "- Reload the plugin configuration");
+        sender.sendMessage(ChatColor.GRAY + "/antispoof reload [dry-run] " + ChatColor.WHITE + "- Reload the plugin configuration");
         sender.sendMessage(ChatColor.GRAY + "/antispoof help " + ChatColor.WHITE + "- Show this help message");
     }
     
@@ -613,6 +954,11 @@ public class AntiSpoofCommand implements CommandExecutor, TabCompleter {
                     ChatColor.WHITE + brand);
             }
         }
+        
+        PlayerData data = plugin.getPlayerDataMap().get(target.getUniqueId());
+        if (data != null && data.getClientVersion() != null) {
+            sender.sendMessage(ChatColor.GRAY + "Client version: " + ChatColor.WHITE + data.getClientVersionDisplay());
+        }
     }
     
     @Override
@@ -637,12 +983,82 @@ public class AntiSpoofCommand implements CommandExecutor, TabCompleter {
             if (args[0].equalsIgnoreCase("channels") || 
                 args[0].equalsIgnoreCase("brand") ||
                 args[0].equalsIgnoreCase("check") ||
-                args[0].equalsIgnoreCase("runcheck")) {
+                args[0].equalsIgnoreCase("runcheck") ||
+                args[0].equalsIgnoreCase("trace") ||
+                args[0].equalsIgnoreCase("fingerprint")) {
                 completions.addAll(Bukkit.getOnlinePlayers().stream()
                         .map(Player::getName)
                         .filter(name -> name.toLowerCase().startsWith(partialArg))
                         .collect(Collectors.toList()));
             }
+            
+            if (args[0].equalsIgnoreCase("reload") && "dry-run".startsWith(partialArg)) {
+                completions.add("dry-run");
+            }
+            
+            if (args[0].equalsIgnoreCase("stats")) {
+                for (String dimension : Arrays.asList("brands", "channels")) {
+                    if (dimension.startsWith(partialArg)) {
+                        completions.add(dimension);
+                    }
+                }
+            }
+            
+            if (args[0].equalsIgnoreCase("export")) {
+                for (String option : Arrays.asList("csv", "jsonl", "history")) {
+                    if (option.startsWith(partialArg)) {
+                        completions.add(option);
+                    }
+                }
+            }
+            
+            if (args[0].equalsIgnoreCase("history")) {
+                for (HistoryStore.Index index : HistoryStore.Index.values()) {
+                    String name = index.name().toLowerCase();
+                    if (name.startsWith(partialArg)) {
+                        completions.add(name);
+                    }
+                }
+            }
+        } else if (args.length == 3 && args[0].equalsIgnoreCase("history")) {
+            String partialArg = args[2].toLowerCase();
+            List<String> values = new ArrayList<>();
+            switch (args[1].toLowerCase()) {
+                case "player":
+                    for (Player player : Bukkit.getOnlinePlayers()) {
+                        values.add(player.getName());
+                    }
+                    break;
+                case "brand":
+                    values.addAll(plugin.getConfigManager().getClientBrandKeys());
+                    values.add("unknown");
+                    break;
+                case "type":
+                    for (AlertType type : AlertType.values()) {
+                        if (!NON_VIOLATION_TYPES.contains(type)) {
+                            values.add(type.name());
+                        }
+                    }
+                    break;
+                default:
+                    break;
+            }
+            for (String value : values) {
+                if (value.toLowerCase().startsWith(partialArg)) {
+                    completions.add(value);
+                }
+            }
+        } else if (args.length == 3 && args[0].equalsIgnoreCase("export")) {
+            if ("history".startsWith(args[2].toLowerCase())) {
+                completions.add("history");
+            }
+        } else if (args.length == 3 && args[0].equalsIgnoreCase("trace")) {
+            String partialArg = args[2].toLowerCase();
+            for (String action : Arrays.asList("on", "off", "dump", "export")) {
+                if (action.startsWith(partialArg)) {
+                    completions.add(action);
+                }
+            }
         }
         
         return completions;
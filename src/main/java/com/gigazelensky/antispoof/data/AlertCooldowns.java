@@ -0,0 +1,83 @@
+package com.gigazelensky.antispoof.data;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compact per-player alert cooldown store.
+ * Each player gets a single primitive long array indexed by alert type ordinal,
+ * with one extra slot holding the last time the entry was touched so that idle
+ * entries can be expired by a periodic sweep.
+ */
+public class AlertCooldowns {
+    // Index of the slot holding the last time any alert type was recorded
+    private static final int LAST_TOUCHED = AlertType.count();
+    
+    private final ConcurrentHashMap<UUID, long[]> entries = new ConcurrentHashMap<>();
+    
+    /**
+     * Records an alert if the cooldown for this player and alert type has passed
+     * @param playerUUID The UUID of the player
+     * @param type The alert type
+     * @param cooldown The cooldown for this alert type in milliseconds
+     * @param now The current time in milliseconds
+     * @return True if the alert may be sent, false if it is still on cooldown
+     */
+    public boolean tryAcquire(UUID playerUUID, AlertType type, long cooldown, long now) {
+        boolean[] acquired = new boolean[1];
+        
+        // Updated inside compute so a concurrent expire can't remove the entry mid-update
+        entries.compute(playerUUID, (uuid, times) -> {
+            if (times == null) {
+                times = new long[LAST_TOUCHED + 1];
+            }
+            
+            long last = times[type.ordinal()];
+            
+            // Allow alert if no previous alert or if cooldown passed
+            if (last == 0L || now - last > cooldown) {
+                times[type.ordinal()] = now;
+                times[LAST_TOUCHED] = now;
+                acquired[0] = true;
+            }
+            return times;
+        });
+        
+        return acquired[0];
+    }
+    
+    /**
+     * Removes entries that have not been touched for longer than the given age
+     * @param now The current time in milliseconds
+     * @param maxAge The maximum idle age in milliseconds
+     * @return The number of expired entries
+     */
+    public int expire(long now, long maxAge) {
+        int[] removed = new int[1];
+        for (UUID playerUUID : entries.keySet()) {
+            // Checked and removed atomically with tryAcquire on the same entry
+            entries.computeIfPresent(playerUUID, (uuid, times) -> {
+                if (now - times[LAST_TOUCHED] > maxAge) {
+                    removed[0]++;
+                    return null;
+                }
+                return times;
+            });
+        }
+        return removed[0];
+    }
+    
+    /**
+     * @return The number of players with a tracked cooldown
+     */
+    public int size() {
+        return entries.size();
+    }
+    
+    /**
+     * Removes all tracked cooldowns
+     */
+    public void clear() {
+        entries.clear();
+    }
+}
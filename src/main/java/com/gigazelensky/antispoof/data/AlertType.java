@@ -0,0 +1,52 @@
+package com.gigazelensky.antispoof.data;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Types of alerts that are throttled independently of each other
+ */
+public enum AlertType {
+    JOIN_BRAND,
+    MODIFIED_CHANNEL,
+    MULTIPLE_VIOLATIONS,
+    VANILLA_WITH_CHANNELS,
+    NON_VANILLA_WITH_CHANNELS,
+    BLOCKED_CHANNEL,
+    CHANNEL_WHITELIST,
+    GEYSER_SPOOF,
+    NO_BRAND,
+    MISSING_REQUIRED_CHANNELS,
+    CLIENT_BRAND,
+    UNKNOWN_BRAND,
+    BOT_WAVE,
+    CHANNEL_CHURN,
+    INVALID_CHANNEL,
+    OTHER;
+    
+    private static final AlertType[] VALUES = values();
+    private static final Map<String, AlertType> BY_KEY = new HashMap<>();
+    
+    static {
+        for (AlertType type : VALUES) {
+            BY_KEY.put(type.name(), type);
+        }
+    }
+    
+    /**
+     * Looks up an alert type by its key (the violation type name)
+     * @param key The alert type key
+     * @return The matching alert type, or OTHER if the key is unknown
+     */
+    public static AlertType fromKey(String key) {
+        if (key == null) return OTHER;
+        return BY_KEY.getOrDefault(key, OTHER);
+    }
+    
+    /**
+     * @return The number of alert types
+     */
+    public static int count() {
+        return VALUES.length;
+    }
+}
@@ -0,0 +1,40 @@
+package com.gigazelensky.antispoof.data;
+
+/**
+ * Counts events over a sliding time window in constant memory.
+ * The window is split into a fixed number of buckets, and buckets that have
+ * fallen out of the window are reset lazily when they are reused.
+ */
+public final class ChurnCounter {
+    private static final int BUCKETS = 8;
+    
+    private final int[] counts = new int[BUCKETS];
+    private final long[] slots = new long[BUCKETS];
+    
+    /**
+     * Adds events and counts the events within the window
+     * @param amount The number of events to add
+     * @param now The current time in milliseconds
+     * @param windowMillis The window length in milliseconds
+     * @return The number of events within the window, including the added ones
+     */
+    public synchronized int add(int amount, long now, long windowMillis) {
+        long width = Math.max(1L, windowMillis / BUCKETS);
+        long slot = now / width;
+        int index = (int) (slot % BUCKETS);
+        
+        if (slots[index] != slot) {
+            slots[index] = slot;
+            counts[index] = 0;
+        }
+        counts[index] = (int) Math.min(Integer.MAX_VALUE, (long) counts[index] + amount);
+        
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            if (slot - slots[i] < BUCKETS) {
+                total += counts[i];
+            }
+        }
+        return (int) Math.min(Integer.MAX_VALUE, total);
+    }
+}
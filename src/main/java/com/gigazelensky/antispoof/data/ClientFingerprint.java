@@ -0,0 +1,119 @@
+package com.gigazelensky.antispoof.data;
+
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * What a player's client looked like in one session: the brand, a fingerprint
+ * of the registered channel set, the verdict of the checks and the rules it
+ * was judged by.
+ */
+public class ClientFingerprint {
+    public enum Verdict {
+        CLEAN,
+        FLAGGED
+    }
+    
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    
+    private final UUID uuid;
+    private final String brand;
+    private final long channelHash;
+    private final int channelCount;
+    private final Verdict verdict;
+    private final int rulesHash;
+    private final long firstSeen;
+    private final long lastSeen;
+    
+    public ClientFingerprint(UUID uuid, String brand, long channelHash, int channelCount, 
+                             Verdict verdict, int rulesHash, long firstSeen, long lastSeen) {
+        this.uuid = uuid;
+        this.brand = brand;
+        this.channelHash = channelHash;
+        this.channelCount = channelCount;
+        this.verdict = verdict;
+        this.rulesHash = rulesHash;
+        this.firstSeen = firstSeen;
+        this.lastSeen = lastSeen;
+    }
+    
+    /**
+     * Hashes a channel set independently of its iteration order.
+     * Every channel is hashed with 64-bit FNV-1a, mixed, and the results summed.
+     * @param channels The channels
+     * @return The channel set fingerprint
+     */
+    public static long hashChannels(Collection<String> channels) {
+        long sum = 0;
+        for (String channel : channels) {
+            long hash = FNV_OFFSET_BASIS;
+            for (int i = 0; i < channel.length(); i++) {
+                hash ^= channel.charAt(i);
+                hash *= FNV_PRIME;
+            }
+            sum += mix(hash);
+        }
+        return sum;
+    }
+    
+    // Spreads the bits of each channel hash so that summing them doesn't cancel out
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+    
+    /**
+     * @return Whether the brand and channel set are the same as in this fingerprint
+     */
+    public boolean matches(String brand, long channelHash, int channelCount) {
+        return this.channelHash == channelHash && this.channelCount == channelCount && 
+               this.brand.equals(brand);
+    }
+    
+    /**
+     * @return A copy with a new last seen time
+     */
+    public ClientFingerprint withLastSeen(long lastSeen) {
+        return new ClientFingerprint(uuid, brand, channelHash, channelCount, verdict, rulesHash, firstSeen, lastSeen);
+    }
+    
+    public UUID getUuid() {
+        return uuid;
+    }
+    
+    public String getBrand() {
+        return brand;
+    }
+    
+    public long getChannelHash() {
+        return channelHash;
+    }
+    
+    public int getChannelCount() {
+        return channelCount;
+    }
+    
+    public Verdict getVerdict() {
+        return verdict;
+    }
+    
+    /**
+     * @return The hash of the detection settings the verdict was made with
+     */
+    public int getRulesHash() {
+        return rulesHash;
+    }
+    
+    /**
+     * @return When this exact brand and channel set was first seen for the player
+     */
+    public long getFirstSeen() {
+        return firstSeen;
+    }
+    
+    public long getLastSeen() {
+        return lastSeen;
+    }
+}
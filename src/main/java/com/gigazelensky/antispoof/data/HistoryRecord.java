@@ -0,0 +1,67 @@
+package com.gigazelensky.antispoof.data;
+
+import java.util.UUID;
+
+/**
+ * One violation as it was decided, stored in the violation history
+ */
+public final class HistoryRecord {
+    private final long time;
+    private final UUID uuid;
+    private final String playerName;
+    private final String brand;
+    private final String brandKey;
+    private final String type;
+    private final String reason;
+    private final String detail;
+    
+    public HistoryRecord(long time, UUID uuid, String playerName, String brand, String brandKey,
+                         String type, String reason, String detail) {
+        this.time = time;
+        this.uuid = uuid;
+        this.playerName = playerName;
+        this.brand = brand;
+        this.brandKey = brandKey;
+        this.type = type;
+        this.reason = reason;
+        this.detail = detail;
+    }
+    
+    public long getTime() {
+        return time;
+    }
+    
+    public UUID getUuid() {
+        return uuid;
+    }
+    
+    public String getPlayerName() {
+        return playerName;
+    }
+    
+    public String getBrand() {
+        return brand;
+    }
+    
+    /**
+     * @return The matched client-brands key, or "unknown" if the brand matched none
+     */
+    public String getBrandKey() {
+        return brandKey;
+    }
+    
+    public String getType() {
+        return type;
+    }
+    
+    public String getReason() {
+        return reason;
+    }
+    
+    /**
+     * @return The violation detail, or null if there is none
+     */
+    public String getDetail() {
+        return detail;
+    }
+}
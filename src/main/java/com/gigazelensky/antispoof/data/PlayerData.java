@@ -1,14 +1,42 @@
 package com.gigazelensky.antispoof.data;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class PlayerData {
     private final Set<String> channels = ConcurrentHashMap.newKeySet();
-    private boolean alreadyPunished = false;
+    
+    // Append-only log of channel changes, the version is the number of changes so far.
+    // Entries before channelLogStart have been discarded by the reader or dropped
+    // once the log grew past MAX_CHANNEL_LOG without being read.
+    private static final int MAX_CHANNEL_LOG = 4096;
+    private final List<ChannelChange> channelLog = new ArrayList<>();
+    private int channelLogStart = 0;
+    private volatile int channelVersion = 0;
+    
+    private volatile boolean alreadyPunished = false;
     private long joinTime = System.currentTimeMillis();
-    private boolean initialChannelsRegistered = false;
+    private volatile boolean initialChannelsRegistered = false;
+    
+    // Client version captured from PacketEvents when the player joined
+    private volatile int protocolVersion = -1;
+    private volatile String clientVersion = null;
+    
+    // Recent channel packets per kind, and until when further ones are ignored
+    private final ChurnCounter[] channelEvents = {new ChurnCounter(), new ChurnCounter(), new ChurnCounter()};
+    private volatile long channelIngestionThrottledUntil = 0;
+    
+    /**
+     * Kinds of channel packets counted for churn detection
+     */
+    public enum ChannelEvent {
+        REGISTER, UNREGISTER, DIRECT
+    }
 
     /**
      * @return An unmodifiable view of the channels associated with this player
@@ -20,9 +48,16 @@ public class PlayerData {
     /**
      * Adds a channel to the player's channel set
      * @param channel The channel to add
+     * @return True if the channel was not registered before
      */
-    public void addChannel(String channel) { 
-        channels.add(channel); 
+    public boolean addChannel(String channel) { 
+        synchronized (channelLog) {
+            if (!channels.add(channel)) {
+                return false;
+            }
+            appendChannelChange(channel, true);
+            return true;
+        }
     }
     
     /**
@@ -30,7 +65,70 @@ public class PlayerData {
      * @param channel The channel to remove
      */
     public void removeChannel(String channel) { 
-        channels.remove(channel); 
+        synchronized (channelLog) {
+            if (channels.remove(channel)) {
+                appendChannelChange(channel, false);
+            }
+        }
+    }
+    
+    private void appendChannelChange(String channel, boolean added) {
+        if (channelLog.size() >= MAX_CHANNEL_LOG) {
+            int count = MAX_CHANNEL_LOG / 2;
+            channelLog.subList(0, count).clear();
+            channelLogStart += count;
+        }
+        channelLog.add(new ChannelChange(channel, added));
+        channelVersion++;
+    }
+    
+    /**
+     * @return The number of channel changes recorded so far, used as a cursor
+     */
+    public int getChannelVersion() {
+        return channelVersion;
+    }
+    
+    /**
+     * Gets the channels that were added between two versions and are still
+     * registered, without copying or diffing the full channel set
+     * @param fromVersion The cursor of the previous read
+     * @param toVersion The version to read up to
+     * @return The added channels in registration order
+     */
+    public Set<String> getChannelsAddedBetween(int fromVersion, int toVersion) {
+        Set<String> added = new LinkedHashSet<>();
+        Set<String> removed = new HashSet<>();
+        
+        synchronized (channelLog) {
+            int end = Math.min(toVersion, channelVersion);
+            for (int version = Math.max(fromVersion, channelLogStart); version < end; version++) {
+                ChannelChange change = channelLog.get(version - channelLogStart);
+                if (change.added) {
+                    // Re-registering a channel that was removed in this range is not a new channel
+                    if (!removed.remove(change.channel)) {
+                        added.add(change.channel);
+                    }
+                } else if (!added.remove(change.channel)) {
+                    removed.add(change.channel);
+                }
+            }
+        }
+        return added;
+    }
+    
+    /**
+     * Discards log entries older than the given version once they have been read
+     * @param version The oldest version that may still be read
+     */
+    public void discardChannelChangesBefore(int version) {
+        synchronized (channelLog) {
+            int count = Math.min(version, channelVersion) - channelLogStart;
+            if (count > 0) {
+                channelLog.subList(0, count).clear();
+                channelLogStart += count;
+            }
+        }
     }
     
     /**
@@ -55,6 +153,67 @@ public class PlayerData {
         return joinTime;
     }
     
+    /**
+     * Sets the client version the player connected with
+     * @param protocolVersion The protocol version number
+     * @param releaseName The release name, e.g. "1.20.4"
+     */
+    public void setClientVersion(int protocolVersion, String releaseName) {
+        this.clientVersion = releaseName;
+        this.protocolVersion = protocolVersion;
+    }
+    
+    /**
+     * @return The protocol version the player connected with, or -1 if unknown
+     */
+    public int getProtocolVersion() {
+        return protocolVersion;
+    }
+    
+    /**
+     * @return The release name of the player's client version, or null if unknown
+     */
+    public String getClientVersion() {
+        return clientVersion;
+    }
+    
+    /**
+     * @return The client version for display, e.g. "1.20.4 (765)", or "Unknown"
+     */
+    public String getClientVersionDisplay() {
+        String version = clientVersion;
+        int protocol = protocolVersion;
+        return version != null ? version + " (" + protocol + ")" : "Unknown";
+    }
+    
+    /**
+     * Counts channel packets of one kind
+     * @param event The kind of packet
+     * @param amount The number of channels in the packet
+     * @param now The current time in milliseconds
+     * @param windowMillis The window length in milliseconds
+     * @return The number of channels of this kind within the window
+     */
+    public int recordChannelEvent(ChannelEvent event, int amount, long now, long windowMillis) {
+        return channelEvents[event.ordinal()].add(amount, now, windowMillis);
+    }
+    
+    /**
+     * @param now The current time in milliseconds
+     * @return Whether channel packets from this player are currently ignored
+     */
+    public boolean isChannelIngestionThrottled(long now) {
+        return now < channelIngestionThrottledUntil;
+    }
+    
+    /**
+     * Ignores channel packets from this player for a while
+     * @param until The time in milliseconds until which packets are ignored
+     */
+    public void throttleChannelIngestion(long until) {
+        this.channelIngestionThrottledUntil = until;
+    }
+    
     /**
      * @return Whether this player's initial channel registration phase has completed
      */
@@ -69,4 +228,15 @@ public class PlayerData {
     public void setInitialChannelsRegistered(boolean registered) {
         this.initialChannelsRegistered = registered;
     }
+    
+    // A single registration or unregistration in the channel log
+    private static final class ChannelChange {
+        private final String channel;
+        private final boolean added;
+        
+        private ChannelChange(String channel, boolean added) {
+            this.channel = channel;
+            this.added = added;
+        }
+    }
 }
\ No newline at end of file
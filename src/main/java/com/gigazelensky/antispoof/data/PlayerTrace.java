@@ -0,0 +1,91 @@
+package com.gigazelensky.antispoof.data;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bounded trace of detection events for a single player session.
+ * Events are stored as references in preallocated arrays and only
+ * formatted when the trace is dumped or exported.
+ */
+public class PlayerTrace {
+    private static final DateTimeFormatter TIME_FORMAT = 
+        DateTimeFormatter.ofPattern("HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+    
+    private final String playerName;
+    private final long startTime = System.currentTimeMillis();
+    
+    private final long[] times;
+    private final String[] messages;
+    private final Object[] details;
+    
+    // Total number of recorded events, the oldest ones are overwritten once full
+    private long recorded = 0;
+    
+    public PlayerTrace(String playerName, int capacity) {
+        this.playerName = playerName;
+        int size = Math.max(16, capacity);
+        this.times = new long[size];
+        this.messages = new String[size];
+        this.details = new Object[size];
+    }
+    
+    /**
+     * Records an event, overwriting the oldest one when the trace is full
+     * @param message The event message
+     * @param detail Extra detail, formatted lazily (can be null)
+     */
+    public synchronized void record(String message, Object detail) {
+        int index = (int) (recorded % times.length);
+        times[index] = System.currentTimeMillis();
+        messages[index] = message;
+        details[index] = detail;
+        recorded++;
+    }
+    
+    /**
+     * Formats the buffered events, oldest first
+     * @return The formatted trace lines
+     */
+    public synchronized List<String> format() {
+        int size = (int) Math.min(recorded, times.length);
+        List<String> lines = new ArrayList<>(size);
+        
+        for (long i = recorded - size; i < recorded; i++) {
+            int index = (int) (i % times.length);
+            StringBuilder line = new StringBuilder(64);
+            line.append(TIME_FORMAT.format(Instant.ofEpochMilli(times[index])))
+                .append(' ').append(messages[index]);
+            if (details[index] != null) {
+                line.append(": ").append(details[index]);
+            }
+            lines.add(line.toString());
+        }
+        return lines;
+    }
+    
+    public String getPlayerName() {
+        return playerName;
+    }
+    
+    public long getStartTime() {
+        return startTime;
+    }
+    
+    /**
+     * @return The number of events recorded since tracing started
+     */
+    public synchronized long getRecordedCount() {
+        return recorded;
+    }
+    
+    /**
+     * @return The number of events that were overwritten because the trace was full
+     */
+    public synchronized long getOverwrittenCount() {
+        return Math.max(0, recorded - times.length);
+    }
+}
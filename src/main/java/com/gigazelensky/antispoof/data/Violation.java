@@ -0,0 +1,75 @@
+package com.gigazelensky.antispoof.data;
+
+import java.util.Objects;
+
+/**
+ * A single violation found by a check.
+ * The message and the offending value (a channel, pattern or brand) are kept
+ * apart so alerts can format the value without parsing it out of the reason.
+ */
+public class Violation {
+    private final String type;
+    private final String message;
+    private final String detail;
+    private final String reason;
+    
+    /**
+     * @param type The violation type, e.g. BLOCKED_CHANNEL
+     * @param message The description of the violation
+     */
+    public Violation(String type, String message) {
+        this(type, message, null);
+    }
+    
+    /**
+     * @param type The violation type, e.g. BLOCKED_CHANNEL
+     * @param message The description of the violation, e.g. "Using blocked channel"
+     * @param detail The offending value, e.g. the channel name (can be null)
+     */
+    public Violation(String type, String message, String detail) {
+        this.type = type;
+        this.message = message;
+        this.detail = detail;
+        this.reason = detail != null ? message + ": " + detail : message;
+    }
+    
+    public String getType() {
+        return type;
+    }
+    
+    public String getMessage() {
+        return message;
+    }
+    
+    /**
+     * @return The offending value, or null if the violation has none
+     */
+    public String getDetail() {
+        return detail;
+    }
+    
+    /**
+     * @return The full reason used in alert messages, e.g. "Using blocked channel: example:channel"
+     */
+    public String getReason() {
+        return reason;
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Violation)) return false;
+        Violation other = (Violation) o;
+        return type.equals(other.type) && reason.equals(other.reason);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, reason);
+    }
+    
+    @Override
+    public String toString() {
+        return reason;
+    }
+}
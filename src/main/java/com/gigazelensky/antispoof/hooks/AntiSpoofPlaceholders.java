@@ -75,6 +75,19 @@ public class AntiSpoofPlaceholders extends PlaceholderExpansion {
             return String.valueOf(data.getChannels().size());
         }
 
+        // %antispoof_client_version%
+        if (identifier.equals("client_version")) {
+            PlayerData data = plugin.getPlayerDataMap().get(player.getUniqueId());
+            String version = data != null ? data.getClientVersion() : null;
+            return version != null ? version : "unknown";
+        }
+
+        // %antispoof_protocol_version%
+        if (identifier.equals("protocol_version")) {
+            PlayerData data = plugin.getPlayerDataMap().get(player.getUniqueId());
+            return String.valueOf(data != null ? data.getProtocolVersion() : -1);
+        }
+
         // %antispoof_is_spoofing%
         if (identifier.equals("is_spoofing")) {
             return plugin.isPlayerSpoofing(player) ? "true" : "false";
@@ -80,9 +80,7 @@ public class PermissionChangeListener implements Listener {
      * Update permission status for all online players
      */
     private void updateAllPlayerPermissions() {
-        if (plugin.getConfigManager().isDebugMode()) {
-            plugin.getLogger().info("[Debug] Updating alert permission status for all players");
-        }
+        plugin.getDetectionLog().debug("Updating alert permission status for all players", null);
         
         for (Player player : plugin.getServer().getOnlinePlayers()) {
             plugin.getAlertManager().updatePlayerAlertStatus(player);
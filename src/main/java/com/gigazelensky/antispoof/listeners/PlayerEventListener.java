@@ -3,9 +3,13 @@ package com.gigazelensky.antispoof.listeners;
 import com.gigazelensky.antispoof.AntiSpoofPlugin;
 import com.gigazelensky.antispoof.data.PlayerData;
 import com.gigazelensky.antispoof.managers.ConfigManager;
+import com.gigazelensky.antispoof.utils.ChannelLimits;
+import com.github.retrooper.packetevents.PacketEvents;
 import com.github.retrooper.packetevents.event.PacketListenerAbstract;
 import com.github.retrooper.packetevents.event.PacketReceiveEvent;
 import com.github.retrooper.packetevents.protocol.packettype.PacketType;
+import com.github.retrooper.packetevents.protocol.player.ClientVersion;
+import com.github.retrooper.packetevents.protocol.player.User;
 import com.github.retrooper.packetevents.wrapper.configuration.client.WrapperConfigClientPluginMessage;
 import com.github.retrooper.packetevents.wrapper.play.client.WrapperPlayClientPluginMessage;
 import org.bukkit.Bukkit;
@@ -37,7 +41,7 @@ public class PlayerEventListener extends PacketListenerAbstract implements Liste
         Bukkit.getPluginManager().registerEvents(this, plugin);
         
         // Register packet event listener
-        com.github.retrooper.packetevents.PacketEvents.getAPI().getEventManager().registerListener(this);
+        PacketEvents.getAPI().getEventManager().registerListener(this);
     }
 
     @Override
@@ -66,6 +70,16 @@ public class PlayerEventListener extends PacketListenerAbstract implements Liste
         if (channel.equals("minecraft:register") || channel.equals("minecraft:unregister")) {
             channelRegistered = handleChannelRegistration(player, channel, data);
         } else {
+            // Players flooding channel packets are throttled before any detection work
+            if (!plugin.getDetectionManager().recordChannelEvent(player, PlayerData.ChannelEvent.DIRECT, 1)) {
+                return false;
+            }
+            
+            // Names that break the ingestion limits are never stored
+            if (!plugin.getDetectionManager().acceptChannel(player, channel)) {
+                return false;
+            }
+            
             // Direct channel usage - check if this is a new channel
             channelRegistered = plugin.getDetectionManager().addPlayerChannel(player, channel, true);
         }
@@ -74,20 +88,34 @@ public class PlayerEventListener extends PacketListenerAbstract implements Liste
     }
     
     private boolean handleChannelRegistration(Player player, String channel, byte[] data) {
-        String payload = new String(data, StandardCharsets.UTF_8);
-        String[] channels = payload.split("\0");
+        boolean register = channel.equals("minecraft:register");
         boolean didRegister = false;
         
-        for (String registeredChannel : channels) {
-            if (channel.equals("minecraft:register")) {
-                // Register the channel and trigger checks if needed
-                if (plugin.getDetectionManager().addPlayerChannel(player, registeredChannel, true)) {
-                    didRegister = true;
+        PlayerData.ChannelEvent event = register ? PlayerData.ChannelEvent.REGISTER : PlayerData.ChannelEvent.UNREGISTER;
+        if (!plugin.getDetectionManager().recordChannelEvent(player, event, ChannelLimits.countEntries(data))) {
+            return false;
+        }
+        
+        // The payload is a NUL-separated list of channel names, each one is
+        // validated on the raw bytes before a String is made of it
+        int start = 0;
+        for (int i = 0; i <= data.length; i++) {
+            if (i < data.length && data[i] != 0) {
+                continue;
+            }
+            if (i > start && plugin.getDetectionManager().acceptChannel(player, data, start, i)) {
+                String registeredChannel = new String(data, start, i - start, StandardCharsets.UTF_8);
+                if (register) {
+                    // Register the channel and trigger checks if needed
+                    if (plugin.getDetectionManager().addPlayerChannel(player, registeredChannel, true)) {
+                        didRegister = true;
+                    }
+                } else {
+                    // Unregister the channel
+                    plugin.getDetectionManager().removePlayerChannel(player, registeredChannel);
                 }
-            } else {
-                // Unregister the channel
-                plugin.getDetectionManager().removePlayerChannel(player, registeredChannel);
             }
+            start = i + 1;
         }
         
         return didRegister;
@@ -100,10 +128,8 @@ public class PlayerEventListener extends PacketListenerAbstract implements Liste
     private void scheduleInitialBrandCheck(Player player, long delayTicks) {
         Bukkit.getScheduler().runTaskLater(plugin, () -> {
             if (player.isOnline()) {
-                if (config.isDebugMode()) {
-                    plugin.getLogger().info("[Debug] Running initial brand check for " + player.getName() + 
-                                         " (without required channels check)");
-                }
+                plugin.getDetectionLog().debug(player, 
+                    "Running initial brand check (without required channels check)", null);
                 plugin.getDetectionManager().checkPlayerAsync(player, true, false);
             }
         }, delayTicks);
@@ -116,9 +142,7 @@ public class PlayerEventListener extends PacketListenerAbstract implements Liste
     private void scheduleRequiredChannelsCheck(Player player, long delayTicks) {
         Bukkit.getScheduler().runTaskLater(plugin, () -> {
             if (player.isOnline()) {
-                if (config.isDebugMode()) {
-                    plugin.getLogger().info("[Debug] Running complete check with required channels for " + player.getName());
-                }
+                plugin.getDetectionLog().debug(player, "Running complete check with required channels", null);
                 plugin.getDetectionManager().checkPlayerAsync(player, false, true);
             }
         }, delayTicks);
@@ -137,16 +161,18 @@ public class PlayerEventListener extends PacketListenerAbstract implements Liste
         // Create initial player data
         UUID uuid = player.getUniqueId();
         PlayerData data = new PlayerData();
+        captureClientVersion(player, data);
         plugin.getPlayerDataMap().put(uuid, data);
         
+        // Load the fingerprint of the player's last session
+        plugin.getFingerprintManager().handlePlayerJoin(uuid);
+        
         // Special handling for no-brand detection
         if (config.isNoBrandCheckEnabled()) {
             Bukkit.getScheduler().runTaskLater(plugin, () -> {
                 // Only process if still null after 1 second (allows time for brand packet)
                 if (player.isOnline() && plugin.getClientBrand(player) == null) {
-                    if (config.isDebugMode()) {
-                        plugin.getLogger().info("[Debug] Processing no-brand alert for " + player.getName());
-                    }
+                    plugin.getDetectionLog().debug(player, "Processing no-brand alert", null);
                     
                     // Manually trigger alert for NO_BRAND violation
                     Map<String, String> noBrandViolation = new HashMap<>();
@@ -174,6 +200,23 @@ public class PlayerEventListener extends PacketListenerAbstract implements Liste
         scheduleRequiredChannelsCheck(player, REQUIRED_CHANNEL_CHECK_DELAY);
     }
     
+    /**
+     * Stores the client version from the player's PacketEvents user, so alerts
+     * and commands don't have to look it up through other plugins later
+     */
+    private void captureClientVersion(Player player, PlayerData data) {
+        User user = PacketEvents.getAPI().getPlayerManager().getUser(player);
+        if (user == null) {
+            return;
+        }
+        
+        ClientVersion version = user.getClientVersion();
+        if (version != null && version != ClientVersion.UNKNOWN) {
+            data.setClientVersion(version.getProtocolVersion(), version.getReleaseName());
+            plugin.getDetectionLog().debug(player, "Client version", version.getReleaseName());
+        }
+    }
+    
     @EventHandler(priority = EventPriority.MONITOR)
     public void onPlayerQuit(PlayerQuitEvent event) {
         UUID uuid = event.getPlayer().getUniqueId();
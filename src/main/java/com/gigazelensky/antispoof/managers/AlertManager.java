@@ -1,7 +1,10 @@
 package com.gigazelensky.antispoof.managers;
 
 import com.gigazelensky.antispoof.AntiSpoofPlugin;
+import com.gigazelensky.antispoof.data.AlertCooldowns;
+import com.gigazelensky.antispoof.data.AlertType;
 import com.gigazelensky.antispoof.data.PlayerData;
+import com.gigazelensky.antispoof.data.Violation;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import com.gigazelensky.antispoof.utils.MessageUtil;
@@ -14,17 +17,32 @@ public class AlertManager {
     private final ConfigManager config;
     
     // Track alert cooldowns by player UUID and alert type
-    private final Map<UUID, Map<String, Long>> lastAlerts = new ConcurrentHashMap<>();
+    private final AlertCooldowns alertCooldowns = new AlertCooldowns();
     
     // Track players with alert permission
     private final Set<UUID> playersWithAlertPermission = ConcurrentHashMap.newKeySet();
     
-    // Alert cooldown in milliseconds (3 seconds by default)
-    private static final long ALERT_COOLDOWN = 3000;
+    // How often idle alert cooldowns are expired (30 seconds, in ticks)
+    private static final long COOLDOWN_SWEEP_INTERVAL = 30 * 20L;
     
     public AlertManager(AntiSpoofPlugin plugin) {
         this.plugin = plugin;
         this.config = plugin.getConfigManager();
+        
+        // Expire idle cooldowns periodically instead of waiting for the player to quit
+        plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, 
+            this::expireCooldowns, COOLDOWN_SWEEP_INTERVAL, COOLDOWN_SWEEP_INTERVAL);
+    }
+    
+    /**
+     * Removes cooldown entries that can no longer suppress any alert
+     */
+    private void expireCooldowns() {
+        int removed = alertCooldowns.expire(System.currentTimeMillis(), config.getMaxAlertCooldown());
+        
+        if (removed > 0) {
+            plugin.getDetectionLog().debug("Expired idle alert cooldown entries", removed);
+        }
     }
     
     /**
@@ -35,9 +53,7 @@ public class AlertManager {
         if (player.hasPermission("antispoof.alerts")) {
             playersWithAlertPermission.add(player.getUniqueId());
             
-            if (config.isDebugMode()) {
-                plugin.getLogger().info("[Debug] Added player " + player.getName() + " to alert recipients");
-            }
+            plugin.getDetectionLog().debug(player, "Added alert recipient", null);
         }
     }
     
@@ -84,18 +100,18 @@ public class AlertManager {
      * @return True if an alert can be sent, false otherwise
      */
     public boolean canSendAlert(UUID playerUUID, String alertType) {
-        Map<String, Long> playerAlerts = lastAlerts.computeIfAbsent(playerUUID, k -> new ConcurrentHashMap<>());
-        
-        long now = System.currentTimeMillis();
-        Long lastAlert = playerAlerts.get(alertType);
-        
-        // Allow alert if no previous alert or if cooldown passed
-        if (lastAlert == null || now - lastAlert > ALERT_COOLDOWN) {
-            playerAlerts.put(alertType, now);
-            return true;
-        }
-        
-        return false;
+        return canSendAlert(playerUUID, AlertType.fromKey(alertType));
+    }
+    
+    /**
+     * Checks if an alert can be sent for a player
+     * @param playerUUID The UUID of the player
+     * @param alertType The type of alert
+     * @return True if an alert can be sent, false otherwise
+     */
+    public boolean canSendAlert(UUID playerUUID, AlertType alertType) {
+        return alertCooldowns.tryAcquire(playerUUID, alertType, 
+            config.getAlertCooldown(alertType), System.currentTimeMillis());
     }
     
     /**
@@ -111,7 +127,7 @@ public class AlertManager {
         }
         
         // Log to console
-        plugin.getLogger().info(consoleMessage);
+        plugin.getDetectionLog().alert(player, alertType, consoleMessage);
         
         // Send to players with permission
         sendAlertToRecipients(alertMessage);
@@ -134,7 +150,7 @@ public class AlertManager {
                 .replace("%brand%", brand != null ? brand : "unknown");
         
         // Log to console
-        plugin.getLogger().info(consoleAlert);
+        plugin.getDetectionLog().alert(player, AlertType.JOIN_BRAND.name(), consoleAlert);
         
         // Notify players with permission using our optimized list
         sendAlertToRecipients(playerAlert);
@@ -159,7 +175,7 @@ public class AlertManager {
      * @param brand The player's client brand
      */
     public void sendBrandJoinAlert(Player player, String brand) {
-        if (!config.isJoinBrandAlertsEnabled() || !canSendAlert(player.getUniqueId(), "JOIN_BRAND")) {
+        if (!config.isJoinBrandAlertsEnabled() || !canSendAlert(player.getUniqueId(), AlertType.JOIN_BRAND)) {
             return;
         }
         
@@ -173,7 +189,7 @@ public class AlertManager {
      * @param channel The modified channel
      */
     public void sendModifiedChannelAlert(Player player, String channel) {
-        if (!config.isModifiedChannelsEnabled() || !canSendAlert(player.getUniqueId(), "MODIFIED_CHANNEL")) {
+        if (!config.isModifiedChannelsEnabled() || !canSendAlert(player.getUniqueId(), AlertType.MODIFIED_CHANNEL)) {
             return;
         }
         
@@ -188,7 +204,7 @@ public class AlertManager {
                 .replace("%channel%", channel);
         
         // Log to console
-        plugin.getLogger().info(consoleAlertMessage);
+        plugin.getDetectionLog().alert(player, AlertType.MODIFIED_CHANNEL.name(), consoleAlertMessage);
         
         // Notify players with permission using our optimized list
         sendAlertToRecipients(alertMessage);
@@ -208,16 +224,32 @@ public class AlertManager {
     /**
      * Sends a multiple violations alert for a player
      * @param player The player with violations
-     * @param violations The list of violation reasons
+     * @param violations The list of violations
+     * @param brand The player's client brand
+     */
+    public void sendMultipleViolationsAlert(Player player, List<Violation> violations, String brand) {
+        sendMultipleViolationsAlert(player, violations, brand, true);
+    }
+    
+    /**
+     * Sends a multiple violations alert for a player
+     * @param player The player with violations
+     * @param violations The list of violations
      * @param brand The player's client brand
+     * @param sendDiscordAlert Whether the alert should also go to Discord
      */
-    public void sendMultipleViolationsAlert(Player player, List<String> violations, String brand) {
-        if (!canSendAlert(player.getUniqueId(), "MULTIPLE_VIOLATIONS")) {
+    public void sendMultipleViolationsAlert(Player player, List<Violation> violations, String brand,
+                                            boolean sendDiscordAlert) {
+        if (!canSendAlert(player.getUniqueId(), AlertType.MULTIPLE_VIOLATIONS)) {
             return;
         }
         
         // Join all reasons with commas
-        String reasonsList = String.join(", ", violations);
+        StringJoiner reasons = new StringJoiner(", ");
+        for (Violation violation : violations) {
+            reasons.add(violation.getReason());
+        }
+        String reasonsList = reasons.toString();
         
         // Format the player alert message for multiple violations
         String playerAlert = config.getMultipleFlagsMessage()
@@ -232,27 +264,61 @@ public class AlertManager {
                 .replace("%reasons%", reasonsList);
         
         // Log to console
-        plugin.getLogger().info(consoleAlert);
+        plugin.getDetectionLog().alert(player, AlertType.MULTIPLE_VIOLATIONS.name(), consoleAlert);
         
         // Notify players with permission using our optimized list
         sendAlertToRecipients(playerAlert);
         
         // Send to Discord if enabled
-        plugin.getDiscordWebhookHandler().sendAlert(player, "Multiple Violations", brand, null, violations);
+        if (sendDiscordAlert) {
+            plugin.getDiscordWebhookHandler().sendAlert(player, "Multiple Violations", brand, null, violations);
+        }
+    }
+    
+    /**
+     * Checks if a violation type should be sent to Discord
+     * @param violationType The type of violation
+     * @param brand The player's client brand
+     * @return True if Discord alerts are enabled for this violation type
+     */
+    public boolean isDiscordAlertEnabled(String violationType, String brand) {
+        switch(violationType) {
+            case "VANILLA_WITH_CHANNELS":
+                return config.isVanillaCheckDiscordAlertEnabled();
+            case "NON_VANILLA_WITH_CHANNELS":
+                return config.isNonVanillaCheckDiscordAlertEnabled();
+            case "BLOCKED_CHANNEL":
+            case "CHANNEL_WHITELIST":
+                return config.isBlockedChannelsDiscordAlertEnabled();
+            case "GEYSER_SPOOF":
+                return config.isGeyserSpoofDiscordAlertEnabled();
+            case "NO_BRAND":
+                return config.isNoBrandDiscordAlertEnabled();
+            case "CHANNEL_CHURN":
+                return config.isChannelChurnDiscordAlertEnabled();
+            case "INVALID_CHANNEL":
+                return config.isInvalidChannelDiscordAlertEnabled();
+            case "CLIENT_BRAND":
+                return config.getClientBrandConfig(config.getMatchingClientBrand(brand)).shouldDiscordAlert();
+            case "UNKNOWN_BRAND":
+                return config.getClientBrandConfig(null).shouldDiscordAlert();
+            default:
+                return true; // Default to true for unknown types
+        }
     }
     
     /**
      * Sends a brand violation alert
      * @param player The player with the violation
-     * @param reason The violation reason
+     * @param violation The violation
      * @param brand The player's client brand
      * @param violatedChannel The violated channel (if applicable)
-     * @param violationType The type of violation
      * @param brandConfig The brand configuration
      */
-    public void sendBrandViolationAlert(Player player, String reason, String brand, 
-                                      String violatedChannel, String violationType,
-                                      ConfigManager.ClientBrandConfig brandConfig) {
+    public void sendBrandViolationAlert(Player player, Violation violation, String brand, 
+                                      String violatedChannel, ConfigManager.ClientBrandConfig brandConfig) {
+        String violationType = violation.getType();
+        String reason = violation.getReason();
         if (!canSendAlert(player.getUniqueId(), violationType)) {
             return;
         }
@@ -275,29 +341,28 @@ public class AlertManager {
         }
         
         // Log to console
-        plugin.getLogger().info(consoleMessage);
+        plugin.getDetectionLog().alert(player, violationType, consoleMessage);
         
         // Send to players with permission
         sendAlertToRecipients(alertMessage);
         
         // Send to Discord if enabled
         if (config.isDiscordWebhookEnabled() && brandConfig.shouldDiscordAlert()) {
-            List<String> singleViolation = new ArrayList<>();
-            singleViolation.add(reason);
-            plugin.getDiscordWebhookHandler().sendAlert(player, reason, brand, violatedChannel, singleViolation);
+            plugin.getDiscordWebhookHandler().sendAlert(
+                player, reason, brand, violatedChannel, Collections.singletonList(violation));
         }
     }
     
     /**
      * Sends a violation alert for a player
      * @param player The player with the violation
-     * @param reason The violation reason
+     * @param violation The violation
      * @param brand The player's client brand
      * @param violatedChannel The violated channel (if applicable)
-     * @param violationType The type of violation
      */
-    public void sendViolationAlert(Player player, String reason, String brand, 
-                                  String violatedChannel, String violationType) {
+    public void sendViolationAlert(Player player, Violation violation, String brand, String violatedChannel) {
+        String violationType = violation.getType();
+        String reason = violation.getReason();
         if (!canSendAlert(player.getUniqueId(), violationType)) {
             return;
         }
@@ -305,63 +370,64 @@ public class AlertManager {
         // Select the appropriate alert message based on violation type
         String alertTemplate;
         String consoleAlertTemplate;
-        boolean sendDiscordAlert = false;
+        boolean sendDiscordAlert = isDiscordAlertEnabled(violationType, brand);
         
         switch(violationType) {
             case "VANILLA_WITH_CHANNELS":
                 alertTemplate = config.getVanillaCheckAlertMessage();
                 consoleAlertTemplate = config.getVanillaCheckConsoleAlertMessage();
-                sendDiscordAlert = config.isVanillaCheckDiscordAlertEnabled();
                 break;
                 
             case "NON_VANILLA_WITH_CHANNELS":
                 alertTemplate = config.getNonVanillaCheckAlertMessage();
                 consoleAlertTemplate = config.getNonVanillaCheckConsoleAlertMessage();
-                sendDiscordAlert = config.isNonVanillaCheckDiscordAlertEnabled();
                 break;
                 
             case "BLOCKED_CHANNEL":
                 alertTemplate = config.getBlockedChannelsAlertMessage();
                 consoleAlertTemplate = config.getBlockedChannelsConsoleAlertMessage();
-                sendDiscordAlert = config.isBlockedChannelsDiscordAlertEnabled();
                 break;
                 
             case "CHANNEL_WHITELIST":
                 // Use whitelist-specific messages
                 alertTemplate = config.getChannelWhitelistAlertMessage();
                 consoleAlertTemplate = config.getChannelWhitelistConsoleAlertMessage();
-                sendDiscordAlert = config.isBlockedChannelsDiscordAlertEnabled();
                 break;
                 
             case "GEYSER_SPOOF":
                 alertTemplate = config.getGeyserSpoofAlertMessage();
                 consoleAlertTemplate = config.getGeyserSpoofConsoleAlertMessage();
-                sendDiscordAlert = config.isGeyserSpoofDiscordAlertEnabled();
                 break;
                 
             case "NO_BRAND":
                 alertTemplate = config.getNoBrandAlertMessage();
                 consoleAlertTemplate = config.getNoBrandConsoleAlertMessage();
-                sendDiscordAlert = config.isNoBrandDiscordAlertEnabled();
+                break;
+                
+            case "CHANNEL_CHURN":
+                alertTemplate = config.getChannelChurnAlertMessage();
+                consoleAlertTemplate = config.getChannelChurnConsoleAlertMessage();
+                break;
+                
+            case "INVALID_CHANNEL":
+                alertTemplate = config.getInvalidChannelAlertMessage();
+                consoleAlertTemplate = config.getInvalidChannelConsoleAlertMessage();
                 break;
                 
             case "MISSING_REQUIRED_CHANNELS":
                 alertTemplate = config.getAlertMessage(); // Use general alert for now
                 consoleAlertTemplate = config.getConsoleAlertMessage();
-                sendDiscordAlert = true;
                 break;
                 
             case "UNKNOWN_BRAND":
                 alertTemplate = config.getClientBrandConfig(null).getAlertMessage();
                 consoleAlertTemplate = config.getClientBrandConfig(null).getConsoleAlertMessage();
-                sendDiscordAlert = config.getClientBrandConfig(null).shouldDiscordAlert();
                 break;
                 
             default:
                 // Fallback to global messages
                 alertTemplate = config.getAlertMessage();
                 consoleAlertTemplate = config.getConsoleAlertMessage();
-                sendDiscordAlert = true; // Default to true for unknown types
         }
         
         // Format the player alert message with placeholders
@@ -382,16 +448,15 @@ public class AlertManager {
         }
         
         // Log to console
-        plugin.getLogger().info(consoleAlert);
+        plugin.getDetectionLog().alert(player, violationType, consoleAlert);
         
         // Notify players with permission using our optimized list
         sendAlertToRecipients(playerAlert);
         
         // Send to Discord if enabled and this type should send alerts
         if (config.isDiscordWebhookEnabled() && sendDiscordAlert) {
-            List<String> singleViolation = new ArrayList<>();
-            singleViolation.add(reason);
-            plugin.getDiscordWebhookHandler().sendAlert(player, reason, brand, violatedChannel, singleViolation);
+            plugin.getDiscordWebhookHandler().sendAlert(
+                player, reason, brand, violatedChannel, Collections.singletonList(violation));
         }
     }
     
@@ -425,11 +490,8 @@ public class AlertManager {
                 formatted = formatted.replace("%channel%", violatedChannel);
             }
             
-            // Execute command on the main thread
-            final String finalCommand = formatted;
-            plugin.getServer().getScheduler().runTask(plugin, () -> {
-                plugin.getServer().dispatchCommand(plugin.getServer().getConsoleSender(), finalCommand);
-            });
+            // Queue the command for rate-limited execution on the main thread
+            plugin.getPunishmentDispatcher().submit(player, formatted);
         }
     }
     
@@ -468,6 +530,14 @@ public class AlertManager {
                 punishments = config.getNoBrandPunishments();
                 break;
                 
+            case "CHANNEL_CHURN":
+                punishments = config.getChannelChurnPunishments();
+                break;
+                
+            case "INVALID_CHANNEL":
+                punishments = config.getInvalidChannelPunishments();
+                break;
+                
             case "MISSING_REQUIRED_CHANNELS":
                 // Check for brand-specific required-channels punishments first
                 String brandKey = config.getMatchingClientBrand(brand);
@@ -477,9 +547,7 @@ public class AlertManager {
                     // Get the required-channels-punishments first
                     List<String> requiredChannelsPunishments = brandConfig.getRequiredChannelsPunishments();
                     if (!requiredChannelsPunishments.isEmpty()) {
-                        if (config.isDebugMode()) {
-                            plugin.getLogger().info("[Debug] Using brand's required-channels-punishments for " + player.getName());
-                        }
+                        plugin.getDetectionLog().debug(player, "Using brand's required-channels-punishments", brandKey);
                         punishments = requiredChannelsPunishments;
                         break;
                     }
@@ -487,17 +555,13 @@ public class AlertManager {
                     // Fall back to regular brand punishments if required-channel-punishments is empty
                     List<String> brandPunishments = brandConfig.getPunishments();
                     if (!brandPunishments.isEmpty()) {
-                        if (config.isDebugMode()) {
-                            plugin.getLogger().info("[Debug] Falling back to brand's regular punishments for " + player.getName());
-                        }
+                        plugin.getDetectionLog().debug(player, "Falling back to brand's regular punishments", brandKey);
                         punishments = brandPunishments;
                         break;
                     }
                 }
                 // If no brand-specific punishments found, fall back to global
-                if (config.isDebugMode()) {
-                    plugin.getLogger().info("[Debug] Falling back to global punishments for " + player.getName());
-                }
+                plugin.getDetectionLog().debug(player, "Falling back to global punishments", null);
                 punishments = config.getPunishments();
                 break;
                 
@@ -529,11 +593,8 @@ public class AlertManager {
                 formatted = formatted.replace("%channel%", violatedChannel);
             }
             
-            // Execute command on the main thread
-            final String finalCommand = formatted;
-            plugin.getServer().getScheduler().runTask(plugin, () -> {
-                plugin.getServer().dispatchCommand(plugin.getServer().getConsoleSender(), finalCommand);
-            });
+            // Queue the command for rate-limited execution on the main thread
+            plugin.getPunishmentDispatcher().submit(player, formatted);
         }
     }
     
@@ -542,7 +603,7 @@ public class AlertManager {
      * @param playerUUID The UUID of the player who disconnected
      */
     public void handlePlayerQuit(UUID playerUUID) {
-        lastAlerts.remove(playerUUID);
+        // Cooldowns are left to expire on their own so a quick rejoin can't bypass them
         playersWithAlertPermission.remove(playerUUID);
     }
 }
\ No newline at end of file
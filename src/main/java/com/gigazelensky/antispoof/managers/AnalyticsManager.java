@@ -0,0 +1,167 @@
+package com.gigazelensky.antispoof.managers;
+
+import com.gigazelensky.antispoof.AntiSpoofPlugin;
+import com.gigazelensky.antispoof.utils.HeavyHitters;
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.command.CommandSender;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Counts which client brands and channels the player population uses.
+ * Counts are kept in fixed memory since the server started, and written to
+ * plugins/AntiSpoof/stats.txt periodically to help with writing brand rules.
+ */
+public class AnalyticsManager {
+    // Number of entries shown per list in chat
+    private static final int CHAT_LINES = 10;
+    
+    private final AntiSpoofPlugin plugin;
+    private final ConfigManager config;
+    private final HeavyHitters brands;
+    private final HeavyHitters channels;
+    private final long startTime = System.currentTimeMillis();
+    
+    public AnalyticsManager(AntiSpoofPlugin plugin) {
+        this.plugin = plugin;
+        this.config = plugin.getConfigManager();
+        
+        if (config.isAnalyticsEnabled()) {
+            this.brands = new HeavyHitters(config.getAnalyticsTopSize());
+            this.channels = new HeavyHitters(config.getAnalyticsTopSize());
+            
+            long interval = config.getAnalyticsDumpInterval() * 60L * 20L;
+            if (interval > 0) {
+                Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, this::dump, interval, interval);
+            }
+        } else {
+            this.brands = null;
+            this.channels = null;
+        }
+    }
+    
+    /**
+     * @return Whether brand and channel analytics are collected, only read on startup
+     */
+    public boolean isEnabled() {
+        return brands != null;
+    }
+    
+    /**
+     * Counts a client brand sent by a player
+     * @param uuid The player's UUID
+     * @param brand The client brand
+     */
+    public void recordBrand(UUID uuid, String brand) {
+        if (brands != null) {
+            brands.add(brand, uuid);
+        }
+    }
+    
+    /**
+     * Counts a channel registered by a player
+     * @param uuid The player's UUID
+     * @param channel The channel
+     */
+    public void recordChannel(UUID uuid, String channel) {
+        if (channels != null) {
+            channels.add(channel, uuid);
+        }
+    }
+    
+    /**
+     * Shows the statistics for /antispoof stats
+     * @param sender The sender to show them to
+     * @param dimension "brands", "channels" or null for both
+     * @param key A single brand or channel to look up, or null
+     */
+    public void sendStats(CommandSender sender, String dimension, String key) {
+        if (brands == null) {
+            sender.sendMessage(ChatColor.RED + "Analytics are disabled in the config.");
+            return;
+        }
+        
+        sender.sendMessage(ChatColor.AQUA + "=== AntiSpoof Analytics (since " + new Date(startTime) + ") ===");
+        if (dimension == null || dimension.equals("brands")) {
+            sendDimension(sender, "Brands", brands, key);
+        }
+        if (dimension == null || dimension.equals("channels")) {
+            sendDimension(sender, "Channels", channels, key);
+        }
+    }
+    
+    private void sendDimension(CommandSender sender, String title, HeavyHitters counters, String key) {
+        sender.sendMessage(ChatColor.GRAY + title + ": " + ChatColor.WHITE + counters.getTotal() + 
+            ChatColor.GRAY + " seen from ~" + ChatColor.WHITE + counters.getPlayers() + ChatColor.GRAY + " players");
+        
+        if (key != null) {
+            sender.sendMessage(formatChat(counters.lookup(key)));
+            return;
+        }
+        
+        List<HeavyHitters.Entry> top = counters.getTop();
+        for (int i = 0; i < Math.min(CHAT_LINES, top.size()); i++) {
+            sender.sendMessage(formatChat(top.get(i)));
+        }
+        if (top.size() > CHAT_LINES) {
+            sender.sendMessage(ChatColor.GRAY + "  ... " + (top.size() - CHAT_LINES) + " more in stats.txt");
+        }
+    }
+    
+    private String formatChat(HeavyHitters.Entry entry) {
+        return ChatColor.GRAY + "  " + ChatColor.WHITE + entry.getKey() + ChatColor.GRAY + ": " + format(entry);
+    }
+    
+    private static String format(HeavyHitters.Entry entry) {
+        if (entry.getPlayers() < 0) {
+            // Not in the top list, only the sketch estimate is known
+            return "at most " + entry.getCount() + " (long tail)";
+        }
+        
+        StringBuilder sb = new StringBuilder().append(entry.getCount());
+        if (entry.getError() > 0) {
+            sb.append(" (±").append(entry.getError()).append(')');
+        }
+        return sb.append(", ~").append(entry.getPlayers()).append(" players").toString();
+    }
+    
+    /**
+     * Writes the current statistics to stats.txt
+     */
+    public void dump() {
+        if (brands == null) {
+            return;
+        }
+        
+        List<String> lines = new ArrayList<>();
+        lines.add("# AntiSpoof analytics from " + new Date(startTime) + " to " + new Date());
+        appendDump(lines, "brands", brands);
+        appendDump(lines, "channels", channels);
+        
+        File file = new File(plugin.getDataFolder(), "stats.txt");
+        File temp = new File(plugin.getDataFolder(), "stats.txt.tmp");
+        try {
+            Files.write(temp.toPath(), lines, StandardCharsets.UTF_8);
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            plugin.getLogger().warning("Failed to write analytics: " + e.getMessage());
+        }
+    }
+    
+    private static void appendDump(List<String> lines, String title, HeavyHitters counters) {
+        lines.add("");
+        lines.add("[" + title + "] total=" + counters.getTotal() + " players~" + counters.getPlayers());
+        for (HeavyHitters.Entry entry : counters.getTop()) {
+            lines.add(entry.getKey() + "\t" + format(entry));
+        }
+    }
+}
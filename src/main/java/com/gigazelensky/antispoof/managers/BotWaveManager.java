@@ -0,0 +1,255 @@
+package com.gigazelensky.antispoof.managers;
+
+import com.gigazelensky.antispoof.AntiSpoofPlugin;
+import com.gigazelensky.antispoof.data.ClientFingerprint;
+import com.gigazelensky.antispoof.data.PlayerData;
+import com.gigazelensky.antispoof.data.Violation;
+import com.gigazelensky.antispoof.utils.CountMinSketch;
+import com.gigazelensky.antispoof.utils.MessageUtil;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.UUID;
+
+/**
+ * Detects bot waves: bursts of new players whose clients send the same brand
+ * and channel set within a short window. Once a cluster of identical clients
+ * reaches the threshold, the whole wave gets one combined alert and is
+ * optionally kicked together. Wave members are still checked and punished
+ * one by one, only their individual alerts are left out.
+ * Vanilla clients and clients without channels all look alike, so they are
+ * never grouped.
+ */
+public class BotWaveManager {
+    // Longer name lists are cut off in alerts
+    private static final int MAX_NAMES_LENGTH = 1000;
+    
+    private final AntiSpoofPlugin plugin;
+    private final ConfigManager config;
+    
+    // Guarded by this
+    private final Map<Long, Cluster> clusters = new HashMap<>();
+    private final Map<UUID, Cluster> observed = new HashMap<>();
+    private long nextPrune = 0;
+    
+    private static final class Member {
+        private final long time;
+        private final UUID uuid;
+        private final String name;
+        private final String address;
+        
+        private Member(long time, UUID uuid, String name, String address) {
+            this.time = time;
+            this.uuid = uuid;
+            this.name = name;
+            this.address = address;
+        }
+    }
+    
+    /**
+     * Players that sent one brand and channel set, within the window
+     */
+    private static final class Cluster {
+        private final String brand;
+        private final int channelCount;
+        private final ArrayDeque<Member> window = new ArrayDeque<>();
+        // Members of the current wave, empty while there is none
+        private final Map<UUID, Member> wave = new LinkedHashMap<>();
+        private long lastSeen;
+        
+        private Cluster(String brand, int channelCount) {
+            this.brand = brand;
+            this.channelCount = channelCount;
+        }
+    }
+    
+    public BotWaveManager(AntiSpoofPlugin plugin) {
+        this.plugin = plugin;
+        this.config = plugin.getConfigManager();
+    }
+    
+    /**
+     * Adds a player's client to its cluster once per session, after the full check
+     * @param player The player
+     * @param brand The client brand
+     * @param channels The channels used for detection
+     * @return True if the player is part of a bot wave and their individual alerts should be left out
+     */
+    public boolean observe(Player player, String brand, Set<String> channels) {
+        if (!config.isBotWaveDetectionEnabled()) {
+            return false;
+        }
+        
+        // Identical honest clients, not a sign of bots
+        if (channels.isEmpty() || brand.equalsIgnoreCase("vanilla")) {
+            return false;
+        }
+        
+        UUID uuid = player.getUniqueId();
+        long now = System.currentTimeMillis();
+        long window = config.getBotWaveWindow() * 1000L;
+        List<Member> newWave = null;
+        boolean waveStarted = false;
+        Cluster cluster;
+        
+        synchronized (this) {
+            Cluster previous = observed.get(uuid);
+            if (previous != null) {
+                return previous.wave.containsKey(uuid);
+            }
+            
+            if (now >= nextPrune) {
+                prune(now, window);
+                nextPrune = now + window;
+            }
+            
+            long key = ClientFingerprint.hashChannels(channels) * 31 + CountMinSketch.hash(brand);
+            cluster = clusters.computeIfAbsent(key, k -> new Cluster(brand, channels.size()));
+            observed.put(uuid, cluster);
+            
+            // A wave ends once no identical client arrived for a whole window
+            if (!cluster.wave.isEmpty() && now - cluster.lastSeen > window) {
+                cluster.wave.clear();
+            }
+            cluster.lastSeen = now;
+            
+            if (config.isBotWaveNewPlayersOnly() && !isNewPlayer(uuid)) {
+                return false;
+            }
+            
+            Member member = new Member(now, uuid, player.getName(), getAddress(player));
+            if (!cluster.wave.isEmpty()) {
+                cluster.wave.put(uuid, member);
+                newWave = Collections.singletonList(member);
+            } else {
+                while (!cluster.window.isEmpty() && now - cluster.window.peekFirst().time > window) {
+                    cluster.window.pollFirst();
+                }
+                cluster.window.addLast(member);
+                
+                if (cluster.window.size() >= config.getBotWaveThreshold()) {
+                    for (Member waveMember : cluster.window) {
+                        cluster.wave.put(waveMember.uuid, waveMember);
+                    }
+                    cluster.window.clear();
+                    newWave = new ArrayList<>(cluster.wave.values());
+                    waveStarted = true;
+                }
+            }
+        }
+        
+        if (newWave == null) {
+            return false;
+        }
+        
+        // Only the wave as a whole is alerted
+        if (waveStarted) {
+            sendWaveAlert(cluster, newWave);
+        }
+        
+        List<Member> members = newWave;
+        Bukkit.getScheduler().runTask(plugin, () -> handleMembers(cluster, members));
+        return true;
+    }
+    
+    /**
+     * Records and optionally kicks players that joined a wave, on the main thread
+     */
+    private void handleMembers(Cluster cluster, List<Member> members) {
+        Violation violation = new Violation("BOT_WAVE", "Part of a bot wave", cluster.brand);
+        for (Member member : members) {
+            Player player = Bukkit.getPlayer(member.uuid);
+            if (player == null || !player.isOnline()) {
+                continue;
+            }
+            
+            plugin.getHistoryManager().record(player, cluster.brand, Collections.singletonList(violation));
+            
+            if (config.isBotWaveKickEnabled()) {
+                PlayerData data = plugin.getPlayerDataMap().get(member.uuid);
+                if (data != null) {
+                    data.setAlreadyPunished(true);
+                }
+                String message = config.getBotWaveKickMessage();
+                if (!plugin.getPunishmentDispatcher().kickNatively(player, message)) {
+                    player.kickPlayer(MessageUtil.miniMessage(message));
+                }
+            }
+        }
+    }
+    
+    private void sendWaveAlert(Cluster cluster, List<Member> members) {
+        Set<String> addresses = new HashSet<>();
+        StringJoiner names = new StringJoiner(", ");
+        for (Member member : members) {
+            addresses.add(member.address);
+            if (names.length() < MAX_NAMES_LENGTH) {
+                names.add(member.name);
+            }
+        }
+        if (names.length() >= MAX_NAMES_LENGTH) {
+            names.add("...");
+        }
+        
+        String count = String.valueOf(members.size());
+        String alert = config.getBotWaveAlertMessage()
+            .replace("%count%", count)
+            .replace("%brand%", cluster.brand)
+            .replace("%channels%", String.valueOf(cluster.channelCount))
+            .replace("%addresses%", String.valueOf(addresses.size()));
+        String consoleAlert = config.getConsoleBotWaveAlertMessage()
+            .replace("%count%", count)
+            .replace("%brand%", cluster.brand)
+            .replace("%channels%", String.valueOf(cluster.channelCount))
+            .replace("%addresses%", String.valueOf(addresses.size()))
+            .replace("%players%", names.toString());
+        
+        plugin.getLogger().warning(consoleAlert);
+        plugin.getAlertManager().sendAlertToRecipients(alert);
+        plugin.getDiscordWebhookHandler().sendWaveAlert(cluster.brand, cluster.channelCount, 
+            members.size(), addresses.size(), names.toString());
+    }
+    
+    private boolean isNewPlayer(UUID uuid) {
+        FingerprintManager.Session session = plugin.getFingerprintManager().getSession(uuid);
+        // Without stored fingerprints every player counts as new
+        return session == null || (session.isLoaded() && session.getPrevious() == null);
+    }
+    
+    private static String getAddress(Player player) {
+        InetSocketAddress address = player.getAddress();
+        return address != null && address.getAddress() != null ? address.getAddress().getHostAddress() : "unknown";
+    }
+    
+    /**
+     * Drops clusters nobody was added to for a whole window
+     */
+    private void prune(long now, long window) {
+        Iterator<Cluster> iterator = clusters.values().iterator();
+        while (iterator.hasNext()) {
+            if (now - iterator.next().lastSeen > window) {
+                iterator.remove();
+            }
+        }
+    }
+    
+    /**
+     * Forgets which cluster a player was added to
+     * @param uuid The player's UUID
+     */
+    public synchronized void handlePlayerQuit(UUID uuid) {
+        observed.remove(uuid);
+    }
+}
@@ -1,32 +1,57 @@
 package com.gigazelensky.antispoof.managers;
 
+import com.gigazelensky.antispoof.data.AlertType;
+import com.gigazelensky.antispoof.data.PlayerData;
+import com.gigazelensky.antispoof.utils.RegexAnalyzer;
+import com.gigazelensky.antispoof.utils.RuleMatcher;
+import com.gigazelensky.antispoof.utils.WebhookDeliveryQueue;
 import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
 import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Pattern;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
 import java.util.regex.PatternSyntaxException;
 
 public class ConfigManager {
+    // Name of the sink that uses discord.webhook, and receives alerts without a route
+    public static final String DEFAULT_WEBHOOK_SINK = "default";
+    
     private final JavaPlugin plugin;
-    private FileConfiguration config;
     
-    // Cache for compiled regex patterns
-    private final Map<String, Pattern> channelPatterns = new HashMap<>();
+    // The loaded config and everything compiled from it, replaced as a whole on reload
+    private volatile RuleSet rules;
+    
+    // Reads and compiles the config off the main thread, one reload at a time
+    private final ExecutorService reloadExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "AntiSpoof-Reload");
+        thread.setDaemon(true);
+        return thread;
+    });
     
-    // Client brand configurations
-    private boolean clientBrandsEnabled;
-    private final Map<String, ClientBrandConfig> clientBrands = new HashMap<>();
-    private ClientBrandConfig defaultBrandConfig;
+    // Rule set read instead of the current one by threads evaluating a candidate config
+    private final ThreadLocal<RuleSet> ruleOverride = new ThreadLocal<>();
 
     // Class to hold client brand configuration
     public static class ClientBrandConfig {
         private boolean enabled;
-        private List<Pattern> patterns = new ArrayList<>();
+        private List<RuleMatcher> patterns = new ArrayList<>();
         private List<String> patternStrings = new ArrayList<>();
         private boolean flag;
         private boolean alert;
@@ -35,7 +60,7 @@ public class ConfigManager {
         private String consoleAlertMessage;
         private boolean punish;
         private List<String> punishments = new ArrayList<>();
-        private List<Pattern> requiredChannels = new ArrayList<>();
+        private List<RuleMatcher> requiredChannels = new ArrayList<>();
         private List<String> requiredChannelStrings = new ArrayList<>();
         private boolean strictCheck;
         // Added fields for required channels punishment
@@ -43,7 +68,7 @@ public class ConfigManager {
         private List<String> requiredChannelsPunishments = new ArrayList<>();
         
         public boolean isEnabled() { return enabled; }
-        public List<Pattern> getPatterns() { return patterns; }
+        public List<RuleMatcher> getPatterns() { return patterns; }
         public List<String> getPatternStrings() { return patternStrings; }
         public boolean shouldFlag() { return flag; }
         public boolean shouldAlert() { return alert; }
@@ -52,159 +77,561 @@ public class ConfigManager {
         public String getConsoleAlertMessage() { return consoleAlertMessage; }
         public boolean shouldPunish() { return punish; }
         public List<String> getPunishments() { return punishments; }
-        public List<Pattern> getRequiredChannels() { return requiredChannels; }
+        public List<RuleMatcher> getRequiredChannels() { return requiredChannels; }
         public List<String> getRequiredChannelStrings() { return requiredChannelStrings; }
         public boolean hasStrictCheck() { return strictCheck; }
         // Added getters for required channels punishment
         public boolean shouldPunishRequiredChannels() { return requiredChannelsPunish; }
         public List<String> getRequiredChannelsPunishments() { return requiredChannelsPunishments; }
     }
+    
+    // Class to hold the settings of a named webhook sink
+    public static class WebhookSinkConfig {
+        private final String name;
+        private String url;
+        private int queueSize;
+        private WebhookDeliveryQueue.OverflowPolicy overflowPolicy;
+        private int maxRetries;
+        private long retryBaseDelay;
+        private long batchWindow;
+        private int maxEmbedsPerRequest;
+        
+        private WebhookSinkConfig(String name) {
+            this.name = name;
+        }
+        
+        public String getName() { return name; }
+        public String getUrl() { return url; }
+        public int getQueueSize() { return queueSize; }
+        public WebhookDeliveryQueue.OverflowPolicy getOverflowPolicy() { return overflowPolicy; }
+        public int getMaxRetries() { return maxRetries; }
+        public long getRetryBaseDelay() { return retryBaseDelay; }
+        public long getBatchWindow() { return batchWindow; }
+        public int getMaxEmbedsPerRequest() { return maxEmbedsPerRequest; }
+    }
+
+    // Config sections that decide whether a client is flagged
+    private static final String[] RULE_SECTIONS = {
+        "vanillaspoof-check", "non-vanilla-check", "no-brand-check", 
+        "blocked-channels", "client-brands", "bedrock-handling"
+    };
 
     public ConfigManager(JavaPlugin plugin) {
         this.plugin = plugin;
         reload();
     }
 
+    /**
+     * Loads the config on the calling thread and uses it right away. Only used
+     * at startup, /antispoof reload goes through {@link #buildRules()}.
+     */
     public void reload() {
         plugin.saveDefaultConfig();
         plugin.reloadConfig();
-        config = plugin.getConfig();
+        rules = new RuleSet(plugin.getConfig(), rules != null ? rules.generation + 1 : 0);
+    }
+    
+    /**
+     * Reads config.yml and compiles a new rule set on the reload thread. The
+     * current rules stay in use until the result is passed to {@link #applyRules}.
+     * @return The new rule set, completed exceptionally if config.yml can't be read
+     */
+    public CompletableFuture<RuleSet> buildRules() {
+        return CompletableFuture.supplyAsync(() -> {
+            plugin.saveDefaultConfig();
+            
+            // Unlike reloadConfig, a syntax error fails the reload instead of loading an empty config
+            YamlConfiguration yaml = new YamlConfiguration();
+            try {
+                yaml.load(new File(plugin.getDataFolder(), "config.yml"));
+            } catch (IOException | InvalidConfigurationException e) {
+                throw new CompletionException(e);
+            }
+            
+            InputStream defaults = plugin.getResource("config.yml");
+            if (defaults != null) {
+                yaml.setDefaults(YamlConfiguration.loadConfiguration(
+                    new InputStreamReader(defaults, StandardCharsets.UTF_8)));
+            }
+            
+            return new RuleSet(yaml, rules.generation + 1);
+        }, reloadExecutor);
+    }
+    
+    /**
+     * Swaps in a rule set built by {@link #buildRules()}. Checks running under
+     * {@link #withCurrentRules} finish on the rule set they started with, other
+     * readers see the new one on their next getter call.
+     * @param next The new rule set
+     */
+    public void applyRules(RuleSet next) {
+        rules = next;
+    }
+    
+    /**
+     * @return The rule set currently in use
+     */
+    public RuleSet getRules() {
+        return rules;
+    }
+    
+    /**
+     * Runs a task with every getter on the calling thread reading the given
+     * rule set instead of the current one, so a config can be evaluated
+     * before it is applied
+     * @param ruleSet The rule set to read
+     * @param task The task to run
+     * @return The task's result
+     */
+    public <T> T withRules(RuleSet ruleSet, Supplier<T> task) {
+        RuleSet previous = ruleOverride.get();
+        ruleOverride.set(ruleSet);
+        try {
+            return task.get();
+        } finally {
+            if (previous != null) {
+                ruleOverride.set(previous);
+            } else {
+                ruleOverride.remove();
+            }
+        }
+    }
+    
+    /**
+     * Runs a task with every getter on the calling thread reading the rule set
+     * in use when it starts, so a reload applied meanwhile can't mix two rule
+     * sets within one check. A task nested in another keeps the outer rule set.
+     * @param task The task to run
+     * @return The task's result
+     */
+    public <T> T withCurrentRules(Supplier<T> task) {
+        return withRules(rules(), task);
+    }
+    
+    /**
+     * Runs a task with every getter on the calling thread reading the given rule set
+     * @param ruleSet The rule set to read
+     * @param task The task to run
+     */
+    public void withRules(RuleSet ruleSet, Runnable task) {
+        withRules(ruleSet, () -> {
+            task.run();
+            return null;
+        });
+    }
+    
+    /**
+     * @return The rule set getters read on this thread, to hand over to another thread
+     */
+    public RuleSet getCurrentRules() {
+        return rules();
+    }
+    
+    /**
+     * Runs a task with the rule set in use when it starts, see {@link #withCurrentRules(Supplier)}
+     * @param task The task to run
+     */
+    public void withCurrentRules(Runnable task) {
+        withRules(rules(), task);
+    }
+    
+    /**
+     * @return The rule set getters read on this thread
+     */
+    private RuleSet rules() {
+        RuleSet override = ruleOverride.get();
+        return override != null ? override : rules;
+    }
+    
+    /**
+     * Stops the reload thread
+     */
+    public void shutdown() {
+        reloadExecutor.shutdownNow();
+    }
+    
+    /**
+     * @return The hash of the current detection settings
+     */
+    public int getRulesHash() {
+        return rules.rulesHash;
+    }
+    
+    /**
+     * @return A counter that changes every time the config is reloaded
+     */
+    public int getGeneration() {
+        return rules.generation;
+    }
+    
+    /**
+     * The config and everything compiled from it. A rule set is never changed
+     * once built, a reload builds a new one and swaps it in with a single
+     * write, so checks never see a half-loaded config.
+     */
+    public final class RuleSet {
+        private final FileConfiguration config;
+        private final int generation;
         
-        // Clear and recompile regex patterns
-        channelPatterns.clear();
+        // Cache for compiled regex patterns
+        private final Map<String, RuleMatcher> channelPatterns = new HashMap<>();
         
-        // Compile channel patterns
-        List<String> channelRegexes = getBlockedChannels();
-        for (String regex : channelRegexes) {
-            try {
-                channelPatterns.put(regex, Pattern.compile(regex));
-            } catch (PatternSyntaxException e) {
-                plugin.getLogger().warning("Invalid channel regex pattern: " + regex + " - " + e.getMessage());
+        // Engine brand and channel rules are compiled for
+        private RuleMatcher.Engine regexEngine;
+        
+        // Longest a single backtracking match of a rule may run, 0 for no limit
+        private long regexBudgetNanos;
+        
+        // Patterns that failed to compile and only match their own text
+        private int invalidPatterns;
+        
+        // Client brand configurations
+        private boolean clientBrandsEnabled;
+        private final Map<String, ClientBrandConfig> clientBrands = new HashMap<>();
+        private ClientBrandConfig defaultBrandConfig;
+        
+        // Alert cooldowns in milliseconds, indexed by alert type ordinal
+        private long[] alertCooldowns;
+        private long maxAlertCooldown;
+        
+        // Lower-case labels of punishment commands that are dispatched first
+        private List<String> priorityCommands;
+        
+        // Settings read on every detection or by the detection log writer thread
+        private boolean debugMode;
+        private boolean detectionLogFile;
+        private boolean detectionLogConsole;
+        private long detectionLogMaxFileSize;
+        private int detectionLogMaxFiles;
+        
+        // Webhook sinks by name, and the sink names each route key sends to
+        private Map<String, WebhookSinkConfig> webhookSinks;
+        private Map<String, List<String>> webhookRoutes;
+        
+        // Hash of the settings that decide detections, stored with client fingerprints
+        private int rulesHash;
+        
+        private RuleSet(FileConfiguration config, int generation) {
+            this.config = config;
+            this.generation = generation;
+            
+            debugMode = config.getBoolean("debug", false);
+            detectionLogFile = config.getBoolean("detection-log.file", true);
+            detectionLogConsole = config.getBoolean("detection-log.console", true);
+            detectionLogMaxFileSize = Math.max(1L, config.getLong("detection-log.max-file-size-mb", 10L)) * 1024L * 1024L;
+            detectionLogMaxFiles = config.getInt("detection-log.max-files", 14);
+            
+            regexEngine = RuleMatcher.Engine.fromString(config.getString("regex-engine", "linear"));
+            regexBudgetNanos = Math.max(0L, config.getLong("regex-timeout-ms", 50L)) * 1_000_000L;
+            
+            // Compile channel patterns
+            List<String> channelRegexes = config.getStringList("blocked-channels.values");
+            for (String regex : channelRegexes) {
+                try {
+                    channelPatterns.put(regex, compileRule(regex));
+                } catch (PatternSyntaxException e) {
+                    plugin.getLogger().warning("Invalid channel regex pattern: " + regex + " - " + e.getMessage());
+                    invalidPatterns++;
+                }
+            }
+            
+            // Load client brand configurations
+            loadClientBrandConfigs();
+            
+            // Load per-type alert cooldowns
+            loadAlertCooldowns();
+            
+            // Load webhook sinks and the routes to them
+            loadWebhookSinks();
+            
+            // Load punishment commands that skip ahead in the queue
+            List<String> priority = new ArrayList<>();
+            for (String label : config.getStringList("punishment-queue.priority-commands")) {
+                priority.add(label.toLowerCase());
             }
+            priorityCommands = priority;
+            
+            rulesHash = computeRulesHash();
+        }
+        
+        /**
+         * @return Patterns that failed to compile and were loaded as exact matches
+         */
+        public int getInvalidPatterns() {
+            return invalidPatterns;
         }
         
-        // Load client brand configurations
-        loadClientBrandConfigs();
-    }
-    
-    /**
-     * Load all client brand configurations from config
-     */
-    private void loadClientBrandConfigs() {
-        // Clear existing configurations
-        clientBrands.clear();
-        
-        // Check if client brands system is enabled
-        clientBrandsEnabled = config.getBoolean("client-brands.enabled", true);
-        
-        // Load default brand config
-        ConfigurationSection defaultSection = config.getConfigurationSection("client-brands.default");
-        defaultBrandConfig = new ClientBrandConfig();
-        
-        if (defaultSection != null) {
-            defaultBrandConfig.enabled = true;
-            defaultBrandConfig.flag = defaultSection.getBoolean("flag", true);
-            defaultBrandConfig.alert = defaultSection.getBoolean("alert", true);
-            defaultBrandConfig.discordAlert = defaultSection.getBoolean("discord-alert", false);
-            defaultBrandConfig.alertMessage = defaultSection.getString("alert-message", 
-                "&8[&cAntiSpoof&8] &7%player% using unknown client: &e%brand%");
-            defaultBrandConfig.consoleAlertMessage = defaultSection.getString("console-alert-message", 
-                "%player% using unknown client: %brand%");
-            defaultBrandConfig.punish = defaultSection.getBoolean("punish", false);
-            defaultBrandConfig.punishments = defaultSection.getStringList("punishments");
-        } else {
-            // Set up default values if section is missing
-            defaultBrandConfig.enabled = true;
-            defaultBrandConfig.flag = true;
-            defaultBrandConfig.alert = true;
-            defaultBrandConfig.discordAlert = false;
-            defaultBrandConfig.alertMessage = "&8[&cAntiSpoof&8] &7%player% using unknown client: &e%brand%";
-            defaultBrandConfig.consoleAlertMessage = "%player% using unknown client: %brand%";
-            defaultBrandConfig.punish = false;
-            defaultBrandConfig.punishments = new ArrayList<>();
+        /**
+         * Hashes the config sections that affect detection results, so a stored
+         * verdict is only trusted while those settings are unchanged
+         */
+        private int computeRulesHash() {
+            int hash = 1;
+            for (String path : RULE_SECTIONS) {
+                ConfigurationSection section = config.getConfigurationSection(path);
+                hash = 31 * hash + (section != null ? section.getValues(true).toString().hashCode() : 0);
+            }
+            return hash;
         }
         
-        // Load individual brand configurations
-        ConfigurationSection brandsSection = config.getConfigurationSection("client-brands.brands");
-        if (brandsSection != null) {
-            for (String brandKey : brandsSection.getKeys(false)) {
-                ConfigurationSection brandSection = brandsSection.getConfigurationSection(brandKey);
-                if (brandSection != null) {
-                    ClientBrandConfig brandConfig = loadBrandConfig(brandSection);
-                    clientBrands.put(brandKey, brandConfig);
+        /**
+         * Load alert cooldowns from config, falling back to the default cooldown
+         * for alert types that are not configured
+         */
+        private void loadAlertCooldowns() {
+            long defaultCooldown = Math.max(0L, config.getLong("alert-cooldowns.default", 3000L));
+            long[] cooldowns = new long[AlertType.count()];
+            long max = defaultCooldown;
+            
+            for (AlertType type : AlertType.values()) {
+                long cooldown = Math.max(0L, config.getLong("alert-cooldowns." + type.name(), defaultCooldown));
+                cooldowns[type.ordinal()] = cooldown;
+                max = Math.max(max, cooldown);
+            }
+            
+            alertCooldowns = cooldowns;
+            maxAlertCooldown = max;
+        }
+        
+        /**
+         * Load the webhook sinks and routes. The default sink is discord.webhook with
+         * the discord.delivery settings, named sinks fall back to those settings.
+         */
+        private void loadWebhookSinks() {
+            WebhookSinkConfig defaultSink = new WebhookSinkConfig(DEFAULT_WEBHOOK_SINK);
+            defaultSink.url = config.getString("discord.webhook", "").trim();
+            defaultSink.queueSize = config.getInt("discord.delivery.queue-size", 200);
+            defaultSink.overflowPolicy = parseOverflowPolicy("discord.delivery.overflow-policy", 
+                config.getString("discord.delivery.overflow-policy", "COLLAPSE"));
+            defaultSink.maxRetries = config.getInt("discord.delivery.max-retries", 5);
+            defaultSink.retryBaseDelay = config.getLong("discord.delivery.retry-base-delay-ms", 1000L);
+            defaultSink.batchWindow = config.getLong("discord.delivery.batch-window-ms", 1000L);
+            defaultSink.maxEmbedsPerRequest = config.getInt("discord.delivery.max-embeds-per-request", 
+                WebhookDeliveryQueue.MAX_EMBEDS_PER_REQUEST);
+            
+            Map<String, WebhookSinkConfig> sinks = new LinkedHashMap<>();
+            sinks.put(DEFAULT_WEBHOOK_SINK, defaultSink);
+            
+            ConfigurationSection sinksSection = config.getConfigurationSection("discord.sinks");
+            if (sinksSection != null) {
+                for (String key : sinksSection.getKeys(false)) {
+                    String name = key.toLowerCase();
+                    ConfigurationSection section = sinksSection.getConfigurationSection(key);
+                    if (section == null || name.equals(DEFAULT_WEBHOOK_SINK)) {
+                        plugin.getLogger().warning("Invalid webhook sink in discord.sinks: " + key);
+                        continue;
+                    }
+                    sinks.put(name, loadWebhookSink(name, section, defaultSink));
+                }
+            }
+            
+            Map<String, List<String>> routes = new HashMap<>();
+            ConfigurationSection routesSection = config.getConfigurationSection("discord.routes");
+            if (routesSection != null) {
+                for (String key : routesSection.getKeys(false)) {
+                    List<String> names = routesSection.isList(key) ? 
+                        routesSection.getStringList(key) : Collections.singletonList(routesSection.getString(key, ""));
                     
-                    if (isDebugMode()) {
-                        plugin.getLogger().info("[Debug] Loaded client brand config: " + brandKey + 
-                                              " with " + brandConfig.patterns.size() + " patterns");
+                    List<String> targets = new ArrayList<>();
+                    for (String name : names) {
+                        String sinkName = name.toLowerCase();
+                        if (sinks.containsKey(sinkName)) {
+                            if (!targets.contains(sinkName)) {
+                                targets.add(sinkName);
+                            }
+                        } else {
+                            plugin.getLogger().warning("Unknown webhook sink in discord.routes." + key + ": " + name);
+                        }
                     }
+                    routes.put(key.toLowerCase(), targets);
                 }
             }
+            
+            webhookSinks = Collections.unmodifiableMap(sinks);
+            webhookRoutes = routes;
         }
-    }
-    
-    /**
-     * Load a specific brand configuration from a config section
-     */
-    private ClientBrandConfig loadBrandConfig(ConfigurationSection section) {
-        ClientBrandConfig brandConfig = new ClientBrandConfig();
-        brandConfig.enabled = section.getBoolean("enabled", true);
-        brandConfig.flag = section.getBoolean("flag", false);
-        brandConfig.alert = section.getBoolean("alert", true);
-        brandConfig.discordAlert = section.getBoolean("discord-alert", false);
-        brandConfig.alertMessage = section.getString("alert-message", defaultBrandConfig.alertMessage);
-        brandConfig.consoleAlertMessage = section.getString("console-alert-message", defaultBrandConfig.consoleAlertMessage);
-        brandConfig.punish = section.getBoolean("punish", false);
-        brandConfig.punishments = section.getStringList("punishments");
-        brandConfig.strictCheck = section.getBoolean("strict-check", false);
         
-        // Added loading for required channels punishment fields
-        brandConfig.requiredChannelsPunish = section.getBoolean("required-channels-punish", false);
-        brandConfig.requiredChannelsPunishments = section.getStringList("required-channels-punishments");
-        
-        // Load and compile pattern strings
-        List<String> patterns = section.getStringList("values");
-        brandConfig.patternStrings.addAll(patterns);
+        /**
+         * Load a named webhook sink, settings it doesn't set are taken from the default sink
+         */
+        private WebhookSinkConfig loadWebhookSink(String name, ConfigurationSection section, WebhookSinkConfig defaults) {
+            WebhookSinkConfig sink = new WebhookSinkConfig(name);
+            sink.url = section.getString("webhook", "").trim();
+            sink.queueSize = section.getInt("queue-size", defaults.queueSize);
+            sink.overflowPolicy = section.contains("overflow-policy") ? 
+                parseOverflowPolicy("discord.sinks." + name + ".overflow-policy", section.getString("overflow-policy")) : 
+                defaults.overflowPolicy;
+            sink.maxRetries = section.getInt("max-retries", defaults.maxRetries);
+            sink.retryBaseDelay = section.getLong("retry-base-delay-ms", defaults.retryBaseDelay);
+            sink.batchWindow = section.getLong("batch-window-ms", defaults.batchWindow);
+            sink.maxEmbedsPerRequest = section.getInt("max-embeds-per-request", defaults.maxEmbedsPerRequest);
+            return sink;
+        }
         
-        for (String pattern : patterns) {
-            try {
-                brandConfig.patterns.add(Pattern.compile(pattern));
-            } catch (PatternSyntaxException e) {
-                plugin.getLogger().warning("Invalid brand pattern: " + pattern + " - " + e.getMessage());
-                // Add a simple exact match pattern as fallback
-                brandConfig.patterns.add(Pattern.compile("^" + Pattern.quote(pattern) + "$"));
+        /**
+         * Load all client brand configurations from config
+         */
+        private void loadClientBrandConfigs() {
+            // Check if client brands system is enabled
+            clientBrandsEnabled = config.getBoolean("client-brands.enabled", true);
+            
+            // Load default brand config
+            ConfigurationSection defaultSection = config.getConfigurationSection("client-brands.default");
+            defaultBrandConfig = new ClientBrandConfig();
+            
+            if (defaultSection != null) {
+                defaultBrandConfig.enabled = true;
+                defaultBrandConfig.flag = defaultSection.getBoolean("flag", true);
+                defaultBrandConfig.alert = defaultSection.getBoolean("alert", true);
+                defaultBrandConfig.discordAlert = defaultSection.getBoolean("discord-alert", false);
+                defaultBrandConfig.alertMessage = defaultSection.getString("alert-message", 
+                    "&8[&cAntiSpoof&8] &7%player% using unknown client: &e%brand%");
+                defaultBrandConfig.consoleAlertMessage = defaultSection.getString("console-alert-message", 
+                    "%player% using unknown client: %brand%");
+                defaultBrandConfig.punish = defaultSection.getBoolean("punish", false);
+                defaultBrandConfig.punishments = defaultSection.getStringList("punishments");
+            } else {
+                // Set up default values if section is missing
+                defaultBrandConfig.enabled = true;
+                defaultBrandConfig.flag = true;
+                defaultBrandConfig.alert = true;
+                defaultBrandConfig.discordAlert = false;
+                defaultBrandConfig.alertMessage = "&8[&cAntiSpoof&8] &7%player% using unknown client: &e%brand%";
+                defaultBrandConfig.consoleAlertMessage = "%player% using unknown client: %brand%";
+                defaultBrandConfig.punish = false;
+                defaultBrandConfig.punishments = new ArrayList<>();
+            }
+            
+            // Load individual brand configurations
+            ConfigurationSection brandsSection = config.getConfigurationSection("client-brands.brands");
+            if (brandsSection != null) {
+                for (String brandKey : brandsSection.getKeys(false)) {
+                    ConfigurationSection brandSection = brandsSection.getConfigurationSection(brandKey);
+                    if (brandSection != null) {
+                        ClientBrandConfig brandConfig = loadBrandConfig(brandSection);
+                        clientBrands.put(brandKey, brandConfig);
+                        
+                        if (debugMode) {
+                            plugin.getLogger().info("[Debug] Loaded client brand config: " + brandKey + 
+                                                  " with " + brandConfig.patterns.size() + " patterns");
+                        }
+                    }
+                }
             }
         }
         
-        // Load and compile required channel patterns
-        List<String> requiredChannels = section.getStringList("required-channels");
-        brandConfig.requiredChannelStrings.addAll(requiredChannels);
+        /**
+         * Load a specific brand configuration from a config section
+         */
+        private ClientBrandConfig loadBrandConfig(ConfigurationSection section) {
+            ClientBrandConfig brandConfig = new ClientBrandConfig();
+            brandConfig.enabled = section.getBoolean("enabled", true);
+            brandConfig.flag = section.getBoolean("flag", false);
+            brandConfig.alert = section.getBoolean("alert", true);
+            brandConfig.discordAlert = section.getBoolean("discord-alert", false);
+            brandConfig.alertMessage = section.getString("alert-message", defaultBrandConfig.alertMessage);
+            brandConfig.consoleAlertMessage = section.getString("console-alert-message", defaultBrandConfig.consoleAlertMessage);
+            brandConfig.punish = section.getBoolean("punish", false);
+            brandConfig.punishments = section.getStringList("punishments");
+            brandConfig.strictCheck = section.getBoolean("strict-check", false);
+            
+            // Added loading for required channels punishment fields
+            brandConfig.requiredChannelsPunish = section.getBoolean("required-channels-punish", false);
+            brandConfig.requiredChannelsPunishments = section.getStringList("required-channels-punishments");
+            
+            // Load and compile pattern strings
+            List<String> patterns = section.getStringList("values");
+            brandConfig.patternStrings.addAll(patterns);
+            
+            for (String pattern : patterns) {
+                try {
+                    brandConfig.patterns.add(compileRule(pattern));
+                } catch (PatternSyntaxException e) {
+                    plugin.getLogger().warning("Invalid brand pattern: " + pattern + " - " + e.getMessage());
+                    invalidPatterns++;
+                    // Add a simple exact match pattern as fallback
+                    brandConfig.patterns.add(RuleMatcher.literal(pattern));
+                }
+            }
+            
+            // Load and compile required channel patterns
+            List<String> requiredChannels = section.getStringList("required-channels");
+            brandConfig.requiredChannelStrings.addAll(requiredChannels);
+            
+            for (String channel : requiredChannels) {
+                try {
+                    brandConfig.requiredChannels.add(compileRule(channel));
+                } catch (PatternSyntaxException e) {
+                    plugin.getLogger().warning("Invalid required channel pattern: " + channel + " - " + e.getMessage());
+                    invalidPatterns++;
+                    // Add a simple exact match pattern as fallback
+                    brandConfig.requiredChannels.add(RuleMatcher.literal(channel));
+                }
+            }
+            
+            return brandConfig;
+        }
         
-        for (String channel : requiredChannels) {
-            try {
-                brandConfig.requiredChannels.add(Pattern.compile(channel));
-            } catch (PatternSyntaxException e) {
-                plugin.getLogger().warning("Invalid required channel pattern: " + channel + " - " + e.getMessage());
-                // Add a simple exact match pattern as fallback
-                brandConfig.requiredChannels.add(Pattern.compile("^" + Pattern.quote(channel) + "$"));
+        /**
+         * Compile a brand or channel rule on the configured regex engine, noting
+         * rules that need the backtracking engine and warning about the ones that
+         * could backtrack catastrophically on it
+         * @param regex The pattern to compile
+         * @return The compiled rule
+         * @throws PatternSyntaxException if the pattern is not valid
+         */
+        private RuleMatcher compileRule(String regex) {
+            RuleMatcher matcher = RuleMatcher.compile(regex, regexEngine, regexBudgetNanos);
+            if (matcher.getFallbackReason() != null) {
+                plugin.getLogger().info("Pattern " + regex + " uses the backtracking regex engine - " + 
+                                       matcher.getFallbackReason());
+            }
+            
+            if (!matcher.isLinear()) {
+                String nested = RegexAnalyzer.findNestedQuantifier(regex);
+                if (nested != null) {
+                    plugin.getLogger().warning("Pattern " + regex + " has a nested quantifier " + nested + 
+                                              " and may be very slow on some inputs, consider rewriting it");
+                }
             }
+            return matcher;
+        }
+    }
+    
+    /**
+     * Logs the brand and channel rules that ran out of their time budget since
+     * the last report
+     */
+    public void reportRegexTimeouts() {
+        RuleSet current = rules;
+        List<RuleMatcher> matchers = new ArrayList<>(current.channelPatterns.values());
+        for (ClientBrandConfig brandConfig : current.clientBrands.values()) {
+            matchers.addAll(brandConfig.getPatterns());
+            matchers.addAll(brandConfig.getRequiredChannels());
         }
         
-        return brandConfig;
+        for (RuleMatcher rule : matchers) {
+            long recent = rule.drainUnreportedTimeouts();
+            if (recent > 0) {
+                plugin.getLogger().warning("Pattern " + rule.pattern() + " exceeded the regex time budget " + 
+                                          recent + " times (" + rule.getTimeouts() + " since reload), " + 
+                                          "those matches were treated as not matching");
+            }
+        }
     }
-
     public int getCheckDelay() {
-        return config.getInt("delay-in-seconds", 3);
+        return rules().config.getInt("delay-in-seconds", 3);
     }
 
     public boolean isDebugMode() {
-        return config.getBoolean("debug", false);
+        return rules().debugMode;
     }
     
     /**
      * @return Whether the client brands system is enabled
      */
     public boolean isClientBrandsEnabled() {
-        return clientBrandsEnabled;
+        return rules().clientBrandsEnabled;
     }
     
     /**
@@ -213,16 +640,17 @@ public class ConfigManager {
      * @return The configured brand key or null if no match
      */
     public String getMatchingClientBrand(String brand) {
-        if (brand == null || !clientBrandsEnabled) return null;
+        RuleSet rules = rules();
+        if (brand == null || !rules.clientBrandsEnabled) return null;
         
-        for (Map.Entry<String, ClientBrandConfig> entry : clientBrands.entrySet()) {
+        for (Map.Entry<String, ClientBrandConfig> entry : rules.clientBrands.entrySet()) {
             ClientBrandConfig brandConfig = entry.getValue();
             
             if (!brandConfig.isEnabled()) continue;
             
-            for (Pattern pattern : brandConfig.getPatterns()) {
+            for (RuleMatcher pattern : brandConfig.getPatterns()) {
                 try {
-                    if (pattern.matcher(brand).matches()) {
+                    if (pattern.matches(brand)) {
                         return entry.getKey();
                     }
                 } catch (Exception e) {
@@ -237,13 +665,21 @@ public class ConfigManager {
         return null;
     }
     
+    /**
+     * @return The keys of all configured client brands
+     */
+    public List<String> getClientBrandKeys() {
+        return new ArrayList<>(rules().clientBrands.keySet());
+    }
+    
     /**
      * Get the configuration for a specific client brand
      * @param brandKey The brand key to get configuration for
      * @return The brand configuration or default if not found
      */
     public ClientBrandConfig getClientBrandConfig(String brandKey) {
-        return clientBrands.getOrDefault(brandKey, defaultBrandConfig);
+        RuleSet rules = rules();
+        return rules.clientBrands.getOrDefault(brandKey, rules.defaultBrandConfig);
     }
     
     /**
@@ -259,9 +695,9 @@ public class ConfigManager {
             return true; // No required channels means any channel is fine
         }
         
-        for (Pattern pattern : brandConfig.getRequiredChannels()) {
+        for (RuleMatcher pattern : brandConfig.getRequiredChannels()) {
             try {
-                if (pattern.matcher(channel).matches()) {
+                if (pattern.matches(channel)) {
                     return true;
                 }
             } catch (Exception e) {
@@ -309,7 +745,7 @@ public class ConfigManager {
         }
         
         // If no brand pattern matched, use the default config for unknown brands
-        return defaultBrandConfig.shouldFlag();
+        return rules().defaultBrandConfig.shouldFlag();
     }
     
     /**
@@ -327,7 +763,7 @@ public class ConfigManager {
     public boolean isBrandWhitelistEnabled() {
         // In the new system, we don't have a global whitelist mode
         // But if any brand with flag: false exists, we can consider it a whitelist
-        for (ClientBrandConfig brandConfig : clientBrands.values()) {
+        for (ClientBrandConfig brandConfig : rules().clientBrands.values()) {
             if (brandConfig.isEnabled() && !brandConfig.shouldFlag()) {
                 return true;
             }
@@ -343,7 +779,7 @@ public class ConfigManager {
         List<String> result = new ArrayList<>();
         
         // Collect all brand patterns
-        for (ClientBrandConfig brandConfig : clientBrands.values()) {
+        for (ClientBrandConfig brandConfig : rules().clientBrands.values()) {
             if (brandConfig.isEnabled()) {
                 result.addAll(brandConfig.getPatternStrings());
             }
@@ -358,7 +794,7 @@ public class ConfigManager {
      */
     public String getBlockedBrandsAlertMessage() {
         // Use the default client brand alert message
-        return defaultBrandConfig.getAlertMessage();
+        return rules().defaultBrandConfig.getAlertMessage();
     }
     
     /**
@@ -367,7 +803,7 @@ public class ConfigManager {
      */
     public String getBlockedBrandsConsoleAlertMessage() {
         // Use the default client brand console alert message
-        return defaultBrandConfig.getConsoleAlertMessage();
+        return rules().defaultBrandConfig.getConsoleAlertMessage();
     }
     
     /**
@@ -376,7 +812,7 @@ public class ConfigManager {
      */
     public boolean isBlockedBrandsDiscordAlertEnabled() {
         // Use the default client brand discord alert setting
-        return defaultBrandConfig.shouldDiscordAlert();
+        return rules().defaultBrandConfig.shouldDiscordAlert();
     }
     
     /**
@@ -385,7 +821,7 @@ public class ConfigManager {
      */
     public List<String> getBlockedBrandsPunishments() {
         // Use the default client brand punishments
-        return defaultBrandConfig.getPunishments();
+        return rules().defaultBrandConfig.getPunishments();
     }
     
     /**
@@ -394,120 +830,388 @@ public class ConfigManager {
      */
     public boolean shouldPunishBlockedBrands() {
         // Use the default client brand punishment setting
-        return defaultBrandConfig.shouldPunish();
+        return rules().defaultBrandConfig.shouldPunish();
+    }
+    
+    /**
+     * Gets the cooldown between two alerts of the same type for the same player
+     * @param type The alert type
+     * @return The cooldown in milliseconds
+     */
+    public long getAlertCooldown(AlertType type) {
+        return rules().alertCooldowns[type.ordinal()];
+    }
+    
+    /**
+     * @return The longest configured alert cooldown in milliseconds
+     */
+    public long getMaxAlertCooldown() {
+        return rules().maxAlertCooldown;
     }
     
     // Global alert messages (legacy)
     public String getAlertMessage() {
-        return config.getString("messages.alert", "&8[&cAntiSpoof&8] &e%player% flagged! &c%reason%");
+        return rules().config.getString("messages.alert", "&8[&cAntiSpoof&8] &e%player% flagged! &c%reason%");
     }
     
     public String getConsoleAlertMessage() {
-        return config.getString("messages.console-alert", "%player% flagged! %reason%");
+        return rules().config.getString("messages.console-alert", "%player% flagged! %reason%");
     }
     
     // Multiple flags messages
     public String getMultipleFlagsMessage() {
-        return config.getString("messages.multiple-flags", "&8[&cAntiSpoof&8] &e%player% has multiple violations: &c%reasons%");
+        return rules().config.getString("messages.multiple-flags", "&8[&cAntiSpoof&8] &e%player% has multiple violations: &c%reasons%");
     }
     
     public String getConsoleMultipleFlagsMessage() {
-        return config.getString("messages.console-multiple-flags", "%player% has multiple violations: %reasons%");
+        return rules().config.getString("messages.console-multiple-flags", "%player% has multiple violations: %reasons%");
+    }
+    
+    /**
+     * @return Whether all violations found in one check should be sent as a single alert
+     */
+    public boolean isMergeViolationsEnabled() {
+        return rules().config.getBoolean("messages.merge-violations", false);
     }
     
     // Global punishments (legacy)
     public List<String> getPunishments() {
-        return config.getStringList("punishments");
+        return rules().config.getStringList("punishments");
+    }
+    
+    // Punishment queue settings
+    public int getPunishmentMaxPerTick() {
+        return Math.max(1, rules().config.getInt("punishment-queue.max-per-tick", 10));
+    }
+    
+    public long getPunishmentTickBudgetMillis() {
+        return Math.max(1L, rules().config.getLong("punishment-queue.tick-budget-ms", 5L));
+    }
+    
+    public List<String> getPunishmentPriorityCommands() {
+        return rules().priorityCommands;
+    }
+    
+    public long getPunishmentLagWarningMillis() {
+        return rules().config.getLong("punishment-queue.lag-warning-ms", 2000L);
+    }
+    
+    // Detection log settings
+    public boolean isDetectionLogFileEnabled() {
+        return rules().detectionLogFile;
+    }
+    
+    public boolean isDetectionLogConsoleEnabled() {
+        return rules().detectionLogConsole;
+    }
+    
+    /**
+     * @return The number of events the detection log can buffer, only read on startup
+     */
+    public int getDetectionLogBufferSize() {
+        return rules().config.getInt("detection-log.buffer-size", 8192);
+    }
+    
+    /**
+     * @return The maximum size of a single log file in bytes
+     */
+    public long getDetectionLogMaxFileSize() {
+        return rules().detectionLogMaxFileSize;
+    }
+    
+    public int getDetectionLogMaxFiles() {
+        return rules().detectionLogMaxFiles;
+    }
+    
+    /**
+     * @return The number of events kept per traced player
+     */
+    public int getTraceBufferSize() {
+        return rules().config.getInt("detection-log.trace-buffer-size", 512);
+    }
+    
+    /**
+     * @return Whether client fingerprints are stored across sessions, only read on startup
+     */
+    public boolean isFingerprintsEnabled() {
+        return rules().config.getBoolean("fingerprints.enabled", true);
+    }
+    
+    /**
+     * @return Whether players matching their last clean session skip re-evaluation
+     */
+    public boolean isFingerprintFastPathEnabled() {
+        return rules().config.getBoolean("fingerprints.fast-path", true);
+    }
+    
+    /**
+     * @return Whether violations are recorded to the history, only read on startup
+     */
+    public boolean isHistoryEnabled() {
+        return rules().config.getBoolean("history.enabled", true);
+    }
+    
+    /**
+     * @return How many days of violation history are kept, only read on startup
+     */
+    public int getHistoryRetentionDays() {
+        return Math.max(1, rules().config.getInt("history.retention-days", 30));
+    }
+    
+    /**
+     * @return Whether brand and channel analytics are collected, only read on startup
+     */
+    public boolean isAnalyticsEnabled() {
+        return rules().config.getBoolean("analytics.enabled", true);
+    }
+    
+    /**
+     * @return How many brands and channels are counted exactly, only read on startup
+     */
+    public int getAnalyticsTopSize() {
+        return Math.max(1, rules().config.getInt("analytics.top-size", 32));
+    }
+    
+    /**
+     * @return Minutes between writes of stats.txt, 0 to disable, only read on startup
+     */
+    public int getAnalyticsDumpInterval() {
+        return Math.max(0, rules().config.getInt("analytics.dump-interval", 10));
+    }
+    
+    // Bot Wave Detection
+    public boolean isBotWaveDetectionEnabled() {
+        return rules().config.getBoolean("bot-waves.enabled", false);
+    }
+    
+    /**
+     * @return Seconds in which identical clients have to arrive to form a wave
+     */
+    public int getBotWaveWindow() {
+        return Math.max(1, rules().config.getInt("bot-waves.window", 30));
+    }
+    
+    /**
+     * @return The number of identical clients that form a wave
+     */
+    public int getBotWaveThreshold() {
+        return Math.max(2, rules().config.getInt("bot-waves.threshold", 5));
+    }
+    
+    public boolean isBotWaveNewPlayersOnly() {
+        return rules().config.getBoolean("bot-waves.new-players-only", true);
+    }
+    
+    public boolean isBotWaveKickEnabled() {
+        return rules().config.getBoolean("bot-waves.kick", false);
+    }
+    
+    public String getBotWaveKickMessage() {
+        return rules().config.getString("bot-waves.kick-message", "&cToo many identical clients are joining, try again later.");
+    }
+    
+    public String getBotWaveAlertMessage() {
+        return rules().config.getString("bot-waves.alert-message", 
+            "&8[&cAntiSpoof&8] &eBot wave: &c%count% &eplayers joined with brand &c%brand% &eand &c%channels% &echannels from &c%addresses% &eaddresses");
+    }
+    
+    public String getConsoleBotWaveAlertMessage() {
+        return rules().config.getString("bot-waves.console-alert-message", 
+            "Bot wave: %count% players joined with brand %brand% and %channels% channels from %addresses% addresses: %players%");
     }
     
     // No Brand Check
     public boolean isNoBrandCheckEnabled() {
-        return config.getBoolean("no-brand-check.enabled", true);
+        return rules().config.getBoolean("no-brand-check.enabled", true);
     }
     
     public boolean isNoBrandDiscordAlertEnabled() {
-        return config.getBoolean("no-brand-check.discord-alert", true);
+        return rules().config.getBoolean("no-brand-check.discord-alert", true);
     }
     
     public boolean shouldPunishNoBrand() {
-        return config.getBoolean("no-brand-check.punish", false);
+        return rules().config.getBoolean("no-brand-check.punish", false);
     }
     
     public String getNoBrandAlertMessage() {
-        return config.getString("no-brand-check.alert-message", 
+        return rules().config.getString("no-brand-check.alert-message", 
                                "&8[&cAntiSpoof&8] &e%player% flagged! &cNo client brand detected");
     }
     
     public String getNoBrandConsoleAlertMessage() {
-        return config.getString("no-brand-check.console-alert-message", 
+        return rules().config.getString("no-brand-check.console-alert-message", 
                                "%player% flagged! No client brand detected");
     }
     
     public List<String> getNoBrandPunishments() {
-        return config.getStringList("no-brand-check.punishments");
+        return rules().config.getStringList("no-brand-check.punishments");
+    }
+    
+    // Channel Churn Check
+    public boolean isChannelChurnCheckEnabled() {
+        return rules().config.getBoolean("channel-churn-check.enabled", true);
+    }
+    
+    /**
+     * @return The number of seconds channel packets are counted over
+     */
+    public int getChannelChurnWindow() {
+        return Math.max(1, rules().config.getInt("channel-churn-check.window", 10));
+    }
+    
+    /**
+     * @param event The kind of channel packet
+     * @return The most channels of this kind allowed within the window, 0 for no limit
+     */
+    public int getChannelChurnLimit(PlayerData.ChannelEvent event) {
+        switch (event) {
+            case REGISTER:
+                return rules().config.getInt("channel-churn-check.max-registers", 1000);
+            case UNREGISTER:
+                return rules().config.getInt("channel-churn-check.max-unregisters", 500);
+            default:
+                return rules().config.getInt("channel-churn-check.max-direct", 0);
+        }
+    }
+    
+    /**
+     * @return Whether channel packets are ignored for a window after the limit is exceeded
+     */
+    public boolean isChannelChurnThrottleEnabled() {
+        return rules().config.getBoolean("channel-churn-check.throttle", true);
+    }
+    
+    public boolean isChannelChurnDiscordAlertEnabled() {
+        return rules().config.getBoolean("channel-churn-check.discord-alert", true);
+    }
+    
+    public boolean shouldPunishChannelChurn() {
+        return rules().config.getBoolean("channel-churn-check.punish", false);
+    }
+    
+    public String getChannelChurnAlertMessage() {
+        return rules().config.getString("channel-churn-check.alert-message", 
+                               "&8[&cAntiSpoof&8] &e%player% flagged! &c%reason%");
+    }
+    
+    public String getChannelChurnConsoleAlertMessage() {
+        return rules().config.getString("channel-churn-check.console-alert-message", 
+                               "%player% flagged! %reason%");
+    }
+    
+    public List<String> getChannelChurnPunishments() {
+        return rules().config.getStringList("channel-churn-check.punishments");
+    }
+    
+    // Channel Ingestion Limits
+    public boolean isChannelLimitsEnabled() {
+        return rules().config.getBoolean("channel-limits.enabled", true);
+    }
+    
+    /**
+     * @return The most channels stored for one player session, 0 for no limit
+     */
+    public int getMaxChannelsPerSession() {
+        return Math.max(0, rules().config.getInt("channel-limits.max-channels", 1024));
+    }
+    
+    /**
+     * @return The longest channel name accepted, in bytes
+     */
+    public int getMaxChannelLength() {
+        return Math.max(1, rules().config.getInt("channel-limits.max-length", 256));
+    }
+    
+    /**
+     * @return Whether channel names may only use lowercase namespaced identifier characters
+     */
+    public boolean isStrictChannelCharacters() {
+        return rules().config.getBoolean("channel-limits.strict-characters", false);
+    }
+    
+    public boolean isInvalidChannelDiscordAlertEnabled() {
+        return rules().config.getBoolean("channel-limits.discord-alert", true);
+    }
+    
+    public boolean shouldPunishInvalidChannel() {
+        return rules().config.getBoolean("channel-limits.punish", false);
+    }
+    
+    public String getInvalidChannelAlertMessage() {
+        return rules().config.getString("channel-limits.alert-message", 
+                               "&8[&cAntiSpoof&8] &e%player% flagged! &c%reason%");
+    }
+    
+    public String getInvalidChannelConsoleAlertMessage() {
+        return rules().config.getString("channel-limits.console-alert-message", 
+                               "%player% flagged! %reason%");
+    }
+    
+    public List<String> getInvalidChannelPunishments() {
+        return rules().config.getStringList("channel-limits.punishments");
     }
     
     // Vanilla Spoof Check (claims vanilla but has channels)
     public boolean isVanillaCheckEnabled() {
-        return config.getBoolean("vanillaspoof-check.enabled", true);
+        return rules().config.getBoolean("vanillaspoof-check.enabled", true);
     }
     
     public boolean isVanillaCheckDiscordAlertEnabled() {
-        return config.getBoolean("vanillaspoof-check.discord-alert", true);
+        return rules().config.getBoolean("vanillaspoof-check.discord-alert", true);
     }
     
     public boolean shouldPunishVanillaCheck() {
-        return config.getBoolean("vanillaspoof-check.punish", true);
+        return rules().config.getBoolean("vanillaspoof-check.punish", true);
     }
     
     public String getVanillaCheckAlertMessage() {
-        return config.getString("vanillaspoof-check.alert-message", getAlertMessage());
+        return rules().config.getString("vanillaspoof-check.alert-message", getAlertMessage());
     }
     
     public String getVanillaCheckConsoleAlertMessage() {
-        return config.getString("vanillaspoof-check.console-alert-message", getConsoleAlertMessage());
+        return rules().config.getString("vanillaspoof-check.console-alert-message", getConsoleAlertMessage());
     }
     
     public List<String> getVanillaCheckPunishments() {
-        return config.getStringList("vanillaspoof-check.punishments");
+        return rules().config.getStringList("vanillaspoof-check.punishments");
     }
     
     // Non-Vanilla Check (anything not vanilla with channels)
     public boolean shouldBlockNonVanillaWithChannels() {
-        return config.getBoolean("non-vanilla-check.enabled", false);
+        return rules().config.getBoolean("non-vanilla-check.enabled", false);
     }
     
     public boolean isNonVanillaCheckDiscordAlertEnabled() {
-        return config.getBoolean("non-vanilla-check.discord-alert", false);
+        return rules().config.getBoolean("non-vanilla-check.discord-alert", false);
     }
     
     public boolean shouldPunishNonVanillaCheck() {
-        return config.getBoolean("non-vanilla-check.punish", true);
+        return rules().config.getBoolean("non-vanilla-check.punish", true);
     }
     
     public String getNonVanillaCheckAlertMessage() {
-        return config.getString("non-vanilla-check.alert-message", getAlertMessage());
+        return rules().config.getString("non-vanilla-check.alert-message", getAlertMessage());
     }
     
     public String getNonVanillaCheckConsoleAlertMessage() {
-        return config.getString("non-vanilla-check.console-alert-message", getConsoleAlertMessage());
+        return rules().config.getString("non-vanilla-check.console-alert-message", getConsoleAlertMessage());
     }
     
     public List<String> getNonVanillaCheckPunishments() {
-        return config.getStringList("non-vanilla-check.punishments");
+        return rules().config.getStringList("non-vanilla-check.punishments");
     }
     
     // Blocked Channels Check
     public boolean isBlockedChannelsEnabled() {
-        return config.getBoolean("blocked-channels.enabled", false);
+        return rules().config.getBoolean("blocked-channels.enabled", false);
     }
     
     public boolean isBlockedChannelsDiscordAlertEnabled() {
-        return config.getBoolean("blocked-channels.discord-alert", false);
+        return rules().config.getBoolean("blocked-channels.discord-alert", false);
     }
     
     public String getChannelWhitelistMode() {
-        return config.getString("blocked-channels.whitelist-mode", "FALSE").toUpperCase();
+        return rules().config.getString("blocked-channels.whitelist-mode", "FALSE").toUpperCase();
     }
     
     public boolean isChannelWhitelistEnabled() {
@@ -520,52 +1224,52 @@ public class ConfigManager {
     }
     
     public List<String> getBlockedChannels() {
-        return config.getStringList("blocked-channels.values");
+        return rules().config.getStringList("blocked-channels.values");
     }
     
     public String getBlockedChannelsAlertMessage() {
-        return config.getString("blocked-channels.alert-message", getAlertMessage());
+        return rules().config.getString("blocked-channels.alert-message", getAlertMessage());
     }
     
     public String getBlockedChannelsConsoleAlertMessage() {
-        return config.getString("blocked-channels.console-alert-message", getConsoleAlertMessage());
+        return rules().config.getString("blocked-channels.console-alert-message", getConsoleAlertMessage());
     }
     
     // Added whitelist message methods
     public String getChannelWhitelistAlertMessage() {
-        return config.getString("blocked-channels.whitelist-alert-message", 
+        return rules().config.getString("blocked-channels.whitelist-alert-message", 
             "&8[&cAntiSpoof&8] &e%player% flagged! &cChannels don't match whitelist requirements");
     }
     
     public String getChannelWhitelistConsoleAlertMessage() {
-        return config.getString("blocked-channels.whitelist-console-alert-message", 
+        return rules().config.getString("blocked-channels.whitelist-console-alert-message", 
             "%player% flagged! Channels don't match whitelist requirements");
     }
     
     public boolean shouldPunishBlockedChannels() {
-        return config.getBoolean("blocked-channels.punish", true);
+        return rules().config.getBoolean("blocked-channels.punish", true);
     }
     
     public List<String> getBlockedChannelsPunishments() {
-        return config.getStringList("blocked-channels.punishments");
+        return rules().config.getStringList("blocked-channels.punishments");
     }
     
     // Modified Channels alerts
     public boolean isModifiedChannelsEnabled() {
-        return config.getBoolean("blocked-channels.modifiedchannels.enabled", false);
+        return rules().config.getBoolean("blocked-channels.modifiedchannels.enabled", false);
     }
     
     public boolean isModifiedChannelsDiscordEnabled() {
-        return config.getBoolean("blocked-channels.modifiedchannels.discord-alert", false);
+        return rules().config.getBoolean("blocked-channels.modifiedchannels.discord-alert", false);
     }
     
     public String getModifiedChannelsAlertMessage() {
-        return config.getString("blocked-channels.modifiedchannels.alert-message", 
+        return rules().config.getString("blocked-channels.modifiedchannels.alert-message", 
                                "&8[&cAntiSpoof&8] &e%player% modified channel: &f%channel%");
     }
     
     public String getModifiedChannelsConsoleAlertMessage() {
-        return config.getString("blocked-channels.modifiedchannels.console-alert-message", 
+        return rules().config.getString("blocked-channels.modifiedchannels.console-alert-message", 
                                "%player% modified channel: %channel%");
     }
     
@@ -573,9 +1277,9 @@ public class ConfigManager {
     public boolean matchesChannelPattern(String channel) {
         if (channel == null) return false;
         
-        for (Map.Entry<String, Pattern> entry : channelPatterns.entrySet()) {
+        for (Map.Entry<String, RuleMatcher> entry : rules().channelPatterns.entrySet()) {
             try {
-                if (entry.getValue().matcher(channel).matches()) {
+                if (entry.getValue().matches(channel)) {
                     return true; // Channel matches a pattern
                 }
             } catch (Exception e) {
@@ -589,9 +1293,24 @@ public class ConfigManager {
         return false; // No patterns matched
     }
     
+    /**
+     * Check if a channel matches one specific entry of blocked-channels.values
+     * @param entry The configured entry
+     * @param channel The channel to check
+     * @return True if the channel matches the entry's compiled pattern
+     */
+    public boolean matchesChannelEntry(String entry, String channel) {
+        RuleMatcher matcher = rules().channelPatterns.get(entry);
+        if (matcher == null) {
+            // Invalid patterns aren't compiled, compare them directly
+            return channel.equals(entry);
+        }
+        return matcher.matches(channel);
+    }
+    
     // Bedrock Handling
     public String getBedrockHandlingMode() {
-        return config.getString("bedrock-handling.mode", "EXEMPT").toUpperCase();
+        return rules().config.getString("bedrock-handling.mode", "EXEMPT").toUpperCase();
     }
     
     public boolean isBedrockExemptMode() {
@@ -600,66 +1319,106 @@ public class ConfigManager {
     
     // Geyser Spoof Detection
     public boolean isPunishSpoofingGeyser() {
-        return config.getBoolean("bedrock-handling.geyser-spoof.enabled", true);
+        return rules().config.getBoolean("bedrock-handling.geyser-spoof.enabled", true);
     }
     
     public boolean isGeyserSpoofDiscordAlertEnabled() {
-        return config.getBoolean("bedrock-handling.geyser-spoof.discord-alert", true);
+        return rules().config.getBoolean("bedrock-handling.geyser-spoof.discord-alert", true);
     }
     
     public boolean shouldPunishGeyserSpoof() {
-        return config.getBoolean("bedrock-handling.geyser-spoof.punish", true);
+        return rules().config.getBoolean("bedrock-handling.geyser-spoof.punish", true);
     }
     
     public String getGeyserSpoofAlertMessage() {
-        return config.getString("bedrock-handling.geyser-spoof.alert-message", getAlertMessage());
+        return rules().config.getString("bedrock-handling.geyser-spoof.alert-message", getAlertMessage());
     }
     
     public String getGeyserSpoofConsoleAlertMessage() {
-        return config.getString("bedrock-handling.geyser-spoof.console-alert-message", getConsoleAlertMessage());
+        return rules().config.getString("bedrock-handling.geyser-spoof.console-alert-message", getConsoleAlertMessage());
     }
     
     public List<String> getGeyserSpoofPunishments() {
-        return config.getStringList("bedrock-handling.geyser-spoof.punishments");
+        return rules().config.getStringList("bedrock-handling.geyser-spoof.punishments");
     }
     
     // Bedrock Prefix Check
     public boolean isBedrockPrefixCheckEnabled() {
-        return config.getBoolean("bedrock-handling.prefix-check.enabled", true);
+        return rules().config.getBoolean("bedrock-handling.prefix-check.enabled", true);
     }
     
     public String getBedrockPrefix() {
-        return config.getString("bedrock-handling.prefix-check.prefix", ".");
+        return rules().config.getString("bedrock-handling.prefix-check.prefix", ".");
     }
     
     // Global Alert settings
     public boolean isJoinBrandAlertsEnabled() {
-        return config.getBoolean("global-alerts.join-brand-alerts", false);
+        return rules().config.getBoolean("global-alerts.join-brand-alerts", false);
     }
     
     public boolean isInitialChannelsAlertsEnabled() {
-        return config.getBoolean("global-alerts.initial-channels-alerts", false);
+        return rules().config.getBoolean("global-alerts.initial-channels-alerts", false);
     }
     
     // Discord webhook settings
     public boolean isDiscordWebhookEnabled() {
-        return config.getBoolean("discord.enabled", false);
+        return rules().config.getBoolean("discord.enabled", false);
     }
     
     public String getDiscordWebhookUrl() {
-        return config.getString("discord.webhook", "");
+        return rules().config.getString("discord.webhook", "");
     }
     
     public String getDiscordEmbedTitle() {
-        return config.getString("discord.embed-title", "**AntiSpoof Alert**");
+        return rules().config.getString("discord.embed-title", "**AntiSpoof Alert**");
     }
     
     public String getDiscordEmbedColor() {
-        return config.getString("discord.embed-color", "#2AB7CA");
+        return rules().config.getString("discord.embed-color", "#2AB7CA");
+    }
+    
+    private WebhookDeliveryQueue.OverflowPolicy parseOverflowPolicy(String path, String policy) {
+        try {
+            return WebhookDeliveryQueue.OverflowPolicy.valueOf(policy.toUpperCase());
+        } catch (IllegalArgumentException | NullPointerException e) {
+            plugin.getLogger().warning("Invalid " + path + ": " + policy + ", using COLLAPSE");
+            return WebhookDeliveryQueue.OverflowPolicy.COLLAPSE;
+        }
+    }
+    
+    /**
+     * @return Whether queued webhook alerts are kept on disk until delivered, only read on startup
+     */
+    public boolean isDiscordSpoolEnabled() {
+        return rules().config.getBoolean("discord.delivery.spool", true);
+    }
+    
+    /**
+     * @return All configured webhook sinks by name, including the default sink
+     */
+    public Map<String, WebhookSinkConfig> getWebhookSinks() {
+        return rules().webhookSinks;
+    }
+    
+    /**
+     * Gets the sinks an alert with the given route key is sent to
+     * @param key A violation type, client brand key, MODIFIED_CHANNEL or MULTIPLE_VIOLATIONS
+     * @return The sink names, empty if the key has no route
+     */
+    public List<String> getWebhookRoutes(String key) {
+        List<String> sinks = rules().webhookRoutes.get(key.toLowerCase());
+        return sinks != null ? sinks : Collections.emptyList();
+    }
+    
+    /**
+     * @return Whether any route is configured for the given key
+     */
+    public boolean hasWebhookRoute(String key) {
+        return rules().webhookRoutes.containsKey(key.toLowerCase());
     }
     
     public List<String> getDiscordViolationContent() {
-        return config.getStringList("discord.violation-content");
+        return rules().config.getStringList("discord.violation-content");
     }
     
     /**
@@ -667,7 +1426,7 @@ public class ConfigManager {
      * @return True if update checking is enabled, false otherwise
      */
     public boolean isUpdateCheckerEnabled() {
-        return config.getBoolean("update-checker.enabled", true);
+        return rules().config.getBoolean("update-checker.enabled", true);
     }
 
     /**
@@ -675,6 +1434,6 @@ public class ConfigManager {
      * @return True if join notifications are enabled, false otherwise
      */
     public boolean isUpdateNotifyOnJoinEnabled() {
-        return config.getBoolean("update-checker.notify-on-join", true);
+        return rules().config.getBoolean("update-checker.notify-on-join", true);
     }
 }
\ No newline at end of file
@@ -2,12 +2,14 @@ package com.gigazelensky.antispoof.managers;
 
 import com.gigazelensky.antispoof.AntiSpoofPlugin;
 import com.gigazelensky.antispoof.data.PlayerData;
+import com.gigazelensky.antispoof.data.Violation;
+import com.gigazelensky.antispoof.utils.ChannelLimits;
+import com.gigazelensky.antispoof.utils.RuleMatcher;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.regex.Pattern;
 
 public class DetectionManager {
     private final AntiSpoofPlugin plugin;
@@ -69,17 +71,28 @@ public class DetectionManager {
      * @return True if a new channel was added, false otherwise
      */
     public boolean addPlayerChannel(Player player, String channel, boolean triggerCheck) {
+        return config.withCurrentRules(() -> addPlayerChannelPinned(player, channel, triggerCheck));
+    }
+    
+    /**
+     * Adds a channel with the rules pinned for the whole call
+     */
+    private boolean addPlayerChannelPinned(Player player, String channel, boolean triggerCheck) {
         UUID playerUUID = player.getUniqueId();
         PlayerData data = plugin.getPlayerDataMap().computeIfAbsent(playerUUID, uuid -> new PlayerData());
         
-        boolean channelAdded = false;
-        if (!data.getChannels().contains(channel)) {
-            data.addChannel(channel);
-            channelAdded = true;
-            
-            if (plugin.getConfigManager().isDebugMode()) {
-                plugin.getLogger().info("[Debug] Channel added for " + player.getName() + ": " + channel);
-            }
+        // Keep the channels stored per session bounded
+        int maxChannels = config.isChannelLimitsEnabled() ? config.getMaxChannelsPerSession() : 0;
+        if (maxChannels > 0 && data.getChannels().size() >= maxChannels && !data.getChannels().contains(channel)) {
+            flagIngestionViolation(player, "INVALID_CHANNEL", "Invalid channel", 
+                "more than " + maxChannels + " channels registered");
+            return false;
+        }
+        
+        boolean channelAdded = data.addChannel(channel);
+        if (channelAdded) {
+            plugin.getDetectionLog().debug(player, "Channel added", channel);
+            plugin.getAnalyticsManager().recordChannel(playerUUID, channel);
             
             // If this channel was newly added after the initial join
             if (triggerCheck && data.isInitialChannelsRegistered() && config.isModifiedChannelsEnabled()) {
@@ -99,10 +112,8 @@ public class DetectionManager {
             Map<String, Boolean> violations = playerViolations.get(playerUUID);
             if (violations.getOrDefault("MISSING_REQUIRED_CHANNELS", false)) {
                 // Only log this once when we clear the flag
-                if (plugin.getConfigManager().isDebugMode()) {
-                    plugin.getLogger().info("[Debug] Clearing 'MISSING_REQUIRED_CHANNELS' flag for " + player.getName() + 
-                                           " because a fabric channel was registered: " + channel);
-                }
+                plugin.getDetectionLog().debug(player, 
+                    "Clearing 'MISSING_REQUIRED_CHANNELS' flag after fabric channel registration", channel);
                 violations.put("MISSING_REQUIRED_CHANNELS", false);
             }
         }
@@ -126,6 +137,109 @@ public class DetectionManager {
         return channelAdded;
     }
     
+    /**
+     * Counts channel packets for churn detection, and flags players who send too many
+     * @param player The player
+     * @param event The kind of channel packet
+     * @param amount The number of channels in the packet
+     * @return False if the packet should be ignored because the player is throttled
+     */
+    public boolean recordChannelEvent(Player player, PlayerData.ChannelEvent event, int amount) {
+        if (!config.isChannelChurnCheckEnabled()) {
+            return true;
+        }
+        
+        UUID playerUUID = player.getUniqueId();
+        PlayerData data = plugin.getPlayerDataMap().computeIfAbsent(playerUUID, uuid -> new PlayerData());
+        long now = System.currentTimeMillis();
+        if (data.isChannelIngestionThrottled(now)) {
+            return false;
+        }
+        
+        long window = config.getChannelChurnWindow() * 1000L;
+        int count = data.recordChannelEvent(event, amount, now, window);
+        int limit = config.getChannelChurnLimit(event);
+        if (limit <= 0 || count <= limit) {
+            return true;
+        }
+        
+        // Stop taking channel changes from this player until the window has passed
+        boolean throttle = config.isChannelChurnThrottleEnabled();
+        if (throttle) {
+            data.throttleChannelIngestion(now + window);
+        }
+        
+        String detail = count + " " + event.name().toLowerCase() + " events in " + config.getChannelChurnWindow() + "s";
+        plugin.getDetectionLog().debug(player, "Channel churn", detail);
+        flagIngestionViolation(player, "CHANNEL_CHURN", "Excessive channel churn", detail);
+        return !throttle;
+    }
+    
+    /**
+     * Validates a channel name in a register or unregister payload before it is decoded
+     * @param player The player
+     * @param data The payload
+     * @param from The index of the first byte of the name
+     * @param to The index after the last byte of the name
+     * @return False if the channel breaks the ingestion limits and must be dropped
+     */
+    public boolean acceptChannel(Player player, byte[] data, int from, int to) {
+        if (!config.isChannelLimitsEnabled()) {
+            return true;
+        }
+        
+        ChannelLimits.Result result = ChannelLimits.check(data, from, to, 
+            config.getMaxChannelLength(), config.isStrictChannelCharacters());
+        return handleChannelCheck(player, result, to - from);
+    }
+    
+    /**
+     * Validates the name of a channel a plugin message was sent on
+     * @param player The player
+     * @param channel The channel name
+     * @return False if the channel breaks the ingestion limits and must be dropped
+     */
+    public boolean acceptChannel(Player player, String channel) {
+        if (!config.isChannelLimitsEnabled()) {
+            return true;
+        }
+        
+        ChannelLimits.Result result = ChannelLimits.check(channel, 
+            config.getMaxChannelLength(), config.isStrictChannelCharacters());
+        return handleChannelCheck(player, result, channel.length());
+    }
+    
+    private boolean handleChannelCheck(Player player, ChannelLimits.Result result, int length) {
+        switch (result) {
+            case TOO_LONG:
+                flagIngestionViolation(player, "INVALID_CHANNEL", "Invalid channel", 
+                    "name too long (" + length + " > " + config.getMaxChannelLength() + ")");
+                return false;
+            case INVALID_CHARACTERS:
+                flagIngestionViolation(player, "INVALID_CHANNEL", "Invalid channel", "name has invalid characters");
+                return false;
+            default:
+                return true;
+        }
+    }
+    
+    /**
+     * Flags a violation found while taking in channel packets.
+     * Repeats within a session return before anything is allocated, so a flood
+     * of bad packets costs one map lookup each.
+     */
+    private void flagIngestionViolation(Player player, String violationType, String message, String detail) {
+        Map<String, Boolean> violations = playerViolations.get(player.getUniqueId());
+        if (violations != null && violations.getOrDefault(violationType, false)) {
+            return;
+        }
+        
+        Map<String, Violation> detected = new HashMap<>();
+        detected.put(violationType, new Violation(violationType, message, detail));
+        String brand = plugin.getClientBrand(player);
+        processViolations(player, detected, brand != null ? brand : "unknown");
+    }
+    
     /**
      * Removes a channel from a player
      * @param player The player to remove the channel from
@@ -137,9 +251,7 @@ public class DetectionManager {
         if (data != null) {
             data.removeChannel(channel);
             
-            if (plugin.getConfigManager().isDebugMode()) {
-                plugin.getLogger().info("[Debug] Channel removed for " + player.getName() + ": " + channel);
-            }
+            plugin.getDetectionLog().debug(player, "Channel removed", channel);
         }
     }
     
@@ -176,9 +288,7 @@ public class DetectionManager {
         if (checkRequiredChannels) {
             requiredChannelCheckedPlayers.add(player.getUniqueId());
             
-            if (plugin.getConfigManager().isDebugMode()) {
-                plugin.getLogger().info("[Debug] Running FULL check with required channels for " + player.getName());
-            }
+            plugin.getDetectionLog().debug(player, "Running FULL check with required channels", null);
         }
         
         // Run check asynchronously to avoid lag
@@ -199,6 +309,14 @@ public class DetectionManager {
      * @param checkRequiredChannels Whether to check for required channels
      */
     private void checkPlayer(Player player, boolean isJoinCheck, boolean checkRequiredChannels) {
+        // A reload applied during the check takes effect on the next one
+        config.withCurrentRules(() -> checkPlayerPinned(player, isJoinCheck, checkRequiredChannels));
+    }
+    
+    /**
+     * Checks a player with the rules pinned for the whole check
+     */
+    private void checkPlayerPinned(Player player, boolean isJoinCheck, boolean checkRequiredChannels) {
         UUID uuid = player.getUniqueId();
         
         // Skip if player is offline or has been punished
@@ -217,9 +335,7 @@ public class DetectionManager {
         
         // Check for missing brand first
         if (brand == null) {
-            if (config.isDebugMode()) {
-                plugin.getLogger().info("[Debug] No brand detected for " + player.getName());
-            }
+            plugin.getDetectionLog().debug(player, "No brand detected", null);
 
             // Initialize violations map for this player if not exists
             playerViolations.putIfAbsent(uuid, new ConcurrentHashMap<>());
@@ -229,20 +345,15 @@ public class DetectionManager {
             if (!violations.getOrDefault("NO_BRAND", false) && config.isNoBrandCheckEnabled()) {
                 violations.put("NO_BRAND", true);
 
-                Map<String, String> detectedViolations = new HashMap<>();
-                detectedViolations.put("NO_BRAND", "No client brand detected");
+                Map<String, Violation> detectedViolations = new HashMap<>();
+                detectedViolations.put("NO_BRAND", new Violation("NO_BRAND", "No client brand detected"));
 
-                final Map<String, String> finalViolations = new HashMap<>(detectedViolations);
-                Bukkit.getScheduler().runTask(plugin, () -> {
-                    processViolations(player, finalViolations, "unknown");
-                });
+                processViolations(player, detectedViolations, "unknown");
             } else if (config.shouldBlockNonVanillaWithChannels()) {
-                Map<String, String> detectedViolations = new HashMap<>();
-                detectedViolations.put("NON_VANILLA_WITH_CHANNELS", "Client modifications detected");
-                final Map<String, String> finalViolations = new HashMap<>(detectedViolations);
-                Bukkit.getScheduler().runTask(plugin, () -> {
-                    processViolations(player, finalViolations, "unknown");
-                });
+                Map<String, Violation> detectedViolations = new HashMap<>();
+                detectedViolations.put("NON_VANILLA_WITH_CHANNELS", 
+                    new Violation("NON_VANILLA_WITH_CHANNELS", "Client modifications detected"));
+                processViolations(player, detectedViolations, "unknown");
             }
 
             return; // Skip other checks if no brand
@@ -253,9 +364,7 @@ public class DetectionManager {
         
         // If player is a Bedrock player and we're set to ignore them, return immediately
         if (isBedrockPlayer && config.getBedrockHandlingMode().equals("IGNORE")) {
-            if (config.isDebugMode()) {
-                plugin.getLogger().info("[Debug] Ignoring Bedrock player: " + player.getName());
-            }
+            plugin.getDetectionLog().debug(player, "Ignoring Bedrock player", null);
             return;
         }
         
@@ -276,43 +385,119 @@ public class DetectionManager {
             });
         }
         
+        // Exclude ignored channels like minecraft:brand when evaluating
+        Set<String> filteredChannels = filterIgnoredChannels(data.getChannels());
+        
+        // Clients arriving as part of a bot wave are still checked, but only the wave is alerted
+        boolean waveMember = checkRequiredChannels && plugin.getBotWaveManager().observe(player, brand, filteredChannels);
+        if (waveMember) {
+            plugin.getDetectionLog().debug(player, "Part of a bot wave, leaving out individual alerts", null);
+        }
+        
+        // Skip the checks if the client is unchanged since the player's last clean session.
+        // Join checks still run in full so brand alerts are sent.
+        if (!isJoinCheck && plugin.getFingerprintManager().matchesCleanSession(uuid, brand, filteredChannels)) {
+            plugin.getDetectionLog().debug(player, "Fingerprint matches last clean session, skipping checks", null);
+            return;
+        }
+        
+        // Match the brand once for both the rules and the join alert
+        String matchedBrandKey = config.getMatchingClientBrand(brand);
+        Map<String, Violation> detectedViolations = evaluate(player, brand, matchedBrandKey, 
+            filteredChannels, checkRequiredChannels, data.getJoinTime(), isBedrockPlayer);
+        
+        // Always alert if this brand should alert on join and this is a join check
+        if (matchedBrandKey != null && isJoinCheck) {
+            ConfigManager.ClientBrandConfig brandConfig = config.getClientBrandConfig(matchedBrandKey);
+            
+            if (brandConfig.shouldAlert() && 
+                !violations.getOrDefault("BRAND_" + matchedBrandKey.toUpperCase(), false)) {
+                
+                violations.put("BRAND_" + matchedBrandKey.toUpperCase(), true);
+                
+                if (!brandConfig.shouldFlag()) {
+                    plugin.getDetectionLog().debug(player, "Sending brand alert", matchedBrandKey);
+                }
+                
+                // Send alert on main thread if this is just an alert, not a violation
+                if (!brandConfig.shouldFlag() && !waveMember) {
+                    final String finalBrand = brand;
+                    final String finalMatchedBrandKey = matchedBrandKey;
+                    final PlayerData finalData = data;  // Create a final reference to data
+                    
+                    runOnMainThread(() -> {
+                        // Only send the alert if not already punished
+                        if (!finalData.isAlreadyPunished()) {
+                            sendBrandAlert(player, finalBrand, finalMatchedBrandKey);
+                        }
+                    });
+                }
+            }
+        }
+        
+        // Remember the verdict once the channel set is complete
+        if (checkRequiredChannels || System.currentTimeMillis() - data.getJoinTime() > CHANNEL_GRACE_PERIOD) {
+            boolean clean = detectedViolations.isEmpty() || (isBedrockPlayer && config.isBedrockExemptMode());
+            plugin.getFingerprintManager().recordVerdict(uuid, brand, filteredChannels, clean);
+        }
+        
+        // If player is a Bedrock player and we're in EXEMPT mode, don't process violations
+        if (!detectedViolations.isEmpty() && isBedrockPlayer && config.isBedrockExemptMode()) {
+            plugin.getDetectionLog().debug(player, "Bedrock player is exempt from violations", 
+                detectedViolations.keySet());
+            return;
+        }
+        
+        // Process detected violations, alerts are handed to the main thread
+        if (!detectedViolations.isEmpty()) {
+            processViolations(player, detectedViolations, brand, !waveMember);
+        }
+    }
+    
+    /**
+     * Evaluates a client against the brand and channel rules without alerting,
+     * punishing or remembering anything
+     * @param player The player, only used for debug output
+     * @param brand The player's client brand
+     * @param matchedBrandKey The configured brand the client matches, or null
+     * @param filteredChannels The player's channels without ignored ones
+     * @param checkRequiredChannels Whether to check for required channels
+     * @param joinTime When the player joined, for the required channels grace period
+     * @param isBedrockPlayer Whether the player joined through Geyser
+     * @return The detected violations by type
+     */
+    public Map<String, Violation> evaluate(Player player, String brand, String matchedBrandKey, 
+                                           Set<String> filteredChannels, boolean checkRequiredChannels, 
+                                           long joinTime, boolean isBedrockPlayer) {
         // Collect all detected violations
-        Map<String, String> detectedViolations = new HashMap<>();
+        Map<String, Violation> detectedViolations = new HashMap<>();
         
         // Check for Geyser spoofing
-        if (config.isPunishSpoofingGeyser() && isSpoofingGeyser(player, brand)) {
-            detectedViolations.put("GEYSER_SPOOF", "Spoofing Geyser client");
+        if (config.isPunishSpoofingGeyser() && isSpoofingGeyser(brand, isBedrockPlayer)) {
+            detectedViolations.put("GEYSER_SPOOF", new Violation("GEYSER_SPOOF", "Spoofing Geyser client"));
         }
         
-        // Exclude ignored channels like minecraft:brand when evaluating
-        Set<String> filteredChannels = filterIgnoredChannels(data.getChannels());
         boolean hasChannels = !filteredChannels.isEmpty();
         boolean claimsVanilla = brand.equalsIgnoreCase("vanilla");
         
         // Check if client brands system is enabled
         if (config.isClientBrandsEnabled()) {
-            // Try to match the brand to a configured client brand
-            String matchedBrandKey = config.getMatchingClientBrand(brand);
-            
             if (matchedBrandKey != null) {
                 // We found a matching brand configuration
                 ConfigManager.ClientBrandConfig brandConfig = config.getClientBrandConfig(matchedBrandKey);
                 
-                if (config.isDebugMode()) {
-                    plugin.getLogger().info("[Debug] Matched brand for " + player.getName() + 
-                                           ": " + matchedBrandKey);
-                }
+                plugin.getDetectionLog().debug(player, "Matched brand", matchedBrandKey);
                 
                 // Check if this brand should be flagged
                 if (brandConfig.shouldFlag()) {
-                    detectedViolations.put("CLIENT_BRAND", 
-                        "Using flagged client brand: " + brand + " (" + matchedBrandKey + ")");
+                    detectedViolations.put("CLIENT_BRAND", new Violation("CLIENT_BRAND", 
+                        "Using flagged client brand: " + brand + " (" + matchedBrandKey + ")"));
                 }
                 
                 // Check for strict-check (vanilla spoof detection)
                 if (brandConfig.hasStrictCheck() && hasChannels) {
-                    detectedViolations.put("VANILLA_WITH_CHANNELS", 
-                        "Client claiming '" + matchedBrandKey + "' detected with plugin channels");
+                    detectedViolations.put("VANILLA_WITH_CHANNELS", new Violation("VANILLA_WITH_CHANNELS", 
+                        "Client claiming '" + matchedBrandKey + "' detected with plugin channels"));
                 }
                 
                 // Check required channels for this brand - ONLY IF ENABLED BY PARAMETER
@@ -321,28 +506,25 @@ public class DetectionManager {
                     List<String> missingChannelPatterns = new ArrayList<>();
                     
                     // Log channels in debug mode to help diagnose issues
-                    if (config.isDebugMode()) {
-                        plugin.getLogger().info("[Debug] Checking required channels for " + player.getName());
-                        plugin.getLogger().info("[Debug] Required patterns for " + matchedBrandKey + ": " +
-                                              String.join(", ", brandConfig.getRequiredChannelStrings()));
-                        plugin.getLogger().info("[Debug] Player channels: " + String.join(", ", filteredChannels));
-                    }
+                    plugin.getDetectionLog().debug(player, 
+                        "Checking required patterns", brandConfig.getRequiredChannelStrings());
+                    plugin.getDetectionLog().debug(player, "Checking channels", filteredChannels);
                     
                     // For each required channel pattern, check if any player channel matches it
                     for (int i = 0; i < brandConfig.getRequiredChannels().size(); i++) {
-                        Pattern pattern = brandConfig.getRequiredChannels().get(i);
+                        RuleMatcher pattern = brandConfig.getRequiredChannels().get(i);
                         String patternStr = brandConfig.getRequiredChannelStrings().get(i);
                         boolean patternMatched = false;
                         
                         // Check each player channel against this pattern
                         for (String channel : filteredChannels) {
                             try {
-                                if (pattern.matcher(channel).matches()) {
+                                if (pattern.matches(channel)) {
                                     patternMatched = true;
                                     
-                                    if (config.isDebugMode()) {
-                                        plugin.getLogger().info("[Debug] Found matching channel for pattern " + 
-                                                   patternStr + ": " + channel);
+                                    if (plugin.getDetectionLog().isDebugEnabled(player)) {
+                                        plugin.getDetectionLog().debug(player, 
+                                            "Found matching channel for pattern " + patternStr, channel);
                                     }
                                     
                                     break;
@@ -358,9 +540,9 @@ public class DetectionManager {
                                 if (channel.toLowerCase().contains(simplePatternStr.toLowerCase())) {
                                     patternMatched = true;
                                     
-                                    if (config.isDebugMode()) {
-                                        plugin.getLogger().info("[Debug] Found matching channel using fallback for pattern " + 
-                                                   patternStr + ": " + channel);
+                                    if (plugin.getDetectionLog().isDebugEnabled(player)) {
+                                        plugin.getDetectionLog().debug(player, 
+                                            "Found matching channel using fallback for pattern " + patternStr, channel);
                                     }
                                     
                                     break;
@@ -378,76 +560,49 @@ public class DetectionManager {
                     if (!missingChannelPatterns.isEmpty()) {
                         // Check if this is the final required channel check (past grace period)
                         // or if it's a preliminary check
-                        boolean isPastGracePeriod = System.currentTimeMillis() - data.getJoinTime() > CHANNEL_GRACE_PERIOD;
+                        boolean isPastGracePeriod = System.currentTimeMillis() - joinTime > CHANNEL_GRACE_PERIOD;
                         
                         if (isPastGracePeriod) {
                             String missingChannelsStr = String.join(", ", missingChannelPatterns);
-                            detectedViolations.put("MISSING_REQUIRED_CHANNELS", 
-                                "Client missing required channels for brand " + matchedBrandKey + ": " + missingChannelsStr);
+                            detectedViolations.put("MISSING_REQUIRED_CHANNELS", new Violation("MISSING_REQUIRED_CHANNELS", 
+                                "Client missing required channels for brand " + matchedBrandKey, missingChannelsStr));
                             
-                            if (config.isDebugMode()) {
-                                plugin.getLogger().info("[Debug] Missing required channels for " + player.getName() + 
-                                                      ": " + missingChannelsStr + " (FINAL CHECK - PAST GRACE PERIOD)");
-                            }
-                        } else if (config.isDebugMode()) {
+                            plugin.getDetectionLog().debug(player, 
+                                "Missing required channels (FINAL CHECK - PAST GRACE PERIOD)", missingChannelsStr);
+                        } else {
                             // Only log during grace period, don't flag yet
-                            plugin.getLogger().info("[Debug] Missing required channels for " + player.getName() + 
-                                                  ": " + String.join(", ", missingChannelPatterns) + 
-                                                  " (still in grace period, will check again later)");
+                            plugin.getDetectionLog().debug(player, 
+                                "Missing required channels (still in grace period, will check again later)", 
+                                missingChannelPatterns);
                         }
                     }
                 }
                 
-                // Always alert if this brand should alert on join and this is a join check
-                if (isJoinCheck && brandConfig.shouldAlert() && 
-                    !violations.getOrDefault("BRAND_" + matchedBrandKey.toUpperCase(), false)) {
-                    
-                    violations.put("BRAND_" + matchedBrandKey.toUpperCase(), true);
-                    
-                    if (config.isDebugMode() && !brandConfig.shouldFlag()) {
-                        plugin.getLogger().info("[Debug] Sending brand alert for " + player.getName() + 
-                                              " using " + matchedBrandKey);
-                    }
-                    
-                    // Send alert on main thread if this is just an alert, not a violation
-                    if (!brandConfig.shouldFlag()) {
-                        final String finalBrand = brand;
-                        final String finalMatchedBrandKey = matchedBrandKey;
-                        final PlayerData finalData = data;  // Create a final reference to data
-                        
-                        Bukkit.getScheduler().runTask(plugin, () -> {
-                            // Only send the alert if not already punished
-                            if (!finalData.isAlreadyPunished()) {
-                                sendBrandAlert(player, finalBrand, finalMatchedBrandKey);
-                            }
-                        });
-                    }
-                }
-
                 // Non-vanilla strict check - flag if player either has channels or isn't vanilla
                 if (config.shouldBlockNonVanillaWithChannels() && (!claimsVanilla || hasChannels)) {
-                    detectedViolations.put("NON_VANILLA_WITH_CHANNELS", "Client modifications detected");
+                    detectedViolations.put("NON_VANILLA_WITH_CHANNELS", 
+                        new Violation("NON_VANILLA_WITH_CHANNELS", "Client modifications detected"));
                 }
             } else {
                 // No matching brand found - use default brand config
-                if (config.isDebugMode()) {
-                    plugin.getLogger().info("[Debug] No matching brand config for " + player.getName() + 
-                                          ": " + brand);
-                }
+                plugin.getDetectionLog().debug(player, "No matching brand config", brand);
                 
                 // Check if default config should flag unknown brands
                 if (config.getClientBrandConfig(null).shouldFlag()) {
-                    detectedViolations.put("UNKNOWN_BRAND", "Using unknown client brand: " + brand);
+                    detectedViolations.put("UNKNOWN_BRAND", 
+                        new Violation("UNKNOWN_BRAND", "Using unknown client brand", brand));
                 }
                 
                 // Vanilla check still takes precedence
                 if (config.isVanillaCheckEnabled() && claimsVanilla && hasChannels) {
-                    detectedViolations.put("VANILLA_WITH_CHANNELS", "Vanilla client with plugin channels");
+                    detectedViolations.put("VANILLA_WITH_CHANNELS", 
+                        new Violation("VANILLA_WITH_CHANNELS", "Vanilla client with plugin channels"));
                 }
                 
                 // Non-vanilla strict check - flag if player either has channels or isn't vanilla
                 else if (config.shouldBlockNonVanillaWithChannels() && (!claimsVanilla || hasChannels)) {
-                    detectedViolations.put("NON_VANILLA_WITH_CHANNELS", "Client modifications detected");
+                    detectedViolations.put("NON_VANILLA_WITH_CHANNELS", 
+                        new Violation("NON_VANILLA_WITH_CHANNELS", "Client modifications detected"));
                 }
             }
         } else {
@@ -455,12 +610,14 @@ public class DetectionManager {
             
             // Vanilla client check - this takes precedence
             if (config.isVanillaCheckEnabled() && claimsVanilla && hasChannels) {
-                detectedViolations.put("VANILLA_WITH_CHANNELS", "Vanilla client with plugin channels");
+                detectedViolations.put("VANILLA_WITH_CHANNELS", 
+                    new Violation("VANILLA_WITH_CHANNELS", "Vanilla client with plugin channels"));
             }
             
             // Non-vanilla strict check - flag if player either has channels or isn't vanilla
             else if (config.shouldBlockNonVanillaWithChannels() && (!claimsVanilla || hasChannels)) {
-                detectedViolations.put("NON_VANILLA_WITH_CHANNELS", "Client modifications detected");
+                detectedViolations.put("NON_VANILLA_WITH_CHANNELS", 
+                    new Violation("NON_VANILLA_WITH_CHANNELS", "Client modifications detected"));
             }
         }
         
@@ -475,43 +632,28 @@ public class DetectionManager {
                         // Get missing channels for detailed message
                         List<String> missingChannels = findMissingRequiredChannels(filteredChannels);
                         if (!missingChannels.isEmpty()) {
-                            detectedViolations.put("CHANNEL_WHITELIST", 
-                                "Missing required channels: " + String.join(", ", missingChannels));
+                            detectedViolations.put("CHANNEL_WHITELIST", new Violation("CHANNEL_WHITELIST", 
+                                "Missing required channels", String.join(", ", missingChannels)));
                         } else {
-                            detectedViolations.put("CHANNEL_WHITELIST", 
-                                "Client channels don't match whitelist requirements");
+                            detectedViolations.put("CHANNEL_WHITELIST", new Violation("CHANNEL_WHITELIST", 
+                                "Client channels don't match whitelist requirements"));
                         }
                     } else {
-                        detectedViolations.put("CHANNEL_WHITELIST", "No whitelisted channels detected");
+                        detectedViolations.put("CHANNEL_WHITELIST", 
+                            new Violation("CHANNEL_WHITELIST", "No whitelisted channels detected"));
                     }
                 }
             } else {
                 // Blacklist mode
                 String blockedChannel = findBlockedChannel(filteredChannels);
                 if (blockedChannel != null) {
-                    detectedViolations.put("BLOCKED_CHANNEL", "Using blocked channel: " + blockedChannel);
+                    detectedViolations.put("BLOCKED_CHANNEL", 
+                        new Violation("BLOCKED_CHANNEL", "Using blocked channel", blockedChannel));
                 }
             }
         }
         
-        // If player is a Bedrock player and we're in EXEMPT mode, don't process violations
-        if (!detectedViolations.isEmpty() && isBedrockPlayer && config.isBedrockExemptMode()) {
-            if (config.isDebugMode()) {
-                plugin.getLogger().info("[Debug] Bedrock player " + player.getName() + 
-                                      " would be processed for violations, but is exempt");
-            }
-            return;
-        }
-        
-        // Process detected violations on the main thread
-        if (!detectedViolations.isEmpty()) {
-            final Map<String, String> finalViolations = new HashMap<>(detectedViolations);
-            final String finalBrand = brand;  // Make brand effectively final
-            
-            Bukkit.getScheduler().runTask(plugin, () -> {
-                processViolations(player, finalViolations, finalBrand);
-            });
-        }
+        return detectedViolations;
     }
     
     /**
@@ -526,12 +668,49 @@ public class DetectionManager {
     }
     
     /**
-     * Process detected violations for a player
+     * Runs a task on the main thread with the rules the calling check reads,
+     * right away if this already is the main thread
+     */
+    private void runOnMainThread(Runnable task) {
+        if (Bukkit.isPrimaryThread()) {
+            task.run();
+            return;
+        }
+        
+        ConfigManager.RuleSet rules = config.getCurrentRules();
+        Bukkit.getScheduler().runTask(plugin, () -> config.withRules(rules, task));
+    }
+    
+    /**
+     * Process detected violations for a player.
+     * Safe to call from any thread: alerts are sent from the main thread, console
+     * commands are queued for it and only a native kick is sent right away.
      * @param player The player
-     * @param detectedViolations Map of violation types to reasons
+     * @param detectedViolations Map of violation types to violations
      * @param brand The player's client brand
      */
-    public void processViolations(Player player, Map<String, String> detectedViolations, String brand) {
+    public void processViolations(Player player, Map<String, Violation> detectedViolations, String brand) {
+        processViolations(player, detectedViolations, brand, true);
+    }
+    
+    /**
+     * Process detected violations for a player, optionally without alerting
+     * @param player The player
+     * @param detectedViolations Map of violation types to violations
+     * @param brand The player's client brand
+     * @param sendAlerts False to only record and punish, like for members of a bot wave
+     */
+    public void processViolations(Player player, Map<String, Violation> detectedViolations, String brand, 
+                                  boolean sendAlerts) {
+        config.withCurrentRules(() -> processViolationsPinned(player, detectedViolations, brand, sendAlerts));
+    }
+    
+    /**
+     * Processes violations with the rules pinned, so the brand key and its
+     * settings come from the same rule set
+     */
+    private void processViolationsPinned(Player player, Map<String, Violation> detectedViolations, String brand, 
+                                         boolean sendAlerts) {
         if (!player.isOnline()) return;
         
         UUID uuid = player.getUniqueId();
@@ -543,53 +722,57 @@ public class DetectionManager {
         Set<String> filteredChannels = filterIgnoredChannels(data.getChannels());
         
         // Get player's violation tracking map
-        Map<String, Boolean> violations = playerViolations.get(uuid);
-        if (violations == null) {
-            violations = new ConcurrentHashMap<>();
-            playerViolations.put(uuid, violations);
-        }
+        Map<String, Boolean> violations = playerViolations.computeIfAbsent(uuid, k -> new ConcurrentHashMap<>());
         
         // Find new violations (not already alerted)
-        Map<String, String> newViolations = new HashMap<>();
-        for (Map.Entry<String, String> entry : detectedViolations.entrySet()) {
+        Map<String, Violation> newViolations = new HashMap<>();
+        for (Map.Entry<String, Violation> entry : detectedViolations.entrySet()) {
             String violationType = entry.getKey();
-            if (!violations.getOrDefault(violationType, false)) {
+            // Mark as alerted atomically so concurrent checks can't alert twice
+            Boolean alreadyAlerted = violations.put(violationType, true);
+            if (alreadyAlerted == null || !alreadyAlerted) {
                 newViolations.put(violationType, entry.getValue());
-                violations.put(violationType, true); // Mark as alerted
             }
         }
         
         // Skip if no new violations
         if (newViolations.isEmpty()) return;
         
+        // Alerts and history writes talk to Bukkit and are sent from the main thread,
+        // punishments are decided here so a native kick doesn't wait for the next tick
+        List<Runnable> alerts = new ArrayList<>();
+        
+        // Keep the decision in the history before handlers start removing entries
+        List<Violation> recorded = new ArrayList<>(newViolations.values());
+        
         // Get violated channel for blacklist mode
-        String violatedChannel = null;
-        if (newViolations.containsKey("BLOCKED_CHANNEL")) {
-            violatedChannel = findBlockedChannel(filteredChannels);
+        String violatedChannel = newViolations.containsKey("BLOCKED_CHANNEL") ? findBlockedChannel(filteredChannels) : null;
+        
+        // Merge everything found in this check into a single alert if configured
+        boolean mergeAlerts = config.isMergeViolationsEnabled() && newViolations.size() > 1;
+        if (mergeAlerts) {
+            Map<String, Violation> merged = new HashMap<>(newViolations);
+            alerts.add(() -> sendMergedViolationAlert(player, merged, brand));
         }
         
         // Special handling for client brand violations
         if (newViolations.containsKey("CLIENT_BRAND")) {
-            String reason = newViolations.get("CLIENT_BRAND");
-            // Extract the brand key from the reason format "Using flagged client brand: X (brandKey)"
-            String brandKey = null;
-            int startIndex = reason.lastIndexOf("(");
-            int endIndex = reason.lastIndexOf(")");
-            if (startIndex > 0 && endIndex > startIndex) {
-                brandKey = reason.substring(startIndex + 1, endIndex);
-            }
+            Violation violation = newViolations.get("CLIENT_BRAND");
+            String brandKey = config.getMatchingClientBrand(brand);
             
             if (brandKey != null) {
                 ConfigManager.ClientBrandConfig brandConfig = config.getClientBrandConfig(brandKey);
                 
                 // Use the brand-specific alert and punishment settings
-                plugin.getAlertManager().sendBrandViolationAlert(
-                    player, reason, brand, violatedChannel, "CLIENT_BRAND", brandConfig);
+                if (!mergeAlerts) {
+                    alerts.add(() -> plugin.getAlertManager().sendBrandViolationAlert(
+                        player, violation, brand, violatedChannel, brandConfig));
+                }
                 
                 // Execute punishment if needed
                 if (brandConfig.shouldPunish()) {
                     plugin.getAlertManager().executeBrandPunishment(
-                        player, reason, brand, "CLIENT_BRAND", violatedChannel, brandConfig);
+                        player, violation.getReason(), brand, "CLIENT_BRAND", violatedChannel, brandConfig);
                     data.setAlreadyPunished(true);
                 }
                 
@@ -600,19 +783,21 @@ public class DetectionManager {
         
         // Special handling for unknown brand violations
         if (newViolations.containsKey("UNKNOWN_BRAND")) {
-            String reason = newViolations.get("UNKNOWN_BRAND");
+            Violation violation = newViolations.get("UNKNOWN_BRAND");
             
             // Use the default brand config for alerts and punishments
             ConfigManager.ClientBrandConfig defaultConfig = config.getClientBrandConfig(null);
             
             // Send alert
-            plugin.getAlertManager().sendBrandViolationAlert(
-                player, reason, brand, null, "UNKNOWN_BRAND", defaultConfig);
+            if (!mergeAlerts) {
+                alerts.add(() -> plugin.getAlertManager().sendBrandViolationAlert(
+                    player, violation, brand, null, defaultConfig));
+            }
             
             // Execute punishment if needed
             if (defaultConfig.shouldPunish()) {
                 plugin.getAlertManager().executeBrandPunishment(
-                    player, reason, brand, "UNKNOWN_BRAND", null, defaultConfig);
+                    player, violation.getReason(), brand, "UNKNOWN_BRAND", null, defaultConfig);
                 data.setAlreadyPunished(true);
             }
             
@@ -621,20 +806,21 @@ public class DetectionManager {
         }
         
         // Send a separate alert for each remaining violation
-        for (Map.Entry<String, String> entry : newViolations.entrySet()) {
-            // Only pass the channel parameter for BLOCKED_CHANNEL violations
-            String channelParam = entry.getKey().equals("BLOCKED_CHANNEL") ? violatedChannel : null;
-            
-            plugin.getAlertManager().sendViolationAlert(
-                player, entry.getValue(), brand, channelParam, entry.getKey());
+        if (!mergeAlerts) {
+            for (Violation violation : newViolations.values()) {
+                // Only pass the channel parameter for BLOCKED_CHANNEL violations
+                String channelParam = violation.getType().equals("BLOCKED_CHANNEL") ? violatedChannel : null;
+                
+                alerts.add(() -> plugin.getAlertManager().sendViolationAlert(player, violation, brand, channelParam));
+            }
         }
         
         // If we still have violations to process, handle punishment
         if (!newViolations.isEmpty() && !data.isAlreadyPunished()) {
             // Find the first violation that should trigger a punishment
-            for (Map.Entry<String, String> entry : newViolations.entrySet()) {
-                String violationType = entry.getKey();
-                String reason = entry.getValue();
+            for (Violation violation : newViolations.values()) {
+                String violationType = violation.getType();
+                String reason = violation.getReason();
 
                 if (shouldPunishViolation(violationType, brand)) {
                     String channelParam = violationType.equals("BLOCKED_CHANNEL") ? violatedChannel : null;
@@ -645,6 +831,38 @@ public class DetectionManager {
                 }
             }
         }
+        
+        runOnMainThread(() -> {
+            plugin.getHistoryManager().record(player, brand, recorded);
+            if (sendAlerts) {
+                alerts.forEach(Runnable::run);
+            }
+        });
+    }
+    
+    /**
+     * Sends a single alert covering all violations found in one check
+     * @param player The player
+     * @param newViolations Map of violation types to violations
+     * @param brand The player's client brand
+     */
+    private void sendMergedViolationAlert(Player player, Map<String, Violation> newViolations, String brand) {
+        List<Violation> reasons = new ArrayList<>(newViolations.values());
+        
+        // Only send to Discord if at least one of the merged violations wants it
+        boolean sendDiscordAlert = false;
+        if (config.isDiscordWebhookEnabled()) {
+            for (String violationType : newViolations.keySet()) {
+                if (plugin.getAlertManager().isDiscordAlertEnabled(violationType, brand)) {
+                    sendDiscordAlert = true;
+                    break;
+                }
+            }
+        }
+        
+        plugin.getAlertManager().sendMultipleViolationsAlert(player, reasons, brand, sendDiscordAlert);
+        
+        plugin.getDetectionLog().debug(player, "Merged violations into one alert", reasons.size());
     }
     
     /**
@@ -654,6 +872,13 @@ public class DetectionManager {
      * @param reason The reason for the violation
      */
     public void processViolation(Player player, String violationType, String reason) {
+        config.withCurrentRules(() -> processViolationPinned(player, violationType, reason));
+    }
+    
+    /**
+     * Processes a single violation with the rules pinned for the whole call
+     */
+    private void processViolationPinned(Player player, String violationType, String reason) {
         if (!player.isOnline()) return;
         
         UUID uuid = player.getUniqueId();
@@ -672,9 +897,13 @@ public class DetectionManager {
         // Mark as alerted
         violations.put(violationType, true);
         
-        // Send alert
-        plugin.getAlertManager().sendViolationAlert(
-            player, reason, "unknown", null, violationType);
+        Violation violation = new Violation(violationType, reason);
+        runOnMainThread(() -> {
+            plugin.getHistoryManager().record(player, "unknown", Collections.singletonList(violation));
+            
+            // Send alert
+            plugin.getAlertManager().sendViolationAlert(player, violation, "unknown", null);
+        });
         
         // Execute punishment if needed - using "unknown" as brand since we don't know it
         boolean shouldPunish = shouldPunishViolation(violationType, "unknown");
@@ -685,10 +914,7 @@ public class DetectionManager {
             data.setAlreadyPunished(true);
         }
         
-        if (plugin.getConfigManager().isDebugMode()) {
-            plugin.getLogger().info("[Debug] Processed violation for " + player.getName() + 
-                                  ": " + violationType + " - " + reason);
-        }
+        plugin.getDetectionLog().debug(player, "Processed violation " + violationType, reason);
     }
     
     /**
@@ -705,7 +931,7 @@ public class DetectionManager {
             boolean found = false;
             for (String playerChannel : filtered) {
                 try {
-                    if (playerChannel.matches(requiredChannel)) {
+                    if (config.matchesChannelEntry(requiredChannel, playerChannel)) {
                         found = true;
                         break;
                     }
@@ -749,11 +975,7 @@ public class DetectionManager {
                 // Check the brand's required-channels-punish setting
                 String brandKey = config.getMatchingClientBrand(brand);
                 if (brandKey != null) {
-                    if (config.isDebugMode()) {
-                        plugin.getLogger().info("[Debug] Checking if should punish missing channels for brand: " + 
-                                             brandKey + ", punishment setting: " + 
-                                             config.getClientBrandConfig(brandKey).shouldPunishRequiredChannels());
-                    }
+                    plugin.getDetectionLog().debug("Checking missing channels punishment for brand", brandKey);
                     return config.getClientBrandConfig(brandKey).shouldPunishRequiredChannels();
                 }
                 return false; // Default to not punishing if brand not found or setting not specified
@@ -761,6 +983,10 @@ public class DetectionManager {
                 return config.shouldPunishGeyserSpoof();
             case "NO_BRAND":
                 return config.shouldPunishNoBrand();
+            case "CHANNEL_CHURN":
+                return config.shouldPunishChannelChurn();
+            case "INVALID_CHANNEL":
+                return config.shouldPunishInvalidChannel();
             default:
                 return false;
         }
@@ -768,18 +994,18 @@ public class DetectionManager {
     
     /**
      * Checks if a player is spoofing Geyser client
-     * @param player The player to check
      * @param brand The player's client brand
+     * @param isBedrockPlayer Whether the player joined through Geyser
      * @return True if the player is spoofing Geyser, false otherwise
      */
-    private boolean isSpoofingGeyser(Player player, String brand) {
+    private boolean isSpoofingGeyser(String brand, boolean isBedrockPlayer) {
         if (brand == null) return false;
         
         // Check if brand contains "geyser" (case insensitive)
         boolean claimsGeyser = brand.toLowerCase().contains("geyser");
         
         // If player claims to be using Geyser but isn't detected as a Bedrock player
-        return claimsGeyser && !plugin.isBedrockPlayer(player);
+        return claimsGeyser && !isBedrockPlayer;
     }
     
     /**
@@ -826,7 +1052,7 @@ public class DetectionManager {
                 
                 for (String playerChannel : filtered) {
                     try {
-                        if (playerChannel.matches(whitelistedChannel)) {
+                        if (config.matchesChannelEntry(whitelistedChannel, playerChannel)) {
                             playerHasChannel = true;
                             break;
                         }
@@ -874,6 +1100,51 @@ public class DetectionManager {
         return null; // No blocked channels found
     }
     
+    /**
+     * Gets the violation types a player has been flagged for this session
+     * @param playerUUID The player's UUID
+     * @return The violation types, empty if there are none
+     */
+    public Set<String> getFlaggedViolations(UUID playerUUID) {
+        Map<String, Boolean> violations = playerViolations.get(playerUUID);
+        if (violations == null) {
+            return Collections.emptySet();
+        }
+        
+        Set<String> flagged = new TreeSet<>();
+        for (Map.Entry<String, Boolean> entry : violations.entrySet()) {
+            if (entry.getValue()) {
+                flagged.add(entry.getKey());
+            }
+        }
+        return flagged;
+    }
+    
+    /**
+     * Forgets that a player was flagged for the given violation types, so they
+     * are alerted again if they are detected later
+     * @param playerUUID The player's UUID
+     * @param violationTypes The violation types to clear
+     */
+    public void clearViolations(UUID playerUUID, Collection<String> violationTypes) {
+        Map<String, Boolean> violations = playerViolations.get(playerUUID);
+        if (violations == null) {
+            return;
+        }
+        
+        for (String violationType : violationTypes) {
+            violations.put(violationType, false);
+        }
+    }
+    
+    /**
+     * @param playerUUID The player's UUID
+     * @return Whether the complete check with required channels has run for the player
+     */
+    public boolean hasHadRequiredChannelsCheck(UUID playerUUID) {
+        return requiredChannelCheckedPlayers.contains(playerUUID);
+    }
+    
     /**
      * Cleans up player data when they disconnect
      * @param playerUUID The UUID of the player who disconnected
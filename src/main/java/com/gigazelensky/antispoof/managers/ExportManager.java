@@ -0,0 +1,294 @@
+package com.gigazelensky.antispoof.managers;
+
+import com.gigazelensky.antispoof.AntiSpoofPlugin;
+import com.gigazelensky.antispoof.data.ClientFingerprint;
+import com.gigazelensky.antispoof.data.HistoryRecord;
+import com.gigazelensky.antispoof.data.PlayerData;
+import com.gigazelensky.antispoof.utils.EmbedWriter;
+import com.gigazelensky.antispoof.utils.HistoryStore;
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams online sessions and the violation history to a gzip-compressed
+ * CSV or JSON Lines file in plugins/AntiSpoof/exports.
+ * 
+ * Every row has the same columns: "session" rows describe an online player,
+ * "violation" rows come from the history. Columns that don't apply are empty.
+ */
+public class ExportManager {
+    /**
+     * The export columns, in order. Add new columns at the end only.
+     */
+    public static final String[] COLUMNS = {
+        "kind", "time", "uuid", "player", "brand", "brand_key", "protocol", "client_version", 
+        "channels", "verdict", "violations", "reason", "detail"
+    };
+    
+    // How often progress is reported to the command sender
+    private static final long PROGRESS_INTERVAL_MILLIS = 2000L;
+    
+    private final AntiSpoofPlugin plugin;
+    private final ConfigManager config;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    
+    public ExportManager(AntiSpoofPlugin plugin) {
+        this.plugin = plugin;
+        this.config = plugin.getConfigManager();
+    }
+    
+    /**
+     * Starts an export off the main thread, must be called on the main thread
+     * @param sender The sender to report progress to
+     * @param json Whether to write JSON Lines instead of CSV
+     * @param includeHistory Whether to append the violation history
+     * @return false if another export is still running
+     */
+    public boolean startExport(CommandSender sender, boolean json, boolean includeHistory) {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        
+        // Only the player list is taken on the main thread, rows are built while writing
+        Map<UUID, String> players = new LinkedHashMap<>();
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            players.put(player.getUniqueId(), player.getName());
+        }
+        
+        boolean withHistory = includeHistory && plugin.getHistoryManager().isEnabled();
+        if (includeHistory && !withHistory) {
+            sender.sendMessage(ChatColor.YELLOW + "Violation history is disabled, exporting online sessions only.");
+        }
+        
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                export(sender, json, players, withHistory);
+            } finally {
+                running.set(false);
+            }
+        });
+        return true;
+    }
+    
+    private void export(CommandSender sender, boolean json, Map<UUID, String> players, boolean includeHistory) {
+        File directory = new File(plugin.getDataFolder(), "exports");
+        String timestamp = new SimpleDateFormat("yyyy-MM-dd_HH-mm-ss").format(new Date());
+        File file = new File(directory, "export-" + timestamp + (json ? ".jsonl.gz" : ".csv.gz"));
+        Progress progress = new Progress(sender);
+        
+        try {
+            Files.createDirectories(directory.toPath());
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                    new GZIPOutputStream(new FileOutputStream(file), 64 * 1024), StandardCharsets.UTF_8))) {
+                if (!json) {
+                    out.write(String.join(",", COLUMNS));
+                    out.write('\n');
+                }
+                
+                for (Map.Entry<UUID, String> player : players.entrySet()) {
+                    writeSession(out, json, player.getKey(), player.getValue());
+                    progress.row();
+                }
+                
+                if (includeHistory) {
+                    Map<File, Long> segments = plugin.getHistoryManager().snapshotSegments().join();
+                    for (Map.Entry<File, Long> segment : segments.entrySet()) {
+                        HistoryStore.readSegment(segment.getKey(), segment.getValue(), record -> {
+                            try {
+                                writeViolation(out, json, record);
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                            progress.row();
+                        });
+                    }
+                }
+            }
+        } catch (IOException | UncheckedIOException | CompletionException e) {
+            plugin.getLogger().warning("Failed to export sessions: " + e.getMessage());
+            String message = ChatColor.RED + "Export failed: " + e.getMessage();
+            Bukkit.getScheduler().runTask(plugin, () -> sender.sendMessage(message));
+            return;
+        }
+        
+        String message = ChatColor.GREEN + "Exported " + progress.rows + " rows to " + ChatColor.WHITE + 
+            "exports/" + file.getName() + ChatColor.GRAY + " (" + (file.length() / 1024) + " KB)";
+        Bukkit.getScheduler().runTask(plugin, () -> sender.sendMessage(message));
+    }
+    
+    private void writeSession(Writer out, boolean json, UUID uuid, String name) throws IOException {
+        PlayerData data = plugin.getPlayerDataMap().get(uuid);
+        String brand = plugin.getPlayerBrands().get(uuid);
+        Set<String> violations = plugin.getDetectionManager().getFlaggedViolations(uuid);
+        
+        String verdict;
+        if (!violations.isEmpty()) {
+            verdict = ClientFingerprint.Verdict.FLAGGED.name();
+        } else {
+            FingerprintManager.Session session = plugin.getFingerprintManager().getSession(uuid);
+            ClientFingerprint current = session != null ? session.getCurrent() : null;
+            verdict = current != null ? current.getVerdict().name() : "PENDING";
+        }
+        
+        writeRow(out, json, new Object[] {
+            "session",
+            data != null ? data.getJoinTime() : null,
+            uuid,
+            name,
+            brand,
+            config.getMatchingClientBrand(brand),
+            data != null && data.getProtocolVersion() >= 0 ? data.getProtocolVersion() : null,
+            data != null ? data.getClientVersion() : null,
+            data != null ? new ArrayList<>(data.getChannels()) : Collections.emptyList(),
+            verdict,
+            violations,
+            null,
+            null
+        });
+    }
+    
+    private void writeViolation(Writer out, boolean json, HistoryRecord record) throws IOException {
+        writeRow(out, json, new Object[] {
+            "violation",
+            record.getTime(),
+            record.getUuid(),
+            record.getPlayerName(),
+            record.getBrand(),
+            record.getBrandKey(),
+            null,
+            null,
+            Collections.emptyList(),
+            ClientFingerprint.Verdict.FLAGGED.name(),
+            Collections.singletonList(record.getType()),
+            record.getReason(),
+            record.getDetail()
+        });
+    }
+    
+    private static void writeRow(Writer out, boolean json, Object[] values) throws IOException {
+        if (json) {
+            out.write('{');
+            for (int i = 0; i < COLUMNS.length; i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                out.write('"');
+                out.write(COLUMNS[i]);
+                out.write("\":");
+                writeJsonValue(out, values[i]);
+            }
+            out.write("}\n");
+            return;
+        }
+        
+        for (int i = 0; i < COLUMNS.length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            Object value = values[i];
+            if (value instanceof Collection) {
+                // Channels never contain spaces, so lists are space-separated in one cell
+                value = String.join(" ", toStrings((Collection<?>) value));
+            }
+            if (value != null) {
+                writeCsvValue(out, value.toString());
+            }
+        }
+        out.write('\n');
+    }
+    
+    private static void writeJsonValue(Writer out, Object value) throws IOException {
+        if (value == null) {
+            out.write("null");
+        } else if (value instanceof Number) {
+            out.write(value.toString());
+        } else if (value instanceof Collection) {
+            out.write('[');
+            boolean first = true;
+            for (Object item : (Collection<?>) value) {
+                if (!first) {
+                    out.write(',');
+                }
+                first = false;
+                writeJsonValue(out, item);
+            }
+            out.write(']');
+        } else {
+            out.write('"');
+            out.write(EmbedWriter.escape(value.toString()));
+            out.write('"');
+        }
+    }
+    
+    private static void writeCsvValue(Writer out, String value) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.write(value);
+            return;
+        }
+        
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+    
+    private static List<String> toStrings(Collection<?> values) {
+        List<String> strings = new ArrayList<>(values.size());
+        for (Object value : values) {
+            strings.add(String.valueOf(value));
+        }
+        return strings;
+    }
+    
+    /**
+     * Counts written rows and reports them to the sender now and then
+     */
+    private final class Progress {
+        private final CommandSender sender;
+        private long rows = 0;
+        private long nextReport = System.currentTimeMillis() + PROGRESS_INTERVAL_MILLIS;
+        
+        private Progress(CommandSender sender) {
+            this.sender = sender;
+        }
+        
+        private void row() {
+            rows++;
+            // Checking the clock on every row isn't worth it
+            if ((rows & 1023) == 0 && System.currentTimeMillis() >= nextReport) {
+                nextReport = System.currentTimeMillis() + PROGRESS_INTERVAL_MILLIS;
+                String message = ChatColor.GRAY + "Export in progress, " + rows + " rows written...";
+                Bukkit.getScheduler().runTask(plugin, () -> sender.sendMessage(message));
+            }
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.gigazelensky.antispoof.managers;
+
+import com.gigazelensky.antispoof.AntiSpoofPlugin;
+import com.gigazelensky.antispoof.data.ClientFingerprint;
+import com.gigazelensky.antispoof.utils.FingerprintStore;
+
+import java.io.File;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers each player's client fingerprint across sessions.
+ * The previous session's fingerprint is loaded when a player joins, and the
+ * current one is written when they leave. A player whose brand and channels
+ * match their last clean session under the same rules can skip re-evaluation.
+ */
+public class FingerprintManager {
+    private final AntiSpoofPlugin plugin;
+    private final ConfigManager config;
+    private final FingerprintStore store;
+    
+    private final Map<UUID, Session> sessions = new ConcurrentHashMap<>();
+    
+    /**
+     * Fingerprints of one player session
+     */
+    public static final class Session {
+        private volatile ClientFingerprint previous;
+        private volatile boolean loaded = false;
+        private volatile ClientFingerprint current;
+        
+        /**
+         * @return The fingerprint of the player's last session, or null if there is none
+         */
+        public ClientFingerprint getPrevious() {
+            return previous;
+        }
+        
+        /**
+         * @return Whether the previous fingerprint has been read from the store yet
+         */
+        public boolean isLoaded() {
+            return loaded;
+        }
+        
+        /**
+         * @return The fingerprint of the current session, or null before the first full check
+         */
+        public ClientFingerprint getCurrent() {
+            return current;
+        }
+    }
+    
+    public FingerprintManager(AntiSpoofPlugin plugin) {
+        this.plugin = plugin;
+        this.config = plugin.getConfigManager();
+        this.store = config.isFingerprintsEnabled() ? 
+            new FingerprintStore(new File(plugin.getDataFolder(), "fingerprints.log"), plugin.getLogger()) : null;
+    }
+    
+    /**
+     * Starts a session and loads the player's previous fingerprint in the background
+     * @param uuid The player's UUID
+     */
+    public void handlePlayerJoin(UUID uuid) {
+        if (store == null) {
+            return;
+        }
+        
+        Session session = new Session();
+        sessions.put(uuid, session);
+        store.load(uuid).whenComplete((fingerprint, error) -> {
+            session.previous = fingerprint;
+            session.loaded = true;
+        });
+    }
+    
+    /**
+     * Checks whether a player's client is unchanged since their last clean session
+     * @param uuid The player's UUID
+     * @param brand The client brand
+     * @param channels The channels used for detection
+     * @return True if the checks can be skipped
+     */
+    public boolean matchesCleanSession(UUID uuid, String brand, Set<String> channels) {
+        if (store == null || !config.isFingerprintFastPathEnabled()) {
+            return false;
+        }
+        
+        Session session = sessions.get(uuid);
+        if (session == null) {
+            return false;
+        }
+        
+        // Once flagged in this session, every check runs in full
+        ClientFingerprint current = session.current;
+        if (current != null && current.getVerdict() == ClientFingerprint.Verdict.FLAGGED) {
+            return false;
+        }
+        
+        ClientFingerprint previous = session.previous;
+        return previous != null && 
+               previous.getVerdict() == ClientFingerprint.Verdict.CLEAN && 
+               previous.getRulesHash() == config.getRulesHash() && 
+               previous.matches(brand, ClientFingerprint.hashChannels(channels), channels.size());
+    }
+    
+    /**
+     * Records the result of a complete check for the current session
+     * @param uuid The player's UUID
+     * @param brand The client brand
+     * @param channels The channels used for detection
+     * @param clean Whether the check found no violations
+     */
+    public void recordVerdict(UUID uuid, String brand, Set<String> channels, boolean clean) {
+        Session session = store != null ? sessions.get(uuid) : null;
+        if (session == null) {
+            return;
+        }
+        
+        long now = System.currentTimeMillis();
+        long channelHash = ClientFingerprint.hashChannels(channels);
+        ClientFingerprint current = session.current;
+        
+        // A session stays flagged once any complete check flagged it
+        ClientFingerprint.Verdict verdict = clean && 
+            (current == null || current.getVerdict() == ClientFingerprint.Verdict.CLEAN) ? 
+            ClientFingerprint.Verdict.CLEAN : ClientFingerprint.Verdict.FLAGGED;
+        
+        // Keep the first seen time while the client stays the same across sessions
+        ClientFingerprint previous = current != null ? current : session.previous;
+        long firstSeen = previous != null && previous.matches(brand, channelHash, channels.size()) ? 
+            previous.getFirstSeen() : now;
+        
+        session.current = new ClientFingerprint(uuid, brand, channelHash, channels.size(), 
+            verdict, config.getRulesHash(), firstSeen, now);
+    }
+    
+    /**
+     * Gets the fingerprints of an online player's session
+     * @param uuid The player's UUID
+     * @return The session, or null if fingerprints are disabled or the player bypasses checks
+     */
+    public Session getSession(UUID uuid) {
+        return sessions.get(uuid);
+    }
+    
+    /**
+     * @return Whether the fingerprint store is enabled
+     */
+    public boolean isEnabled() {
+        return store != null;
+    }
+    
+    /**
+     * Writes the session's fingerprint when the player leaves
+     * @param uuid The player's UUID
+     */
+    public void handlePlayerQuit(UUID uuid) {
+        Session session = sessions.remove(uuid);
+        if (session != null && session.current != null) {
+            store.record(session.current.withLastSeen(System.currentTimeMillis()));
+        }
+    }
+    
+    /**
+     * Writes the fingerprints of all online players and closes the store
+     */
+    public void shutdown() {
+        if (store == null) {
+            return;
+        }
+        for (UUID uuid : sessions.keySet()) {
+            handlePlayerQuit(uuid);
+        }
+        store.shutdown();
+    }
+}
@@ -0,0 +1,143 @@
+package com.gigazelensky.antispoof.managers;
+
+import com.gigazelensky.antispoof.AntiSpoofPlugin;
+import com.gigazelensky.antispoof.data.HistoryRecord;
+import com.gigazelensky.antispoof.data.Violation;
+import com.gigazelensky.antispoof.utils.HistoryStore;
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Keeps a searchable history of the violations the plugin acted on
+ */
+public class HistoryManager {
+    private static final int PAGE_SIZE = 10;
+    
+    private final AntiSpoofPlugin plugin;
+    private final ConfigManager config;
+    private final HistoryStore store;
+    
+    public HistoryManager(AntiSpoofPlugin plugin) {
+        this.plugin = plugin;
+        this.config = plugin.getConfigManager();
+        this.store = config.isHistoryEnabled() ? 
+            new HistoryStore(new File(plugin.getDataFolder(), "history"), 
+                config.getHistoryRetentionDays(), plugin.getLogger()) : null;
+    }
+    
+    /**
+     * @return Whether violation history is recorded, only read on startup
+     */
+    public boolean isEnabled() {
+        return store != null;
+    }
+    
+    /**
+     * Records the violations decided for a player in one check
+     * @param player The player
+     * @param brand The player's client brand, or "unknown"
+     * @param violations The new violations
+     */
+    public void record(Player player, String brand, Collection<Violation> violations) {
+        if (store == null || violations.isEmpty()) {
+            return;
+        }
+        
+        String brandKey = config.getMatchingClientBrand(brand);
+        if (brandKey == null) {
+            brandKey = "unknown";
+        }
+        
+        long now = System.currentTimeMillis();
+        for (Violation violation : violations) {
+            store.record(new HistoryRecord(now, player.getUniqueId(), player.getName(), brand, brandKey, 
+                violation.getType(), violation.getReason(), violation.getDetail()));
+        }
+    }
+    
+    /**
+     * Lists the history segments for an export
+     * @return A future completed with the segment files and their lengths, 
+     *         or null if history is disabled
+     */
+    public CompletableFuture<Map<File, Long>> snapshotSegments() {
+        return store != null ? store.snapshotSegments() : null;
+    }
+    
+    /**
+     * Looks up a page of history off the main thread and sends it to the sender
+     * @param sender The sender to show the results to
+     * @param index The field to search
+     * @param value The player name, brand key or violation type
+     * @param page The page, starting at 1
+     */
+    public void query(CommandSender sender, HistoryStore.Index index, String value, int page) {
+        if (store == null) {
+            sender.sendMessage(ChatColor.RED + "Violation history is disabled in the config.");
+            return;
+        }
+        
+        store.query(index, value, page, PAGE_SIZE).whenComplete((result, error) -> 
+            Bukkit.getScheduler().runTask(plugin, () -> {
+                if (error != null) {
+                    plugin.getLogger().warning("Failed to query violation history: " + error.getMessage());
+                    sender.sendMessage(ChatColor.RED + "Failed to query violation history.");
+                    return;
+                }
+                sendPage(sender, index, value, result);
+            }));
+    }
+    
+    private void sendPage(CommandSender sender, HistoryStore.Index index, String value, HistoryStore.Page page) {
+        String label = index.name().toLowerCase() + " " + value;
+        if (page.getTotal() == 0) {
+            sender.sendMessage(ChatColor.YELLOW + "No violation history found for " + label + ".");
+            return;
+        }
+        if (page.getRecords().isEmpty()) {
+            sender.sendMessage(ChatColor.RED + "Page " + page.getPage() + " is out of range, there are " + 
+                page.getPageCount() + " pages.");
+            return;
+        }
+        
+        sender.sendMessage(ChatColor.AQUA + "=== Violation history for " + label + " (" + page.getTotal() + 
+            " total, page " + page.getPage() + "/" + page.getPageCount() + ") ===");
+        
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        for (HistoryRecord record : page.getRecords()) {
+            StringBuilder line = new StringBuilder()
+                .append(ChatColor.GRAY).append(format.format(new Date(record.getTime()))).append(' ')
+                .append(ChatColor.WHITE).append(record.getPlayerName()).append(' ')
+                .append(ChatColor.RED).append(record.getType())
+                .append(ChatColor.GRAY).append(": ").append(record.getReason());
+            if (record.getDetail() != null) {
+                line.append(" (").append(record.getDetail()).append(')');
+            }
+            line.append(ChatColor.DARK_GRAY).append(" [").append(record.getBrand()).append(']');
+            sender.sendMessage(line.toString());
+        }
+        
+        if (page.getPage() < page.getPageCount()) {
+            sender.sendMessage(ChatColor.GRAY + "Use /antispoof history " + label + " " + 
+                (page.getPage() + 1) + " for the next page.");
+        }
+    }
+    
+    /**
+     * Writes the remaining records before the plugin is disabled
+     */
+    public void shutdown() {
+        if (store != null) {
+            store.shutdown();
+        }
+    }
+}
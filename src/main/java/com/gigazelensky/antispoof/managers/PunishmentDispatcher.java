@@ -0,0 +1,275 @@
+package com.gigazelensky.antispoof.managers;
+
+import com.gigazelensky.antispoof.AntiSpoofPlugin;
+import com.gigazelensky.antispoof.utils.MessageUtil;
+import com.github.retrooper.packetevents.PacketEvents;
+import com.github.retrooper.packetevents.protocol.ConnectionState;
+import com.github.retrooper.packetevents.protocol.player.User;
+import com.github.retrooper.packetevents.util.adventure.AdventureSerializer;
+import com.github.retrooper.packetevents.wrapper.PacketWrapper;
+import com.github.retrooper.packetevents.wrapper.configuration.server.WrapperConfigServerDisconnect;
+import com.github.retrooper.packetevents.wrapper.play.server.WrapperPlayServerDisconnect;
+import net.kyori.adventure.text.Component;
+import org.bukkit.entity.Player;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Queues punishment commands and dispatches them on the main thread with a
+ * per-tick limit, so a wave of flagged players can't stall a single tick.
+ */
+public class PunishmentDispatcher {
+    private final AntiSpoofPlugin plugin;
+    private final ConfigManager config;
+    
+    // Priority commands (kicks, bans) are always dispatched before anything else
+    private final Queue<QueuedCommand> priorityQueue = new ConcurrentLinkedQueue<>();
+    private final Queue<QueuedCommand> normalQueue = new ConcurrentLinkedQueue<>();
+    
+    // Keys of queued commands, used to drop identical commands for the same player
+    private final Set<String> pendingKeys = ConcurrentHashMap.newKeySet();
+    
+    // Number of queued commands across both queues
+    private final AtomicInteger queuedCount = new AtomicInteger();
+    
+    // Built-in punishment that disconnects the player through PacketEvents
+    private static final String NATIVE_KICK = "antispoof:kick";
+    
+    // Time between two queue lag warnings in milliseconds
+    private static final long LAG_WARNING_INTERVAL = 30000;
+    
+    private volatile long lastDispatchLag = 0;
+    private long lastLagWarning = 0;
+    private final AtomicInteger droppedDuplicates = new AtomicInteger();
+    
+    private static class QueuedCommand {
+        private final String key;
+        private final String playerName;
+        private final String command;
+        private final long queuedAt;
+        
+        private QueuedCommand(String key, String playerName, String command, long queuedAt) {
+            this.key = key;
+            this.playerName = playerName;
+            this.command = command;
+            this.queuedAt = queuedAt;
+        }
+    }
+    
+    public PunishmentDispatcher(AntiSpoofPlugin plugin) {
+        this.plugin = plugin;
+        this.config = plugin.getConfigManager();
+        
+        // Drain the queue every tick on the main thread
+        plugin.getServer().getScheduler().runTaskTimer(plugin, this::tick, 1L, 1L);
+    }
+    
+    /**
+     * Queues a punishment command for a player
+     * @param player The player being punished
+     * @param command The fully formatted console command
+     * @return True if the command was queued, false if an identical command was already pending
+     */
+    public boolean submit(Player player, String command) {
+        // Built-in kicks skip the queue and disconnect the player right away
+        if (isNativeKick(command)) {
+            String message = command.trim().substring(NATIVE_KICK.length()).trim();
+            if (kickNatively(player, message)) {
+                return true;
+            }
+            
+            // Fall back to the console kick command if the connection isn't available
+            command = "kick " + player.getName() + (message.isEmpty() ? "" : " " + message);
+        }
+        
+        return submit(player.getUniqueId(), player.getName(), command);
+    }
+    
+    /**
+     * Checks if a command is the built-in antispoof:kick punishment
+     * @param command The command to check
+     * @return True if the command is a native kick
+     */
+    private boolean isNativeKick(String command) {
+        String trimmed = command.trim();
+        return trimmed.regionMatches(true, 0, NATIVE_KICK, 0, NATIVE_KICK.length()) &&
+               (trimmed.length() == NATIVE_KICK.length() || trimmed.charAt(NATIVE_KICK.length()) == ' ');
+    }
+    
+    /**
+     * Disconnects a player by sending the disconnect packet on their channel directly.
+     * This is safe to call from any thread, no command parsing or main thread hop is needed.
+     * @param player The player to disconnect
+     * @param message The kick message (legacy colour codes and MiniMessage are supported)
+     * @return True if the disconnect was sent, false if the player's connection wasn't found
+     */
+    public boolean kickNatively(Player player, String message) {
+        User user = PacketEvents.getAPI().getPlayerManager().getUser(player);
+        if (user == null || user.getChannel() == null) {
+            return false;
+        }
+        
+        Component reason = AdventureSerializer.fromLegacyFormat(MessageUtil.miniMessage(message));
+        
+        // Clients in the configuration phase expect the configuration disconnect packet
+        PacketWrapper<?> disconnect = user.getEncoderState() == ConnectionState.CONFIGURATION
+            ? new WrapperConfigServerDisconnect(reason)
+            : new WrapperPlayServerDisconnect(reason);
+        
+        user.sendPacket(disconnect);
+        user.closeConnection();
+        
+        plugin.getDetectionLog().debug(player, "Disconnected through native kick", null);
+        return true;
+    }
+    
+    /**
+     * Queues a punishment command for a player
+     * @param playerUUID The UUID of the player being punished
+     * @param playerName The name of the player being punished
+     * @param command The fully formatted console command
+     * @return True if the command was queued, false if an identical command was already pending
+     */
+    public boolean submit(UUID playerUUID, String playerName, String command) {
+        String key = playerUUID + "\0" + command;
+        
+        // Drop identical commands that are still waiting to run for this player
+        if (!pendingKeys.add(key)) {
+            droppedDuplicates.incrementAndGet();
+            plugin.getDetectionLog().debug("Dropped duplicate punishment", command);
+            return false;
+        }
+        
+        QueuedCommand queued = new QueuedCommand(key, playerName, command, System.currentTimeMillis());
+        if (isPriorityCommand(command)) {
+            priorityQueue.add(queued);
+        } else {
+            normalQueue.add(queued);
+        }
+        queuedCount.incrementAndGet();
+        return true;
+    }
+    
+    /**
+     * Checks if a command should be dispatched before regular commands
+     * @param command The command to check
+     * @return True if the command's label is configured as a priority command
+     */
+    private boolean isPriorityCommand(String command) {
+        String label = command.trim();
+        if (label.startsWith("/")) {
+            label = label.substring(1);
+        }
+        
+        int space = label.indexOf(' ');
+        if (space >= 0) {
+            label = label.substring(0, space);
+        }
+        
+        // Strip namespaces such as "minecraft:kick"
+        int colon = label.indexOf(':');
+        if (colon >= 0) {
+            label = label.substring(colon + 1);
+        }
+        
+        List<String> priorityCommands = config.getPunishmentPriorityCommands();
+        return priorityCommands.contains(label.toLowerCase(Locale.ROOT));
+    }
+    
+    /**
+     * Dispatches queued commands until the per-tick count or time budget is used up
+     */
+    private void tick() {
+        if (queuedCount.get() == 0) {
+            return;
+        }
+        
+        int maxPerTick = config.getPunishmentMaxPerTick();
+        long budgetNanos = config.getPunishmentTickBudgetMillis() * 1_000_000L;
+        long start = System.nanoTime();
+        int dispatched = 0;
+        
+        while (dispatched < maxPerTick && System.nanoTime() - start < budgetNanos) {
+            QueuedCommand next = priorityQueue.poll();
+            if (next == null) {
+                next = normalQueue.poll();
+            }
+            if (next == null) {
+                break;
+            }
+            
+            dispatch(next);
+            dispatched++;
+        }
+        
+        reportLag();
+    }
+    
+    /**
+     * Dispatches a single queued command on the console
+     */
+    private void dispatch(QueuedCommand queued) {
+        queuedCount.decrementAndGet();
+        pendingKeys.remove(queued.key);
+        lastDispatchLag = System.currentTimeMillis() - queued.queuedAt;
+        
+        try {
+            plugin.getServer().dispatchCommand(plugin.getServer().getConsoleSender(), queued.command);
+        } catch (Exception e) {
+            plugin.getLogger().warning("Failed to execute punishment for " + queued.playerName + 
+                                      ": " + queued.command + " - " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Warns when queued punishments are waiting longer than the configured threshold
+     */
+    private void reportLag() {
+        long threshold = config.getPunishmentLagWarningMillis();
+        if (threshold <= 0 || lastDispatchLag < threshold) {
+            return;
+        }
+        
+        long now = System.currentTimeMillis();
+        if (now - lastLagWarning < LAG_WARNING_INTERVAL) {
+            return;
+        }
+        lastLagWarning = now;
+        
+        plugin.getLogger().warning("Punishment queue is lagging: commands wait " + lastDispatchLag + 
+                                  "ms before running, " + queuedCount.get() + " still queued" + 
+                                  (droppedDuplicates.get() > 0 ? ", " + droppedDuplicates.get() + " duplicates dropped" : ""));
+    }
+    
+    /**
+     * @return The number of commands waiting to be dispatched
+     */
+    public int getQueueSize() {
+        return queuedCount.get();
+    }
+    
+    /**
+     * @return How long the last dispatched command waited in the queue, in milliseconds
+     */
+    public long getLastDispatchLag() {
+        return lastDispatchLag;
+    }
+    
+    /**
+     * Dispatches everything that is still queued. Used when the plugin is disabled
+     * so that pending punishments aren't lost.
+     */
+    public void shutdown() {
+        QueuedCommand next;
+        while ((next = priorityQueue.poll()) != null || (next = normalQueue.poll()) != null) {
+            dispatch(next);
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package com.gigazelensky.antispoof.managers;
+
+import com.gigazelensky.antispoof.AntiSpoofPlugin;
+import com.gigazelensky.antispoof.data.PlayerData;
+import com.gigazelensky.antispoof.data.Violation;
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.function.Function;
+
+/**
+ * Re-evaluates every online player against a new rule set in one job, so a
+ * reload can be previewed before it is applied and players already online
+ * get the new verdicts once it is. Sessions are copied on the main thread,
+ * then evaluated in chunks on a fork/join pool against both the old and the
+ * new rules, and only the difference between the two verdicts is reported.
+ * /antispoof runcheck uses the same job to check everyone against the rules
+ * in use.
+ */
+public class ReevaluationManager {
+    // Players evaluated by one task
+    private static final int CHUNK_SIZE = 32;
+    
+    // Players listed per section of the chat report
+    private static final int CHAT_LINES = 10;
+    
+    private final AntiSpoofPlugin plugin;
+    private final ConfigManager config;
+    private final ForkJoinPool pool;
+    
+    /**
+     * What a player's client looked like when the job started
+     */
+    private static final class Session {
+        private final Player player;
+        private final String brand;
+        private final Set<String> channels;
+        private final long joinTime;
+        private final boolean checkRequiredChannels;
+        private final boolean bedrock;
+        // Violation types the player was already flagged for
+        private final Set<String> flagged;
+        
+        private Session(Player player, String brand, Set<String> channels, long joinTime,
+                        boolean checkRequiredChannels, boolean bedrock, Set<String> flagged) {
+            this.player = player;
+            this.brand = brand;
+            this.channels = channels;
+            this.joinTime = joinTime;
+            this.checkRequiredChannels = checkRequiredChannels;
+            this.bedrock = bedrock;
+            this.flagged = flagged;
+        }
+    }
+    
+    /**
+     * A player whose verdict differs between the two rule sets
+     */
+    public static final class Change {
+        private final Player player;
+        private final String brand;
+        private final Map<String, Violation> flagged;
+        private final Set<String> cleared;
+        
+        private Change(Player player, String brand, Map<String, Violation> flagged, Set<String> cleared) {
+            this.player = player;
+            this.brand = brand;
+            this.flagged = flagged;
+            this.cleared = cleared;
+        }
+        
+        public Player getPlayer() {
+            return player;
+        }
+        
+        /**
+         * @return Violations found only with the new rules
+         */
+        public Map<String, Violation> getFlagged() {
+            return flagged;
+        }
+        
+        /**
+         * @return Violation types found only with the old rules
+         */
+        public Set<String> getCleared() {
+            return cleared;
+        }
+    }
+    
+    /**
+     * The outcome of one re-evaluation
+     */
+    public static final class Result {
+        private final int evaluated;
+        private final List<Change> changes;
+        private final long elapsedMillis;
+        
+        private Result(int evaluated, List<Change> changes, long elapsedMillis) {
+            this.evaluated = evaluated;
+            this.changes = changes;
+            this.elapsedMillis = elapsedMillis;
+        }
+        
+        public int getEvaluated() {
+            return evaluated;
+        }
+        
+        /**
+         * @return The players whose verdict changed, by name
+         */
+        public List<Change> getChanges() {
+            return changes;
+        }
+        
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+    }
+    
+    public ReevaluationManager(AntiSpoofPlugin plugin) {
+        this.plugin = plugin;
+        this.config = plugin.getConfigManager();
+        this.pool = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1),
+            forkJoinPool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+                thread.setName("AntiSpoof-Reevaluate-" + thread.getPoolIndex());
+                return thread;
+            }, null, false);
+    }
+    
+    /**
+     * Evaluates all online players against two rule sets and compares the
+     * verdicts. Must be called on the main thread, nothing is alerted,
+     * punished or remembered until the result is passed to {@link #apply}.
+     * @param before The rules the players were checked with
+     * @param after The rules to compare against
+     * @return The players whose verdict changes
+     */
+    public CompletableFuture<Result> reevaluate(ConfigManager.RuleSet before, ConfigManager.RuleSet after) {
+        return evaluateAll(false, chunk -> compareChunk(chunk, before, after));
+    }
+    
+    /**
+     * Checks all online players against the rules in use, like a check of
+     * each player but in one job. Must be called on the main thread, the
+     * violations found are only handled once the result is passed to {@link #apply}.
+     * @param rules The rules in use
+     * @return The players with violations they weren't flagged for yet
+     */
+    public CompletableFuture<Result> recheck(ConfigManager.RuleSet rules) {
+        return evaluateAll(true, chunk -> recheckChunk(chunk, rules));
+    }
+    
+    /**
+     * Snapshots the online players and runs a comparison over them in chunks
+     * @param checkRequiredChannels Whether to check required channels for every player,
+     *                              not only those who had the required channels check
+     * @param compare Compares the verdicts for one chunk
+     */
+    private CompletableFuture<Result> evaluateAll(boolean checkRequiredChannels, 
+                                                  Function<List<Session>, List<Change>> compare) {
+        long start = System.nanoTime();
+        List<Session> sessions = snapshotSessions(checkRequiredChannels);
+        
+        List<CompletableFuture<List<Change>>> tasks = new ArrayList<>();
+        for (int i = 0; i < sessions.size(); i += CHUNK_SIZE) {
+            List<Session> chunk = sessions.subList(i, Math.min(i + CHUNK_SIZE, sessions.size()));
+            tasks.add(CompletableFuture.supplyAsync(() -> compare.apply(chunk), pool));
+        }
+        
+        return CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0])).thenApply(ignored -> {
+            List<Change> changes = new ArrayList<>();
+            for (CompletableFuture<List<Change>> task : tasks) {
+                changes.addAll(task.join());
+            }
+            changes.sort(Comparator.comparing((Change change) -> change.player.getName(), String.CASE_INSENSITIVE_ORDER));
+            return new Result(sessions.size(), changes, (System.nanoTime() - start) / 1_000_000L);
+        });
+    }
+    
+    /**
+     * Copies the clients of all online players that are checked by the rules.
+     * Players without a brand, with the bypass permission or already punished
+     * are left out.
+     */
+    private List<Session> snapshotSessions(boolean checkRequiredChannels) {
+        DetectionManager detectionManager = plugin.getDetectionManager();
+        List<Session> sessions = new ArrayList<>();
+        
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            if (player.hasPermission("antispoof.bypass")) continue;
+            
+            UUID uuid = player.getUniqueId();
+            PlayerData data = plugin.getPlayerDataMap().get(uuid);
+            String brand = plugin.getClientBrand(player);
+            if (data == null || data.isAlreadyPunished() || brand == null) continue;
+            
+            sessions.add(new Session(player, brand, detectionManager.getFilteredChannels(data.getChannels()),
+                data.getJoinTime(), checkRequiredChannels || detectionManager.hasHadRequiredChannelsCheck(uuid),
+                plugin.isBedrockPlayer(player), detectionManager.getFlaggedViolations(uuid)));
+        }
+        return sessions;
+    }
+    
+    private List<Change> compareChunk(List<Session> chunk, ConfigManager.RuleSet before, ConfigManager.RuleSet after) {
+        List<Map<String, Violation>> oldVerdicts = config.withRules(before, () -> evaluateChunk(chunk));
+        List<Map<String, Violation>> newVerdicts = config.withRules(after, () -> evaluateChunk(chunk));
+        
+        List<Change> changes = new ArrayList<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            Map<String, Violation> oldVerdict = oldVerdicts.get(i);
+            Map<String, Violation> newVerdict = newVerdicts.get(i);
+            
+            Map<String, Violation> flagged = new HashMap<>(newVerdict);
+            flagged.keySet().removeAll(oldVerdict.keySet());
+            Set<String> cleared = new TreeSet<>(oldVerdict.keySet());
+            cleared.removeAll(newVerdict.keySet());
+            
+            if (!flagged.isEmpty() || !cleared.isEmpty()) {
+                Session session = chunk.get(i);
+                changes.add(new Change(session.player, session.brand, flagged, cleared));
+            }
+        }
+        return changes;
+    }
+    
+    private List<Change> recheckChunk(List<Session> chunk, ConfigManager.RuleSet rules) {
+        List<Map<String, Violation>> verdicts = config.withRules(rules, () -> evaluateChunk(chunk));
+        
+        List<Change> changes = new ArrayList<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            Session session = chunk.get(i);
+            Map<String, Violation> flagged = new HashMap<>(verdicts.get(i));
+            flagged.keySet().removeAll(session.flagged);
+            
+            // Nothing is cleared, violations found by other checks aren't evaluated here
+            if (!flagged.isEmpty()) {
+                changes.add(new Change(session.player, session.brand, flagged, Collections.emptySet()));
+            }
+        }
+        return changes;
+    }
+    
+    /**
+     * Evaluates a chunk against the rules the calling thread reads
+     */
+    private List<Map<String, Violation>> evaluateChunk(List<Session> chunk) {
+        DetectionManager detectionManager = plugin.getDetectionManager();
+        List<Map<String, Violation>> verdicts = new ArrayList<>(chunk.size());
+        
+        for (Session session : chunk) {
+            // Bedrock players that are ignored or exempt never have violations
+            if (session.bedrock && (config.getBedrockHandlingMode().equals("IGNORE") || config.isBedrockExemptMode())) {
+                verdicts.add(Collections.emptyMap());
+                continue;
+            }
+            
+            verdicts.add(detectionManager.evaluate(session.player, session.brand,
+                config.getMatchingClientBrand(session.brand), session.channels,
+                session.checkRequiredChannels, session.joinTime, session.bedrock));
+        }
+        return verdicts;
+    }
+    
+    /**
+     * Hands the new verdicts to the detection system, once the new rules are
+     * in use. Newly flagged players are alerted and punished like after any
+     * other check, cleared violations can be alerted again later.
+     * @param result The result of {@link #reevaluate}
+     */
+    public void apply(Result result) {
+        DetectionManager detectionManager = plugin.getDetectionManager();
+        
+        for (Change change : result.changes) {
+            if (!change.player.isOnline()) continue;
+            
+            if (!change.cleared.isEmpty()) {
+                detectionManager.clearViolations(change.player.getUniqueId(), change.cleared);
+            }
+            if (!change.flagged.isEmpty()) {
+                detectionManager.processViolations(change.player, change.flagged, change.brand);
+            }
+        }
+    }
+    
+    /**
+     * Sends a summary of a re-evaluation
+     * @param sender The receiver
+     * @param result The result of {@link #reevaluate}
+     * @param dryRun Whether the new rules were only previewed
+     */
+    public void sendReport(CommandSender sender, Result result, boolean dryRun) {
+        List<Change> flagged = new ArrayList<>();
+        List<Change> cleared = new ArrayList<>();
+        for (Change change : result.changes) {
+            if (!change.flagged.isEmpty()) flagged.add(change);
+            if (!change.cleared.isEmpty()) cleared.add(change);
+        }
+        
+        sender.sendMessage(ChatColor.AQUA + (dryRun ? "Dry run: " : "") + "Re-evaluated " +
+            ChatColor.WHITE + result.evaluated + ChatColor.AQUA + " players in " + result.elapsedMillis + "ms");
+        sender.sendMessage(ChatColor.GRAY + "Newly flagged: " + ChatColor.RED + flagged.size() +
+            ChatColor.GRAY + ", newly cleared: " + ChatColor.GREEN + cleared.size());
+            
+        for (int i = 0; i < Math.min(CHAT_LINES, flagged.size()); i++) {
+            Change change = flagged.get(i);
+            sender.sendMessage(ChatColor.RED + "  + " + ChatColor.WHITE + change.player.getName() +
+                ChatColor.GRAY + ": " + String.join(", ", new TreeSet<>(change.flagged.keySet())));
+        }
+        if (flagged.size() > CHAT_LINES) {
+            sender.sendMessage(ChatColor.GRAY + "  ... " + (flagged.size() - CHAT_LINES) + " more flagged");
+        }
+        
+        for (int i = 0; i < Math.min(CHAT_LINES, cleared.size()); i++) {
+            Change change = cleared.get(i);
+            sender.sendMessage(ChatColor.GREEN + "  - " + ChatColor.WHITE + change.player.getName() +
+                ChatColor.GRAY + ": " + String.join(", ", change.cleared));
+        }
+        if (cleared.size() > CHAT_LINES) {
+            sender.sendMessage(ChatColor.GRAY + "  ... " + (cleared.size() - CHAT_LINES) + " more cleared");
+        }
+        
+        if (dryRun) {
+            sender.sendMessage(ChatColor.GRAY + "Nothing was changed, run /antispoof reload to apply the configuration.");
+        }
+    }
+    
+    /**
+     * Stops the evaluation threads
+     */
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,118 @@
+package com.gigazelensky.antispoof.managers;
+
+import com.gigazelensky.antispoof.AntiSpoofPlugin;
+import com.gigazelensky.antispoof.data.PlayerTrace;
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.command.CommandSender;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Manages per-player debug traces started with /antispoof trace
+ */
+public class TraceManager {
+    private final AntiSpoofPlugin plugin;
+    private final ConfigManager config;
+    
+    private final Map<UUID, PlayerTrace> traces = new ConcurrentHashMap<>();
+    
+    // Lets the detection log skip the map lookup while nobody is being traced
+    private volatile boolean anyActive = false;
+    
+    public TraceManager(AntiSpoofPlugin plugin) {
+        this.plugin = plugin;
+        this.config = plugin.getConfigManager();
+    }
+    
+    /**
+     * Starts tracing a player for the rest of their session
+     * @param uuid The player's UUID
+     * @param playerName The player's name
+     * @return false if the player was already being traced
+     */
+    public boolean startTrace(UUID uuid, String playerName) {
+        PlayerTrace previous = traces.putIfAbsent(uuid, new PlayerTrace(playerName, config.getTraceBufferSize()));
+        anyActive = true;
+        return previous == null;
+    }
+    
+    /**
+     * Stops tracing a player and discards the trace
+     * @param uuid The player's UUID
+     * @return The stopped trace, or null if the player wasn't traced
+     */
+    public PlayerTrace stopTrace(UUID uuid) {
+        PlayerTrace trace = traces.remove(uuid);
+        anyActive = !traces.isEmpty();
+        return trace;
+    }
+    
+    /**
+     * Gets the active trace for a player
+     * @param uuid The player's UUID
+     * @return The trace, or null if the player isn't traced
+     */
+    public PlayerTrace getTrace(UUID uuid) {
+        if (!anyActive) {
+            return null;
+        }
+        return traces.get(uuid);
+    }
+    
+    /**
+     * @return Whether any player is currently traced
+     */
+    public boolean hasActiveTraces() {
+        return anyActive;
+    }
+    
+    /**
+     * Writes a trace to plugins/AntiSpoof/traces off the main thread
+     * @param sender The sender to notify when the export finishes
+     * @param trace The trace to export
+     */
+    public void exportTrace(CommandSender sender, PlayerTrace trace) {
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            File directory = new File(plugin.getDataFolder(), "traces");
+            String timestamp = new SimpleDateFormat("yyyy-MM-dd_HH-mm-ss").format(new Date());
+            File file = new File(directory, trace.getPlayerName() + "-" + timestamp + ".log");
+            
+            String result;
+            try {
+                Files.createDirectories(directory.toPath());
+                List<String> lines = trace.format();
+                lines.add(0, "# Trace for " + trace.getPlayerName() + " started " + 
+                    new Date(trace.getStartTime()) + ", " + trace.getRecordedCount() + " events recorded, " + 
+                    trace.getOverwrittenCount() + " overwritten");
+                Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+                result = ChatColor.GREEN + "Trace exported to " + ChatColor.WHITE + "traces/" + file.getName();
+            } catch (IOException e) {
+                plugin.getLogger().warning("Failed to export trace for " + trace.getPlayerName() + ": " + e.getMessage());
+                result = ChatColor.RED + "Failed to export trace: " + e.getMessage();
+            }
+            
+            String message = result;
+            Bukkit.getScheduler().runTask(plugin, () -> sender.sendMessage(message));
+        });
+    }
+    
+    /**
+     * Discards a player's trace when they leave, traces only last one session
+     * @param uuid The player's UUID
+     */
+    public void handlePlayerQuit(UUID uuid) {
+        if (anyActive) {
+            stopTrace(uuid);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.gigazelensky.antispoof.utils;
+
+/**
+ * Validates channel names sent by clients before anything is stored or
+ * allocated for them. Names in register payloads are checked on the raw
+ * bytes, so oversized or malformed entries never become Strings.
+ */
+public final class ChannelLimits {
+    /**
+     * The outcome of validating one channel name
+     */
+    public enum Result {
+        VALID, TOO_LONG, INVALID_CHARACTERS
+    }
+    
+    private ChannelLimits() {
+    }
+    
+    /**
+     * Validates a channel name inside a register or unregister payload
+     * @param data The payload
+     * @param from The index of the first byte of the name
+     * @param to The index after the last byte of the name
+     * @param maxLength The maximum length in bytes
+     * @param strict Whether only lowercase namespaced identifier characters are allowed
+     * @return The result
+     */
+    public static Result check(byte[] data, int from, int to, int maxLength, boolean strict) {
+        if (to - from > maxLength) {
+            return Result.TOO_LONG;
+        }
+        for (int i = from; i < to; i++) {
+            if (!isAllowed((char) (data[i] & 0xFF), strict)) {
+                return Result.INVALID_CHARACTERS;
+            }
+        }
+        return Result.VALID;
+    }
+    
+    /**
+     * Validates a channel name a plugin message was sent on
+     * @param channel The channel name
+     * @param maxLength The maximum length in characters
+     * @param strict Whether only lowercase namespaced identifier characters are allowed
+     * @return The result
+     */
+    public static Result check(CharSequence channel, int maxLength, boolean strict) {
+        int length = channel.length();
+        if (length > maxLength) {
+            return Result.TOO_LONG;
+        }
+        for (int i = 0; i < length; i++) {
+            if (!isAllowed(channel.charAt(i), strict)) {
+                return Result.INVALID_CHARACTERS;
+            }
+        }
+        return Result.VALID;
+    }
+    
+    /**
+     * Counts the non-empty names in a NUL-separated register payload
+     * @param data The payload
+     * @return The number of names
+     */
+    public static int countEntries(byte[] data) {
+        int count = 0;
+        boolean inEntry = false;
+        for (byte b : data) {
+            if (b == 0) {
+                inEntry = false;
+            } else if (!inEntry) {
+                inEntry = true;
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    // Printable ASCII, or the characters of a namespaced identifier in strict mode.
+    // Legacy channels like "MC|Brand" and "FML|HS" are only valid outside strict mode.
+    private static boolean isAllowed(char c, boolean strict) {
+        if (strict) {
+            return (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || 
+                   c == '_' || c == '-' || c == '.' || c == ':' || c == '/';
+        }
+        return c > ' ' && c < 127;
+    }
+}
@@ -0,0 +1,75 @@
+package com.gigazelensky.antispoof.utils;
+
+/**
+ * Fixed-size frequency estimates for an unbounded set of keys.
+ * Estimates never undercount, and overcount by at most a small fraction of
+ * the total number of additions. Not thread-safe.
+ */
+public class CountMinSketch {
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    
+    private final int depth;
+    private final int mask;
+    private final int[][] rows;
+    
+    /**
+     * @param depth The number of hash rows
+     * @param width The counters per row, rounded up to a power of two
+     */
+    public CountMinSketch(int depth, int width) {
+        this.depth = depth;
+        int size = Integer.highestOneBit(Math.max(16, width - 1)) << 1;
+        this.mask = size - 1;
+        this.rows = new int[depth][size];
+    }
+    
+    /**
+     * Counts one occurrence of a key
+     * @param hash The key's hash from {@link #hash(String)}
+     * @return The key's estimated count after the addition
+     */
+    public int add(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        int estimate = Integer.MAX_VALUE;
+        for (int i = 0; i < depth; i++) {
+            int[] row = rows[i];
+            int index = (h1 + i * h2) & mask;
+            if (row[index] < Integer.MAX_VALUE) {
+                row[index]++;
+            }
+            estimate = Math.min(estimate, row[index]);
+        }
+        return estimate;
+    }
+    
+    /**
+     * @param hash The key's hash from {@link #hash(String)}
+     * @return The key's estimated count
+     */
+    public int estimate(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        int estimate = Integer.MAX_VALUE;
+        for (int i = 0; i < depth; i++) {
+            estimate = Math.min(estimate, rows[i][(h1 + i * h2) & mask]);
+        }
+        return estimate;
+    }
+    
+    /**
+     * @return A 64-bit FNV-1a hash of the key, shared with {@link HyperLogLog}
+     */
+    public static long hash(String key) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        // The row index uses the low bits, which FNV mixes poorly on its own
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        return hash ^ (hash >>> 33);
+    }
+}
@@ -0,0 +1,60 @@
+package com.gigazelensky.antispoof.utils;
+
+/**
+ * CharSequence that stops a java.util.regex match once a deadline passes.
+ * The backtracking engine reads its input through charAt, so checking the
+ * clock there bounds the time of any single match.
+ */
+public final class DeadlineCharSequence implements CharSequence {
+    // Reads between clock checks, keeps the overhead of System.nanoTime low
+    private static final int CHECK_INTERVAL = 256;
+
+    private final CharSequence input;
+    private final long deadline;
+    private int reads;
+
+    /**
+     * @param input The input to match
+     * @param deadline The System.nanoTime value after which the match is stopped
+     */
+    public DeadlineCharSequence(CharSequence input, long deadline) {
+        this.input = input;
+        this.deadline = deadline;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (++reads >= CHECK_INTERVAL) {
+            reads = 0;
+            if (System.nanoTime() - deadline > 0) {
+                throw new DeadlineExceededException();
+            }
+        }
+        return input.charAt(index);
+    }
+
+    @Override
+    public int length() {
+        return input.length();
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new DeadlineCharSequence(input.subSequence(start, end), deadline);
+    }
+
+    @Override
+    public String toString() {
+        return input.toString();
+    }
+
+    /**
+     * Thrown from charAt when a match runs past its deadline
+     */
+    public static final class DeadlineExceededException extends RuntimeException {
+        private DeadlineExceededException() {
+            // No stack trace, this is thrown on a hot path and always caught
+            super("Regex match exceeded its time budget", null, false, false);
+        }
+    }
+}
@@ -0,0 +1,417 @@
+package com.gigazelensky.antispoof.utils;
+
+import com.gigazelensky.antispoof.AntiSpoofPlugin;
+import com.gigazelensky.antispoof.data.PlayerTrace;
+import com.gigazelensky.antispoof.managers.ConfigManager;
+import org.bukkit.entity.Player;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+
+/**
+ * Asynchronous detection event log.
+ * Callers only copy a few references into a preallocated slot of a lock-free
+ * ring buffer; formatting, console output and file writes all happen on a
+ * single background writer thread that flushes to rolling JSON-lines files.
+ */
+public class DetectionLog {
+    private final AntiSpoofPlugin plugin;
+    private final ConfigManager config;
+    
+    public enum Type {
+        ALERT, INFO, WARNING, DEBUG
+    }
+    
+    // A single slot in the ring buffer, reused once the writer has consumed it
+    private static final class Entry {
+        private long time;
+        private Type type;
+        private String player;
+        private String category;
+        private String message;
+        private Object detail;
+    }
+    
+    private final Entry[] slots;
+    private final int mask;
+    
+    // Sequence + 1 of the event stored in each slot once it has been published
+    private final AtomicLongArray published;
+    
+    // Next sequence to claim (producers) and next sequence to read (writer)
+    private final AtomicLong head = new AtomicLong();
+    private volatile long tail = 0;
+    
+    private final AtomicLong dropped = new AtomicLong();
+    
+    // Time to wait when the buffer is empty (in nanoseconds)
+    private static final long IDLE_PARK_NANOS = 50_000_000L;
+    
+    private final File logDirectory;
+    private final Thread writerThread;
+    private volatile boolean running = true;
+    
+    // Writer thread state
+    private final StringBuilder line = new StringBuilder(256);
+    private BufferedWriter writer;
+    private LocalDate currentDate;
+    private long currentFileSize;
+    
+    public DetectionLog(AntiSpoofPlugin plugin) {
+        this.plugin = plugin;
+        this.config = plugin.getConfigManager();
+        this.logDirectory = new File(plugin.getDataFolder(), "logs");
+        
+        // Round the buffer size up to a power of two for cheap index masking
+        int capacity = Integer.highestOneBit(Math.max(64, config.getDetectionLogBufferSize() - 1)) << 1;
+        this.slots = new Entry[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Entry();
+        }
+        this.mask = capacity - 1;
+        this.published = new AtomicLongArray(capacity);
+        
+        this.writerThread = new Thread(this::runWriter, "AntiSpoof-DetectionLog");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+    
+    /**
+     * Logs an alert. The message is printed to the console as-is when the console sink is enabled.
+     * @param player The player
+     * @param category The alert or violation type
+     * @param message The rendered console message
+     */
+    public void alert(Player player, String category, String message) {
+        trace(player, category, message);
+        log(Type.ALERT, player.getName(), category, message, null);
+    }
+    
+    /**
+     * Logs an informational event
+     * @param player The player name (can be null)
+     * @param message The message
+     * @param detail Extra detail appended to the message (can be null)
+     */
+    public void info(String player, String message, Object detail) {
+        log(Type.INFO, player, null, message, detail);
+    }
+    
+    /**
+     * Logs a warning
+     * @param player The player name (can be null)
+     * @param message The message
+     * @param detail Extra detail appended to the message (can be null)
+     */
+    public void warning(String player, String message, Object detail) {
+        log(Type.WARNING, player, null, message, detail);
+    }
+    
+    /**
+     * Logs a debug event for a player. The event is recorded into the player's trace
+     * when they are being traced, and logged when debug mode is enabled. Strings are
+     * never built on the calling thread - the detail is only formatted when written.
+     * @param player The player
+     * @param message The message
+     * @param detail Extra detail appended to the message (can be null)
+     */
+    public void debug(Player player, String message, Object detail) {
+        trace(player, message, detail);
+        if (!config.isDebugMode()) {
+            return;
+        }
+        log(Type.DEBUG, player.getName(), null, message, detail);
+    }
+    
+    /**
+     * Logs a debug event that isn't tied to a player. Does nothing unless debug mode is enabled.
+     * @param message The message
+     * @param detail Extra detail appended to the message (can be null)
+     */
+    public void debug(String message, Object detail) {
+        if (!config.isDebugMode()) {
+            return;
+        }
+        log(Type.DEBUG, null, null, message, detail);
+    }
+    
+    /**
+     * Checks whether debug events for a player would be recorded anywhere.
+     * Use this to guard debug calls whose message has to be built first.
+     * @param player The player
+     * @return true if debug mode is on or the player is being traced
+     */
+    public boolean isDebugEnabled(Player player) {
+        return config.isDebugMode() || plugin.getTraceManager().getTrace(player.getUniqueId()) != null;
+    }
+    
+    /**
+     * Records an event into the player's trace if they are being traced
+     */
+    private void trace(Player player, String message, Object detail) {
+        if (!plugin.getTraceManager().hasActiveTraces()) {
+            return;
+        }
+        PlayerTrace trace = plugin.getTraceManager().getTrace(player.getUniqueId());
+        if (trace != null) {
+            trace.record(message, detail);
+        }
+    }
+    
+    /**
+     * Publishes an event into the ring buffer, dropping it if the buffer is full
+     */
+    private void log(Type type, String player, String category, String message, Object detail) {
+        long sequence;
+        do {
+            sequence = head.get();
+            if (sequence - tail >= slots.length) {
+                // Never block game threads - the writer will report dropped events
+                dropped.incrementAndGet();
+                return;
+            }
+        } while (!head.compareAndSet(sequence, sequence + 1));
+        
+        int index = (int) (sequence & mask);
+        Entry entry = slots[index];
+        entry.time = System.currentTimeMillis();
+        entry.type = type;
+        entry.player = player;
+        entry.category = category;
+        entry.message = message;
+        entry.detail = detail;
+        published.set(index, sequence + 1);
+        
+        // Wake the writer early for alerts so they reach the console promptly
+        if (type == Type.ALERT || type == Type.WARNING) {
+            LockSupport.unpark(writerThread);
+        }
+    }
+    
+    /**
+     * Background writer loop
+     */
+    private void runWriter() {
+        while (running) {
+            if (drain() == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        drain();
+        closeWriter();
+    }
+    
+    /**
+     * Consumes every published event
+     * @return The number of consumed events
+     */
+    private int drain() {
+        int count = 0;
+        boolean fileSink = config.isDetectionLogFileEnabled();
+        boolean consoleSink = config.isDetectionLogConsoleEnabled();
+        
+        while (true) {
+            long sequence = tail;
+            int index = (int) (sequence & mask);
+            if (published.get(index) != sequence + 1) {
+                break;
+            }
+            
+            Entry entry = slots[index];
+            if (consoleSink) {
+                writeConsole(entry);
+            }
+            if (fileSink) {
+                writeFile(entry);
+            }
+            
+            // Release references so the slot doesn't keep objects alive
+            entry.player = null;
+            entry.category = null;
+            entry.message = null;
+            entry.detail = null;
+            tail = sequence + 1;
+            count++;
+        }
+        
+        long lost = dropped.getAndSet(0);
+        if (lost > 0) {
+            plugin.getLogger().warning("Detection log buffer full, dropped " + lost + " events");
+        }
+        
+        if (count > 0 && writer != null) {
+            try {
+                writer.flush();
+            } catch (IOException e) {
+                plugin.getLogger().warning("Failed to flush detection log: " + e.getMessage());
+                closeWriter();
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Prints an event to the server console
+     */
+    private void writeConsole(Entry entry) {
+        switch (entry.type) {
+            case ALERT:
+                plugin.getLogger().info(entry.message);
+                break;
+            case WARNING:
+                plugin.getLogger().warning(formatMessage(entry));
+                break;
+            case DEBUG:
+                plugin.getLogger().log(Level.INFO, "[Debug] " + formatMessage(entry));
+                break;
+            default:
+                plugin.getLogger().info(formatMessage(entry));
+        }
+    }
+    
+    /**
+     * Formats an event as a human readable line, e.g. "Channel added for Steve: fabric:registry/sync"
+     */
+    private String formatMessage(Entry entry) {
+        line.setLength(0);
+        line.append(entry.message);
+        if (entry.player != null) {
+            line.append(" for ").append(entry.player);
+        }
+        if (entry.detail != null) {
+            line.append(": ").append(entry.detail);
+        }
+        return line.toString();
+    }
+    
+    /**
+     * Appends an event as a JSON line to the current log file
+     */
+    private void writeFile(Entry entry) {
+        try {
+            LocalDate date = Instant.ofEpochMilli(entry.time).atZone(ZoneId.systemDefault()).toLocalDate();
+            if (writer == null || !date.equals(currentDate) || 
+                currentFileSize >= config.getDetectionLogMaxFileSize()) {
+                rollFile(date);
+            }
+            
+            line.setLength(0);
+            line.append("{\"time\":\"").append(Instant.ofEpochMilli(entry.time)).append('"');
+            line.append(",\"type\":\"").append(entry.type.name().toLowerCase()).append('"');
+            appendField("player", entry.player);
+            appendField("category", entry.category);
+            appendField("message", entry.message);
+            appendField("detail", entry.detail != null ? String.valueOf(entry.detail) : null);
+            line.append("}\n");
+            
+            writer.write(line.toString());
+            currentFileSize += line.length();
+        } catch (IOException e) {
+            plugin.getLogger().warning("Failed to write detection log: " + e.getMessage());
+            closeWriter();
+        }
+    }
+    
+    private void appendField(String name, String value) {
+        if (value == null) return;
+        line.append(",\"").append(name).append("\":\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': line.append("\\\""); break;
+                case '\\': line.append("\\\\"); break;
+                case '\n': line.append("\\n"); break;
+                case '\r': line.append("\\r"); break;
+                case '\t': line.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        line.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        line.append(c);
+                    }
+            }
+        }
+        line.append('"');
+    }
+    
+    /**
+     * Opens the next log file, rolling over by date and size
+     */
+    private void rollFile(LocalDate date) throws IOException {
+        closeWriter();
+        if (!logDirectory.exists() && !logDirectory.mkdirs()) {
+            throw new IOException("Could not create " + logDirectory.getPath());
+        }
+        
+        // Find the first file for this date that still has room
+        File file;
+        int part = 0;
+        do {
+            String name = "detections-" + date + (part > 0 ? "-" + part : "") + ".jsonl";
+            file = new File(logDirectory, name);
+            part++;
+        } while (file.exists() && file.length() >= config.getDetectionLogMaxFileSize());
+        
+        writer = new BufferedWriter(new OutputStreamWriter(
+            new FileOutputStream(file, true), StandardCharsets.UTF_8));
+        currentDate = date;
+        currentFileSize = file.length();
+        
+        deleteOldFiles();
+    }
+    
+    /**
+     * Deletes the oldest log files beyond the configured maximum
+     */
+    private void deleteOldFiles() {
+        int maxFiles = config.getDetectionLogMaxFiles();
+        File[] files = logDirectory.listFiles((dir, name) -> name.startsWith("detections-") && name.endsWith(".jsonl"));
+        if (maxFiles <= 0 || files == null || files.length <= maxFiles) {
+            return;
+        }
+        
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (int i = 0; i < files.length - maxFiles; i++) {
+            if (!files[i].delete()) {
+                plugin.getLogger().warning("Could not delete old detection log " + files[i].getName());
+            }
+        }
+    }
+    
+    private void closeWriter() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException ignored) {
+                // Nothing left to do with a broken writer
+            }
+            writer = null;
+        }
+    }
+    
+    /**
+     * Stops the writer thread after flushing every pending event
+     */
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,47 +1,30 @@
 package com.gigazelensky.antispoof.utils;
 
 import com.gigazelensky.antispoof.AntiSpoofPlugin;
+import com.gigazelensky.antispoof.data.AlertType;
 import com.gigazelensky.antispoof.data.PlayerData;
+import com.gigazelensky.antispoof.data.Violation;
 import com.gigazelensky.antispoof.managers.ConfigManager;
-import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 
-import java.awt.Color;
-import java.io.IOException;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
+import java.io.File;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 public class DiscordWebhookHandler {
     private final AntiSpoofPlugin plugin;
     private final ConfigManager config;
     
-    // Map to track the channels a player has at the time of their last alert
-    private final Map<UUID, Set<String>> lastAlertChannels = new ConcurrentHashMap<>();
-    
-    // Map to track players who have already been alerted for spoofing in the current session
-    private final Map<UUID, Boolean> alertedPlayers = new ConcurrentHashMap<>();
-    
-    // Map to track when players registered their initial channels (join time)
-    private final Map<UUID, Long> playerRegistrationTimes = new ConcurrentHashMap<>();
-    
-    // Map to track all pending violations for a player
-    private final Map<UUID, List<String>> pendingViolations = new ConcurrentHashMap<>();
-    
-    // Map to track player brands for alerts
-    private final Map<UUID, String> playerBrands = new ConcurrentHashMap<>();
-    
-    // Map to track blocked channels for alerts
-    private final Map<UUID, String> blockedChannels = new ConcurrentHashMap<>();
+    // Alert state of each player's current session
+    private final Map<UUID, AlertSession> sessions = new ConcurrentHashMap<>();
     
     // Grace period before channels are considered "modified" after join (in milliseconds)
     private static final long CHANNEL_GRACE_PERIOD = 5000; // 5 seconds
@@ -49,15 +32,120 @@ public class DiscordWebhookHandler {
     // Cooldown between channel modification alerts to prevent spam (in milliseconds)
     private static final long CHANNEL_MOD_COOLDOWN = 3000; // 3 seconds
     
-    // Map to track last time a modification alert was sent for a player
-    private final Map<UUID, Long> lastModificationAlertTimes = new ConcurrentHashMap<>();
+    // Shared client so deliveries reuse connections instead of a new TLS handshake per alert
+    private final WebhookClient webhookClient = new WebhookClient();
+    
+    // Webhook sinks by name, each with its own rate-limit aware delivery queue
+    private final Map<String, WebhookSink> sinks = new ConcurrentHashMap<>();
     
-    // Map to track pending modified channels during cooldown
-    private final Map<UUID, Set<String>> pendingModifiedChannels = new ConcurrentHashMap<>();
+    // Keeps queued embeds on disk until delivered (null when disabled)
+    private final WebhookSpool spool;
+    
+    // Static embed parts, rebuilt when the config generation changes
+    private volatile EmbedTemplate embedTemplate;
     
     public DiscordWebhookHandler(AntiSpoofPlugin plugin) {
         this.plugin = plugin;
         this.config = plugin.getConfigManager();
+        this.spool = config.isDiscordSpoolEnabled() ? 
+            new WebhookSpool(new File(plugin.getDataFolder(), "webhook-spool.log"), plugin.getLogger()) : null;
+        reloadDeliverySettings();
+        
+        // Resend alerts that were still queued when the server stopped
+        if (spool != null) {
+            replaySpool(spool.getUndelivered());
+        }
+    }
+    
+    /**
+     * Applies the webhook sink settings from the config, creating sinks that were
+     * added and stopping sinks that were removed
+     */
+    public void reloadDeliverySettings() {
+        Map<String, ConfigManager.WebhookSinkConfig> configured = config.getWebhookSinks();
+        
+        for (ConfigManager.WebhookSinkConfig settings : configured.values()) {
+            String url = settings.getUrl();
+            if (!isValidWebhookUrl(url)) {
+                if (!url.isEmpty()) {
+                    plugin.getLogger().warning("[Discord] Invalid webhook URL for sink " + settings.getName() + 
+                        ". Must start with https://discord.com/api/webhooks/ or https://discordapp.com/api/webhooks/");
+                }
+                continue;
+            }
+            
+            WebhookSink sink = sinks.computeIfAbsent(settings.getName(), name -> 
+                new WebhookSink(name, webhookClient, plugin.getLogger(), this::createCollapsedSummaryJson, spool));
+            sink.configure(settings, config.isDebugMode());
+        }
+        
+        // Stop sinks that were removed or no longer have a valid URL
+        sinks.entrySet().removeIf(entry -> {
+            ConfigManager.WebhookSinkConfig settings = configured.get(entry.getKey());
+            if (settings != null && isValidWebhookUrl(settings.getUrl())) {
+                return false;
+            }
+            entry.getValue().shutdown();
+            return true;
+        });
+    }
+    
+    private boolean isValidWebhookUrl(String url) {
+        return url.startsWith("https://discord.com/api/webhooks/") || 
+               url.startsWith("https://discordapp.com/api/webhooks/");
+    }
+    
+    /**
+     * Hands spooled embeds back to the sink that owns their URL. Embeds whose URL
+     * is no longer configured are spooled again for the default sink's URL.
+     */
+    private void replaySpool(List<WebhookSpool.Entry> entries) {
+        Map<WebhookSink, List<WebhookSpool.Entry>> bySink = new HashMap<>();
+        WebhookSink fallback = sinks.get(ConfigManager.DEFAULT_WEBHOOK_SINK);
+        int retargeted = 0;
+        
+        for (WebhookSpool.Entry entry : entries) {
+            WebhookSink target = null;
+            for (WebhookSink sink : sinks.values()) {
+                if (sink.getUrl().equals(entry.getUrl())) {
+                    target = sink;
+                    break;
+                }
+            }
+            
+            if (target != null) {
+                bySink.computeIfAbsent(target, k -> new ArrayList<>()).add(entry);
+            } else if (fallback != null) {
+                bySink.computeIfAbsent(fallback, k -> new ArrayList<>()).add(spool.retarget(entry, fallback.getUrl()));
+                retargeted++;
+            }
+        }
+        bySink.forEach(WebhookSink::replay);
+        
+        if (retargeted > 0) {
+            plugin.getLogger().info("[Discord] Resending " + retargeted + 
+                " webhook alerts for removed webhook URLs to the default sink");
+        }
+    }
+    
+    /**
+     * @return The active webhook sinks by name
+     */
+    public Map<String, WebhookSink> getSinks() {
+        return sinks;
+    }
+    
+    /**
+     * Stops the delivery queues and webhook client, called when the plugin is disabled
+     */
+    public void shutdown() {
+        for (WebhookSink sink : sinks.values()) {
+            sink.shutdown();
+        }
+        if (spool != null) {
+            spool.shutdown();
+        }
+        webhookClient.shutdown();
     }
     
     /**
@@ -65,13 +153,16 @@ public class DiscordWebhookHandler {
      * @param playerUuid The UUID of the player
      */
     public void registerPlayerJoin(UUID playerUuid) {
-        playerRegistrationTimes.put(playerUuid, System.currentTimeMillis());
-        pendingModifiedChannels.put(playerUuid, new HashSet<>());
-        pendingViolations.put(playerUuid, new ArrayList<>());
+        sessions.put(playerUuid, new AlertSession(System.currentTimeMillis()));
         
-        if (config.isDebugMode()) {
-            plugin.getLogger().info("[Discord] Registered join time for player with UUID: " + playerUuid);
-        }
+        plugin.getDetectionLog().debug("Discord session registered", playerUuid);
+    }
+    
+    /**
+     * @return The player's alert session, created if the join was not registered
+     */
+    private AlertSession getSession(UUID playerUuid) {
+        return sessions.computeIfAbsent(playerUuid, k -> new AlertSession(0L));
     }
     
     /**
@@ -80,15 +171,15 @@ public class DiscordWebhookHandler {
      * @param reason The reason for the alert
      * @param brand The client brand
      * @param channel The channel that triggered the alert (can be null)
-     * @param violations List of all violations (for multiple flags)
+     * @param violations List of all violations (for multiple flags), can be null
      */
-    public void sendAlert(Player player, String reason, String brand, String channel, List<String> violations) {
+    public void sendAlert(Player player, String reason, String brand, String channel, List<Violation> violations) {
         if (!config.isDiscordWebhookEnabled()) {
             return;
         }
         
-        String webhookUrl = config.getDiscordWebhookUrl();
-        if (webhookUrl == null || webhookUrl.isEmpty()) {
+        // No valid webhook configured
+        if (sinks.isEmpty()) {
             return;
         }
 
@@ -100,265 +191,195 @@ public class DiscordWebhookHandler {
             return;
         }
         
-        // Store brand for this player
-        if (brand != null) {
-            playerBrands.put(playerUuid, brand);
-        }
-        
-        // Get the current set of channels
-        Set<String> currentChannels = new HashSet<>(data.getChannels());
+        AlertSession session = getSession(playerUuid);
         
         // Check if this is a modified channel alert by looking for the text pattern
-        boolean isModifiedChannelAlert = reason.contains("modified channel");
+        boolean isModifiedChannelAlert = reason.regionMatches(true, 0, "Modified channel", 0, 16);
         
         // If it's a violation alert (not a modified channel alert)
         if (!isModifiedChannelAlert) {
-            // Store any blocked channel for future reference
-            if (reason.contains("Using blocked channel:") && channel != null) {
-                blockedChannels.put(playerUuid, channel);
-            }
-            
-            // Add this violation to the pending list
-            List<String> pendingList = pendingViolations.computeIfAbsent(playerUuid, k -> new ArrayList<>());
-            if (!pendingList.contains(reason)) {
-                pendingList.add(reason);
-            }
-            
-            // Skip if player has already been alerted for spoofing in this session
-            if (alertedPlayers.getOrDefault(playerUuid, false)) {
-                if (config.isDebugMode()) {
-                    plugin.getLogger().info("[Discord] Player " + player.getName() + " already alerted for spoofing in this session, collecting additional violations");
+            synchronized (session) {
+                // Store brand for this player
+                if (brand != null) {
+                    session.brand = brand;
                 }
                 
-                // Even though we're not sending a new alert, we should still check for modified channels
-                // if the feature is enabled and we already have channel data
-                if (config.isModifiedChannelsEnabled() && lastAlertChannels.containsKey(playerUuid)) {
-                    checkForModifiedChannels(player, currentChannels);
+                // Store any blocked channel for future reference
+                if (reason.contains("Using blocked channel:") && channel != null) {
+                    session.blockedChannel = channel;
                 }
                 
-                return;
+                // Add the violations to the pending list
+                if (violations != null && !violations.isEmpty()) {
+                    for (Violation violation : violations) {
+                        session.addViolation(violation);
+                    }
+                } else {
+                    session.addViolation(new Violation("OTHER", reason));
+                }
+                
+                // Skip if player has already been alerted for spoofing in this session
+                if (session.alerted) {
+                    plugin.getDetectionLog().debug(player, "Discord alert already sent this session, collecting violation", reason);
+                    
+                    // Even though we're not sending a new alert, we should still check for modified channels
+                    // if the feature is enabled and we already have channel data
+                    if (config.isModifiedChannelsEnabled()) {
+                        checkForModifiedChannels(player, data, session);
+                    }
+                    
+                    return;
+                }
+                
+                // Mark player as alerted for this session and remember the channels seen so far
+                session.alerted = true;
+                session.advanceChannelCursor(data);
             }
             
-            // Mark player as alerted for this session
-            alertedPlayers.put(playerUuid, true);
-            
-            // Store the current channels for future comparison
-            lastAlertChannels.put(playerUuid, new HashSet<>(currentChannels));
-            
             // Get the configured delay before sending discord alerts (in seconds)
             int delaySeconds = config.getCheckDelay();
             
-            // If there's a delay configured, schedule the webhook after the delay
+            // If there's a delay configured, the sink's queue holds the webhook until it has passed
             if (delaySeconds > 0) {
-                if (config.isDebugMode()) {
-                    plugin.getLogger().info("[Discord] Scheduling alert for player: " + player.getName() + 
-                                           " after " + delaySeconds + " seconds");
+                long notBefore = System.currentTimeMillis() + delaySeconds * 1000L;
+                
+                List<Violation> allViolations;
+                String playerBrand;
+                String blockedChannel;
+                synchronized (session) {
+                    // Get all collected violations
+                    allViolations = new ArrayList<>(session.pendingViolations);
+                    playerBrand = session.brand != null ? session.brand : brand;
+                    blockedChannel = session.blockedChannel;
+                    
+                    // The channel grace period starts once the alert goes out
+                    session.registrationTime = notBefore;
                 }
                 
-                // Schedule the webhook after the configured delay
-                Bukkit.getScheduler().runTaskLaterAsynchronously(plugin, () -> {
-                    // Re-fetch the player data to get the most up-to-date channels
-                    PlayerData updatedData = plugin.getPlayerDataMap().get(playerUuid);
-                    if (updatedData != null && player.isOnline()) {
-                        Set<String> updatedChannels = updatedData.getChannels();
-                        lastAlertChannels.put(playerUuid, new HashSet<>(updatedChannels));
-                        
-                        // Get all collected violations
-                        List<String> allViolations = pendingViolations.getOrDefault(playerUuid, new ArrayList<>());
-                        String playerBrand = playerBrands.getOrDefault(playerUuid, brand);
-                        String blockedChannel = blockedChannels.get(playerUuid);
-                        
-                        if (config.isDebugMode()) {
-                            plugin.getLogger().info("[Discord] Sending delayed spoofing alert for player: " + 
-                                                   player.getName() + " with " + updatedChannels.size() + 
-                                                   " channels and " + allViolations.size() + " violations");
-                        }
-                        
-                        // Mark the player's initial registration time
-                        playerRegistrationTimes.put(playerUuid, System.currentTimeMillis());
-                        
-                        // Send the full webhook with updated channel information and all violations
-                        sendFullWebhook(player, reason, playerBrand, blockedChannel, allViolations);
-                    }
-                }, delaySeconds * 20L); // Convert seconds to ticks (20 ticks = 1 second)
+                plugin.getDetectionLog().debug(player, "Holding Discord alert, delay in seconds", delaySeconds);
+                
+                // The embed built now is only spooled so a restart within the delay doesn't lose it,
+                // the queue rebuilds it from the session once the delay has passed
+                DelayedAlert delayed = new DelayedAlert(player, reason, brand, session);
+                sendFullWebhook(player, reason, playerBrand, blockedChannel, allViolations, notBefore, delayed::resolve);
             } else {
                 // No delay, send immediate webhook
-                if (config.isDebugMode()) {
-                    plugin.getLogger().info("[Discord] Sending immediate spoofing alert for player: " + 
-                                           player.getName());
-                }
+                plugin.getDetectionLog().debug(player, "Sending immediate Discord alert", null);
                 
-                // Mark the player's initial registration time
-                playerRegistrationTimes.put(playerUuid, System.currentTimeMillis());
-                
-                // Get all collected violations
-                List<String> allViolations = pendingViolations.getOrDefault(playerUuid, new ArrayList<>());
+                List<Violation> allViolations;
+                synchronized (session) {
+                    // Mark the player's initial registration time
+                    session.registrationTime = System.currentTimeMillis();
+                    
+                    // Get all collected violations
+                    allViolations = new ArrayList<>(session.pendingViolations);
+                }
                 
                 // Send the full webhook with all violations
-                sendFullWebhook(player, reason, brand, channel, allViolations.isEmpty() ? violations : allViolations);
+                sendFullWebhook(player, reason, brand, channel, allViolations, 0L, null);
             }
         }
         // It's a modified channel alert
         else {
             // Only process if modified channel discord alerts are enabled
             if (config.isModifiedChannelsEnabled() && config.isModifiedChannelsDiscordEnabled()) {
-                // Check if we're still in the grace period after initial channel registration
-                boolean isInGracePeriod = isInChannelGracePeriod(playerUuid);
+                Set<String> toSend = null;
                 
-                if (isInGracePeriod) {
-                    if (config.isDebugMode()) {
-                        plugin.getLogger().info("[Discord] Skipping modified channel alert during grace period for: " + 
-                                               player.getName() + ", channel: " + channel);
+                synchronized (session) {
+                    // Check if we're still in the grace period after initial channel registration
+                    if (session.isInChannelGracePeriod()) {
+                        plugin.getDetectionLog().debug(player, "Skipping modified channel Discord alert during grace period", channel);
+                        
+                        // Just move the channel cursor silently during grace period
+                        session.advanceChannelCursor(data);
+                        return;
                     }
                     
-                    // Just update the last alert channels silently during grace period
-                    lastAlertChannels.put(playerUuid, new HashSet<>(currentChannels));
-                    return;
-                }
-                
-                // Check if we're in cooldown and should batch alerts
-                long now = System.currentTimeMillis();
-                Long lastModTime = lastModificationAlertTimes.get(playerUuid);
-                
-                if (lastModTime != null && now - lastModTime < CHANNEL_MOD_COOLDOWN) {
-                    // We're in cooldown - add this channel to pending set
-                    Set<String> pending = pendingModifiedChannels.computeIfAbsent(playerUuid, k -> new HashSet<>());
-                    pending.add(channel);
+                    // Check if we're in cooldown and should batch alerts
+                    long now = System.currentTimeMillis();
+                    session.pendingModifiedChannels.add(channel);
                     
-                    if (config.isDebugMode()) {
-                        plugin.getLogger().info("[Discord] Added channel to pending for: " + player.getName() + 
-                                              ", channel: " + channel + ", total pending: " + pending.size());
+                    if (now - session.lastModificationAlertTime < CHANNEL_MOD_COOLDOWN) {
+                        // We're in cooldown - the channel stays in the pending set
+                        plugin.getDetectionLog().debug(player, "Modified channel pending for Discord", channel);
+                    } else {
+                        // Send all channels in the pending set and clear it
+                        toSend = new LinkedHashSet<>(session.pendingModifiedChannels);
+                        session.pendingModifiedChannels.clear();
+                        session.lastModificationAlertTime = now;
                     }
-                } else {
-                    // Get any pending channels and add this one
-                    Set<String> pending = pendingModifiedChannels.getOrDefault(playerUuid, new HashSet<>());
-                    pending.add(channel);
                     
-                    // Send alert with all channels in the pending set
-                    if (config.isDebugMode()) {
-                        plugin.getLogger().info("[Discord] Sending modified channel alert for: " + player.getName() + 
-                                              ", channels: " + pending.size());
-                    }
+                    // This channel has been handled, move past it
+                    session.advanceChannelCursor(data);
+                }
+                
+                if (toSend != null) {
+                    plugin.getDetectionLog().debug(player, "Sending modified channel Discord alert, channels", toSend.size());
                     
                     // Send a compact update webhook with all modified channels
-                    sendModifiedChannelWebhook(player, pending);
-                    
-                    // Clear pending and update last alert time
-                    pending.clear();
-                    lastModificationAlertTimes.put(playerUuid, now);
+                    sendModifiedChannelWebhook(player, toSend);
                 }
-                
-                // Update last alert channels
-                lastAlertChannels.put(playerUuid, new HashSet<>(currentChannels));
             }
         }
     }
     
-    /**
-     * Checks if a player is still in the channel registration grace period
-     * @param playerUuid The player's UUID
-     * @return True if still in the grace period, false otherwise
-     */
-    private boolean isInChannelGracePeriod(UUID playerUuid) {
-        Long registrationTime = playerRegistrationTimes.get(playerUuid);
-        if (registrationTime == null) return false;
-        
-        long now = System.currentTimeMillis();
-        long timeSinceRegistration = now - registrationTime;
-        
-        return timeSinceRegistration < CHANNEL_GRACE_PERIOD;
-    }
-    
     /**
      * Handle player logout - reset their alert status to enable new alerts when they log back in
      * @param uuid The player's UUID
      */
     public void handlePlayerQuit(UUID uuid) {
-        // Remove from all trackers to ensure they get alerts on next login
-        alertedPlayers.remove(uuid);
-        lastAlertChannels.remove(uuid);
-        playerRegistrationTimes.remove(uuid);
-        lastModificationAlertTimes.remove(uuid);
-        pendingModifiedChannels.remove(uuid);
-        pendingViolations.remove(uuid);
-        playerBrands.remove(uuid);
-        blockedChannels.remove(uuid);
-        
-        if (config.isDebugMode()) {
-            plugin.getLogger().info("[Discord] Reset alert status for player with UUID: " + uuid);
-        }
+        // Drop the whole session to ensure they get alerts on next login
+        sessions.remove(uuid);
+        
+        plugin.getDetectionLog().debug("Discord session reset", uuid);
     }
     
     /**
-     * Checks for modified channels and sends alerts if needed
+     * Checks for channels added since the last alert and sends alerts if needed.
+     * Must be called while holding the session lock.
      */
-    private void checkForModifiedChannels(Player player, Set<String> currentChannels) {
-        UUID playerUuid = player.getUniqueId();
-        Set<String> previousChannels = lastAlertChannels.get(playerUuid);
-        
+    private void checkForModifiedChannels(Player player, PlayerData data, AlertSession session) {
         // Skip if in grace period
-        if (isInChannelGracePeriod(playerUuid)) {
-            if (config.isDebugMode()) {
-                plugin.getLogger().info("[Discord] Skipping modified channel check during grace period for: " + player.getName());
-            }
-            lastAlertChannels.put(playerUuid, new HashSet<>(currentChannels));
+        if (session.isInChannelGracePeriod()) {
+            plugin.getDetectionLog().debug(player, "Skipping modified channel Discord check during grace period", null);
+            session.advanceChannelCursor(data);
             return;
         }
         
-        // Find channels that are in current but not in previous
-        Set<String> newChannels = new HashSet<>(currentChannels);
-        if (previousChannels != null) {
-            newChannels.removeAll(previousChannels);
-        }
+        // Read the channels registered since the cursor instead of diffing full sets
+        Set<String> newChannels = session.advanceChannelCursor(data);
         
-        // If there are no new channels, just update tracking and return
+        // If there are no new channels there is nothing to report
         if (newChannels.isEmpty()) {
-            if (config.isDebugMode()) {
-                plugin.getLogger().info("[Discord] No new channels to report for: " + player.getName());
-            }
-            lastAlertChannels.put(playerUuid, new HashSet<>(currentChannels));
+            plugin.getDetectionLog().debug(player, "No new channels to report to Discord", null);
             return;
         }
         
-        // If there are new channels, queue them for alerts
-        if (config.isModifiedChannelsEnabled()) {
-            // Check if we're in cooldown
-            long now = System.currentTimeMillis();
-            Long lastModTime = lastModificationAlertTimes.get(playerUuid);
-            
-            // Get or create pending set
-            Set<String> pending = pendingModifiedChannels.computeIfAbsent(playerUuid, k -> new HashSet<>());
-            pending.addAll(newChannels);
-            
-            if (lastModTime == null || now - lastModTime >= CHANNEL_MOD_COOLDOWN) {
-                // Not in cooldown, send alert now
-                if (!pending.isEmpty() && config.isModifiedChannelsDiscordEnabled()) {
-                    sendModifiedChannelWebhook(player, pending);
-                    lastModificationAlertTimes.put(playerUuid, now);
-                    pending.clear();
-                }
-            } else {
-                // In cooldown, channels stay in pending
-                if (config.isDebugMode()) {
-                    plugin.getLogger().info("[Discord] Added " + newChannels.size() + " channels to pending for: " + 
-                                           player.getName() + ", total pending: " + pending.size());
-                }
+        // Check if we're in cooldown
+        long now = System.currentTimeMillis();
+        session.pendingModifiedChannels.addAll(newChannels);
+        
+        if (now - session.lastModificationAlertTime >= CHANNEL_MOD_COOLDOWN) {
+            // Not in cooldown, send alert now
+            if (config.isModifiedChannelsDiscordEnabled()) {
+                sendModifiedChannelWebhook(player, new LinkedHashSet<>(session.pendingModifiedChannels));
+                session.lastModificationAlertTime = now;
+                session.pendingModifiedChannels.clear();
             }
+        } else {
+            // In cooldown, channels stay in pending
+            plugin.getDetectionLog().debug(player, "Modified channels pending for Discord", newChannels);
         }
-        
-        // Update last alert channels
-        lastAlertChannels.put(playerUuid, new HashSet<>(currentChannels));
     }
     
     /**
      * Sends a full webhook with all player information
+     * @param notBefore The earliest delivery time in epoch milliseconds, 0 to send right away
+     * @param refresher Rebuilds a held embed when it is due (can be null)
      */
-    private void sendFullWebhook(Player player, String reason, String brand, String channel, List<String> violations) {
-        // Get the appropriate console alert message
-        String consoleAlert = determineConsoleAlert(player, reason, brand, channel, violations);
-        
-        // Send the full webhook
-        sendWebhookDirectly(player, reason, brand, channel, violations, consoleAlert, false, null);
+    private void sendFullWebhook(Player player, String reason, String brand, String channel, 
+                                 List<Violation> violations, long notBefore, Supplier<String> refresher) {
+        sendWebhookDirectly(player, reason, brand, channel, violations, false, null, notBefore, refresher);
     }
     
     /**
@@ -367,405 +388,344 @@ public class DiscordWebhookHandler {
     private void sendModifiedChannelWebhook(Player player, Set<String> modifiedChannels) {
         // Skip if there are no modified channels to report
         if (modifiedChannels == null || modifiedChannels.isEmpty()) {
-            if (config.isDebugMode()) {
-                plugin.getLogger().info("[Discord] Skipped sending empty modified channel webhook for: " + player.getName());
-            }
+            plugin.getDetectionLog().debug(player, "Skipped empty modified channel webhook", null);
             return;
         }
         
         String reason = "Modified channel" + (modifiedChannels.size() > 1 ? "s" : "");
         
         // Send a compact webhook with non-empty channel data
-        sendWebhookDirectly(player, reason, null, null, null, null, true, modifiedChannels);
+        sendWebhookDirectly(player, reason, null, null, null, true, modifiedChannels, 0L, null);
     }
     
     /**
-     * Determines the appropriate console alert message based on the violation type
+     * Directly sends a webhook to every sink the alert is routed to
      */
-    private String determineConsoleAlert(Player player, String reason, String brand, String channel, List<String> violations) {
-        // For multiple violations, use the multiple flags console message
-        if (violations != null && violations.size() > 1) {
-            String reasonsList = String.join(", ", violations);
-            return config.getConsoleMultipleFlagsMessage()
-                    .replace("%player%", player.getName())
-                    .replace("%brand%", brand != null ? brand : "unknown")
-                    .replace("%reasons%", reasonsList);
-        }
-        
-        // For specific violation types, determine the appropriate message
-        if (reason.contains("Vanilla client with plugin channels")) {
-            return config.getVanillaCheckConsoleAlertMessage()
-                    .replace("%player%", player.getName())
-                    .replace("%brand%", brand != null ? brand : "unknown")
-                    .replace("%reason%", reason);
-        } 
-        else if (reason.contains("Non-vanilla client with channels")) {
-            return config.getNonVanillaCheckConsoleAlertMessage()
-                    .replace("%player%", player.getName())
-                    .replace("%brand%", brand != null ? brand : "unknown")
-                    .replace("%reason%", reason);
-        }
-        else if (reason.contains("Blocked channel:") || reason.contains("Client channels don't match whitelist")) {
-            String alert = config.getBlockedChannelsConsoleAlertMessage()
-                    .replace("%player%", player.getName())
-                    .replace("%brand%", brand != null ? brand : "unknown")
-                    .replace("%reason%", reason);
-            
-            if (channel != null) {
-                alert = alert.replace("%channel%", channel);
-            }
-            return alert;
-        }
-        else if (reason.contains("Blocked client brand:") || reason.contains("Client brand not in whitelist:")) {
-            // Use client-brands if enabled
-            String message = "%player% using client brand: %brand%";
-            if (config.isClientBrandsEnabled()) {
-                // Try to get a branded message first
-                String brandKey = config.getMatchingClientBrand(brand);
-                if (brandKey != null) {
-                    ConfigManager.ClientBrandConfig brandConfig = config.getClientBrandConfig(brandKey);
-                    message = brandConfig.getConsoleAlertMessage();
-                } else {
-                    // Fall back to default brand config
-                    message = config.getBlockedBrandsConsoleAlertMessage();
-                }
-            } else {
-                message = config.getBlockedBrandsConsoleAlertMessage();
-            }
-            return message.replace("%player%", player.getName())
-                          .replace("%brand%", brand != null ? brand : "unknown");
-        }
-        else if (reason.contains("Spoofing Geyser client")) {
-            return config.getGeyserSpoofConsoleAlertMessage()
-                    .replace("%player%", player.getName())
-                    .replace("%brand%", brand != null ? brand : "unknown")
-                    .replace("%reason%", reason);
-        }
-        else if (reason.contains("joined using client brand:")) {
-            // For client brand join alerts, use client-brands if available
-            String message = "%player% using client brand: %brand%";
-            if (config.isClientBrandsEnabled()) {
-                // Try to get a branded message first
-                String brandKey = config.getMatchingClientBrand(brand);
-                if (brandKey != null) {
-                    ConfigManager.ClientBrandConfig brandConfig = config.getClientBrandConfig(brandKey);
-                    message = brandConfig.getConsoleAlertMessage();
-                } else {
-                    // Fall back to default brand config
-                    message = config.getBlockedBrandsConsoleAlertMessage();
-                }
+    private void sendWebhookDirectly(Player player, String reason, String brand, String channel, 
+                                    List<Violation> violations, boolean isCompactUpdate, 
+                                    Set<String> modifiedChannels, long notBefore, Supplier<String> refresher) {
+        Set<WebhookSink> targets = resolveSinks(getRouteKeys(brand, violations, isCompactUpdate));
+        if (targets.isEmpty()) {
+            plugin.getDetectionLog().debug(player, "No webhook sink for alert", reason);
+            return;
+        }
+        
+        plugin.getDetectionLog().debug(player, "Sending webhook, sinks", targets.size());
+        
+        // Create the embed based on the webhook type
+        String json;
+        if (isCompactUpdate) {
+            json = createModifiedChannelJson(player, reason, modifiedChannels);
+        } else {
+            json = createFullWebhookJson(player, reason, brand, violations);
+        }
+        
+        // Queue for delivery, batching, rate limits and retries are handled by each sink's queue
+        for (WebhookSink sink : targets) {
+            if (refresher != null) {
+                sink.submit(json, notBefore, refresher);
             } else {
-                message = config.getBlockedBrandsConsoleAlertMessage();
+                sink.submit(json, notBefore);
             }
-            return message.replace("%player%", player.getName())
-                          .replace("%brand%", brand != null ? brand : "unknown");
         }
-        else if (reason.contains("Modified channel:")) {
-            return config.getModifiedChannelsConsoleAlertMessage()
-                    .replace("%player%", player.getName())
-                    .replace("%channel%", channel != null ? channel : "unknown");
+    }
+    
+    /**
+     * Sends one alert for a whole bot wave, routed by BOT_WAVE
+     * @param brand The client brand of the wave
+     * @param channelCount The number of channels each client registered
+     * @param players The number of players in the wave
+     * @param addresses The number of distinct addresses they joined from
+     * @param names The players' names
+     */
+    public void sendWaveAlert(String brand, int channelCount, int players, int addresses, String names) {
+        if (!config.isDiscordWebhookEnabled() || sinks.isEmpty()) {
+            return;
         }
-        else if (reason.contains("No client brand detected")) {
-            return config.getNoBrandConsoleAlertMessage()
-                    .replace("%player%", player.getName())
-                    .replace("%reason%", reason);
+        
+        Set<WebhookSink> targets = resolveSinks(Collections.singletonList(AlertType.BOT_WAVE.name()));
+        if (targets.isEmpty()) {
+            return;
         }
         
-        // Default to the general console alert if no specific type is found
-        String alert = config.getConsoleAlertMessage()
-                .replace("%player%", player.getName())
-                .replace("%brand%", brand != null ? brand : "unknown")
-                .replace("%reason%", reason);
+        plugin.getDetectionLog().debug("Sending bot wave webhook, players", players);
         
-        if (channel != null) {
-            alert = alert.replace("%channel%", channel);
+        String json = createWaveJson(brand, channelCount, players, addresses, names);
+        for (WebhookSink sink : targets) {
+            sink.submit(json);
         }
-        return alert;
     }
     
     /**
-     * Directly sends a webhook
+     * Gets the keys an alert is routed by: its violation types, the client brand key,
+     * MULTIPLE_VIOLATIONS when there is more than one violation, or MODIFIED_CHANNEL
      */
-    private void sendWebhookDirectly(Player player, String reason, String brand, String channel, 
-                                    List<String> violations, String consoleAlert, 
-                                    boolean isCompactUpdate, Set<String> modifiedChannels) {
-        String webhookUrl = config.getDiscordWebhookUrl();
-        
-        // Validate webhook URL format
-        if (!webhookUrl.startsWith("https://discord.com/api/webhooks/") && 
-            !webhookUrl.startsWith("https://discordapp.com/api/webhooks/")) {
-            plugin.getLogger().warning("[Discord] Invalid webhook URL. Must start with https://discord.com/api/webhooks/ or https://discordapp.com/api/webhooks/");
-            return;
+    private List<String> getRouteKeys(String brand, List<Violation> violations, boolean isCompactUpdate) {
+        List<String> keys = new ArrayList<>();
+        if (isCompactUpdate) {
+            keys.add("MODIFIED_CHANNEL");
+            return keys;
         }
         
-        // Execute webhook request asynchronously
-        CompletableFuture.runAsync(() -> {
-            try {
-                if (config.isDebugMode()) {
-                    plugin.getLogger().info("[Discord] Sending webhook for player: " + player.getName() + 
-                                          (isCompactUpdate ? " (modified channel)" : ""));
-                }
-                
-                URL url = java.net.URI.create(webhookUrl).toURL();
-                HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-                connection.setRequestMethod("POST");
-                connection.setRequestProperty("Content-Type", "application/json");
-                connection.setRequestProperty("User-Agent", "AntiSpoof-Plugin");
-                connection.setDoOutput(true);
-                
-                // Create JSON payload based on the webhook type
-                String json;
-                if (isCompactUpdate) {
-                    json = createModifiedChannelJson(player, reason, modifiedChannels);
-                } else {
-                    json = createFullWebhookJson(player, reason, brand, channel, violations, consoleAlert);
-                }
-                
-                if (config.isDebugMode()) {
-                    plugin.getLogger().info("[Discord] Webhook payload length: " + json.length());
-                }
-                
-                try (OutputStream os = connection.getOutputStream()) {
-                    byte[] input = json.getBytes(StandardCharsets.UTF_8);
-                    os.write(input, 0, input.length);
-                }
-                
-                int responseCode = connection.getResponseCode();
-                if (responseCode == 204) {
-                    if (config.isDebugMode()) {
-                        plugin.getLogger().info("[Discord] Webhook sent successfully!");
-                    }
-                } else {
-                    plugin.getLogger().warning("[Discord] Failed to send webhook, response code: " + responseCode);
-                    
-                    // Read error response
-                    try (java.io.BufferedReader br = new java.io.BufferedReader(
-                            new java.io.InputStreamReader(connection.getErrorStream(), StandardCharsets.UTF_8))) {
-                        StringBuilder responseBody = new StringBuilder();
-                        String responseLine;
-                        while ((responseLine = br.readLine()) != null) {
-                            responseBody.append(responseLine);
-                        }
-                        plugin.getLogger().warning("[Discord] Error response: " + responseBody);
-                    } catch (Exception e) {
-                        plugin.getLogger().warning("[Discord] Could not read error response: " + e.getMessage());
-                    }
-                }
-                
-                connection.disconnect();
-            } catch (IOException e) {
-                plugin.getLogger().warning("[Discord] Error sending webhook: " + e.getMessage());
-                e.printStackTrace();
+        if (violations != null) {
+            for (Violation violation : violations) {
+                keys.add(violation.getType());
             }
-        });
+            if (violations.size() > 1) {
+                keys.add("MULTIPLE_VIOLATIONS");
+            }
+        }
+        
+        String brandKey = brand != null ? config.getMatchingClientBrand(brand) : null;
+        if (brandKey != null) {
+            keys.add(brandKey);
+        }
+        return keys;
     }
     
     /**
-     * Creates a compact JSON payload for modified channels
+     * Resolves route keys to sinks, alerts without any route go to the default sink
      */
-    private String createModifiedChannelJson(Player player, String reason, Set<String> modifiedChannels) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("{\"embeds\":[{");
+    private Set<WebhookSink> resolveSinks(List<String> routeKeys) {
+        Set<WebhookSink> targets = new LinkedHashSet<>();
+        boolean routed = false;
         
-        // Title
-        String title = config.getDiscordEmbedTitle()
-                .replace("%player%", player.getName())
-                .replace("%reason%", reason);
-        sb.append("\"title\":\"").append(escapeJson(title)).append("\",");
+        for (String key : routeKeys) {
+            if (!config.hasWebhookRoute(key)) {
+                continue;
+            }
+            routed = true;
+            for (String name : config.getWebhookRoutes(key)) {
+                WebhookSink sink = sinks.get(name);
+                if (sink != null) {
+                    targets.add(sink);
+                }
+            }
+        }
         
-        // Color (convert hex to decimal)
-        String colorHex = config.getDiscordEmbedColor().replace("#", "");
-        try {
-            Color color = Color.decode("#" + colorHex);
-            int decimal = color.getRGB() & 0xFFFFFF;
-            sb.append("\"color\":").append(decimal).append(",");
-        } catch (NumberFormatException e) {
-            sb.append("\"color\":2831050,"); // Default teal color
+        if (!routed) {
+            WebhookSink sink = sinks.get(ConfigManager.DEFAULT_WEBHOOK_SINK);
+            if (sink != null) {
+                targets.add(sink);
+            }
+        }
+        return targets;
+    }
+    
+    /**
+     * @return The embed template for the current config, rebuilt after a reload
+     */
+    private EmbedTemplate getEmbedTemplate() {
+        int generation = config.getGeneration();
+        EmbedTemplate template = embedTemplate;
+        if (template == null || template.getGeneration() != generation) {
+            template = new EmbedTemplate(generation, config.getDiscordEmbedTitle(), config.getDiscordEmbedColor());
+            embedTemplate = template;
         }
+        return template;
+    }
+    
+    /**
+     * Creates the embed sent in place of alerts collapsed while the queue was full
+     * @param count The number of collapsed alerts
+     */
+    private String createCollapsedSummaryJson(int count) {
+        EmbedTemplate template = getEmbedTemplate();
+        EmbedWriter writer = EmbedWriter.get();
+        writer.raw("{\"title\":\"**AntiSpoof Alert Summary**\",\"color\":").raw(template.getColor())
+              .raw(",\"description\":\"**").raw(count).raw("** alert").raw(count == 1 ? " was" : "s were")
+              .raw(" not sent because the webhook queue was full. Check the console or detection log for details.");
+        template.writeFooter(writer);
+        return writer.finish();
+    }
+    
+    /**
+     * Creates the embed for a bot wave
+     */
+    private String createWaveJson(String brand, int channelCount, int players, int addresses, String names) {
+        EmbedTemplate template = getEmbedTemplate();
+        EmbedWriter writer = EmbedWriter.get();
+        writer.raw("{\"title\":\"**AntiSpoof Bot Wave**\",\"color\":").raw(template.getColor())
+              .raw(",\"description\":\"**").raw(players).raw("** players joined with identical clients from **")
+              .raw(addresses).raw("** address").raw(addresses == 1 ? "" : "es").raw(EmbedTemplate.LINE_BREAK);
+        writer.raw(EmbedTemplate.BRAND_HEADER).escaped(brand).raw('`').raw(EmbedTemplate.LINE_BREAK);
+        writer.raw("**Channels**: ").raw(channelCount).raw(EmbedTemplate.LINE_BREAK);
+        writer.raw("**Players**: ").escaped(names);
+        template.writeFooter(writer);
+        return writer.finish();
+    }
+    
+    /**
+     * Creates a compact embed for modified channels
+     */
+    private String createModifiedChannelJson(Player player, String reason, Set<String> modifiedChannels) {
+        EmbedTemplate template = getEmbedTemplate();
+        EmbedWriter writer = EmbedWriter.get();
+        template.writeHeader(writer, player.getName(), reason);
         
         // Description - Just player name and modified channels
-        sb.append("\"description\":\"");
-        sb.append("**Player**: ").append(escapeJson(player.getName())).append("\\n");
-        
-        // Use specific message for modified channels
-        sb.append("**Modified channel(s)**:\\n");
+        writer.raw(EmbedTemplate.PLAYER_HEADER).escaped(player.getName()).raw(EmbedTemplate.LINE_BREAK);
+        writer.raw(EmbedTemplate.MODIFIED_CHANNELS_HEADER);
         for (String channel : modifiedChannels) {
             // Wrap channel in backticks for Discord
-            sb.append("• `").append(escapeJson(channel)).append("`\\n");
+            writer.raw(EmbedTemplate.BULLET).raw('`').escaped(channel).raw('`').raw(EmbedTemplate.LINE_BREAK);
         }
         
-        // Close the description
-        sb.append("\",");
-        
-        // Timestamp
-        sb.append("\"timestamp\":\"").append(java.time.OffsetDateTime.now()).append("\"");
-        
-        sb.append("}]}");
-        return sb.toString();
+        template.writeFooter(writer);
+        return writer.finish();
     }
     
     /**
-     * Creates the JSON payload for the full Discord webhook
+     * Creates the embed for the full Discord webhook
      */
-    private String createFullWebhookJson(Player player, String reason, String brand, String channel, 
-                                        List<String> violations, String consoleAlert) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("{\"embeds\":[{");
-        
-        // Title
-        String title = config.getDiscordEmbedTitle()
-                .replace("%player%", player.getName())
-                .replace("%reason%", reason);
-        sb.append("\"title\":\"").append(escapeJson(title)).append("\",");
-        
-        // Color (convert hex to decimal)
-        String colorHex = config.getDiscordEmbedColor().replace("#", "");
-        try {
-            Color color = Color.decode("#" + colorHex);
-            int decimal = color.getRGB() & 0xFFFFFF;
-            sb.append("\"color\":").append(decimal).append(",");
-        } catch (NumberFormatException e) {
-            sb.append("\"color\":2831050,"); // Default teal color
-        }
-        
-        // Description - Use violation content from config
-        sb.append("\"description\":\"");
+    private String createFullWebhookJson(Player player, String reason, String brand, List<Violation> violations) {
+        EmbedTemplate template = getEmbedTemplate();
+        EmbedWriter writer = EmbedWriter.get();
+        template.writeHeader(writer, player.getName(), reason);
         
         // ALWAYS use a consistent format with "Violations" header for all alerts
-        // Start with player info
-        sb.append("**Player**: ").append(escapeJson(player.getName())).append("\\n");
-        
-        // Create a clean list of violations
-        List<String> cleanViolations = new ArrayList<>();
+        writer.raw(EmbedTemplate.PLAYER_HEADER).escaped(player.getName()).raw(EmbedTemplate.LINE_BREAK);
+        writer.raw(EmbedTemplate.VIOLATIONS_HEADER);
         
-        // If we have explicit violations list, use it
         if (violations != null && !violations.isEmpty()) {
-            cleanViolations = new ArrayList<>(violations);
-            cleanViolations.removeIf(v -> v.contains("Multiple Violations"));
-        } 
-        // Otherwise use the reason as a single violation
-        else if (reason != null && !reason.isEmpty()) {
-            cleanViolations.add(reason);
-        }
-        
-        // Always show "Violations:" header with bullet points
-        sb.append("**Violations**:\\n");
-        
-        // Add each violation as a bullet point
-        for (String violation : cleanViolations) {
-            // Clean up any "(Client: X)" text
-            int clientIndex = violation.indexOf(" (Client: ");
-            String cleanViolation = clientIndex > 0 ? violation.substring(0, clientIndex) : violation;
-            
-            // Look for patterns like "Client missing required channels for brand X: pattern"
-            if (cleanViolation.contains("Client missing required channels for brand")) {
-                int patternStartIndex = cleanViolation.lastIndexOf(": ");
-                if (patternStartIndex > 0) {
-                    // Split into prefix and pattern parts
-                    String prefix = cleanViolation.substring(0, patternStartIndex + 2); // Include the ": " part
-                    String pattern = cleanViolation.substring(patternStartIndex + 2);
-                    
-                    // Output with backticks around the pattern
-                    sb.append("• ").append(escapeJson(prefix)).append("`").append(escapeJson(pattern)).append("`\\n");
-                } else {
-                    sb.append("• ").append(escapeJson(cleanViolation)).append("\\n");
-                }
-            } 
-            // Also look for "Using blocked channel: X" pattern
-            else if (cleanViolation.contains("Using blocked channel:")) {
-                int patternStartIndex = cleanViolation.lastIndexOf(": ");
-                if (patternStartIndex > 0) {
-                    // Split into prefix and pattern parts
-                    String prefix = cleanViolation.substring(0, patternStartIndex + 2); // Include the ": " part
-                    String pattern = cleanViolation.substring(patternStartIndex + 2);
-                    
-                    // Output with backticks around the pattern
-                    sb.append("• ").append(escapeJson(prefix)).append("`").append(escapeJson(pattern)).append("`\\n");
-                } else {
-                    sb.append("• ").append(escapeJson(cleanViolation)).append("\\n");
-                }
-            }
-            // For any other violations that contain regex patterns
-            else if (cleanViolation.contains(": (?i)") || cleanViolation.contains(": ^") || cleanViolation.contains(".*")) {
-                int patternStartIndex = cleanViolation.lastIndexOf(": ");
-                if (patternStartIndex > 0) {
-                    // Split into prefix and pattern parts
-                    String prefix = cleanViolation.substring(0, patternStartIndex + 2); // Include the ": " part
-                    String pattern = cleanViolation.substring(patternStartIndex + 2);
-                    
-                    // Output with backticks around the pattern
-                    sb.append("• ").append(escapeJson(prefix)).append("`").append(escapeJson(pattern)).append("`\\n");
-                } else {
-                    sb.append("• ").append(escapeJson(cleanViolation)).append("\\n");
+            for (Violation violation : violations) {
+                writer.raw(EmbedTemplate.BULLET).escaped(violation.getMessage());
+                
+                // Wrap the channel, brand or pattern in backticks for Discord
+                if (violation.getDetail() != null) {
+                    writer.raw(": `").escaped(violation.getDetail()).raw('`');
                 }
+                writer.raw(EmbedTemplate.LINE_BREAK);
             }
-            // Default case for other violations
-            else {
-                sb.append("• ").append(escapeJson(cleanViolation)).append("\\n");
-            }
+        } else if (reason != null && !reason.isEmpty()) {
+            // Otherwise use the reason as a single violation
+            writer.raw(EmbedTemplate.BULLET).escaped(reason).raw(EmbedTemplate.LINE_BREAK);
         }
         
         // Add other standard information
-        sb.append("**Client Version**: ").append(getClientVersionFromPlaceholders(player)).append("\\n");
+        PlayerData data = plugin.getPlayerDataMap().get(player.getUniqueId());
+        writer.raw(EmbedTemplate.CLIENT_VERSION_HEADER).escaped(data != null ? data.getClientVersionDisplay() : "Unknown")
+              .raw(EmbedTemplate.LINE_BREAK);
         
         // Wrap brand in backticks for Discord
-        sb.append("**Brand**: `").append(escapeJson(brand != null ? brand : "unknown")).append("`\\n");
+        writer.raw(EmbedTemplate.BRAND_HEADER).escaped(brand != null ? brand : "unknown").raw('`')
+              .raw(EmbedTemplate.LINE_BREAK);
         
         // Add channels
-        sb.append("**Channels**:\\n");
-        PlayerData data = plugin.getPlayerDataMap().get(player.getUniqueId());
+        writer.raw(EmbedTemplate.CHANNELS_HEADER);
         if (data != null && !data.getChannels().isEmpty()) {
-            Set<String> channels = data.getChannels();
-            for (String ch : channels) {
+            for (String ch : data.getChannels()) {
                 // Wrap channel in backticks for Discord
-                sb.append("• `").append(escapeJson(ch)).append("`\\n");
+                writer.raw(EmbedTemplate.BULLET).raw('`').escaped(ch).raw('`').raw(EmbedTemplate.LINE_BREAK);
             }
         } else {
-            sb.append("• None detected\\n");
+            writer.raw(EmbedTemplate.NO_CHANNELS);
         }
         
-        // Close the description
-        sb.append("\",");
-        
-        // Timestamp
-        sb.append("\"timestamp\":\"").append(java.time.OffsetDateTime.now()).append("\"");
-        
-        sb.append("}]}");
-        return sb.toString();
+        template.writeFooter(writer);
+        return writer.finish();
     }
     
     /**
-     * Helper method to get client version from PlaceholderAPI
+     * A held violation alert, rebuilt from its session when the delay ends so violations
+     * and channels seen in the meantime are included. Resolved once and shared by every sink.
      */
-    private String getClientVersionFromPlaceholders(Player player) {
-        String version = "Unknown";
-        // Check if ViaVersion and PlaceholderAPI are installed
-        if (Bukkit.getPluginManager().isPluginEnabled("ViaVersion") && 
-            Bukkit.getPluginManager().isPluginEnabled("PlaceholderAPI")) {
-            try {
-                // If so, try to get the version through PlaceholderAPI
-                version = me.clip.placeholderapi.PlaceholderAPI.setPlaceholders(
-                    player, "%viaversion_player_protocol_version%");
-            } catch (Exception e) {
-                if (config.isDebugMode()) {
-                    plugin.getLogger().warning("[Discord] Error getting ViaVersion: " + e.getMessage());
-                }
+    private final class DelayedAlert {
+        private final Player player;
+        private final String reason;
+        private final String brand;
+        private final AlertSession session;
+        private boolean resolved;
+        private String embed;
+        
+        private DelayedAlert(Player player, String reason, String brand, AlertSession session) {
+            this.player = player;
+            this.reason = reason;
+            this.brand = brand;
+            this.session = session;
+        }
+        
+        /**
+         * @return The embed to send, or null if the player left during the delay
+         */
+        private synchronized String resolve() {
+            if (resolved) {
+                return embed;
+            }
+            resolved = true;
+            
+            PlayerData data = plugin.getPlayerDataMap().get(player.getUniqueId());
+            if (data == null || !player.isOnline()) {
+                plugin.getDetectionLog().debug(player, "Dropped delayed Discord alert, player left", reason);
+                return null;
             }
+            
+            List<Violation> violations;
+            String playerBrand;
+            synchronized (session) {
+                // Channels registered during the delay are part of this alert, not a later modification alert
+                session.advanceChannelCursor(data);
+                violations = new ArrayList<>(session.pendingViolations);
+                playerBrand = session.brand != null ? session.brand : brand;
+            }
+            
+            plugin.getDetectionLog().debug(player, "Sending delayed Discord alert, violations", violations.size());
+            embed = createFullWebhookJson(player, reason, playerBrand, violations);
+            return embed;
         }
-        return version;
     }
     
     /**
-     * Escapes JSON special characters
+     * Discord alert state of one player session, guarded by its own lock
      */
-    private String escapeJson(String text) {
-        if (text == null) return "";
-        return text.replace("\\", "\\\\")
-                .replace("\"", "\\\"")
-                .replace("\n", "\\n")
-                .replace("\r", "\\r")
-                .replace("\t", "\\t")
-                .replace("\b", "\\b")
-                .replace("\f", "\\f");
+    private static final class AlertSession {
+        // When the player registered their initial channels (join time)
+        private long registrationTime;
+        
+        // Whether the player has already been alerted for spoofing in this session
+        private boolean alerted;
+        
+        // Version of the player's channel log at the last alert
+        private int channelCursor;
+        
+        // All violations collected for this session
+        private final List<Violation> pendingViolations = new ArrayList<>();
+        
+        // Brand and blocked channel remembered for delayed alerts
+        private String brand;
+        private String blockedChannel;
+        
+        // Last time a modification alert was sent, and channels waiting out the cooldown
+        private long lastModificationAlertTime;
+        private final Set<String> pendingModifiedChannels = new LinkedHashSet<>();
+        
+        private AlertSession(long registrationTime) {
+            this.registrationTime = registrationTime;
+        }
+        
+        private void addViolation(Violation violation) {
+            if (!pendingViolations.contains(violation)) {
+                pendingViolations.add(violation);
+            }
+        }
+        
+        /**
+         * @return True if still in the channel registration grace period
+         */
+        private boolean isInChannelGracePeriod() {
+            return registrationTime > 0 && System.currentTimeMillis() - registrationTime < CHANNEL_GRACE_PERIOD;
+        }
+        
+        /**
+         * Moves the cursor to the player's current channel version
+         * @return The channels added since the previous cursor
+         */
+        private Set<String> advanceChannelCursor(PlayerData data) {
+            int version = data.getChannelVersion();
+            Set<String> added = data.getChannelsAddedBetween(channelCursor, version);
+            channelCursor = version;
+            data.discardChannelChangesBefore(version);
+            return added;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,132 @@
+package com.gigazelensky.antispoof.utils;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Static parts of the Discord alert embed, computed once per config generation.
+ * Holds the embed color as an int and the title template split into escaped
+ * literal fragments and placeholders, so rendering an alert only has to write
+ * the dynamic values.
+ */
+public final class EmbedTemplate {
+    // Default teal color used when the configured color is invalid
+    private static final int DEFAULT_COLOR = 2831050;
+    
+    private static final String PLAYER_PLACEHOLDER = "%player%";
+    private static final String REASON_PLACEHOLDER = "%reason%";
+    
+    // Fragments shared by every embed
+    public static final String PLAYER_HEADER = "**Player**: ";
+    public static final String VIOLATIONS_HEADER = "**Violations**:\\n";
+    public static final String MODIFIED_CHANNELS_HEADER = "**Modified channel(s)**:\\n";
+    public static final String CLIENT_VERSION_HEADER = "**Client Version**: ";
+    public static final String BRAND_HEADER = "**Brand**: `";
+    public static final String CHANNELS_HEADER = "**Channels**:\\n";
+    public static final String NO_CHANNELS = "• None detected\\n";
+    public static final String BULLET = "• ";
+    public static final String LINE_BREAK = "\\n";
+    
+    private final int generation;
+    private final int color;
+    
+    // Escaped literal text, with null entries standing for the placeholder at the same index
+    private final List<String> titleFragments = new ArrayList<>();
+    private final List<String> titlePlaceholders = new ArrayList<>();
+    
+    // Everything between the title and the description text
+    private final String afterTitle;
+    
+    /**
+     * @param generation The config generation this template was built from
+     * @param title The configured embed title, may contain %player% and %reason%
+     * @param colorHex The configured embed color, e.g. "#2AB7CA"
+     */
+    public EmbedTemplate(int generation, String title, String colorHex) {
+        this.generation = generation;
+        this.color = parseColor(colorHex);
+        this.afterTitle = "\",\"color\":" + color + ",\"description\":\"";
+        splitTitle(title);
+    }
+    
+    private void splitTitle(String title) {
+        int index = 0;
+        while (index < title.length()) {
+            int player = title.indexOf(PLAYER_PLACEHOLDER, index);
+            int reason = title.indexOf(REASON_PLACEHOLDER, index);
+            int next = player < 0 ? reason : (reason < 0 ? player : Math.min(player, reason));
+            if (next < 0) {
+                addLiteral(title.substring(index));
+                break;
+            }
+            
+            addLiteral(title.substring(index, next));
+            String placeholder = next == player ? PLAYER_PLACEHOLDER : REASON_PLACEHOLDER;
+            titleFragments.add(null);
+            titlePlaceholders.add(placeholder);
+            index = next + placeholder.length();
+        }
+    }
+    
+    private void addLiteral(String literal) {
+        if (!literal.isEmpty()) {
+            titleFragments.add(EmbedWriter.escape(literal));
+            titlePlaceholders.add(null);
+        }
+    }
+    
+    /**
+     * Parses a hex color without going through java.awt
+     */
+    private static int parseColor(String colorHex) {
+        String hex = colorHex == null ? "" : colorHex.trim();
+        if (hex.startsWith("#")) {
+            hex = hex.substring(1);
+        } else if (hex.startsWith("0x") || hex.startsWith("0X")) {
+            hex = hex.substring(2);
+        }
+        try {
+            return Integer.parseInt(hex, 16) & 0xFFFFFF;
+        } catch (NumberFormatException e) {
+            return DEFAULT_COLOR;
+        }
+    }
+    
+    /**
+     * Writes the opening of an embed up to the start of the description text
+     * @param writer The writer
+     * @param player The player name for %player%
+     * @param reason The reason for %reason%
+     */
+    public void writeHeader(EmbedWriter writer, String player, String reason) {
+        writer.raw("{\"title\":\"");
+        for (int i = 0; i < titleFragments.size(); i++) {
+            String fragment = titleFragments.get(i);
+            if (fragment != null) {
+                writer.raw(fragment);
+            } else if (titlePlaceholders.get(i).equals(PLAYER_PLACEHOLDER)) {
+                writer.escaped(player);
+            } else {
+                writer.escaped(reason);
+            }
+        }
+        writer.raw(afterTitle);
+    }
+    
+    /**
+     * Closes the description and the embed
+     * @param writer The writer
+     */
+    public void writeFooter(EmbedWriter writer) {
+        writer.raw("\",\"timestamp\":\"").raw(Instant.now().toString()).raw("\"}");
+    }
+    
+    public int getGeneration() {
+        return generation;
+    }
+    
+    public int getColor() {
+        return color;
+    }
+}
@@ -0,0 +1,97 @@
+package com.gigazelensky.antispoof.utils;
+
+/**
+ * Writes webhook embed JSON into a reusable per-thread buffer.
+ * Text is escaped in a single pass while it is appended, instead of
+ * building escaped copies with chained replace calls.
+ */
+public final class EmbedWriter {
+    private static final ThreadLocal<EmbedWriter> LOCAL = ThreadLocal.withInitial(EmbedWriter::new);
+    
+    // Buffers that grew beyond this are dropped instead of being kept per thread
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    
+    private StringBuilder buffer = new StringBuilder(1024);
+    
+    private EmbedWriter() {
+    }
+    
+    /**
+     * @return The current thread's writer, emptied and ready for a new embed
+     */
+    public static EmbedWriter get() {
+        EmbedWriter writer = LOCAL.get();
+        writer.buffer.setLength(0);
+        return writer;
+    }
+    
+    /**
+     * Escapes text for use inside a JSON string without touching the current thread's buffer
+     * @param text The text to escape
+     * @return The escaped text
+     */
+    public static String escape(CharSequence text) {
+        EmbedWriter writer = new EmbedWriter();
+        return writer.escaped(text).finish();
+    }
+    
+    /**
+     * Appends text that is already valid JSON
+     */
+    public EmbedWriter raw(String json) {
+        buffer.append(json);
+        return this;
+    }
+    
+    public EmbedWriter raw(char c) {
+        buffer.append(c);
+        return this;
+    }
+    
+    public EmbedWriter raw(int value) {
+        buffer.append(value);
+        return this;
+    }
+    
+    /**
+     * Appends text escaped for use inside a JSON string
+     * @param text The text to escape, null is written as an empty string
+     */
+    public EmbedWriter escaped(CharSequence text) {
+        if (text == null) {
+            return this;
+        }
+        
+        for (int i = 0, length = text.length(); i < length; i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"': buffer.append("\\\""); break;
+                case '\\': buffer.append("\\\\"); break;
+                case '\n': buffer.append("\\n"); break;
+                case '\r': buffer.append("\\r"); break;
+                case '\t': buffer.append("\\t"); break;
+                case '\b': buffer.append("\\b"); break;
+                case '\f': buffer.append("\\f"); break;
+                default:
+                    if (c < 0x20) {
+                        buffer.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+                    } else {
+                        buffer.append(c);
+                    }
+            }
+        }
+        return this;
+    }
+    
+    /**
+     * @return The written JSON
+     */
+    public String finish() {
+        String json = buffer.toString();
+        if (buffer.capacity() > MAX_RETAINED_CAPACITY) {
+            buffer = new StringBuilder(1024);
+        }
+        return json;
+    }
+}
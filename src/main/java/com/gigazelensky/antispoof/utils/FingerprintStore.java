@@ -0,0 +1,310 @@
+package com.gigazelensky.antispoof.utils;
+
+import com.gigazelensky.antispoof.data.ClientFingerprint;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+/**
+ * Append-only store of the last client fingerprint of every player.
+ * Only the file offset of each player's newest record is kept in memory,
+ * records are read when the player joins. New records are appended in
+ * batches, and superseded records are compacted away on startup.
+ * 
+ * All file access happens on one background thread.
+ */
+public class FingerprintStore {
+    // How long records are collected before a batch is appended
+    private static final long FLUSH_DELAY_MILLIS = 2000L;
+    // Compact on startup once the file holds this many superseded records
+    private static final int COMPACT_THRESHOLD = 1000;
+    
+    private final File file;
+    private final Logger logger;
+    private final ScheduledExecutorService executor;
+    private final ConcurrentLinkedQueue<ClientFingerprint> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    
+    // Only touched on the executor thread
+    private final Map<UUID, Long> offsets = new HashMap<>();
+    private RandomAccessFile raf;
+    private int records = 0;
+    
+    /**
+     * Opens the store and builds the index in the background
+     * @param file The store file
+     * @param logger The logger for I/O warnings
+     */
+    public FingerprintStore(File file, Logger logger) {
+        this.file = file;
+        this.logger = logger;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "AntiSpoof-Fingerprints");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.execute(this::open);
+    }
+    
+    /**
+     * Reads a player's last fingerprint
+     * @param uuid The player's UUID
+     * @return A future completed with the fingerprint, or null if there is none
+     */
+    public CompletableFuture<ClientFingerprint> load(UUID uuid) {
+        return CompletableFuture.supplyAsync(() -> {
+            // Records still waiting for the next batch are newer than the file
+            ClientFingerprint newest = null;
+            for (ClientFingerprint fingerprint : pending) {
+                if (fingerprint.getUuid().equals(uuid)) {
+                    newest = fingerprint;
+                }
+            }
+            return newest != null ? newest : read(uuid);
+        }, executor);
+    }
+    
+    /**
+     * Queues a fingerprint to be appended with the next batch
+     * @param fingerprint The fingerprint
+     */
+    public void record(ClientFingerprint fingerprint) {
+        pending.offer(fingerprint);
+        if (flushScheduled.compareAndSet(false, true)) {
+            try {
+                executor.schedule(this::flush, FLUSH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (RuntimeException e) {
+                // Shutting down, the final flush picks the record up
+                flushScheduled.set(false);
+            }
+        }
+    }
+    
+    /**
+     * @return The number of players with a stored fingerprint
+     */
+    public CompletableFuture<Integer> size() {
+        return CompletableFuture.supplyAsync(offsets::size, executor);
+    }
+    
+    private void open() {
+        try {
+            File parent = file.getParentFile();
+            if (parent != null) {
+                Files.createDirectories(parent.toPath());
+            }
+            buildIndex();
+            if (records - offsets.size() >= COMPACT_THRESHOLD && records > offsets.size() * 2) {
+                compact();
+            }
+            raf = new RandomAccessFile(file, "rw");
+        } catch (IOException e) {
+            logger.warning("Could not open fingerprint store: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Scans the file once, remembering the offset of each player's newest record
+     */
+    private void buildIndex() throws IOException {
+        if (!file.exists()) {
+            return;
+        }
+        
+        long complete = 0;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file), 64 * 1024)) {
+            ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+            long offset = 0;
+            long lineStart = 0;
+            int b;
+            while ((b = in.read()) != -1) {
+                offset++;
+                if (b != '\n') {
+                    // Only the UUID at the start of the line is needed for the index
+                    if (line.size() < 36) {
+                        line.write(b);
+                    }
+                    continue;
+                }
+                
+                if (line.size() == 36) {
+                    try {
+                        offsets.put(UUID.fromString(line.toString(StandardCharsets.US_ASCII)), lineStart);
+                        records++;
+                    } catch (IllegalArgumentException ignored) {
+                        // Corrupt record
+                    }
+                }
+                line.reset();
+                lineStart = offset;
+            }
+            complete = lineStart;
+        }
+        
+        // Drop a record cut off by a crash, so the next flush starts on a new line
+        if (file.length() > complete) {
+            try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+                out.setLength(complete);
+            }
+        }
+    }
+    
+    /**
+     * Rewrites the file with only the newest record of every player
+     */
+    private void compact() throws IOException {
+        File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+        Map<UUID, Long> compacted = new HashMap<>();
+        
+        try (RandomAccessFile in = new RandomAccessFile(file, "r"); 
+             RandomAccessFile out = new RandomAccessFile(temp, "rw")) {
+            out.setLength(0);
+            for (Map.Entry<UUID, Long> entry : offsets.entrySet()) {
+                byte[] record = RecordFormat.readLine(in, entry.getValue());
+                if (record != null) {
+                    compacted.put(entry.getKey(), out.getFilePointer());
+                    out.write(record);
+                    out.write('\n');
+                }
+            }
+        }
+        
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        offsets.clear();
+        offsets.putAll(compacted);
+        records = compacted.size();
+    }
+    
+    private ClientFingerprint read(UUID uuid) {
+        Long offset = offsets.get(uuid);
+        if (offset == null || raf == null) {
+            return null;
+        }
+        
+        try {
+            byte[] record = RecordFormat.readLine(raf, offset);
+            return record != null ? parse(new String(record, StandardCharsets.UTF_8)) : null;
+        } catch (IOException e) {
+            logger.warning("Could not read fingerprint store: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    private void flush() {
+        flushScheduled.set(false);
+        if (raf == null) {
+            pending.clear();
+            return;
+        }
+        
+        List<ClientFingerprint> batch = new ArrayList<>();
+        ClientFingerprint fingerprint;
+        while ((fingerprint = pending.poll()) != null) {
+            batch.add(fingerprint);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        
+        try {
+            long offset = raf.length();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(batch.size() * 128);
+            List<Long> lineOffsets = new ArrayList<>(batch.size());
+            for (ClientFingerprint entry : batch) {
+                lineOffsets.add(offset + out.size());
+                out.write(format(entry).getBytes(StandardCharsets.UTF_8));
+            }
+            
+            raf.seek(offset);
+            raf.write(out.toByteArray());
+            for (int i = 0; i < batch.size(); i++) {
+                offsets.put(batch.get(i).getUuid(), lineOffsets.get(i));
+            }
+            records += batch.size();
+        } catch (IOException e) {
+            logger.warning("Could not write fingerprint store: " + e.getMessage());
+        }
+    }
+    
+    private static String format(ClientFingerprint fingerprint) {
+        StringBuilder sb = new StringBuilder(128);
+        sb.append(fingerprint.getUuid()).append('\t')
+          .append(fingerprint.getLastSeen()).append('\t')
+          .append(fingerprint.getFirstSeen()).append('\t')
+          .append(fingerprint.getVerdict().name()).append('\t')
+          .append(fingerprint.getRulesHash()).append('\t')
+          .append(Long.toHexString(fingerprint.getChannelHash())).append('\t')
+          .append(fingerprint.getChannelCount()).append('\t');
+        
+        // The brand is sent by the client, keep it on one line
+        RecordFormat.appendEscaped(sb, fingerprint.getBrand());
+        return sb.append('\n').toString();
+    }
+    
+    private static ClientFingerprint parse(String line) {
+        String[] parts = line.split("\t", 8);
+        if (parts.length != 8) {
+            return null;
+        }
+        
+        try {
+            return new ClientFingerprint(
+                UUID.fromString(parts[0]),
+                RecordFormat.unescape(parts[7]),
+                Long.parseUnsignedLong(parts[5], 16),
+                Integer.parseInt(parts[6]),
+                ClientFingerprint.Verdict.valueOf(parts[3]),
+                Integer.parseInt(parts[4]),
+                Long.parseLong(parts[2]),
+                Long.parseLong(parts[1])
+            );
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Appends the remaining records and closes the file
+     */
+    public void shutdown() {
+        executor.execute(() -> {
+            flush();
+            if (raf != null) {
+                try {
+                    raf.close();
+                } catch (IOException ignored) {
+                    // Nothing left to do
+                }
+                raf = null;
+            }
+        });
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                logger.warning("Timed out writing the fingerprint store");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.gigazelensky.antispoof.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Tracks the most frequent keys of a stream in fixed memory.
+ * Every key is counted in a count-min sketch. The top keys additionally get
+ * an exact counter from the moment they enter the top list, plus a small
+ * HyperLogLog of the players that sent them. A key whose sketch estimate
+ * rises above the smallest tracked count replaces that entry.
+ */
+public class HeavyHitters {
+    // Precision of the per-key player estimates, 256 bytes and ~6.5% error each
+    private static final int KEY_PRECISION = 8;
+    // Precision of the overall player estimate, 4 KB and ~1.6% error
+    private static final int TOTAL_PRECISION = 12;
+    
+    /**
+     * A snapshot of one tracked key
+     */
+    public static final class Entry {
+        private final String key;
+        private final long count;
+        private final long error;
+        private final long players;
+        
+        private Entry(String key, long count, long error, long players) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+            this.players = players;
+        }
+        
+        public String getKey() {
+            return key;
+        }
+        
+        /**
+         * @return How often the key was seen, possibly overcounted by {@link #getError()}
+         */
+        public long getCount() {
+            return count;
+        }
+        
+        /**
+         * @return The part of the count estimated before the key was tracked, 0 if exact
+         */
+        public long getError() {
+            return error;
+        }
+        
+        /**
+         * @return The estimated number of distinct players since the key was tracked
+         */
+        public long getPlayers() {
+            return players;
+        }
+    }
+    
+    private static final class Counter {
+        private final String key;
+        private long count;
+        private final long error;
+        private final HyperLogLog players = new HyperLogLog(KEY_PRECISION);
+        
+        private Counter(String key, long count) {
+            this.key = key;
+            this.count = count;
+            this.error = count - 1;
+        }
+    }
+    
+    private final int capacity;
+    private final CountMinSketch sketch = new CountMinSketch(4, 4096);
+    private final HyperLogLog players = new HyperLogLog(TOTAL_PRECISION);
+    private final Map<String, Counter> top = new HashMap<>();
+    private Counter smallest;
+    private long total = 0;
+    
+    /**
+     * @param capacity The number of keys counted exactly
+     */
+    public HeavyHitters(int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+    
+    /**
+     * Counts one occurrence of a key
+     * @param key The key
+     * @param player The player that sent it
+     */
+    public synchronized void add(String key, UUID player) {
+        long keyHash = CountMinSketch.hash(key);
+        long playerHash = HyperLogLog.hash(player);
+        int estimate = sketch.add(keyHash);
+        players.add(playerHash);
+        total++;
+        
+        Counter counter = top.get(key);
+        if (counter == null) {
+            if (top.size() < capacity) {
+                counter = new Counter(key, estimate);
+                top.put(key, counter);
+            } else {
+                if (smallest == null) {
+                    smallest = findSmallest();
+                }
+                if (estimate <= smallest.count) {
+                    return;
+                }
+                top.remove(smallest.key);
+                counter = new Counter(key, estimate);
+                top.put(key, counter);
+            }
+            smallest = null;
+        } else {
+            counter.count++;
+            if (counter == smallest) {
+                smallest = null;
+            }
+        }
+        counter.players.add(playerHash);
+    }
+    
+    private Counter findSmallest() {
+        Counter min = null;
+        for (Counter counter : top.values()) {
+            if (min == null || counter.count < min.count) {
+                min = counter;
+            }
+        }
+        return min;
+    }
+    
+    /**
+     * @return The tracked keys, most frequent first
+     */
+    public synchronized List<Entry> getTop() {
+        List<Entry> entries = new ArrayList<>(top.size());
+        for (Counter counter : top.values()) {
+            entries.add(new Entry(counter.key, counter.count, counter.error, counter.players.estimate()));
+        }
+        entries.sort((a, b) -> Long.compare(b.count, a.count));
+        return entries;
+    }
+    
+    /**
+     * Looks up any key, tracked or not
+     * @param key The key
+     * @return The key's entry, estimated from the sketch if it isn't tracked
+     */
+    public synchronized Entry lookup(String key) {
+        Counter counter = top.get(key);
+        if (counter != null) {
+            return new Entry(counter.key, counter.count, counter.error, counter.players.estimate());
+        }
+        int estimate = sketch.estimate(CountMinSketch.hash(key));
+        return new Entry(key, estimate, estimate, -1);
+    }
+    
+    /**
+     * @return The number of keys counted in total
+     */
+    public synchronized long getTotal() {
+        return total;
+    }
+    
+    /**
+     * @return The estimated number of distinct players that sent any key
+     */
+    public synchronized long getPlayers() {
+        return players.estimate();
+    }
+}
@@ -0,0 +1,537 @@
+package com.gigazelensky.antispoof.utils;
+
+import com.gigazelensky.antispoof.data.HistoryRecord;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
+import java.util.logging.Logger;
+
+/**
+ * Append-only store of every violation the plugin acted on.
+ * Records are written in batches to one segment file per day. Each segment
+ * keeps the offsets of its records and posting lists by player, brand key
+ * and type in memory, so queries only read the records they return.
+ * Segments older than the retention period are deleted whole.
+ * 
+ * All file access happens on one background thread.
+ */
+public class HistoryStore {
+    // How long records are collected before a batch is appended
+    private static final long FLUSH_DELAY_MILLIS = 1000L;
+    // How often expired segments are looked for
+    private static final long RETENTION_INTERVAL_MINUTES = 60L;
+    
+    private static final String SEGMENT_PREFIX = "history-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    
+    /**
+     * The fields records are indexed by
+     */
+    public enum Index {
+        PLAYER, BRAND, TYPE;
+        
+        /**
+         * Normalizes a value the way it is stored in this index
+         * @param value The queried value
+         * @return The index key
+         */
+        public String key(String value) {
+            return this == TYPE ? value.toUpperCase(Locale.ROOT) : value.toLowerCase(Locale.ROOT);
+        }
+        
+        private String key(HistoryRecord record) {
+            switch (this) {
+                case PLAYER: return key(record.getPlayerName());
+                case BRAND: return key(record.getBrandKey());
+                default: return key(record.getType());
+            }
+        }
+    }
+    
+    /**
+     * One page of query results, newest first
+     */
+    public static final class Page {
+        private final List<HistoryRecord> records;
+        private final int total;
+        private final int page;
+        private final int pageSize;
+        
+        private Page(List<HistoryRecord> records, int total, int page, int pageSize) {
+            this.records = records;
+            this.total = total;
+            this.page = page;
+            this.pageSize = pageSize;
+        }
+        
+        public List<HistoryRecord> getRecords() {
+            return records;
+        }
+        
+        /**
+         * @return The number of matching records across all pages
+         */
+        public int getTotal() {
+            return total;
+        }
+        
+        public int getPage() {
+            return page;
+        }
+        
+        public int getPageCount() {
+            return Math.max(1, (total + pageSize - 1) / pageSize);
+        }
+    }
+    
+    /**
+     * The in-memory index of one day's segment file
+     */
+    private static final class Segment {
+        private final File file;
+        private long[] offsets = new long[64];
+        private int size = 0;
+        private final Map<Index, Map<String, IntList>> postings = new EnumMap<>(Index.class);
+        
+        private Segment(File file) {
+            this.file = file;
+            for (Index index : Index.values()) {
+                postings.put(index, new HashMap<>());
+            }
+        }
+        
+        private void add(HistoryRecord record, long offset) {
+            if (size == offsets.length) {
+                offsets = Arrays.copyOf(offsets, size * 2);
+            }
+            int ordinal = size++;
+            offsets[ordinal] = offset;
+            for (Index index : Index.values()) {
+                postings.get(index).computeIfAbsent(index.key(record), k -> new IntList()).add(ordinal);
+            }
+        }
+        
+        private IntList get(Index index, String key) {
+            return postings.get(index).get(key);
+        }
+    }
+    
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size = 0;
+        
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+    
+    private final File directory;
+    private final Logger logger;
+    private final int retentionDays;
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final ScheduledExecutorService executor;
+    private final ConcurrentLinkedQueue<HistoryRecord> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    
+    // Only touched on the executor thread
+    private final TreeMap<LocalDate, Segment> segments = new TreeMap<>();
+    private LocalDate writingDay;
+    private RandomAccessFile writer;
+    
+    /**
+     * Opens the store and indexes the existing segments in the background
+     * @param directory The directory holding the segment files
+     * @param retentionDays How many days of history to keep
+     * @param logger The logger for I/O warnings
+     */
+    public HistoryStore(File directory, int retentionDays, Logger logger) {
+        this.directory = directory;
+        this.retentionDays = Math.max(1, retentionDays);
+        this.logger = logger;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "AntiSpoof-History");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.execute(this::open);
+        executor.scheduleAtFixedRate(this::deleteExpired, 
+            RETENTION_INTERVAL_MINUTES, RETENTION_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+    
+    /**
+     * Queues a record to be appended with the next batch
+     * @param record The record
+     */
+    public void record(HistoryRecord record) {
+        pending.offer(record);
+        if (flushScheduled.compareAndSet(false, true)) {
+            try {
+                executor.schedule(this::flush, FLUSH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (RuntimeException e) {
+                // Shutting down, the final flush picks the record up
+                flushScheduled.set(false);
+            }
+        }
+    }
+    
+    /**
+     * Looks up one page of records matching an index key
+     * @param index The index to search
+     * @param value The player name, brand key or violation type
+     * @param page The page, starting at 1
+     * @param pageSize The number of records per page
+     * @return A future completed with the page
+     */
+    public CompletableFuture<Page> query(Index index, String value, int page, int pageSize) {
+        return CompletableFuture.supplyAsync(() -> {
+            // Make the records of the current batch visible first
+            flush();
+            return readPage(index, index.key(value), Math.max(1, page), pageSize);
+        }, executor);
+    }
+    
+    private void open() {
+        try {
+            Files.createDirectories(directory.toPath());
+        } catch (IOException e) {
+            logger.warning("Could not create history directory: " + e.getMessage());
+            return;
+        }
+        
+        File[] files = directory.listFiles((dir, name) -> 
+            name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+        if (files == null) {
+            return;
+        }
+        
+        LocalDate cutoff = LocalDate.now(zone).minusDays(retentionDays);
+        for (File file : files) {
+            LocalDate day = parseDay(file.getName());
+            if (day == null) {
+                continue;
+            }
+            if (day.isBefore(cutoff)) {
+                deleteSegment(file);
+                continue;
+            }
+            
+            try {
+                segments.put(day, loadSegment(file));
+            } catch (IOException e) {
+                logger.warning("Could not read history segment " + file.getName() + ": " + e.getMessage());
+            }
+        }
+    }
+    
+    private static LocalDate parseDay(String name) {
+        try {
+            return LocalDate.parse(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (DateTimeParseException | IndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Scans a segment once to rebuild its index
+     */
+    private Segment loadSegment(File file) throws IOException {
+        Segment segment = new Segment(file);
+        long complete = scan(file, Long.MAX_VALUE, segment::add);
+        
+        // Drop a record cut off by a crash, so the next batch starts on a new line
+        if (file.length() > complete) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(complete);
+            }
+        }
+        return segment;
+    }
+    
+    /**
+     * Reads the complete records of a segment in order
+     * @param file The segment file
+     * @param limit The number of bytes to read at most
+     * @param consumer Receives each record with its offset
+     * @return The offset after the last complete record
+     */
+    private static long scan(File file, long limit, ObjLongConsumer<HistoryRecord> consumer) throws IOException {
+        long complete = 0;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file), 64 * 1024)) {
+            ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+            long offset = 0;
+            int b;
+            while (offset < limit && (b = in.read()) != -1) {
+                offset++;
+                if (b != '\n') {
+                    line.write(b);
+                    continue;
+                }
+                
+                HistoryRecord record = parse(line.toString(StandardCharsets.UTF_8));
+                if (record != null) {
+                    consumer.accept(record, complete);
+                }
+                line.reset();
+                complete = offset;
+            }
+        }
+        return complete;
+    }
+    
+    /**
+     * Lists the segments as they are after the current batch is written.
+     * Segments are only ever appended to, so they can then be read up to the
+     * listed length on any thread with {@link #readSegment}.
+     * @return A future completed with the segment files and their lengths, oldest first
+     */
+    public CompletableFuture<Map<File, Long>> snapshotSegments() {
+        return CompletableFuture.supplyAsync(() -> {
+            flush();
+            Map<File, Long> files = new LinkedHashMap<>();
+            for (Segment segment : segments.values()) {
+                files.put(segment.file, segment.file.length());
+            }
+            return files;
+        }, executor);
+    }
+    
+    /**
+     * Streams the records of a segment listed by {@link #snapshotSegments}
+     * @param file The segment file
+     * @param length The listed length
+     * @param consumer Receives each record
+     */
+    public static void readSegment(File file, long length, Consumer<HistoryRecord> consumer) throws IOException {
+        scan(file, length, (record, offset) -> consumer.accept(record));
+    }
+    
+    private void flush() {
+        flushScheduled.set(false);
+        
+        List<HistoryRecord> batch = new ArrayList<>();
+        HistoryRecord record;
+        while ((record = pending.poll()) != null) {
+            batch.add(record);
+        }
+        
+        // Records are appended to the segment of the day they happened on
+        int start = 0;
+        while (start < batch.size()) {
+            LocalDate day = dayOf(batch.get(start));
+            int end = start + 1;
+            while (end < batch.size() && dayOf(batch.get(end)).equals(day)) {
+                end++;
+            }
+            append(day, batch.subList(start, end));
+            start = end;
+        }
+    }
+    
+    private LocalDate dayOf(HistoryRecord record) {
+        return Instant.ofEpochMilli(record.getTime()).atZone(zone).toLocalDate();
+    }
+    
+    private void append(LocalDate day, List<HistoryRecord> records) {
+        try {
+            Segment segment = openForWriting(day);
+            long offset = writer.length();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(records.size() * 160);
+            long[] lineOffsets = new long[records.size()];
+            for (int i = 0; i < records.size(); i++) {
+                lineOffsets[i] = offset + out.size();
+                out.write(format(records.get(i)).getBytes(StandardCharsets.UTF_8));
+            }
+            
+            writer.seek(offset);
+            writer.write(out.toByteArray());
+            for (int i = 0; i < records.size(); i++) {
+                segment.add(records.get(i), lineOffsets[i]);
+            }
+        } catch (IOException e) {
+            logger.warning("Could not write violation history: " + e.getMessage());
+        }
+    }
+    
+    private Segment openForWriting(LocalDate day) throws IOException {
+        Segment segment = segments.get(day);
+        if (segment == null) {
+            segment = new Segment(new File(directory, SEGMENT_PREFIX + day + SEGMENT_SUFFIX));
+            segments.put(day, segment);
+        }
+        
+        if (!day.equals(writingDay) || writer == null) {
+            closeWriter();
+            writer = new RandomAccessFile(segment.file, "rw");
+            writingDay = day;
+        }
+        return segment;
+    }
+    
+    private Page readPage(Index index, String key, int page, int pageSize) {
+        int total = 0;
+        for (Segment segment : segments.values()) {
+            IntList posting = segment.get(index, key);
+            if (posting != null) {
+                total += posting.size;
+            }
+        }
+        
+        int skip = (page - 1) * pageSize;
+        if (skip >= total) {
+            return new Page(Collections.emptyList(), total, page, pageSize);
+        }
+        
+        // Walk segments and postings backwards, newest record first
+        List<HistoryRecord> records = new ArrayList<>(pageSize);
+        for (Segment segment : segments.descendingMap().values()) {
+            IntList posting = segment.get(index, key);
+            if (posting == null) {
+                continue;
+            }
+            if (skip >= posting.size) {
+                skip -= posting.size;
+                continue;
+            }
+            
+            try (RandomAccessFile in = new RandomAccessFile(segment.file, "r")) {
+                for (int i = posting.size - 1 - skip; i >= 0 && records.size() < pageSize; i--) {
+                    byte[] line = RecordFormat.readLine(in, segment.offsets[posting.values[i]]);
+                    HistoryRecord record = line != null ? parse(new String(line, StandardCharsets.UTF_8)) : null;
+                    if (record != null) {
+                        records.add(record);
+                    }
+                }
+            } catch (IOException e) {
+                logger.warning("Could not read violation history: " + e.getMessage());
+            }
+            
+            skip = 0;
+            if (records.size() >= pageSize) {
+                break;
+            }
+        }
+        return new Page(records, total, page, pageSize);
+    }
+    
+    private void deleteExpired() {
+        LocalDate cutoff = LocalDate.now(zone).minusDays(retentionDays);
+        Map<LocalDate, Segment> expired = segments.headMap(cutoff);
+        for (Map.Entry<LocalDate, Segment> entry : expired.entrySet()) {
+            if (entry.getKey().equals(writingDay)) {
+                closeWriter();
+            }
+            deleteSegment(entry.getValue().file);
+        }
+        expired.clear();
+    }
+    
+    private void deleteSegment(File file) {
+        try {
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException e) {
+            logger.warning("Could not delete expired history segment " + file.getName() + ": " + e.getMessage());
+        }
+    }
+    
+    private void closeWriter() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException ignored) {
+                // Nothing left to do
+            }
+            writer = null;
+            writingDay = null;
+        }
+    }
+    
+    private static String format(HistoryRecord record) {
+        StringBuilder sb = new StringBuilder(160);
+        sb.append(record.getTime()).append('\t')
+          .append(record.getUuid()).append('\t')
+          .append(record.getType()).append('\t');
+        RecordFormat.appendEscaped(sb, record.getPlayerName());
+        sb.append('\t');
+        RecordFormat.appendEscaped(sb, record.getBrandKey());
+        sb.append('\t');
+        RecordFormat.appendEscaped(sb, record.getBrand());
+        sb.append('\t');
+        RecordFormat.appendEscaped(sb, record.getReason());
+        sb.append('\t');
+        RecordFormat.appendEscaped(sb, record.getDetail());
+        return sb.append('\n').toString();
+    }
+    
+    private static HistoryRecord parse(String line) {
+        String[] parts = line.split("\t", 8);
+        if (parts.length != 8) {
+            return null;
+        }
+        
+        try {
+            return new HistoryRecord(
+                Long.parseLong(parts[0]),
+                UUID.fromString(parts[1]),
+                RecordFormat.unescape(parts[3]),
+                RecordFormat.unescape(parts[5]),
+                RecordFormat.unescape(parts[4]),
+                parts[2],
+                RecordFormat.unescape(parts[6]),
+                parts[7].isEmpty() ? null : RecordFormat.unescape(parts[7])
+            );
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Appends the remaining records and closes the current segment
+     */
+    public void shutdown() {
+        executor.execute(() -> {
+            flush();
+            closeWriter();
+        });
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                logger.warning("Timed out writing the violation history");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
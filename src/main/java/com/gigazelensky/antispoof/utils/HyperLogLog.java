@@ -0,0 +1,67 @@
+package com.gigazelensky.antispoof.utils;
+
+import java.util.UUID;
+
+/**
+ * Estimates the number of distinct items added, in 2^precision bytes.
+ * The standard error is about 1.04 / sqrt(2^precision). Not thread-safe.
+ */
+public class HyperLogLog {
+    private final int precision;
+    private final byte[] registers;
+    
+    /**
+     * @param precision Between 4 and 16, the number of index bits
+     */
+    public HyperLogLog(int precision) {
+        this.precision = Math.max(4, Math.min(16, precision));
+        this.registers = new byte[1 << this.precision];
+    }
+    
+    /**
+     * Adds an item
+     * @param hash A well-mixed 64-bit hash of the item
+     */
+    public void add(long hash) {
+        int index = (int) (hash >>> (64 - precision));
+        // Rank of the first set bit in the remaining bits, capped at their length
+        int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+    
+    /**
+     * @return The estimated number of distinct items
+     */
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        
+        double alpha = m == 16 ? 0.673 : m == 32 ? 0.697 : m == 64 ? 0.709 : 0.7213 / (1 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+        
+        // Linear counting is more accurate while many registers are still empty
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+    
+    /**
+     * @return A well-mixed 64-bit hash of a player's UUID
+     */
+    public static long hash(UUID uuid) {
+        long z = uuid.getMostSignificantBits() ^ Long.rotateLeft(uuid.getLeastSignificantBits(), 32);
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,818 @@
+package com.gigazelensky.antispoof.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Regular expression matcher that runs in time linear to the input length.
+ * Patterns are compiled to a Thompson NFA and simulated one code point at a
+ * time, so no input can make it backtrack. Only constructs that can be
+ * matched this way are accepted, with the same meaning they have in
+ * java.util.regex; anything else is rejected at compile time.
+ */
+public final class LinearRegex {
+    // Largest program a pattern may compile to, counted repetitions are expanded
+    private static final int MAX_PROGRAM_SIZE = 10000;
+
+    private static final int OP_CHAR = 0;
+    private static final int OP_SET = 1;
+    private static final int OP_ANY = 2;
+    private static final int OP_SPLIT = 3;
+    private static final int OP_JUMP = 4;
+    private static final int OP_BEGIN = 5;
+    private static final int OP_END = 6;
+    private static final int OP_MATCH = 7;
+
+    private final String pattern;
+    private final int[] ops;
+    private final int[] args;
+    private final int[] alts;
+    private final CharClass[] sets;
+
+    private LinearRegex(String pattern, Program program) {
+        this.pattern = pattern;
+        int size = program.size;
+        this.ops = Arrays.copyOf(program.ops, size);
+        this.args = Arrays.copyOf(program.args, size);
+        this.alts = Arrays.copyOf(program.alts, size);
+        this.sets = Arrays.copyOf(program.sets, size);
+    }
+
+    /**
+     * Compiles a pattern that must already be valid for java.util.regex
+     * @param regex The pattern
+     * @return The compiled matcher
+     * @throws IllegalArgumentException naming the construct if the pattern
+     *         can't be matched in linear time
+     */
+    public static LinearRegex compile(String regex) {
+        Node root = new Parser(regex).parse();
+        Program program = new Program();
+        program.emit(root);
+        program.add(OP_MATCH, 0, 0, null);
+        return new LinearRegex(regex, program);
+    }
+
+    /**
+     * Compiles a matcher for exactly the given string
+     * @param value The string to match
+     * @return The compiled matcher
+     */
+    public static LinearRegex literal(String value) {
+        Program program = new Program();
+        for (int i = 0; i < value.length(); ) {
+            int cp = value.codePointAt(i);
+            program.add(OP_CHAR, cp, 0, null);
+            i += Character.charCount(cp);
+        }
+        program.add(OP_MATCH, 0, 0, null);
+        return new LinearRegex(value, program);
+    }
+
+    /**
+     * @return The source pattern
+     */
+    public String pattern() {
+        return pattern;
+    }
+
+    /**
+     * Checks if the whole input matches the pattern
+     * @param input The input to match
+     * @return True if the entire input matches
+     */
+    public boolean matches(CharSequence input) {
+        int length = input.length();
+        StateSet current = new StateSet(ops.length);
+        StateSet next = new StateSet(ops.length);
+        int[] stack = new int[ops.length * 2 + 1];
+
+        addState(current, stack, 0, input, 0);
+        int pos = 0;
+        while (pos < length) {
+            if (current.size == 0) {
+                return false;
+            }
+
+            int cp = Character.codePointAt(input, pos);
+            int nextPos = pos + Character.charCount(cp);
+            next.clear();
+            for (int i = 0; i < current.size; i++) {
+                int pc = current.dense[i];
+                boolean consumed;
+                switch (ops[pc]) {
+                    case OP_CHAR:
+                        consumed = cp == args[pc] || (alts[pc] != 0 && cp < 128 && toggleCase(cp) == args[pc]);
+                        break;
+                    case OP_SET:
+                        consumed = sets[pc].matches(cp);
+                        break;
+                    case OP_ANY:
+                        consumed = args[pc] != 0 || !isLineTerminator(cp);
+                        break;
+                    default:
+                        consumed = false;
+                        break;
+                }
+                if (consumed) {
+                    addState(next, stack, pc + 1, input, nextPos);
+                }
+            }
+
+            StateSet swap = current;
+            current = next;
+            next = swap;
+            pos = nextPos;
+        }
+
+        for (int i = 0; i < current.size; i++) {
+            if (ops[current.dense[i]] == OP_MATCH) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds a state and everything reachable from it without consuming input
+     */
+    private void addState(StateSet set, int[] stack, int start, CharSequence input, int pos) {
+        int top = 0;
+        stack[top++] = start;
+        while (top > 0) {
+            int pc = stack[--top];
+            if (!set.add(pc)) {
+                continue;
+            }
+            switch (ops[pc]) {
+                case OP_JUMP:
+                    stack[top++] = args[pc];
+                    break;
+                case OP_SPLIT:
+                    stack[top++] = alts[pc];
+                    stack[top++] = args[pc];
+                    break;
+                case OP_BEGIN:
+                    if (pos == 0) {
+                        stack[top++] = pc + 1;
+                    }
+                    break;
+                case OP_END:
+                    if (isAtEnd(input, pos, args[pc] != 0)) {
+                        stack[top++] = pc + 1;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Same rules as java.util.regex: $ and \Z also match before a final line terminator
+     */
+    private static boolean isAtEnd(CharSequence input, int pos, boolean beforeTerminator) {
+        int length = input.length();
+        if (pos == length) {
+            return true;
+        }
+        if (!beforeTerminator) {
+            return false;
+        }
+        if (pos == length - 2) {
+            return input.charAt(pos) == '\r' && input.charAt(pos + 1) == '\n';
+        }
+        if (pos == length - 1) {
+            char ch = input.charAt(pos);
+            if (ch == '\n' && pos > 0 && input.charAt(pos - 1) == '\r') {
+                return false;
+            }
+            return isLineTerminator(ch);
+        }
+        return false;
+    }
+
+    private static boolean isLineTerminator(int cp) {
+        return cp == '\n' || cp == '\r' || cp == '\u0085' || cp == '\u2028' || cp == '\u2029';
+    }
+
+    private static int toggleCase(int cp) {
+        if (cp >= 'a' && cp <= 'z') return cp - 32;
+        if (cp >= 'A' && cp <= 'Z') return cp + 32;
+        return cp;
+    }
+
+    @Override
+    public String toString() {
+        return pattern;
+    }
+
+    /**
+     * Sparse set of program counters, cleared in constant time
+     */
+    private static final class StateSet {
+        private final int[] dense;
+        private final int[] sparse;
+        private int size;
+
+        private StateSet(int capacity) {
+            this.dense = new int[capacity];
+            this.sparse = new int[capacity];
+        }
+
+        private boolean add(int pc) {
+            int index = sparse[pc];
+            if (index < size && dense[index] == pc) {
+                return false;
+            }
+            sparse[pc] = size;
+            dense[size++] = pc;
+            return true;
+        }
+
+        private void clear() {
+            size = 0;
+        }
+    }
+
+    /**
+     * Set of code point ranges, optionally negated and ASCII case-insensitive
+     */
+    private static final class CharClass {
+        private final List<int[]> ranges = new ArrayList<>();
+        private boolean negated;
+        private boolean ignoreCase;
+
+        private void add(int from, int to) {
+            ranges.add(new int[] {from, to});
+        }
+
+        private void addAll(CharClass other) {
+            if (other.negated) {
+                // Add the complement of the other class's ranges
+                List<int[]> sorted = new ArrayList<>(other.ranges);
+                sorted.sort((a, b) -> Integer.compare(a[0], b[0]));
+                int next = 0;
+                for (int[] range : sorted) {
+                    if (range[0] > next) {
+                        add(next, range[0] - 1);
+                    }
+                    next = Math.max(next, range[1] + 1);
+                }
+                if (next <= Character.MAX_CODE_POINT) {
+                    add(next, Character.MAX_CODE_POINT);
+                }
+            } else {
+                ranges.addAll(other.ranges);
+            }
+        }
+
+        private boolean matches(int cp) {
+            boolean found = contains(cp) || (ignoreCase && cp < 128 && contains(toggleCase(cp)));
+            return found != negated;
+        }
+
+        private boolean contains(int cp) {
+            for (int[] range : ranges) {
+                if (cp >= range[0] && cp <= range[1]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private abstract static class Node {}
+
+    private static final class CharNode extends Node {
+        private final int cp;
+        private final boolean ignoreCase;
+
+        private CharNode(int cp, boolean ignoreCase) {
+            this.cp = cp;
+            this.ignoreCase = ignoreCase && toggleCase(cp) != cp;
+        }
+    }
+
+    private static final class SetNode extends Node {
+        private final CharClass set;
+
+        private SetNode(CharClass set) {
+            this.set = set;
+        }
+    }
+
+    private static final class AnyNode extends Node {
+        private final boolean dotAll;
+
+        private AnyNode(boolean dotAll) {
+            this.dotAll = dotAll;
+        }
+    }
+
+    private static final class AnchorNode extends Node {
+        private final boolean begin;
+        private final boolean beforeTerminator;
+
+        private AnchorNode(boolean begin, boolean beforeTerminator) {
+            this.begin = begin;
+            this.beforeTerminator = beforeTerminator;
+        }
+    }
+
+    private static final class ConcatNode extends Node {
+        private final List<Node> items = new ArrayList<>();
+    }
+
+    private static final class AltNode extends Node {
+        private final List<Node> options = new ArrayList<>();
+    }
+
+    private static final class RepeatNode extends Node {
+        private final Node item;
+        private final int min;
+        private final int max;
+
+        private RepeatNode(Node item, int min, int max) {
+            this.item = item;
+            this.min = min;
+            this.max = max;
+        }
+    }
+
+    /**
+     * Recursive descent parser following java.util.regex syntax
+     */
+    private static final class Parser {
+        private final String regex;
+        private int pos;
+        private boolean ignoreCase;
+        private boolean dotAll;
+
+        private Parser(String regex) {
+            this.regex = regex;
+        }
+
+        private Node parse() {
+            Node node = parseAlternation();
+            if (pos < regex.length()) {
+                throw unsupported("unbalanced ')'");
+            }
+            return node;
+        }
+
+        private Node parseAlternation() {
+            AltNode alt = new AltNode();
+            alt.options.add(parseConcat());
+            while (pos < regex.length() && regex.charAt(pos) == '|') {
+                pos++;
+                alt.options.add(parseConcat());
+            }
+            return alt.options.size() == 1 ? alt.options.get(0) : alt;
+        }
+
+        private Node parseConcat() {
+            ConcatNode concat = new ConcatNode();
+            while (pos < regex.length()) {
+                char ch = regex.charAt(pos);
+                if (ch == '|' || ch == ')') {
+                    break;
+                }
+                Node atom;
+                if (regex.startsWith("\\Q", pos)) {
+                    // A quantifier after \Q...\E only applies to the last quoted char
+                    List<Node> quoted = parseQuoted();
+                    if (quoted.isEmpty()) {
+                        continue;
+                    }
+                    concat.items.addAll(quoted.subList(0, quoted.size() - 1));
+                    atom = quoted.get(quoted.size() - 1);
+                } else {
+                    atom = parseAtom();
+                    if (atom == null) {
+                        continue;
+                    }
+                }
+                concat.items.add(parseQuantifier(atom));
+            }
+            return concat.items.size() == 1 ? concat.items.get(0) : concat;
+        }
+
+        private Node parseQuantifier(Node atom) {
+            while (pos < regex.length()) {
+                char ch = regex.charAt(pos);
+                int min;
+                int max;
+                if (ch == '*') {
+                    min = 0;
+                    max = -1;
+                    pos++;
+                } else if (ch == '+') {
+                    min = 1;
+                    max = -1;
+                    pos++;
+                } else if (ch == '?') {
+                    min = 0;
+                    max = 1;
+                    pos++;
+                } else if (ch == '{') {
+                    int close = regex.indexOf('}', pos);
+                    if (close < 0) {
+                        throw unsupported("'{'");
+                    }
+                    String[] bounds = regex.substring(pos + 1, close).split(",", -1);
+                    try {
+                        min = Integer.parseInt(bounds[0]);
+                        max = bounds.length == 1 ? min : bounds[1].isEmpty() ? -1 : Integer.parseInt(bounds[1]);
+                    } catch (NumberFormatException e) {
+                        throw unsupported("counted repetition");
+                    }
+                    pos = close + 1;
+                } else {
+                    break;
+                }
+
+                if (atom instanceof AnchorNode) {
+                    throw unsupported("quantified anchor");
+                }
+
+                // Lazy and greedy quantifiers accept the same inputs, possessive ones don't
+                if (pos < regex.length() && regex.charAt(pos) == '?') {
+                    pos++;
+                } else if (pos < regex.length() && regex.charAt(pos) == '+') {
+                    throw unsupported("possessive quantifier");
+                }
+                atom = new RepeatNode(atom, min, max);
+            }
+            return atom;
+        }
+
+        /**
+         * @return The next atom, or null for constructs that only change flags
+         */
+        private Node parseAtom() {
+            int cp = regex.codePointAt(pos);
+            pos += Character.charCount(cp);
+            switch (cp) {
+                case '(':
+                    return parseGroup();
+                case '[':
+                    return new SetNode(parseClass());
+                case '.':
+                    return new AnyNode(dotAll);
+                case '^':
+                    return new AnchorNode(true, false);
+                case '$':
+                    return new AnchorNode(false, true);
+                case '\\':
+                    return parseEscape();
+                case '*':
+                case '+':
+                case '?':
+                case '{':
+                    throw unsupported("dangling '" + (char) cp + "'");
+                default:
+                    return new CharNode(cp, ignoreCase);
+            }
+        }
+
+        private Node parseGroup() {
+            boolean savedIgnoreCase = ignoreCase;
+            boolean savedDotAll = dotAll;
+
+            if (regex.startsWith("?", pos)) {
+                pos++;
+                if (regex.startsWith(":", pos)) {
+                    pos++;
+                } else if (regex.startsWith("<", pos) && pos + 1 < regex.length()
+                        && Character.isLetter(regex.charAt(pos + 1))) {
+                    // Named groups capture, which makes no difference to matching
+                    int close = regex.indexOf('>', pos);
+                    if (close < 0) {
+                        throw unsupported("named group");
+                    }
+                    pos = close + 1;
+                } else {
+                    boolean enable = true;
+                    while (pos < regex.length()) {
+                        char flag = regex.charAt(pos++);
+                        if (flag == 'i') {
+                            ignoreCase = enable;
+                        } else if (flag == 's') {
+                            dotAll = enable;
+                        } else if (flag == '-') {
+                            enable = false;
+                        } else if (flag == ')') {
+                            // Inline flags last until the end of the enclosing group
+                            return null;
+                        } else if (flag == ':') {
+                            break;
+                        } else if (flag == '=' || flag == '!' || flag == '<') {
+                            throw unsupported("lookaround");
+                        } else if (flag == '>') {
+                            throw unsupported("atomic group");
+                        } else {
+                            throw unsupported("inline flag '" + flag + "'");
+                        }
+                    }
+                }
+            }
+
+            Node node = parseAlternation();
+            if (pos >= regex.length() || regex.charAt(pos) != ')') {
+                throw unsupported("unclosed group");
+            }
+            pos++;
+            ignoreCase = savedIgnoreCase;
+            dotAll = savedDotAll;
+            return node;
+        }
+
+        /**
+         * Parses \Q...\E, the closing \E is optional at the end of the pattern
+         * @return One char node per quoted char
+         */
+        private List<Node> parseQuoted() {
+            int end = regex.indexOf("\\E", pos + 2);
+            String quoted = regex.substring(pos + 2, end < 0 ? regex.length() : end);
+            pos = end < 0 ? regex.length() : end + 2;
+            List<Node> chars = new ArrayList<>();
+            for (int i = 0; i < quoted.length(); ) {
+                int cp = quoted.codePointAt(i);
+                chars.add(new CharNode(cp, ignoreCase));
+                i += Character.charCount(cp);
+            }
+            return chars;
+        }
+
+        private Node parseEscape() {
+            if (pos >= regex.length()) {
+                throw unsupported("trailing '\\'");
+            }
+            char ch = regex.charAt(pos);
+            switch (ch) {
+                case 'A':
+                    pos++;
+                    return new AnchorNode(true, false);
+                case 'z':
+                    pos++;
+                    return new AnchorNode(false, false);
+                case 'Z':
+                    pos++;
+                    return new AnchorNode(false, true);
+                default:
+                    break;
+            }
+
+            CharClass predefined = parsePredefined();
+            if (predefined != null) {
+                return new SetNode(predefined);
+            }
+            return new CharNode(parseEscapedChar(), ignoreCase);
+        }
+
+        /**
+         * Parses \d, \w, \s and their negations, with ASCII meanings
+         */
+        private CharClass parsePredefined() {
+            char ch = regex.charAt(pos);
+            CharClass set = new CharClass();
+            switch (Character.toLowerCase(ch)) {
+                case 'd':
+                    set.add('0', '9');
+                    break;
+                case 'w':
+                    set.add('a', 'z');
+                    set.add('A', 'Z');
+                    set.add('0', '9');
+                    set.add('_', '_');
+                    break;
+                case 's':
+                    set.add('\t', '\r');
+                    set.add(' ', ' ');
+                    break;
+                default:
+                    return null;
+            }
+            pos++;
+            set.negated = Character.isUpperCase(ch);
+            return set;
+        }
+
+        /**
+         * Parses a single escaped character, after the backslash
+         */
+        private int parseEscapedChar() {
+            int cp = regex.codePointAt(pos);
+            pos += Character.charCount(cp);
+            switch (cp) {
+                case 't': return '\t';
+                case 'n': return '\n';
+                case 'r': return '\r';
+                case 'f': return '\f';
+                case 'a': return '\u0007';
+                case 'e': return '\u001B';
+                case 'x':
+                    if (regex.startsWith("{", pos)) {
+                        int close = regex.indexOf('}', pos);
+                        int value = parseHex(pos + 1, close);
+                        pos = close + 1;
+                        return value;
+                    }
+                    pos += 2;
+                    return parseHex(pos - 2, pos);
+                case 'u':
+                    pos += 4;
+                    return parseHex(pos - 4, pos);
+                default:
+                    if (cp >= '0' && cp <= '9') {
+                        throw unsupported("backreference");
+                    }
+                    if (cp < 128 && Character.isLetter(cp)) {
+                        throw unsupported("escape '\\" + (char) cp + "'");
+                    }
+                    return cp;
+            }
+        }
+
+        private int parseHex(int from, int to) {
+            try {
+                return Integer.parseInt(regex.substring(from, to), 16);
+            } catch (RuntimeException e) {
+                throw unsupported("hex escape");
+            }
+        }
+
+        private CharClass parseClass() {
+            CharClass set = new CharClass();
+            set.ignoreCase = ignoreCase;
+            if (regex.startsWith("^", pos)) {
+                set.negated = true;
+                pos++;
+            }
+            if (regex.startsWith("]", pos)) {
+                throw unsupported("']' at the start of a class");
+            }
+
+            boolean first = true;
+            while (true) {
+                if (pos >= regex.length()) {
+                    throw unsupported("unclosed class");
+                }
+                char ch = regex.charAt(pos);
+                if (ch == ']') {
+                    pos++;
+                    return set;
+                }
+                if (ch == '[' || regex.startsWith("&&", pos)) {
+                    throw unsupported("nested class");
+                }
+
+                int from;
+                if (ch == '\\') {
+                    pos++;
+                    if (pos >= regex.length()) {
+                        throw unsupported("trailing '\\'");
+                    }
+                    CharClass predefined = parsePredefined();
+                    if (predefined != null) {
+                        set.addAll(predefined);
+                        first = false;
+                        continue;
+                    }
+                    if (regex.charAt(pos) == 'Q') {
+                        throw unsupported("quoting in a class");
+                    }
+                    from = parseEscapedChar();
+                } else if (ch == '-' && !first && !regex.startsWith("]", pos + 1)) {
+                    throw unsupported("'-' in a class");
+                } else {
+                    from = regex.codePointAt(pos);
+                    pos += Character.charCount(from);
+                }
+                first = false;
+
+                // A range, unless the '-' is the last character of the class
+                if (regex.startsWith("-", pos) && pos + 1 < regex.length() && regex.charAt(pos + 1) != ']') {
+                    pos++;
+                    int to;
+                    char next = regex.charAt(pos);
+                    if (next == '\\') {
+                        pos++;
+                        if (pos >= regex.length() || parsePredefinedAhead()) {
+                            throw unsupported("class range");
+                        }
+                        to = parseEscapedChar();
+                    } else if (next == '[') {
+                        throw unsupported("nested class");
+                    } else {
+                        to = regex.codePointAt(pos);
+                        pos += Character.charCount(to);
+                    }
+                    set.add(from, to);
+                } else {
+                    set.add(from, from);
+                }
+            }
+        }
+
+        private boolean parsePredefinedAhead() {
+            return "dDwWsSQ".indexOf(regex.charAt(pos)) >= 0;
+        }
+
+        private IllegalArgumentException unsupported(String construct) {
+            return new IllegalArgumentException("Unsupported construct for linear matching: " + construct);
+        }
+    }
+
+    /**
+     * Instruction arrays built while compiling the parse tree
+     */
+    private static final class Program {
+        private int[] ops = new int[16];
+        private int[] args = new int[16];
+        private int[] alts = new int[16];
+        private CharClass[] sets = new CharClass[16];
+        private int size;
+
+        private int add(int op, int arg, int alt, CharClass set) {
+            if (size == MAX_PROGRAM_SIZE) {
+                throw new IllegalArgumentException("Unsupported construct for linear matching: " +
+                                                   "pattern expands beyond " + MAX_PROGRAM_SIZE + " states");
+            }
+            if (size == ops.length) {
+                int capacity = Math.min(MAX_PROGRAM_SIZE, size * 2);
+                ops = Arrays.copyOf(ops, capacity);
+                args = Arrays.copyOf(args, capacity);
+                alts = Arrays.copyOf(alts, capacity);
+                sets = Arrays.copyOf(sets, capacity);
+            }
+            ops[size] = op;
+            args[size] = arg;
+            alts[size] = alt;
+            sets[size] = set;
+            return size++;
+        }
+
+        private void emit(Node node) {
+            if (node instanceof CharNode) {
+                CharNode ch = (CharNode) node;
+                add(OP_CHAR, ch.cp, ch.ignoreCase ? 1 : 0, null);
+            } else if (node instanceof SetNode) {
+                add(OP_SET, 0, 0, ((SetNode) node).set);
+            } else if (node instanceof AnyNode) {
+                add(OP_ANY, ((AnyNode) node).dotAll ? 1 : 0, 0, null);
+            } else if (node instanceof AnchorNode) {
+                AnchorNode anchor = (AnchorNode) node;
+                add(anchor.begin ? OP_BEGIN : OP_END, anchor.beforeTerminator ? 1 : 0, 0, null);
+            } else if (node instanceof ConcatNode) {
+                for (Node item : ((ConcatNode) node).items) {
+                    emit(item);
+                }
+            } else if (node instanceof AltNode) {
+                emitAlternation(((AltNode) node).options);
+            } else if (node instanceof RepeatNode) {
+                emitRepeat((RepeatNode) node);
+            }
+        }
+
+        private void emitAlternation(List<Node> options) {
+            List<Integer> jumps = new ArrayList<>();
+            for (int i = 0; i < options.size() - 1; i++) {
+                int split = add(OP_SPLIT, size + 1, 0, null);
+                emit(options.get(i));
+                jumps.add(add(OP_JUMP, 0, 0, null));
+                alts[split] = size;
+            }
+            emit(options.get(options.size() - 1));
+            for (int jump : jumps) {
+                args[jump] = size;
+            }
+        }
+
+        private void emitRepeat(RepeatNode repeat) {
+            for (int i = 0; i < repeat.min; i++) {
+                emit(repeat.item);
+            }
+
+            if (repeat.max < 0) {
+                int loop = add(OP_SPLIT, size + 1, 0, null);
+                emit(repeat.item);
+                add(OP_JUMP, loop, 0, null);
+                alts[loop] = size;
+                return;
+            }
+
+            // Optional copies all skip to the end once one of them is left out
+            List<Integer> splits = new ArrayList<>();
+            for (int i = repeat.min; i < repeat.max; i++) {
+                splits.add(add(OP_SPLIT, size + 1, 0, null));
+                emit(repeat.item);
+            }
+            for (int split : splits) {
+                alts[split] = size;
+            }
+        }
+    }
+}
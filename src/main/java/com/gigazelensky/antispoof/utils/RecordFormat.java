@@ -0,0 +1,83 @@
+package com.gigazelensky.antispoof.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * Helpers for the tab-separated, one-record-per-line files written by the
+ * fingerprint and history stores. Values sent by clients may contain tabs or
+ * line breaks, which are escaped so every record stays on one line.
+ */
+public final class RecordFormat {
+    private RecordFormat() {
+    }
+    
+    /**
+     * Appends a value with backslashes, tabs and line breaks escaped
+     * @param sb The record being written
+     * @param value The value, null is written as an empty string
+     */
+    public static void appendEscaped(StringBuilder sb, String value) {
+        if (value == null) {
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\': sb.append("\\\\"); break;
+                case '\t': sb.append("\\t"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                default: sb.append(c);
+            }
+        }
+    }
+    
+    /**
+     * Reverses {@link #appendEscaped}
+     * @param value The escaped value
+     * @return The original value
+     */
+    public static String unescape(String value) {
+        if (value.indexOf('\\') < 0) {
+            return value;
+        }
+        
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                sb.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+    
+    /**
+     * Reads one record starting at the given offset
+     * @param in The store file
+     * @param offset The offset of the record
+     * @return The record without its line break, or null if it was never completed
+     */
+    public static byte[] readLine(RandomAccessFile in, long offset) throws IOException {
+        in.seek(offset);
+        ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+        byte[] buffer = new byte[256];
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            for (int i = 0; i < read; i++) {
+                if (buffer[i] == '\n') {
+                    line.write(buffer, 0, i);
+                    return line.toByteArray();
+                }
+            }
+            line.write(buffer, 0, read);
+        }
+        // A record without a line break was cut off by a crash
+        return null;
+    }
+}
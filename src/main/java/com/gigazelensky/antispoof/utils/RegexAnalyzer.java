@@ -0,0 +1,151 @@
+package com.gigazelensky.antispoof.utils;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Static checks for patterns that can make java.util.regex backtrack
+ * catastrophically
+ */
+public final class RegexAnalyzer {
+    private RegexAnalyzer() {
+    }
+
+    /**
+     * Looks for a repeated group that contains another repetition, like
+     * (a+)+ or (\w+\s?)*. Inputs that almost match these take exponential
+     * or high polynomial time to reject on a backtracking engine.
+     * @param regex The pattern to check
+     * @return The offending group with its quantifier, or null if none was found
+     */
+    public static String findNestedQuantifier(String regex) {
+        // Start offset of each open group, and whether it contains a repetition
+        Deque<int[]> groups = new ArrayDeque<>();
+        groups.push(new int[] {0, 0});
+
+        int i = 0;
+        int length = regex.length();
+        while (i < length) {
+            char ch = regex.charAt(i);
+            int atomStart = i;
+            int[] closed = null;
+
+            if (ch == '\\') {
+                if (i + 1 < length && regex.charAt(i + 1) == 'Q') {
+                    int end = regex.indexOf("\\E", i + 2);
+                    i = end < 0 ? length : end + 2;
+                } else {
+                    i += 2;
+                }
+            } else if (ch == '[') {
+                i = skipClass(regex, i);
+            } else if (ch == '(') {
+                groups.push(new int[] {i, 0});
+                i++;
+                continue;
+            } else if (ch == ')') {
+                if (groups.size() > 1) {
+                    closed = groups.pop();
+                    atomStart = closed[0];
+                    // The enclosing group contains whatever this one did
+                    groups.peek()[1] |= closed[1];
+                }
+                i++;
+            } else {
+                i++;
+            }
+
+            int quantifierEnd = skipQuantifier(regex, i);
+            if (quantifierEnd == i) {
+                continue;
+            }
+            boolean repeats = isRepeating(regex.substring(i, quantifierEnd));
+            i = quantifierEnd;
+            if (!repeats) {
+                continue;
+            }
+
+            if (closed != null && closed[1] != 0) {
+                return regex.substring(atomStart, Math.min(i, length));
+            }
+            groups.peek()[1] = 1;
+        }
+        return null;
+    }
+
+    /**
+     * @return The offset just past the character class starting at start
+     */
+    private static int skipClass(String regex, int start) {
+        int depth = 0;
+        int i = start;
+        while (i < regex.length()) {
+            char ch = regex.charAt(i);
+            if (ch == '\\') {
+                i += 2;
+                continue;
+            }
+            if (ch == '[') {
+                depth++;
+            } else if (ch == ']' && i > start + 1 && --depth == 0) {
+                return i + 1;
+            }
+            i++;
+        }
+        return regex.length();
+    }
+
+    /**
+     * @return The offset just past the quantifier at start, or start if there is none
+     */
+    private static int skipQuantifier(String regex, int start) {
+        if (start >= regex.length()) {
+            return start;
+        }
+        int i = start;
+        char ch = regex.charAt(i);
+        if (ch == '*' || ch == '+' || ch == '?') {
+            i++;
+        } else if (ch == '{') {
+            int close = regex.indexOf('}', i);
+            if (close < 0) {
+                return start;
+            }
+            i = close + 1;
+        } else {
+            return start;
+        }
+
+        // Lazy or possessive suffix
+        if (i < regex.length() && (regex.charAt(i) == '?' || regex.charAt(i) == '+')) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * @return Whether the quantifier can match its atom more than once, possessive
+     *         quantifiers don't count since they never give back what they matched
+     */
+    private static boolean isRepeating(String quantifier) {
+        if (quantifier.length() > 1 && quantifier.endsWith("+") && !quantifier.startsWith("{")
+                || quantifier.endsWith("}+")) {
+            return false;
+        }
+        char ch = quantifier.charAt(0);
+        if (ch == '*' || ch == '+') {
+            return true;
+        }
+        if (ch != '{') {
+            return false;
+        }
+
+        String[] bounds = quantifier.substring(1, quantifier.indexOf('}')).split(",", -1);
+        try {
+            return bounds.length > 1 && (bounds[1].isEmpty() || Integer.parseInt(bounds[1].trim()) > 1)
+                || Integer.parseInt(bounds[0].trim()) > 1;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
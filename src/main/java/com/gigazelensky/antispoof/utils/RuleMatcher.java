@@ -0,0 +1,138 @@
+package com.gigazelensky.antispoof.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A compiled brand or channel rule. Rules run on the linear-time engine when
+ * it is selected and supports the pattern, and on java.util.regex otherwise,
+ * where each match is limited to a time budget.
+ */
+public final class RuleMatcher {
+    public enum Engine {
+        LINEAR,
+        JAVA;
+
+        /**
+         * @param name The configured engine name
+         * @return The engine, LINEAR if the name is unknown
+         */
+        public static Engine fromString(String name) {
+            return "java".equalsIgnoreCase(name) ? JAVA : LINEAR;
+        }
+    }
+
+    private final String pattern;
+    private final LinearRegex linear;
+    private final Pattern compiled;
+    private final String fallbackReason;
+    private final long budgetNanos;
+
+    // Matches stopped by the time budget, in total and since the last report
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong unreportedTimeouts = new AtomicLong();
+
+    private RuleMatcher(String pattern, LinearRegex linear, Pattern compiled, String fallbackReason, long budgetNanos) {
+        this.pattern = pattern;
+        this.linear = linear;
+        this.compiled = compiled;
+        this.fallbackReason = fallbackReason;
+        this.budgetNanos = budgetNanos;
+    }
+
+    /**
+     * Compiles a rule on the given engine
+     * @param regex The pattern
+     * @param engine The preferred engine
+     * @param budgetNanos Longest a single java.util.regex match may run, 0 for no limit
+     * @return The compiled rule
+     * @throws PatternSyntaxException if the pattern is not valid
+     */
+    public static RuleMatcher compile(String regex, Engine engine, long budgetNanos) {
+        // Always validated by java.util.regex so both engines accept the same patterns
+        Pattern compiled = Pattern.compile(regex);
+        if (engine == Engine.JAVA) {
+            return new RuleMatcher(regex, null, compiled, null, budgetNanos);
+        }
+
+        try {
+            return new RuleMatcher(regex, LinearRegex.compile(regex), null, null, 0L);
+        } catch (IllegalArgumentException e) {
+            return new RuleMatcher(regex, null, compiled, e.getMessage(), budgetNanos);
+        }
+    }
+
+    /**
+     * Creates a rule that only matches the exact given string
+     * @param value The string to match
+     * @return The rule
+     */
+    public static RuleMatcher literal(String value) {
+        return new RuleMatcher(value, LinearRegex.literal(value), null, null, 0L);
+    }
+
+    /**
+     * Checks if the whole input matches this rule
+     * @param input The brand or channel
+     * @return True if the entire input matches, false if it doesn't or the
+     *         match ran out of time
+     */
+    public boolean matches(CharSequence input) {
+        if (linear != null) {
+            return linear.matches(input);
+        }
+        if (budgetNanos <= 0) {
+            return compiled.matcher(input).matches();
+        }
+        
+        try {
+            return compiled.matcher(new DeadlineCharSequence(input, System.nanoTime() + budgetNanos)).matches();
+        } catch (DeadlineCharSequence.DeadlineExceededException e) {
+            timeouts.incrementAndGet();
+            unreportedTimeouts.incrementAndGet();
+            return false;
+        }
+    }
+
+    /**
+     * @return The configured pattern
+     */
+    public String pattern() {
+        return pattern;
+    }
+
+    /**
+     * @return Whether this rule runs on the linear-time engine
+     */
+    public boolean isLinear() {
+        return linear != null;
+    }
+
+    /**
+     * @return Why the linear-time engine couldn't be used, or null if it is
+     *         used or wasn't selected
+     */
+    public String getFallbackReason() {
+        return fallbackReason;
+    }
+
+    /**
+     * @return How many matches of this rule ran out of time
+     */
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+
+    /**
+     * @return How many matches ran out of time since the last call
+     */
+    public long drainUnreportedTimeouts() {
+        return unreportedTimeouts.getAndSet(0);
+    }
+
+    @Override
+    public String toString() {
+        return pattern;
+    }
+}
@@ -0,0 +1,82 @@
+package com.gigazelensky.antispoof.utils;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared HTTP client for webhook deliveries.
+ * Connections are kept alive and reused (HTTP/2 when the server supports it),
+ * and requests are sent without blocking on a small dedicated executor instead
+ * of the common ForkJoinPool. This class has no Bukkit dependencies so it can
+ * be pointed at any HTTP endpoint.
+ */
+public class WebhookClient {
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(15);
+    private static final String USER_AGENT = "AntiSpoof-Plugin";
+    
+    private final ExecutorService executor;
+    private final HttpClient client;
+    
+    public WebhookClient() {
+        this(2);
+    }
+    
+    /**
+     * @param threads Number of threads used to complete requests
+     */
+    public WebhookClient(int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "AntiSpoof-Webhook-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(CONNECT_TIMEOUT)
+            .executor(executor)
+            .build();
+    }
+    
+    /**
+     * Posts a JSON payload without blocking the caller
+     * @param url The target URL
+     * @param json The JSON body
+     * @return A future completed with the response, or exceptionally on I/O errors
+     */
+    public CompletableFuture<HttpResponse<String>> postJson(String url, String json) {
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .header("User-Agent", USER_AGENT)
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+    }
+    
+    /**
+     * Stops the executor, waiting briefly for in-flight requests
+     */
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(3, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,564 @@
+package com.gigazelensky.antispoof.utils;
+
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Bounded, rate-limit aware delivery queue for webhook embeds.
+ * Embeds queued for the same webhook within a short window are packed into one
+ * request, up to Discord's limit of 10 embeds and 6000 characters per message.
+ * Honours Discord's Retry-After and X-RateLimit-* headers with one global bucket
+ * and one bucket per webhook URL, retries failed deliveries with exponential
+ * backoff and applies an overflow policy when the queue is full.
+ * 
+ * All queue state is owned by a single scheduler thread, so submissions and
+ * HTTP responses are handed over to that thread instead of taking locks.
+ */
+public class WebhookDeliveryQueue {
+    public enum OverflowPolicy {
+        // Discard the oldest queued payload to make room
+        DROP_OLDEST,
+        // Discard new payloads and send one summary once there is room again
+        COLLAPSE
+    }
+    
+    private static final long MAX_BACKOFF_MS = 60_000L;
+    private static final long OVERFLOW_WARNING_INTERVAL = 30_000L;
+    
+    // Discord's limits for a single webhook message
+    public static final int MAX_EMBEDS_PER_REQUEST = 10;
+    public static final int MAX_EMBED_CHARACTERS = 6000;
+    
+    // One webhook request carrying one or more embeds
+    private static final class Delivery {
+        private final String url;
+        private final List<String> embeds = new ArrayList<>(1);
+        // Spool record ids of the embeds, 0 when spooling is disabled
+        private final List<Long> spoolIds = new ArrayList<>(1);
+        // JSON length of the embeds, an upper bound for the characters Discord counts
+        private int length = 0;
+        private int attempts = 0;
+        private long notBefore = 0;
+        // Rebuilds the embed of a held delivery once it is due, null when there is nothing to rebuild
+        private Supplier<String> refresher;
+        
+        private Delivery(String url) {
+            this.url = url;
+        }
+        
+        private boolean canFit(String embed, int maxEmbeds) {
+            return embeds.size() < maxEmbeds && length + embed.length() <= MAX_EMBED_CHARACTERS;
+        }
+        
+        private void add(String embed, long spoolId) {
+            embeds.add(embed);
+            spoolIds.add(spoolId);
+            length += embed.length();
+        }
+        
+        private long removeOldest() {
+            String embed = embeds.remove(0);
+            length -= embed.length();
+            return spoolIds.remove(0);
+        }
+        
+        private String toPayload() {
+            StringBuilder payload = new StringBuilder(length + embeds.size() + 12);
+            payload.append("{\"embeds\":[");
+            for (int i = 0; i < embeds.size(); i++) {
+                if (i > 0) payload.append(',');
+                payload.append(embeds.get(i));
+            }
+            return payload.append("]}").toString();
+        }
+    }
+    
+    private static final class Bucket {
+        // Requests left in the current window, -1 when Discord hasn't told us yet
+        private int remaining = -1;
+        private long resetAt = 0;
+        private boolean inFlight = false;
+        
+        private long readyAt(long now) {
+            return remaining == 0 && resetAt > now ? resetAt : now;
+        }
+    }
+    
+    private final WebhookClient client;
+    private final Logger logger;
+    private final IntFunction<String> summaryBuilder;
+    private final WebhookSpool spool;
+    private final ScheduledExecutorService scheduler;
+    
+    // Only touched on the scheduler thread
+    private final ArrayDeque<Delivery> queue = new ArrayDeque<>();
+    private final Map<String, Bucket> buckets = new HashMap<>();
+    // Newest unsent delivery per webhook that can still take more embeds
+    private final Map<String, Delivery> openBatches = new HashMap<>();
+    private int queuedEmbeds = 0;
+    private final Map<String, Integer> collapsed = new LinkedHashMap<>();
+    private long globalBlockedUntil = 0;
+    // Pending pump timer and when it fires, null when none is scheduled
+    private ScheduledFuture<?> pumpTimer;
+    private long pumpTimerAt = 0;
+    private long droppedSinceWarning = 0;
+    private long lastOverflowWarning = 0;
+    
+    private volatile int capacity = 200;
+    private volatile OverflowPolicy overflowPolicy = OverflowPolicy.COLLAPSE;
+    private volatile int maxRetries = 5;
+    private volatile long baseRetryDelay = 1000L;
+    private volatile long batchWindow = 1000L;
+    private volatile int maxEmbedsPerRequest = MAX_EMBEDS_PER_REQUEST;
+    private volatile boolean debug = false;
+    
+    // Statistics readable from any thread
+    private volatile int queueSize = 0;
+    private volatile long delivered = 0;
+    private volatile long dropped = 0;
+    private volatile long rateLimited = 0;
+    
+    /**
+     * @param name The name of the sink this queue delivers for, used for the thread name
+     * @param client The client used to post payloads
+     * @param logger The logger for delivery warnings
+     * @param summaryBuilder Builds the embed JSON summarising a number of collapsed alerts
+     * @param spool The spool that keeps queued embeds across restarts (can be null)
+     */
+    public WebhookDeliveryQueue(String name, WebhookClient client, Logger logger, 
+                                IntFunction<String> summaryBuilder, WebhookSpool spool) {
+        this.client = client;
+        this.logger = logger;
+        this.summaryBuilder = summaryBuilder;
+        this.spool = spool;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "AntiSpoof-WebhookQueue-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Updates the queue settings, takes effect for the next submitted embed
+     */
+    public void configure(int capacity, OverflowPolicy overflowPolicy, int maxRetries, 
+                          long baseRetryDelay, long batchWindow, int maxEmbedsPerRequest, boolean debug) {
+        this.capacity = Math.max(1, capacity);
+        this.overflowPolicy = overflowPolicy;
+        this.maxRetries = Math.max(0, maxRetries);
+        this.baseRetryDelay = Math.max(100L, baseRetryDelay);
+        this.batchWindow = Math.max(0L, batchWindow);
+        this.maxEmbedsPerRequest = Math.max(1, Math.min(MAX_EMBEDS_PER_REQUEST, maxEmbedsPerRequest));
+        this.debug = debug;
+    }
+    
+    /**
+     * Queues an embed for delivery
+     * @param url The webhook URL
+     * @param embed The JSON object of a single embed
+     */
+    public void submit(String url, String embed) {
+        submit(url, embed, 0L);
+    }
+    
+    /**
+     * Queues an embed that is held until the given time. It is spooled right
+     * away, so it is still sent after a restart within the delay.
+     * @param url The webhook URL
+     * @param embed The JSON object of a single embed
+     * @param notBefore The earliest delivery time in epoch milliseconds, 0 to send right away
+     */
+    public void submit(String url, String embed, long notBefore) {
+        submit(url, embed, notBefore, null);
+    }
+    
+    /**
+     * Queues a held embed that is rebuilt once the hold time has passed. The
+     * embed given here is what is spooled, and what is sent after a restart.
+     * @param url The webhook URL
+     * @param embed The JSON object of a single embed
+     * @param notBefore The earliest delivery time in epoch milliseconds
+     * @param refresher Returns the embed to send when it is due, or null to drop it.
+     *                  Called once on the queue thread, can be null.
+     */
+    public void submit(String url, String embed, long notBefore, Supplier<String> refresher) {
+        scheduler.execute(() -> enqueue(url, embed, notBefore, refresher));
+    }
+    
+    /**
+     * Queues embeds that were spooled but not delivered before the last shutdown
+     * @param entries The spooled entries
+     */
+    public void replay(List<WebhookSpool.Entry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        scheduler.execute(() -> {
+            for (WebhookSpool.Entry entry : entries) {
+                addEmbed(entry.getUrl(), entry.getEmbed(), entry.getId(), entry.getNotBefore(), null);
+            }
+            logger.info("[Discord] Resending " + entries.size() + " webhook alerts from the previous session");
+            pump();
+        });
+    }
+    
+    private void enqueue(String url, String embed, long notBefore, Supplier<String> refresher) {
+        if (queuedEmbeds >= capacity) {
+            if (overflowPolicy == OverflowPolicy.COLLAPSE) {
+                collapsed.merge(url, 1, Integer::sum);
+                recordOverflow();
+                return;
+            }
+            dropOldest();
+            recordOverflow();
+        }
+        addEmbed(url, embed, spool != null ? spool.append(url, embed, notBefore) : 0L, notBefore, refresher);
+        pump();
+    }
+    
+    /**
+     * Adds an embed to the open batch for its webhook, starting a new batch when it's full.
+     * Held embeds get a delivery of their own so they don't hold up the open batch.
+     */
+    private void addEmbed(String url, String embed, long spoolId, long notBefore, Supplier<String> refresher) {
+        Delivery batch = openBatches.get(url);
+        if (notBefore > System.currentTimeMillis()) {
+            batch = new Delivery(url);
+            batch.notBefore = notBefore;
+            batch.refresher = refresher;
+            queue.addLast(batch);
+        } else if (batch == null || !batch.canFit(embed, maxEmbedsPerRequest)) {
+            batch = new Delivery(url);
+            // Hold the first embed briefly so others raised in the same wave can join it
+            batch.notBefore = System.currentTimeMillis() + batchWindow;
+            queue.addLast(batch);
+            openBatches.put(url, batch);
+        }
+        batch.add(embed, spoolId);
+        queuedEmbeds++;
+        queueSize = queuedEmbeds;
+    }
+    
+    private void dropOldest() {
+        Delivery oldest = queue.peekFirst();
+        if (oldest == null) {
+            return;
+        }
+        settle(oldest.removeOldest());
+        queuedEmbeds--;
+        if (oldest.embeds.isEmpty()) {
+            queue.pollFirst();
+            openBatches.remove(oldest.url, oldest);
+        }
+    }
+    
+    private void recordOverflow() {
+        dropped++;
+        droppedSinceWarning++;
+        
+        long now = System.currentTimeMillis();
+        if (now - lastOverflowWarning >= OVERFLOW_WARNING_INTERVAL) {
+            logger.warning("[Discord] Webhook queue is full (" + capacity + "), " + 
+                (overflowPolicy == OverflowPolicy.COLLAPSE ? "collapsed " : "dropped ") + 
+                droppedSinceWarning + " alerts");
+            lastOverflowWarning = now;
+            droppedSinceWarning = 0;
+        }
+    }
+    
+    /**
+     * Sends every payload whose buckets allow it and schedules the next attempt
+     */
+    private void pump() {
+        long now = System.currentTimeMillis();
+        long wait = Long.MAX_VALUE;
+        
+        // Turn collapsed alerts into summaries once there is room again
+        if (!collapsed.isEmpty() && queuedEmbeds < capacity) {
+            Iterator<Map.Entry<String, Integer>> collapsedIterator = collapsed.entrySet().iterator();
+            while (collapsedIterator.hasNext() && queuedEmbeds < capacity) {
+                Map.Entry<String, Integer> entry = collapsedIterator.next();
+                String summary = summaryBuilder.apply(entry.getValue());
+                addEmbed(entry.getKey(), summary, spool != null ? spool.append(entry.getKey(), summary) : 0L, 0L, null);
+                collapsedIterator.remove();
+            }
+        }
+        
+        if (globalBlockedUntil > now) {
+            wait = globalBlockedUntil - now;
+        } else {
+            Iterator<Delivery> iterator = queue.iterator();
+            while (iterator.hasNext()) {
+                Delivery delivery = iterator.next();
+                Bucket bucket = buckets.computeIfAbsent(delivery.url, url -> new Bucket());
+                
+                // One request per webhook at a time keeps alerts in order
+                if (bucket.inFlight) {
+                    continue;
+                }
+                
+                long readyAt = Math.max(delivery.notBefore, bucket.readyAt(now));
+                if (readyAt > now) {
+                    wait = Math.min(wait, readyAt - now);
+                    continue;
+                }
+                
+                iterator.remove();
+                openBatches.remove(delivery.url, delivery);
+                queuedEmbeds -= delivery.embeds.size();
+                if (delivery.refresher != null && !refresh(delivery)) {
+                    continue;
+                }
+                send(delivery, bucket);
+            }
+        }
+        
+        queueSize = queuedEmbeds;
+        if (wait != Long.MAX_VALUE) {
+            schedulePump(wait);
+        }
+    }
+    
+    /**
+     * Replaces the embed of a held delivery with its rebuilt version, keeping the spool in step
+     * @return False if the delivery was dropped
+     */
+    private boolean refresh(Delivery delivery) {
+        Supplier<String> refresher = delivery.refresher;
+        delivery.refresher = null;
+        
+        String embed;
+        try {
+            embed = refresher.get();
+        } catch (RuntimeException e) {
+            logger.warning("[Discord] Could not rebuild held webhook alert, sending it as queued: " + e.getMessage());
+            return true;
+        }
+        
+        long oldSpoolId = delivery.removeOldest();
+        if (embed == null) {
+            settle(oldSpoolId);
+            return false;
+        }
+        
+        // The rebuilt embed is spooled before the queued one is settled, so a crash can't lose both
+        delivery.add(embed, spool != null && oldSpoolId != 0L ? spool.append(delivery.url, embed) : 0L);
+        settle(oldSpoolId);
+        return true;
+    }
+    
+    /**
+     * Schedules the next pump, keeping a single timer that fires at the earliest time needed
+     */
+    private void schedulePump(long delayMillis) {
+        if (scheduler.isShutdown()) {
+            return;
+        }
+        long at = System.currentTimeMillis() + delayMillis;
+        if (pumpTimer != null) {
+            if (pumpTimerAt <= at) {
+                return;
+            }
+            pumpTimer.cancel(false);
+        }
+        pumpTimerAt = at;
+        pumpTimer = scheduler.schedule(this::scheduledPump, delayMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    private void scheduledPump() {
+        pumpTimer = null;
+        pump();
+    }
+    
+    private void send(Delivery delivery, Bucket bucket) {
+        bucket.inFlight = true;
+        delivery.attempts++;
+        
+        if (debug && delivery.attempts == 1) {
+            logger.info("[Discord] Sending webhook with " + delivery.embeds.size() + " embed(s), payload length: " + 
+                        (delivery.length + delivery.embeds.size() + 12));
+        }
+        
+        client.postJson(delivery.url, delivery.toPayload()).whenComplete((response, error) -> {
+            if (!scheduler.isShutdown()) {
+                scheduler.execute(() -> handleResponse(delivery, bucket, response, error));
+            }
+        });
+    }
+    
+    private void handleResponse(Delivery delivery, Bucket bucket, HttpResponse<String> response, Throwable error) {
+        bucket.inFlight = false;
+        long now = System.currentTimeMillis();
+        
+        if (error != null) {
+            retryLater(delivery, "error: " + error.getMessage());
+        } else {
+            HttpHeaders headers = response.headers();
+            updateBucket(bucket, headers, now);
+            int status = response.statusCode();
+            
+            if (status >= 200 && status < 300) {
+                delivered += delivery.embeds.size();
+                settle(delivery);
+            } else if (status == 429) {
+                // Discord tells us exactly when to retry, so this doesn't count as a failed attempt
+                rateLimited++;
+                delivery.attempts--;
+                long retryAfter = parseRetryAfter(headers, response.body());
+                if (headers.firstValue("X-RateLimit-Global").map(Boolean::parseBoolean).orElse(false)) {
+                    globalBlockedUntil = now + retryAfter;
+                } else {
+                    bucket.remaining = 0;
+                    bucket.resetAt = now + retryAfter;
+                }
+                requeue(delivery);
+                if (debug) {
+                    logger.info("[Discord] Rate limited, retrying in " + retryAfter + "ms");
+                }
+            } else if (status >= 500) {
+                retryLater(delivery, "response code " + status);
+            } else {
+                // Other client errors won't succeed on retry
+                logger.warning("[Discord] Failed to send webhook, response code: " + status);
+                logger.warning("[Discord] Error response: " + response.body());
+                settle(delivery);
+            }
+        }
+        
+        pump();
+    }
+    
+    private void retryLater(Delivery delivery, String cause) {
+        if (delivery.attempts > maxRetries) {
+            dropped += delivery.embeds.size();
+            logger.warning("[Discord] Giving up on webhook after " + delivery.attempts + " attempts (" + cause + ")");
+            settle(delivery);
+            return;
+        }
+        
+        // Exponential backoff with jitter so retries from a wave don't line up
+        long backoff = Math.min(MAX_BACKOFF_MS, baseRetryDelay << Math.min(16, delivery.attempts - 1));
+        backoff += ThreadLocalRandom.current().nextLong(backoff / 4 + 1);
+        delivery.notBefore = System.currentTimeMillis() + backoff;
+        requeue(delivery);
+        
+        if (debug) {
+            logger.info("[Discord] Webhook delivery failed (" + cause + "), retrying in " + backoff + "ms");
+        }
+    }
+    
+    /**
+     * Marks every embed of a delivery as settled in the spool
+     */
+    private void settle(Delivery delivery) {
+        for (long spoolId : delivery.spoolIds) {
+            settle(spoolId);
+        }
+    }
+    
+    private void settle(long spoolId) {
+        if (spool != null && spoolId != 0L) {
+            spool.markDone(spoolId);
+        }
+    }
+    
+    /**
+     * Puts a delivery back at the front of the queue, keeping its batch intact
+     */
+    private void requeue(Delivery delivery) {
+        queue.addFirst(delivery);
+        queuedEmbeds += delivery.embeds.size();
+        queueSize = queuedEmbeds;
+    }
+    
+    private void updateBucket(Bucket bucket, HttpHeaders headers, long now) {
+        headers.firstValue("X-RateLimit-Remaining").ifPresent(value -> {
+            try {
+                bucket.remaining = Integer.parseInt(value.trim());
+            } catch (NumberFormatException ignored) {
+                // Keep the previous value
+            }
+        });
+        headers.firstValue("X-RateLimit-Reset-After").ifPresent(value -> {
+            try {
+                bucket.resetAt = now + (long) Math.ceil(Double.parseDouble(value.trim()) * 1000);
+            } catch (NumberFormatException ignored) {
+                // Keep the previous value
+            }
+        });
+    }
+    
+    /**
+     * Reads the retry delay from the Retry-After header, or the retry_after field of the body
+     * @return The delay in milliseconds
+     */
+    static long parseRetryAfter(HttpHeaders headers, String body) {
+        String value = headers.firstValue("Retry-After").orElse(null);
+        if (value == null && body != null) {
+            int index = body.indexOf("\"retry_after\"");
+            if (index >= 0) {
+                int start = body.indexOf(':', index) + 1;
+                int end = start;
+                while (end < body.length() && "0123456789.- ".indexOf(body.charAt(end)) >= 0) {
+                    end++;
+                }
+                value = body.substring(start, end);
+            }
+        }
+        
+        if (value != null) {
+            try {
+                return Math.max(0L, (long) Math.ceil(Double.parseDouble(value.trim()) * 1000));
+            } catch (NumberFormatException ignored) {
+                // Fall through to the default
+            }
+        }
+        return 1000L;
+    }
+    
+    /**
+     * @return The number of embeds waiting to be delivered
+     */
+    public int getQueueSize() {
+        return queueSize;
+    }
+    
+    public long getDeliveredCount() {
+        return delivered;
+    }
+    
+    public long getDroppedCount() {
+        return dropped;
+    }
+    
+    public long getRateLimitedCount() {
+        return rateLimited;
+    }
+    
+    /**
+     * Stops delivering. Embeds still queued are kept in the spool when it's enabled, otherwise discarded
+     */
+    public void shutdown() {
+        int remaining = queueSize;
+        scheduler.shutdownNow();
+        if (remaining > 0) {
+            logger.warning("[Discord] " + remaining + " webhook alerts were not delivered before shutdown" + 
+                (spool != null ? ", they will be sent on the next start" : ""));
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.gigazelensky.antispoof.utils;
+
+import com.gigazelensky.antispoof.managers.ConfigManager;
+
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * A named webhook destination with its own delivery queue.
+ * Every sink batches and tracks rate limits separately, so a noisy sink
+ * can't hold up alerts routed to another one.
+ */
+public class WebhookSink {
+    private final String name;
+    private final WebhookDeliveryQueue queue;
+    private volatile String url;
+    
+    /**
+     * @param name The sink name from the config
+     * @param client The shared webhook client
+     * @param logger The logger for delivery warnings
+     * @param summaryBuilder Builds the embed JSON summarising a number of collapsed alerts
+     * @param spool The spool that keeps queued embeds across restarts (can be null)
+     */
+    public WebhookSink(String name, WebhookClient client, Logger logger, 
+                       IntFunction<String> summaryBuilder, WebhookSpool spool) {
+        this.name = name;
+        this.queue = new WebhookDeliveryQueue(name, client, logger, summaryBuilder, spool);
+    }
+    
+    /**
+     * Applies the sink settings from the config
+     * @param settings The sink settings
+     * @param debug Whether to log delivery details
+     */
+    public void configure(ConfigManager.WebhookSinkConfig settings, boolean debug) {
+        this.url = settings.getUrl();
+        queue.configure(
+            settings.getQueueSize(),
+            settings.getOverflowPolicy(),
+            settings.getMaxRetries(),
+            settings.getRetryBaseDelay(),
+            settings.getBatchWindow(),
+            settings.getMaxEmbedsPerRequest(),
+            debug
+        );
+    }
+    
+    /**
+     * Queues an embed for this sink's webhook
+     * @param embed The JSON object of a single embed
+     */
+    public void submit(String embed) {
+        queue.submit(url, embed);
+    }
+    
+    /**
+     * Queues an embed for this sink's webhook, held until the given time
+     * @param embed The JSON object of a single embed
+     * @param notBefore The earliest delivery time in epoch milliseconds
+     */
+    public void submit(String embed, long notBefore) {
+        queue.submit(url, embed, notBefore);
+    }
+    
+    /**
+     * Queues a held embed for this sink's webhook that is rebuilt when it is due
+     * @param embed The JSON object of a single embed, sent as is after a restart
+     * @param notBefore The earliest delivery time in epoch milliseconds
+     * @param refresher Returns the embed to send when it is due, or null to drop it
+     */
+    public void submit(String embed, long notBefore, Supplier<String> refresher) {
+        queue.submit(url, embed, notBefore, refresher);
+    }
+    
+    /**
+     * Queues spooled embeds that belong to this sink
+     * @param entries The spooled entries
+     */
+    public void replay(List<WebhookSpool.Entry> entries) {
+        queue.replay(entries);
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public String getUrl() {
+        return url;
+    }
+    
+    public WebhookDeliveryQueue getQueue() {
+        return queue;
+    }
+    
+    public void shutdown() {
+        queue.shutdown();
+    }
+}
@@ -0,0 +1,298 @@
+package com.gigazelensky.antispoof.utils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Crash-safe spool for webhook embeds that haven't been delivered yet.
+ * Every queued embed is appended to a log file as a Q record, or an H record
+ * when it is held until a later time, and marked with a D record once it was
+ * delivered or given up on. Records are written and
+ * fsynced in batches by a background thread, so callers never wait on disk.
+ * Embeds without a D record are replayed on the next start, and the file is
+ * compacted in the background once most of its records are settled.
+ */
+public class WebhookSpool {
+    // Entries carried over from the previous run
+    public static final class Entry {
+        private final long id;
+        private final String url;
+        private final String embed;
+        private final long notBefore;
+        
+        private Entry(long id, String url, String embed, long notBefore) {
+            this.id = id;
+            this.url = url;
+            this.embed = embed;
+            this.notBefore = notBefore;
+        }
+        
+        public long getId() { return id; }
+        public String getUrl() { return url; }
+        public String getEmbed() { return embed; }
+        public long getNotBefore() { return notBefore; }
+    }
+    
+    // Minimum number of settled records before compaction is considered
+    private static final int COMPACT_THRESHOLD = 1000;
+    private static final long FLUSH_WAIT_MILLIS = 200L;
+    
+    private final File file;
+    private final Logger logger;
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final BlockingQueue<Entry> pending = new LinkedBlockingQueue<>();
+    private final List<Entry> undelivered;
+    private final Thread writerThread;
+    private volatile boolean running = true;
+    
+    // Writer thread state
+    private final Map<Long, Entry> live = new LinkedHashMap<>();
+    private int settledRecords = 0;
+    private FileChannel channel;
+    
+    /**
+     * Opens the spool, reading back entries left by the previous run
+     * @param file The spool file
+     * @param logger The logger for I/O warnings
+     */
+    public WebhookSpool(File file, Logger logger) {
+        this.file = file;
+        this.logger = logger;
+        
+        load();
+        this.undelivered = new ArrayList<>(live.values());
+        compact();
+        
+        this.writerThread = new Thread(this::runWriter, "AntiSpoof-WebhookSpool");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+    
+    /**
+     * @return The embeds that were not delivered before the last shutdown, oldest first
+     */
+    public List<Entry> getUndelivered() {
+        return undelivered;
+    }
+    
+    /**
+     * Records a queued embed
+     * @param url The webhook URL
+     * @param embed The embed JSON
+     * @return The id used to mark the embed as delivered
+     */
+    public long append(String url, String embed) {
+        return append(url, embed, 0L);
+    }
+    
+    /**
+     * Records a queued embed that must not be sent before the given time
+     * @param url The webhook URL
+     * @param embed The embed JSON
+     * @param notBefore The earliest delivery time in epoch milliseconds, 0 to send right away
+     * @return The id used to mark the embed as delivered
+     */
+    public long append(String url, String embed, long notBefore) {
+        long id = nextId.getAndIncrement();
+        pending.offer(new Entry(id, url, embed, notBefore));
+        return id;
+    }
+    
+    /**
+     * Moves an undelivered embed to another webhook URL. The new record is written
+     * before the old one is marked done, so a crash in between can't lose the embed.
+     * @param entry The entry to move
+     * @param url The new webhook URL
+     * @return The entry under its new id and URL
+     */
+    public Entry retarget(Entry entry, String url) {
+        Entry moved = new Entry(nextId.getAndIncrement(), url, entry.embed, entry.notBefore);
+        pending.offer(moved);
+        markDone(entry.id);
+        return moved;
+    }
+    
+    /**
+     * Marks an embed as delivered, or given up on
+     * @param id The id returned by {@link #append}
+     */
+    public void markDone(long id) {
+        pending.offer(new Entry(id, null, null, 0L));
+    }
+    
+    private void load() {
+        if (!file.exists()) {
+            return;
+        }
+        
+        long maxId = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // A partially written last line from a crash is skipped
+                String[] parts = line.split("\t", line.startsWith("H") ? 5 : 4);
+                try {
+                    long id = Long.parseLong(parts[1]);
+                    maxId = Math.max(maxId, id);
+                    if (parts[0].equals("Q") && parts.length == 4) {
+                        live.put(id, new Entry(id, parts[2], parts[3], 0L));
+                    } else if (parts[0].equals("H") && parts.length == 5) {
+                        live.put(id, new Entry(id, parts[3], parts[4], Long.parseLong(parts[2])));
+                    } else if (parts[0].equals("D")) {
+                        live.remove(id);
+                    }
+                } catch (NumberFormatException | ArrayIndexOutOfBoundsException ignored) {
+                    // Corrupt record
+                }
+            }
+        } catch (IOException e) {
+            logger.warning("[Discord] Could not read webhook spool: " + e.getMessage());
+        }
+        nextId.set(maxId + 1);
+    }
+    
+    private void runWriter() {
+        List<Entry> batch = new ArrayList<>();
+        while (running || !pending.isEmpty()) {
+            try {
+                Entry first = pending.poll(FLUSH_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                pending.drainTo(batch);
+                write(batch);
+                batch.clear();
+                
+                if (settledRecords >= COMPACT_THRESHOLD && settledRecords > live.size() * 2) {
+                    compact();
+                }
+            } catch (InterruptedException e) {
+                running = false;
+            }
+        }
+        closeChannel();
+    }
+    
+    /**
+     * Appends a batch of records and forces them to disk with a single fsync
+     */
+    private void write(List<Entry> batch) {
+        StringBuilder records = new StringBuilder();
+        synchronized (live) {
+            for (Entry entry : batch) {
+                if (entry.embed != null) {
+                    live.put(entry.id, entry);
+                    appendQueued(records, entry);
+                } else if (live.remove(entry.id) != null) {
+                    records.append("D\t").append(entry.id).append('\n');
+                    settledRecords++;
+                }
+            }
+        }
+        if (records.length() == 0) {
+            return;
+        }
+        
+        try {
+            if (channel == null) {
+                File parent = file.getParentFile();
+                if (parent != null) {
+                    Files.createDirectories(parent.toPath());
+                }
+                channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, 
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(records.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            logger.warning("[Discord] Could not write webhook spool: " + e.getMessage());
+            closeChannel();
+        }
+    }
+    
+    /**
+     * Rewrites the spool with only the undelivered embeds, replacing the old file atomically
+     */
+    private void compact() {
+        closeChannel();
+        File temp = new File(file.getPath() + ".tmp");
+        StringBuilder records = new StringBuilder();
+        synchronized (live) {
+            for (Entry entry : live.values()) {
+                appendQueued(records, entry);
+            }
+        }
+        
+        try {
+            File parent = file.getParentFile();
+            if (parent != null) {
+                Files.createDirectories(parent.toPath());
+            }
+            try (FileChannel out = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE, 
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.wrap(records.toString().getBytes(StandardCharsets.UTF_8));
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                out.force(true);
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            settledRecords = 0;
+        } catch (IOException e) {
+            logger.warning("[Discord] Could not compact webhook spool: " + e.getMessage());
+        }
+    }
+    
+    private static void appendQueued(StringBuilder records, Entry entry) {
+        // Embeds are JSON without raw line breaks and URLs contain no tabs
+        if (entry.notBefore > 0L) {
+            records.append("H\t").append(entry.id).append('\t').append(entry.notBefore);
+        } else {
+            records.append("Q\t").append(entry.id);
+        }
+        records.append('\t').append(entry.url).append('\t').append(entry.embed).append('\n');
+    }
+    
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // Nothing left to do with a broken channel
+            }
+            channel = null;
+        }
+    }
+    
+    /**
+     * Writes every pending record and stops the writer thread
+     */
+    public void shutdown() {
+        running = false;
+        try {
+            writerThread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
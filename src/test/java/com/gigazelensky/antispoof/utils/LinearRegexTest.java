@@ -0,0 +1,177 @@
+package com.gigazelensky.antispoof.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that LinearRegex accepts exactly the inputs java.util.regex accepts,
+ * and that patterns it can't run are rejected and left to java.util.regex.
+ */
+class LinearRegexTest {
+    private static final String INPUT_ALPHABET = "abcAB1_ -\n";
+    private static final String[] ATOMS = {
+        "a", "b", "c", "A", ".", "\\d", "\\w", "\\s", "\\D", "\\-", "\\x61", "\\Qab\\E", "\\Qa.\\E", "\\Qb\\E"
+    };
+    private static final String[] CLASS_ITEMS = {"a", "b-c", "A", "\\d", "_", " ", "\\n"};
+    private static final String[] QUANTIFIERS = {"", "", "", "*", "+", "?", "{2}", "{0,2}", "{1,}"};
+
+    private static final String[] SAMPLES = {
+        "", "a", "ab", "abc", "fabric", "forge", "FORGE", "vanilla", "a b", "1.20", "aaaaaaaaaaaaaaaaaaaaaaaaaaaa!"
+    };
+
+    @Test
+    void matchesLikeJavaRegexOnGeneratedPatterns() {
+        Random random = new Random(20240611L);
+        int comparisons = 0;
+        int matched = 0;
+
+        for (int i = 0; i < 3000; i++) {
+            String regex = randomPattern(random);
+            Pattern expected = Pattern.compile(regex);
+            LinearRegex linear = LinearRegex.compile(regex);
+
+            for (int j = 0; j < 40; j++) {
+                String input = randomInput(random);
+                boolean matches = expected.matcher(input).matches();
+                assertEquals(matches, linear.matches(input),
+                    () -> "pattern " + escape(regex) + " on input " + escape(input));
+                comparisons++;
+                if (matches) matched++;
+            }
+        }
+
+        // Make sure the generated cases aren't all trivial rejections
+        assertTrue(matched > comparisons / 50, "only " + matched + " of " + comparisons + " inputs matched");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "(?i)forge", "fabric(-loader)?", "^vanilla$", "lunar\\z", "feather\\Z", "\\Qa.b\\E", "(?s).*",
+        "[^a-c]+", "(a|ab)(c|bcd)", "(a*)*b", "(?i:[a-c])x", "a{2,3}?", "\\u0061+", "(?<name>a)b", "x*$",
+        "\\Qab\\E?", "\\Qab\\E+", "\\Qa\\E{2}", "(?i)\\Qab\\E*c"
+    })
+    void matchesLikeJavaRegexOnHandWrittenPatterns(String regex) {
+        Pattern expected = Pattern.compile(regex);
+        LinearRegex linear = LinearRegex.compile(regex);
+        String[] inputs = {"forge", "FoRgE", "fabric", "fabric-loader", "vanilla", "vanilla\n", "lunar", "lunar\n",
+            "feather", "feather\n", "a.b", "axb", "a\nb", "def", "abcd", "ab", "aab", "Bx", "aa", "aaa", "a", "x\n", ""};
+
+        for (String input : inputs) {
+            assertEquals(expected.matcher(input).matches(), linear.matches(input),
+                () -> "pattern " + escape(regex) + " on input " + escape(input));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "\\bforge\\b", "\\p{L}+", "\\P{Digit}", "(?=f)forge", "(?!x).+", "(?<=a)b", "(?<!a)b",
+        "(a)\\1", "(?<n>a)\\k<n>", "(?x) f o r g e", "[a[b]]", "[a-z&&[^q]]", "a++", "(?>a|ab)c"
+    })
+    void rejectsConstructsItCannotMatchLinearly(String regex) {
+        // Valid for java.util.regex, so only the linear engine rejects it
+        Pattern.compile(regex);
+
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class, () -> LinearRegex.compile(regex));
+        assertTrue(error.getMessage().startsWith("Unsupported construct for linear matching"), error.getMessage());
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiterString = " -> ", value = {
+        "\\bforge\\b -> forge", "\\p{L}+ -> abc", "(?=f)forge -> forge", "a(?<=a)b -> ab",
+        "(a)\\1 -> aa", "(?x) f o r g e -> forge", "[a[b]] -> b"
+    })
+    void ruleMatcherFallsBackToJavaRegex(String regex, String matching) {
+        RuleMatcher rule = RuleMatcher.compile(regex, RuleMatcher.Engine.LINEAR, 0L);
+
+        assertFalse(rule.isLinear());
+        assertNotNull(rule.getFallbackReason());
+        assertTrue(rule.matches(matching), "fallback rule didn't match " + escape(matching));
+        Pattern expected = Pattern.compile(regex);
+        for (String input : SAMPLES) {
+            assertEquals(expected.matcher(input).matches(), rule.matches(input),
+                () -> "pattern " + escape(regex) + " on input " + escape(input));
+        }
+    }
+
+    @Test
+    void ruleMatcherUsesLinearEngineWhenSupported() {
+        RuleMatcher linear = RuleMatcher.compile("(?i)fabric(-loader)?", RuleMatcher.Engine.LINEAR, 0L);
+        RuleMatcher java = RuleMatcher.compile("(?i)fabric(-loader)?", RuleMatcher.Engine.JAVA, 0L);
+
+        assertTrue(linear.isLinear());
+        assertNull(linear.getFallbackReason());
+        assertFalse(java.isLinear());
+        assertNull(java.getFallbackReason());
+        for (String input : new String[] {"fabric", "Fabric-Loader", "fabric-", "forge"}) {
+            assertEquals(java.matches(input), linear.matches(input), input);
+        }
+    }
+
+    private static String randomPattern(Random random) {
+        StringBuilder pattern = new StringBuilder();
+        if (random.nextInt(6) == 0) pattern.append("(?i)");
+        if (random.nextInt(4) == 0) pattern.append('^');
+        appendAlternation(pattern, random, 0);
+        if (random.nextInt(4) == 0) pattern.append('$');
+        return pattern.toString();
+    }
+
+    private static void appendAlternation(StringBuilder pattern, Random random, int depth) {
+        int branches = random.nextInt(3) == 0 ? 2 : 1;
+        for (int i = 0; i < branches; i++) {
+            if (i > 0) pattern.append('|');
+            int pieces = 1 + random.nextInt(3);
+            for (int j = 0; j < pieces; j++) {
+                appendAtom(pattern, random, depth);
+                String quantifier = QUANTIFIERS[random.nextInt(QUANTIFIERS.length)];
+                pattern.append(quantifier);
+                if (!quantifier.isEmpty() && random.nextInt(4) == 0) pattern.append('?');
+            }
+        }
+    }
+
+    private static void appendAtom(StringBuilder pattern, Random random, int depth) {
+        int kind = random.nextInt(depth < 2 ? 5 : 3);
+        if (kind == 0 || kind == 1) {
+            pattern.append(ATOMS[random.nextInt(ATOMS.length)]);
+        } else if (kind == 2) {
+            pattern.append('[');
+            if (random.nextBoolean()) pattern.append('^');
+            int items = 1 + random.nextInt(3);
+            for (int i = 0; i < items; i++) {
+                pattern.append(CLASS_ITEMS[random.nextInt(CLASS_ITEMS.length)]);
+            }
+            pattern.append(']');
+        } else {
+            String[] openers = {"(", "(?:", "(?i:", "(?s:"};
+            pattern.append(openers[random.nextInt(openers.length)]);
+            appendAlternation(pattern, random, depth + 1);
+            pattern.append(')');
+        }
+    }
+
+    private static String randomInput(Random random) {
+        int length = random.nextInt(7);
+        StringBuilder input = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            input.append(INPUT_ALPHABET.charAt(random.nextInt(INPUT_ALPHABET.length())));
+        }
+        return input.toString();
+    }
+
+    private static String escape(String value) {
+        return "\"" + value.replace("\n", "\\n") + "\"";
+    }
+}
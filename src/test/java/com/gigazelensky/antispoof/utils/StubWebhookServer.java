@@ -0,0 +1,149 @@
+package com.gigazelensky.antispoof.utils;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Local HTTP server standing in for a Discord webhook. Replies are scripted in
+ * order, every request is answered with 204 once the script runs out, and all
+ * requests are recorded with the time they arrived.
+ */
+final class StubWebhookServer implements AutoCloseable {
+    /**
+     * A request the server received
+     */
+    static final class Request {
+        final long time;
+        final String path;
+        final String body;
+
+        private Request(long time, String path, String body) {
+            this.time = time;
+            this.path = path;
+            this.body = body;
+        }
+    }
+
+    private static final class Reply {
+        private final int status;
+        private final Map<String, String> headers;
+        private final String body;
+
+        private Reply(int status, Map<String, String> headers, String body) {
+            this.status = status;
+            this.headers = headers;
+            this.body = body;
+        }
+    }
+
+    private final HttpServer server;
+    private final ConcurrentLinkedQueue<Reply> replies = new ConcurrentLinkedQueue<>();
+    private final List<Request> requests = new CopyOnWriteArrayList<>();
+
+    StubWebhookServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    /**
+     * @param path The path, starting with a slash
+     * @return The URL of the path on this server
+     */
+    String url(String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+
+    /**
+     * Scripts the reply to the next unanswered request
+     * @param status The status code
+     * @param body The response body, can be empty
+     * @param headers Header names and values, alternating
+     */
+    void reply(int status, String body, String... headers) {
+        Map<String, String> map = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < headers.length; i += 2) {
+            map.put(headers[i], headers[i + 1]);
+        }
+        replies.add(new Reply(status, map, body));
+    }
+
+    /**
+     * Scripts a Discord rate limit reply
+     * @param retryAfterSeconds The Retry-After value
+     * @param global Whether the limit is the global one
+     */
+    void rateLimit(double retryAfterSeconds, boolean global) {
+        reply(429, "{\"message\":\"You are being rate limited.\",\"retry_after\":" + retryAfterSeconds +
+            ",\"global\":" + global + "}",
+            "Retry-After", String.valueOf(retryAfterSeconds),
+            "X-RateLimit-Global", String.valueOf(global));
+    }
+
+    /**
+     * Waits until the server received at least the given number of requests
+     * @param count The number of requests
+     * @param timeoutMillis How long to wait
+     * @return The requests received so far, in arrival order
+     */
+    List<Request> awaitRequests(int count, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (requests.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        return requests();
+    }
+
+    /**
+     * @return The requests received so far, in arrival order
+     */
+    List<Request> requests() {
+        return Collections.unmodifiableList(new ArrayList<>(requests));
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        long time = System.currentTimeMillis();
+        String body;
+        try (InputStream in = exchange.getRequestBody()) {
+            body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        requests.add(new Request(time, exchange.getRequestURI().getPath(), body));
+
+        Reply reply = replies.poll();
+        if (reply == null) {
+            reply = new Reply(204, Collections.emptyMap(), "");
+        }
+
+        reply.headers.forEach(exchange.getResponseHeaders()::add);
+        byte[] bytes = reply.body.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length == 0) {
+            exchange.sendResponseHeaders(reply.status, -1);
+        } else {
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(reply.status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+        exchange.close();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
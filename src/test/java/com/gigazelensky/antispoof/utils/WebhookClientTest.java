@@ -0,0 +1,65 @@
+package com.gigazelensky.antispoof.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WebhookClientTest {
+    private StubWebhookServer server;
+    private WebhookClient client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new StubWebhookServer();
+        client = new WebhookClient(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.shutdown();
+        server.close();
+    }
+
+    @Test
+    void postsJsonAndCompletesWithSuccessfulResponse() throws Exception {
+        HttpResponse<String> response = client.postJson(server.url("/hook"), "{\"content\":\"hi\"}")
+            .get(5, TimeUnit.SECONDS);
+
+        assertEquals(204, response.statusCode());
+        List<StubWebhookServer.Request> requests = server.requests();
+        assertEquals(1, requests.size());
+        assertEquals("/hook", requests.get(0).path);
+        assertEquals("{\"content\":\"hi\"}", requests.get(0).body);
+    }
+
+    @Test
+    void completesNormallyWithErrorResponse() throws Exception {
+        server.reply(400, "{\"message\":\"Invalid Form Body\"}");
+
+        HttpResponse<String> response = client.postJson(server.url("/hook"), "{}").get(5, TimeUnit.SECONDS);
+
+        // Status codes are for the caller to handle, only I/O problems fail the future
+        assertEquals(400, response.statusCode());
+        assertTrue(response.body().contains("Invalid Form Body"));
+    }
+
+    @Test
+    void malformedUrlFailsTheFuture() {
+        CompletableFuture<HttpResponse<String>> future = client.postJson("not a url", "{}");
+
+        assertTrue(future.isCompletedExceptionally());
+        ExecutionException error = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalArgumentException.class, error.getCause());
+    }
+}
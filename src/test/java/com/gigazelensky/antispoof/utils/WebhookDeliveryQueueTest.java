@@ -0,0 +1,183 @@
+package com.gigazelensky.antispoof.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WebhookDeliveryQueueTest {
+    private static final String EMBED = "{\"title\":\"alert\"}";
+
+    private StubWebhookServer server;
+    private WebhookClient client;
+    private WebhookDeliveryQueue queue;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new StubWebhookServer();
+        client = new WebhookClient(1);
+        queue = new WebhookDeliveryQueue("test", client, Logger.getLogger("WebhookDeliveryQueueTest"),
+            count -> "{\"title\":\"" + count + " collapsed\"}", null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        queue.shutdown();
+        client.shutdown();
+        server.close();
+    }
+
+    private void configure(int maxRetries) {
+        // No batch window so every submit is sent right away, and the shortest allowed backoff
+        queue.configure(100, WebhookDeliveryQueue.OverflowPolicy.COLLAPSE, maxRetries, 100L, 0L, 10, false);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean(), "condition not met within 5 seconds");
+    }
+
+    @Test
+    void retriesAfterRetryAfterOnRateLimit() throws Exception {
+        configure(5);
+        server.rateLimit(0.3, false);
+
+        queue.submit(server.url("/a"), EMBED);
+        List<StubWebhookServer.Request> requests = server.awaitRequests(2, 5000);
+        await(() -> queue.getDeliveredCount() == 1);
+
+        assertEquals(2, requests.size());
+        long waited = requests.get(1).time - requests.get(0).time;
+        assertTrue(waited >= 290, "retried after " + waited + "ms, expected at least 300ms");
+        assertEquals(requests.get(0).body, requests.get(1).body);
+        assertEquals(1, queue.getRateLimitedCount());
+        assertEquals(0, queue.getQueueSize());
+    }
+
+    @Test
+    void rateLimitOnlyBlocksItsOwnWebhookBucket() throws Exception {
+        configure(5);
+        server.rateLimit(0.5, false);
+
+        queue.submit(server.url("/a"), EMBED);
+        await(() -> queue.getRateLimitedCount() == 1);
+        queue.submit(server.url("/b"), EMBED);
+        List<StubWebhookServer.Request> requests = server.awaitRequests(3, 5000);
+        await(() -> queue.getDeliveredCount() == 2);
+
+        assertEquals(3, requests.size());
+        assertEquals("/a", requests.get(0).path);
+        // The other webhook is sent while /a is still waiting out its limit
+        assertEquals("/b", requests.get(1).path);
+        assertEquals("/a", requests.get(2).path);
+        assertTrue(requests.get(1).time - requests.get(0).time < 400, "/b was held back by the /a bucket");
+        assertTrue(requests.get(2).time - requests.get(0).time >= 490, "/a was retried before its reset");
+    }
+
+    @Test
+    void globalRateLimitBlocksEveryWebhook() throws Exception {
+        configure(5);
+        server.rateLimit(0.4, true);
+
+        queue.submit(server.url("/a"), EMBED);
+        await(() -> queue.getRateLimitedCount() == 1);
+        queue.submit(server.url("/b"), EMBED);
+        List<StubWebhookServer.Request> requests = server.awaitRequests(3, 5000);
+        await(() -> queue.getDeliveredCount() == 2);
+
+        assertEquals(3, requests.size());
+        long first = requests.get(0).time;
+        for (int i = 1; i < requests.size(); i++) {
+            long waited = requests.get(i).time - first;
+            assertTrue(waited >= 390, requests.get(i).path + " was sent " + waited + "ms into a 400ms global limit");
+        }
+    }
+
+    @Test
+    void rateLimitsDoNotUseUpRetries() throws Exception {
+        configure(0);
+        server.rateLimit(0.1, false);
+        server.rateLimit(0.1, false);
+
+        queue.submit(server.url("/a"), EMBED);
+        await(() -> queue.getDeliveredCount() == 1);
+
+        assertEquals(3, server.requests().size());
+        assertEquals(0, queue.getDroppedCount());
+    }
+
+    @Test
+    void holdsEmbedUntilNotBeforeWithoutDelayingOthers() throws Exception {
+        configure(5);
+        long notBefore = System.currentTimeMillis() + 400;
+
+        queue.submit(server.url("/held"), EMBED, notBefore);
+        queue.submit(server.url("/held"), EMBED);
+        List<StubWebhookServer.Request> requests = server.awaitRequests(2, 5000);
+        await(() -> queue.getDeliveredCount() == 2);
+
+        assertEquals(2, requests.size());
+        // The embed submitted later is sent first, the held one waits for its time
+        assertTrue(requests.get(0).time < notBefore, "the unheld embed waited for the held one");
+        assertTrue(requests.get(1).time >= notBefore, "the held embed was sent " +
+            (notBefore - requests.get(1).time) + "ms early");
+    }
+
+    @Test
+    void rebuildsHeldEmbedWhenItIsDue() throws Exception {
+        configure(5);
+        long notBefore = System.currentTimeMillis() + 300;
+        AtomicInteger rebuilds = new AtomicInteger();
+
+        queue.submit(server.url("/held"), EMBED, notBefore, () -> {
+            rebuilds.incrementAndGet();
+            return "{\"title\":\"rebuilt\"}";
+        });
+        queue.submit(server.url("/dropped"), EMBED, notBefore, () -> null);
+        List<StubWebhookServer.Request> requests = server.awaitRequests(1, 5000);
+        await(() -> queue.getDeliveredCount() == 1);
+        Thread.sleep(200);
+
+        // Only the rebuilt embed is sent, the one whose rebuild returned null is dropped
+        assertEquals(1, server.requests().size());
+        assertEquals("/held", requests.get(0).path);
+        assertTrue(requests.get(0).body.contains("rebuilt"), requests.get(0).body);
+        assertTrue(requests.get(0).time >= notBefore, "the held embed was sent before its hold time");
+        assertEquals(1, rebuilds.get());
+        assertEquals(0, queue.getQueueSize());
+    }
+
+    @Test
+    void givesUpAfterMaxRetriesWithBackoff() throws Exception {
+        configure(2);
+        for (int i = 0; i < 4; i++) {
+            server.reply(500, "");
+        }
+
+        queue.submit(server.url("/a"), EMBED);
+        await(() -> queue.getDroppedCount() == 1);
+        // Leave time for a retry that shouldn't happen
+        Thread.sleep(600);
+
+        List<StubWebhookServer.Request> requests = server.requests();
+        assertEquals(3, requests.size(), "expected the first attempt and 2 retries");
+        assertEquals(0, queue.getDeliveredCount());
+        assertEquals(0, queue.getQueueSize());
+
+        // Backoff doubles from the 100ms base, with up to a quarter of jitter on top
+        long firstRetry = requests.get(1).time - requests.get(0).time;
+        long secondRetry = requests.get(2).time - requests.get(1).time;
+        assertTrue(firstRetry >= 95, "first retry after " + firstRetry + "ms");
+        assertTrue(secondRetry >= 195, "second retry after " + secondRetry + "ms");
+    }
+}
@@ -0,0 +1,98 @@
+package com.gigazelensky.antispoof.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.List;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WebhookSpoolTest {
+    private static final Logger LOGGER = Logger.getLogger("WebhookSpoolTest");
+
+    @TempDir
+    File folder;
+
+    @Test
+    void keepsUndeliveredEmbedsAcrossRestarts() {
+        File file = new File(folder, "webhook-spool.log");
+        WebhookSpool spool = new WebhookSpool(file, LOGGER);
+        long delivered = spool.append("https://example.invalid/a", "{\"title\":\"sent\"}");
+        spool.append("https://example.invalid/b", "{\"title\":\"pending\"}");
+        spool.markDone(delivered);
+        spool.shutdown();
+
+        List<WebhookSpool.Entry> undelivered = new WebhookSpool(file, LOGGER).getUndelivered();
+
+        assertEquals(1, undelivered.size());
+        assertEquals("https://example.invalid/b", undelivered.get(0).getUrl());
+        assertEquals("{\"title\":\"pending\"}", undelivered.get(0).getEmbed());
+        assertEquals(0L, undelivered.get(0).getNotBefore());
+    }
+
+    @Test
+    void keepsTheHoldTimeOfDelayedEmbeds() {
+        File file = new File(folder, "webhook-spool.log");
+        long notBefore = System.currentTimeMillis() + 60_000L;
+        WebhookSpool spool = new WebhookSpool(file, LOGGER);
+        long id = spool.append("https://example.invalid/a", "{\"title\":\"delayed\"}", notBefore);
+        spool.shutdown();
+
+        List<WebhookSpool.Entry> undelivered = new WebhookSpool(file, LOGGER).getUndelivered();
+
+        assertEquals(1, undelivered.size());
+        assertEquals(id, undelivered.get(0).getId());
+        assertEquals(notBefore, undelivered.get(0).getNotBefore());
+        assertEquals("{\"title\":\"delayed\"}", undelivered.get(0).getEmbed());
+    }
+
+    @Test
+    void retargetedEmbedIsOnlyKeptUnderTheNewUrl() {
+        File file = new File(folder, "webhook-spool.log");
+        WebhookSpool spool = new WebhookSpool(file, LOGGER);
+        spool.append("https://example.invalid/removed", "{\"title\":\"moved\"}", 1234L);
+        spool.shutdown();
+
+        spool = new WebhookSpool(file, LOGGER);
+        WebhookSpool.Entry moved = spool.retarget(spool.getUndelivered().get(0), "https://example.invalid/default");
+        spool.shutdown();
+
+        assertEquals("https://example.invalid/default", moved.getUrl());
+        List<WebhookSpool.Entry> undelivered = new WebhookSpool(file, LOGGER).getUndelivered();
+        assertEquals(1, undelivered.size());
+        assertEquals(moved.getId(), undelivered.get(0).getId());
+        assertEquals("https://example.invalid/default", undelivered.get(0).getUrl());
+        assertEquals("{\"title\":\"moved\"}", undelivered.get(0).getEmbed());
+        assertEquals(1234L, undelivered.get(0).getNotBefore());
+    }
+
+    @Test
+    void replayedHeldEmbedWaitsForItsTime() throws Exception {
+        try (StubWebhookServer server = new StubWebhookServer()) {
+            File file = new File(folder, "webhook-spool.log");
+            long notBefore = System.currentTimeMillis() + 400;
+            WebhookSpool previous = new WebhookSpool(file, LOGGER);
+            previous.append(server.url("/a"), "{\"title\":\"delayed\"}", notBefore);
+            previous.shutdown();
+
+            WebhookSpool spool = new WebhookSpool(file, LOGGER);
+            WebhookClient client = new WebhookClient(1);
+            WebhookDeliveryQueue queue = new WebhookDeliveryQueue("test", client, LOGGER, count -> "{}", spool);
+            queue.configure(100, WebhookDeliveryQueue.OverflowPolicy.COLLAPSE, 5, 100L, 0L, 10, false);
+            try {
+                queue.replay(spool.getUndelivered());
+                List<StubWebhookServer.Request> requests = server.awaitRequests(1, 5000);
+
+                assertEquals(1, requests.size());
+                assertTrue(requests.get(0).time >= notBefore, "the replayed embed was sent before its hold time");
+            } finally {
+                queue.shutdown();
+                client.shutdown();
+                spool.shutdown();
+            }
+        }
+    }
+}